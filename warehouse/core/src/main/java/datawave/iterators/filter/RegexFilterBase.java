@@ -1,7 +1,6 @@
 package datawave.iterators.filter;
 
 import java.util.Date;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -27,6 +26,10 @@ public abstract class RegexFilterBase extends AppliedRule {
     private Pattern pattern;
     private boolean ruleApplied;
     
+    // consecutive keys usually share the key field, so the match result for the last key field is kept
+    private String lastKeyField = null;
+    private boolean lastMatched = false;
+    
     /**
      * This method is to be implemented by sub-classes of this class. It should return the String that needs to be tested against the REGEX for the instance of
      * this class.
@@ -67,8 +70,11 @@ public abstract class RegexFilterBase extends AppliedRule {
             dtFlag = true;
         } else {
             String keyField = getKeyField(k, v);
-            Matcher matcher = pattern.matcher(keyField);
-            if (matcher.find()) {
+            if (!keyField.equals(lastKeyField)) {
+                lastMatched = pattern.matcher(keyField).find();
+                lastKeyField = keyField;
+            }
+            if (lastMatched) {
                 long timeStamp = k.getTimestamp();
                 dtFlag = timeStamp > period.getCutOffMilliseconds();
                 if (log.isTraceEnabled()) {
@@ -126,6 +132,8 @@ public abstract class RegexFilterBase extends AppliedRule {
         }
         
         ruleApplied = false;
+        lastKeyField = null;
+        lastMatched = false;
     }
     
     @Override
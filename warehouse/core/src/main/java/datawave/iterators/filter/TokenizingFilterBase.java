@@ -1,5 +1,6 @@
 package datawave.iterators.filter;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 import datawave.iterators.filter.TokenTtlTrie.Builder.MERGE_MODE;
@@ -54,6 +55,10 @@ public abstract class TokenizingFilterBase extends AppliedRule {
     private TokenTtlTrie scanTrie = null;
     private boolean ruleApplied;
     
+    // consecutive keys usually share the key field, so the scan result for the last key field is kept
+    private byte[] lastKeyField = null;
+    private Long lastCalculatedTTL = null;
+    
     public abstract byte[] getKeyField(Key k, Value V);
     
     /**
@@ -77,6 +82,8 @@ public abstract class TokenizingFilterBase extends AppliedRule {
     public void init(FilterOptions options, IteratorEnvironment iterEnv) {
         super.init(options, iterEnv);
         ruleApplied = false;
+        lastKeyField = null;
+        lastCalculatedTTL = null;
         String confPattern = options.getOption(AgeOffConfigParams.MATCHPATTERN);
         MERGE_MODE mode = getMergeMode(options);
         if (!Objects.equals(matchPattern, confPattern)) {
@@ -95,7 +102,7 @@ public abstract class TokenizingFilterBase extends AppliedRule {
     
     @Override
     public boolean accept(AgeOffPeriod period, Key k, Value V) {
-        Long calculatedTTL = scanTrie.scan(getKeyField(k, V));
+        Long calculatedTTL = scan(getKeyField(k, V));
         if (calculatedTTL == null) {
             ruleApplied = false;
             return true;
@@ -108,6 +115,22 @@ public abstract class TokenizingFilterBase extends AppliedRule {
         return k.getTimestamp() > cutoffTimestamp;
     }
     
+    /**
+     * Scans the key field for configured tokens, reusing the result of the last scan when the key field has not changed
+     *
+     * @param keyField
+     *            the key field to scan
+     * @return the TTL of the first configured token found, or null if none were found
+     */
+    private Long scan(byte[] keyField) {
+        if (lastKeyField == null || !Arrays.equals(lastKeyField, keyField)) {
+            lastCalculatedTTL = scanTrie.scan(keyField);
+            // the key field may be the backing array of a key which is later reused
+            lastKeyField = Arrays.copyOf(keyField, keyField.length);
+        }
+        return lastCalculatedTTL;
+    }
+    
     @Override
     public boolean isFilterRuleApplied() {
         return ruleApplied;
@@ -0,0 +1,57 @@
+package datawave.iterators.filter;
+
+import datawave.iterators.filter.ageoff.FilterOptions;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnVisibilityTokenizingFilterTest {
+    
+    private static final long MILLIS_IN_DAY = 1000L * 60 * 60 * 24L;
+    private static final Value VALUE = new Value();
+    
+    private long now;
+    private ColumnVisibilityTokenizingFilter filter;
+    
+    @Before
+    public void setUp() {
+        now = System.currentTimeMillis();
+        FilterOptions options = new FilterOptions(now);
+        options.setTTL(1);
+        options.setTTLUnits(AgeOffTtlUnits.DAYS);
+        options.setOption(AgeOffConfigParams.MATCHPATTERN, "\"A\": 10d,\n\"B\"");
+        
+        filter = new ColumnVisibilityTokenizingFilter();
+        filter.init(options);
+    }
+    
+    private Key key(String visibility, int daysAgo) {
+        return new Key("row", "cf", "cq", visibility, now - (daysAgo * MILLIS_IN_DAY));
+    }
+    
+    /**
+     * Verify that runs of keys with the same visibility, and changes of visibility, are aged off by the rule for their own visibility.
+     */
+    @Test
+    public void testConsecutiveKeys() {
+        assertTrue(filter.accept(key("A&C", 5), VALUE));
+        assertTrue(filter.isFilterRuleApplied());
+        assertFalse(filter.accept(key("A&C", 20), VALUE));
+        assertTrue(filter.isFilterRuleApplied());
+        
+        assertTrue(filter.accept(key("C", 20), VALUE));
+        assertFalse(filter.isFilterRuleApplied());
+        assertTrue(filter.accept(key("C", 30), VALUE));
+        assertFalse(filter.isFilterRuleApplied());
+        
+        assertFalse(filter.accept(key("B&C", 5), VALUE));
+        assertTrue(filter.isFilterRuleApplied());
+        
+        assertTrue(filter.accept(key("A&C", 5), VALUE));
+        assertTrue(filter.isFilterRuleApplied());
+    }
+}
@@ -0,0 +1,91 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+
+/**
+ * A precompiled view of the edge definitions for a single data type, indexed by source field name. Given the set of (grouped) field names present in a record,
+ * this returns only the edge definitions whose source and sink fields are both present, preserving the configured definition order. This avoids walking every
+ * edge definition for every record when a data type defines many edges but a record only populates a few of the referenced fields.
+ */
+public class EdgeDefinitionMatcher {
+    
+    private final List<EdgeDefinition> definitions;
+    private final int size;
+    private final Map<String,List<Integer>> bySourceField = new HashMap<>();
+    
+    public EdgeDefinitionMatcher(List<EdgeDefinition> definitions) {
+        this.definitions = definitions;
+        this.size = definitions.size();
+        for (int i = 0; i < size; i++) {
+            String source = definitions.get(i).getSourceFieldName();
+            List<Integer> indices = bySourceField.get(source);
+            if (indices == null) {
+                indices = new ArrayList<>();
+                bySourceField.put(source, indices);
+            }
+            indices.add(i);
+        }
+    }
+    
+    /**
+     * Determine whether this matcher was compiled from the supplied definitions. The edge definitions may be pruned after setup (preconditions, blacklists),
+     * in which case the matcher must be rebuilt.
+     *
+     * @param defs
+     *            the current edge definitions for the data type
+     * @return true if the matcher is still valid for the definitions
+     */
+    public boolean isCompiledFrom(List<EdgeDefinition> defs) {
+        return defs == definitions && defs.size() == size;
+    }
+    
+    /**
+     * Get the edge definitions whose source and sink fields are both present.
+     *
+     * @param presentFields
+     *            the grouped field names present in the record
+     * @return the matching edge definitions in configured order
+     */
+    public List<EdgeDefinition> match(Set<String> presentFields) {
+        BitSet candidates = new BitSet(size);
+        if (presentFields.size() < bySourceField.size()) {
+            for (String field : presentFields) {
+                List<Integer> indices = bySourceField.get(field);
+                if (indices != null) {
+                    for (Integer index : indices) {
+                        candidates.set(index);
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<String,List<Integer>> entry : bySourceField.entrySet()) {
+                if (presentFields.contains(entry.getKey())) {
+                    for (Integer index : entry.getValue()) {
+                        candidates.set(index);
+                    }
+                }
+            }
+        }
+        
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        List<EdgeDefinition> matches = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            EdgeDefinition edgeDef = definitions.get(i);
+            if (presentFields.contains(edgeDef.getSinkFieldName())) {
+                matches.add(edgeDef);
+            }
+        }
+        return matches;
+    }
+}
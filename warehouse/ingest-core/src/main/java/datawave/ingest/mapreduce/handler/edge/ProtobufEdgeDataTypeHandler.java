@@ -1,13 +1,9 @@
 package datawave.ingest.mapreduce.handler.edge;
 
-import com.google.common.base.Charsets;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
-import com.google.common.hash.HashCode;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 import com.google.common.hash.PrimitiveSink;
 import datawave.data.normalizer.DateNormalizer;
 import datawave.edge.util.EdgeKey;
@@ -68,6 +64,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -105,6 +102,13 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     public static final String EDGE_PROCESS_FAILURE_POLICY = "protobufedge.process.default.failurepolicy";
     
     public static final String EDGE_STATS_LOG_USE_BLOOM = "protobufedge.stats.use.bloom";
+    public static final String EDGE_STATS_LOG_BLOOM_EXPECTED_INSERTIONS = "protobufedge.stats.bloom.expected.insertions";
+    
+    /**
+     * Parameter for enabling per-record edge deduplication. When enabled, an edge key that is generated more than once for the same record (e.g. the same
+     * source/sink pair appearing in multiple subgroups) is only written once, consistent with how the stats keys are already deduplicated.
+     */
+    public static final String EDGE_DEDUP_RECORD_EDGES = "protobufedge.dedup.record.edges";
     
     public static final String ACTIVITY_DATE_FUTURE_DELTA = "protobufedge.valid.activitytime.future.delta";
     public static final String ACTIVITY_DATE_PAST_DELTA = "protobufedge.valid.activitytime.past.delta";
@@ -138,6 +142,8 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     
     protected TaskAttemptContext taskAttemptContext = null;
     protected boolean useStatsLogBloomFilter = false;
+    protected int statsLogBloomExpectedInsertions = 5000000;
+    protected boolean dedupRecordEdges = false;
     protected FailurePolicy setUpFailurePolicy = FailurePolicy.FAIL_JOB;
     protected FailurePolicy processFailurePolicy = FailurePolicy.FAIL_JOB;
     
@@ -146,6 +152,19 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     protected HashSet<String> edgeRelationships = new HashSet<>();
     protected HashSet<String> collectionType = new HashSet<>();
     
+    // compiled edge definition matchers, indexed by data type
+    private Map<String,EdgeDefinitionMatcher> edgeMatchers = new HashMap<>();
+    
+    // used so we don't write duplicate edge entries for a record when deduplication is enabled
+    protected Set<Key> edgeLog = null;
+    
+    private static final int MAX_VISIBILITY_CACHE_SIZE = 1000;
+    private Map<Map<String,String>,Text> visibilityCache = new HashMap<>();
+    private ColumnVisibility cachedEventVisibility = null;
+    private Text eventVisibilityText = null;
+    
+    protected Text edgeTableNameText = null;
+    
     long futureDelta, pastDelta;
     long newFormatStartDate;
     
@@ -170,7 +189,10 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         
         // Grab the edge table name
         this.edgeTableName = ConfigurationHelper.isNull(conf, EDGE_TABLE_NAME, String.class);
+        this.edgeTableNameText = new Text(this.edgeTableName);
         this.useStatsLogBloomFilter = conf.getBoolean(EDGE_STATS_LOG_USE_BLOOM, false);
+        this.statsLogBloomExpectedInsertions = conf.getInt(EDGE_STATS_LOG_BLOOM_EXPECTED_INSERTIONS, this.statsLogBloomExpectedInsertions);
+        this.dedupRecordEdges = conf.getBoolean(EDGE_DEDUP_RECORD_EDGES, false);
         this.metadataTableName = ConfigurationHelper.isNull(conf, METADATA_TABLE_NAME, String.class);
         
         this.enableBlacklist = ConfigurationHelper.isNull(conf, EDGE_TABLE_BLACKIST_ENABLE, Boolean.class);
@@ -417,6 +439,25 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     
     public void setEdges(Map<String,EdgeDefinitionConfigurationHelper> edges) {
         this.edges = edges;
+        this.edgeMatchers.clear();
+    }
+    
+    /**
+     * Get the compiled edge definition matcher for a data type, rebuilding it if the edge definitions have changed since it was compiled.
+     *
+     * @param typeName
+     *            the data type name
+     * @param edgeDefs
+     *            the current edge definitions for the data type
+     * @return the matcher
+     */
+    protected EdgeDefinitionMatcher getEdgeMatcher(String typeName, List<EdgeDefinition> edgeDefs) {
+        EdgeDefinitionMatcher matcher = edgeMatchers.get(typeName);
+        if (matcher == null || !matcher.isCompiledFrom(edgeDefs)) {
+            matcher = new EdgeDefinitionMatcher(edgeDefs);
+            edgeMatchers.put(typeName, matcher);
+        }
+        return matcher;
     }
     
     public Map<String,Set<String>> getBlacklistFieldLookup() {
@@ -448,8 +489,8 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
     }
     
     // used so we don't write duplicate stats entries for events with multiple field values;
-    protected Set<HashCode> activityLog = null;
-    protected Set<HashCode> durationLog = null;
+    protected Set<Key> activityLog = null;
+    protected Set<Key> durationLog = null;
     
     protected BloomFilter<Key> activityLogBloom = null;
     protected BloomFilter<Key> durationLogBloom = null;
@@ -563,18 +604,21 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         Map<Key,Set<Metadata>> eventMetadataRegistry = new HashMap<>();
         
         if (useStatsLogBloomFilter) {
-            activityLogBloom = BloomFilter.create(new KeyFunnel(), 5000000);
-            durationLogBloom = BloomFilter.create(new KeyFunnel(), 5000000);
-            log.info("ProtobufEdgeDataTypeHandler using bloom filters");
+            activityLogBloom = BloomFilter.create(new KeyFunnel(), statsLogBloomExpectedInsertions);
+            durationLogBloom = BloomFilter.create(new KeyFunnel(), statsLogBloomExpectedInsertions);
+            if (log.isTraceEnabled()) {
+                log.trace("ProtobufEdgeDataTypeHandler using bloom filters");
+            }
         } else {
             activityLog = new HashSet<>();
             durationLog = new HashSet<>();
         }
+        edgeLog = dedupRecordEdges ? new HashSet<>() : null;
         
         /*
-         * Create Edge Values from Edge Definitions
+         * Create Edge Values from Edge Definitions, only considering those whose source and sink fields are present in this event
          */
-        for (EdgeDefinition edgeDef : edgeDefs) {
+        for (EdgeDefinition edgeDef : getEdgeMatcher(typeName, edgeDefs).match(depthFirstList.keySet())) {
             
             String jexlPreconditions = null;
             
@@ -944,14 +988,14 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         /*
          * Regular Edges
          */
+        Text visibility = this.getVisibility(value);
         Key edgeKey = createEdgeKey(value, value.getSource(), value.getSource().getValue(ValueType.INDEXED), value.getSink(),
-                        value.getSink().getValue(ValueType.INDEXED), this.getVisibility(value), date_type);
-        writeKey(edgeKey, value.getEdgeValue(true, date_type), context, contextWriter);
-        counter++;
+                        value.getSink().getValue(ValueType.INDEXED), visibility, date_type);
+        counter += writeEdgeKey(edgeKey, value, true, date_type, context, contextWriter);
         
         // source STATS/ACTIVITY row
-        Key sourceActivityKey = createStatsKey(STATS_TYPE.ACTIVITY, value, value.getSource(), value.getSource().getValue(ValueType.INDEXED),
-                        this.getVisibility(value), date_type);
+        Key sourceActivityKey = createStatsKey(STATS_TYPE.ACTIVITY, value, value.getSource(), value.getSource().getValue(ValueType.INDEXED), visibility,
+                        date_type);
         counter += writeKey(sourceActivityKey, value.getStatsActivityValue(true, date_type), context, contextWriter);
         
         // source STATS/DURATION row
@@ -968,13 +1012,13 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         
         if (value.getEdgeDirection() == EdgeDirection.BIDIRECTIONAL) {
             Key biKey = createEdgeKey(value, value.getSink(), value.getSink().getValue(ValueType.INDEXED), value.getSource(),
-                            value.getSource().getValue(ValueType.INDEXED), this.getVisibility(value), date_type);
+                            value.getSource().getValue(ValueType.INDEXED), visibility, date_type);
             
-            counter += writeKey(biKey, value.getEdgeValue(false, date_type), context, contextWriter);
+            counter += writeEdgeKey(biKey, value, false, date_type, context, contextWriter);
             
             // sink STATS/ACTIVITY row
-            Key sinkActivityKey = createStatsKey(STATS_TYPE.ACTIVITY, value, value.getSink(), value.getSink().getValue(ValueType.INDEXED),
-                            this.getVisibility(value), date_type);
+            Key sinkActivityKey = createStatsKey(STATS_TYPE.ACTIVITY, value, value.getSink(), value.getSink().getValue(ValueType.INDEXED), visibility,
+                            date_type);
             counter += writeKey(sinkActivityKey, value.getStatsActivityValue(false, date_type), context, contextWriter);
             
             // sink STATS/DURATION row
@@ -992,7 +1036,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             
             Key maskedKey = createEdgeKey(value, value.getSource(), value.getSource().getMaskedValue(ValueType.INDEXED), value.getSink(), value.getSink()
                             .getMaskedValue(ValueType.INDEXED), maskedVisibility, date_type);
-            counter += writeKey(maskedKey, value.getEdgeValue(true, date_type), context, contextWriter);
+            counter += writeEdgeKey(maskedKey, value, true, date_type, context, contextWriter);
             
             if (value.getSource().hasMaskedValue()) {
                 // source STATS/ACTIVITY row
@@ -1014,7 +1058,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
             if (value.getEdgeDirection() == EdgeDirection.BIDIRECTIONAL) {
                 Key maskedBiKey = createEdgeKey(value, value.getSink(), value.getSink().getMaskedValue(ValueType.INDEXED), value.getSource(), value.getSource()
                                 .getMaskedValue(ValueType.INDEXED), maskedVisibility, date_type);
-                counter += writeKey(maskedBiKey, value.getEdgeValue(false, date_type), context, contextWriter);
+                counter += writeEdgeKey(maskedBiKey, value, false, date_type, context, contextWriter);
                 
                 if (value.getSink().hasMaskedValue()) {
                     // sink STATS/ACTIVITY row
@@ -1035,6 +1079,18 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         return counter;
     }
     
+    /**
+     * Write an edge key, building its value only if the key has not already been written for the current record when per-record deduplication is enabled.
+     */
+    private long writeEdgeKey(Key key, EdgeDataBundle value, boolean forwardEdge, EdgeKey.DATE_TYPE date_type,
+                    TaskInputOutputContext<KEYIN,? extends RawRecordContainer,KEYOUT,VALUEOUT> context, ContextWriter<KEYOUT,VALUEOUT> contextWriter)
+                    throws IOException, InterruptedException {
+        if (null != edgeLog && !edgeLog.add(key)) {
+            return 0;
+        }
+        return writeKey(key, value.getEdgeValue(forwardEdge, date_type), context, contextWriter);
+    }
+    
     private Key createMetadataEdgeKey(EdgeDataBundle edgeValue, VertexValue source, String sourceValue, VertexValue sink, String sinkValue, Text visibility) {
         long truncatedEventDate = edgeValue.getEventDate() / ONE_DAY * ONE_DAY;
         return createEdgeKey(edgeValue, source, sourceValue, sink, sinkValue, visibility, truncatedEventDate, EdgeKey.DATE_TYPE.OLD_EVENT);
@@ -1070,24 +1126,11 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
         Key key = builder.build().encode();
         boolean isNewKey = false;
         
-        /**
-         * compute 128bit hashcode for edge instead of storing the raw key value we store a 128bit hash value of the edge.
-         */
-        HashFunction hf = Hashing.murmur3_128();
-        
-        /**
-         * of note. The google HashCode is a well defined object (equals and hashcode) and is immutable. it's safe for use in hashsets.
-         *
-         */
-        HashCode hcode = hf.newHasher().putString(key.toString() + key.hashCode(), Charsets.UTF_8).hash();
-        
+        // the logs are scoped to a single record, so the keys themselves are kept rather than rendering and hashing each one
         switch (statsType) {
             case ACTIVITY:
                 if (null != activityLog) {
-                    if (!activityLog.contains(hcode)) {
-                        activityLog.add(hcode);
-                        isNewKey = true;
-                    }
+                    isNewKey = activityLog.add(key);
                 } else if (useStatsLogBloomFilter) {
                     if (!activityLogBloom.mightContain(key)) {
                         activityLogBloom.put(key);
@@ -1099,10 +1142,7 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
                 break;
             case DURATION:
                 if (null != durationLog) {
-                    if (!durationLog.contains(hcode)) {
-                        durationLog.add(hcode);
-                        isNewKey = true;
-                    }
+                    isNewKey = durationLog.add(key);
                 } else if (useStatsLogBloomFilter) {
                     if (!durationLogBloom.mightContain(key)) {
                         durationLogBloom.put(key);
@@ -1124,7 +1164,10 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
                     ContextWriter<KEYOUT,VALUEOUT> contextWriter) throws IOException, InterruptedException {
         if (key == null)
             return 0;
-        BulkIngestKey bk = new BulkIngestKey(new Text(this.edgeTableName), key);
+        if (null == edgeTableNameText) {
+            edgeTableNameText = new Text(this.edgeTableName);
+        }
+        BulkIngestKey bk = new BulkIngestKey(edgeTableNameText, key);
         contextWriter.write(bk, val, context);
         return 1;
     }
@@ -1194,15 +1237,28 @@ public class ProtobufEdgeDataTypeHandler<KEYIN,KEYOUT,VALUEOUT> implements Exten
      * @return the visibility as Text object
      */
     protected Text getVisibility(Map<String,String> markings, RawRecordContainer event) {
-        try {
-            if (null == markings || markings.isEmpty()) {
-                return new Text(flatten(event.getVisibility()));
-            } else {
-                return new Text(flatten(markingFunctions.translateToColumnVisibility(markings)));
+        // every edge and stats key for a record shares a handful of visibilities, so cache the flattened forms
+        if (null == markings || markings.isEmpty()) {
+            ColumnVisibility eventVisibility = event.getVisibility();
+            if (null == eventVisibilityText || !Objects.equals(eventVisibility, cachedEventVisibility)) {
+                cachedEventVisibility = eventVisibility;
+                eventVisibilityText = new Text(flatten(eventVisibility));
+            }
+            return eventVisibilityText;
+        }
+        Text visibility = visibilityCache.get(markings);
+        if (null == visibility) {
+            if (visibilityCache.size() >= MAX_VISIBILITY_CACHE_SIZE) {
+                visibilityCache.clear();
+            }
+            try {
+                visibility = new Text(flatten(markingFunctions.translateToColumnVisibility(markings)));
+            } catch (datawave.marking.MarkingFunctions.Exception e) {
+                throw new RuntimeException("Cannot convert markings into column visibility", e);
             }
-        } catch (datawave.marking.MarkingFunctions.Exception e) {
-            throw new RuntimeException("Cannot convert markings into column visibility", e);
+            visibilityCache.put(new HashMap<>(markings), visibility);
         }
+        return visibility;
     }
     
     protected Text getVisibility(EdgeDataBundle value) {
@@ -0,0 +1,132 @@
+package datawave.ingest.mapreduce.handler.facet;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.ingest.IngestHelperInterface;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.metadata.RawRecordMetadata;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates facet cardinalities across records in the mapper. Each facet key maps to a single HyperLogLogPlus sketch which is offered the id of every
+ * record that generates the key, so a mapper emits one merged sketch per facet key instead of one sketch per record. The sketches are kept in a bounded, least
+ * recently used cache; entries evicted from the cache are handed back to the caller to be written, and the remaining entries are flushed when the mapper
+ * requests the bulk metadata during cleanup.
+ * <p>
+ * Facet metadata entries are deduplicated in the same way, since they carry no value.
+ */
+public class FacetAccumulator implements RawRecordMetadata {
+    
+    private static final Logger log = Logger.getLogger(FacetAccumulator.class);
+    
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    
+    private final int maxEntries;
+    private final int precision;
+    
+    // access ordered, so iteration starts with the least recently used entry
+    private final LinkedHashMap<BulkIngestKey,HyperLogLogPlus> sketches = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<BulkIngestKey> metadata = new HashSet<>();
+    
+    public FacetAccumulator(int maxEntries, int precision) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.precision = precision;
+    }
+    
+    /**
+     * Offer a record id to the sketch for a facet key, evicting the least recently used sketches if the cache is full.
+     *
+     * @param key
+     *            the facet key
+     * @param id
+     *            the record id to add to the cardinality
+     * @param evicted
+     *            collects the entries evicted from the cache which must be written by the caller
+     * @throws IOException
+     *             if an evicted sketch cannot be serialized
+     */
+    public void offer(BulkIngestKey key, String id, Multimap<BulkIngestKey,Value> evicted) throws IOException {
+        HyperLogLogPlus sketch = sketches.get(key);
+        if (sketch == null) {
+            sketch = new HyperLogLogPlus(precision);
+            sketches.put(key, sketch);
+        }
+        sketch.offer(id);
+        
+        if (sketches.size() > maxEntries) {
+            Iterator<Map.Entry<BulkIngestKey,HyperLogLogPlus>> it = sketches.entrySet().iterator();
+            while (sketches.size() > maxEntries && it.hasNext()) {
+                Map.Entry<BulkIngestKey,HyperLogLogPlus> eldest = it.next();
+                evicted.put(eldest.getKey(), new Value(eldest.getValue().getBytes()));
+                it.remove();
+            }
+        }
+    }
+    
+    /**
+     * Add a facet metadata key, returning true if the key has not been seen since the last flush and must be written by the caller.
+     *
+     * @param key
+     *            the facet metadata key
+     * @return true if the key should be written
+     */
+    public boolean offerMetadata(BulkIngestKey key) {
+        if (metadata.size() >= maxEntries) {
+            metadata.clear();
+        }
+        return metadata.add(key);
+    }
+    
+    public int size() {
+        return sketches.size();
+    }
+    
+    @Override
+    public Multimap<BulkIngestKey,Value> getBulkMetadata() {
+        Multimap<BulkIngestKey,Value> results = ArrayListMultimap.create();
+        for (Map.Entry<BulkIngestKey,HyperLogLogPlus> entry : sketches.entrySet()) {
+            try {
+                results.put(entry.getKey(), new Value(entry.getValue().getBytes()));
+            } catch (IOException e) {
+                log.error("Unable to serialize the facet cardinality for " + entry.getKey().getKey(), e);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Flushing " + results.size() + " accumulated facet entries");
+        }
+        sketches.clear();
+        metadata.clear();
+        return results;
+    }
+    
+    @Override
+    public void clear() {
+        sketches.clear();
+        metadata.clear();
+    }
+    
+    /* Records are offered through the FacetHandler, so the event callbacks are no-ops */
+    
+    @Override
+    public void addEvent(IngestHelperInterface helper, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields, long loadTimeInMillis) {}
+    
+    @Override
+    public void addEvent(IngestHelperInterface helper, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields) {}
+    
+    @Override
+    public void addEventWithoutLoadDates(IngestHelperInterface helper, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields) {}
+    
+    @Override
+    public void addEvent(IngestHelperInterface helper, RawRecordContainer event, Multimap<String,NormalizedContentInterface> fields, boolean frequency) {}
+}
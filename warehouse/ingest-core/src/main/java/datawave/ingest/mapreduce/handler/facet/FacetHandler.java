@@ -62,6 +62,13 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
     public static final String FACET_HASH_TABLE_NAME = "facet.hash.table.name";
     public static final String FACET_HASH_TABLE_LOADER_PRIORITY = "facet.hash.table.loader.priority";
     
+    /**
+     * When enabled, facet cardinalities are merged across records in the mapper and written when evicted from a bounded cache or at cleanup, instead of
+     * writing one sketch per record.
+     */
+    public static final String FACET_ACCUMULATION_ENABLED = "facet.accumulation.enabled";
+    public static final String FACET_ACCUMULATION_MAX_ENTRIES = "facet.accumulation.max.entries";
+    
     /* Per-datatype configuration properties */
     
     public static final String FACET_HASH_THRESHOLD = ".facet.hash.threshold";
@@ -93,6 +100,7 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
     protected MarkingFunctions markingFunctions;
     protected ShardIdFactory shardIdFactory;
     protected TaskAttemptContext taskAttemptContext;
+    protected FacetAccumulator accumulator = null;
     
     protected Predicate<String> fieldSelectionPredicate = new TokenPredicate();
     protected Predicate<String> fieldFilterPredicate = null;
@@ -151,6 +159,10 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         facetMetadataTableName = new Text(conf.get(FACET_METADATA_TABLE_NAME, facetTableName.toString() + "Metadata"));
         facetHashTableName = new Text(conf.get(FACET_HASH_TABLE_NAME, facetTableName.toString() + "Hash"));
         facetHashThreshold = conf.getInt(type.typeName() + FACET_HASH_THRESHOLD, 20);
+        
+        if (conf.getBoolean(FACET_ACCUMULATION_ENABLED, false)) {
+            accumulator = new FacetAccumulator(conf.getInt(FACET_ACCUMULATION_MAX_ENTRIES, FacetAccumulator.DEFAULT_MAX_ENTRIES), 10);
+        }
     }
     
     @Override
@@ -185,9 +197,12 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         /* no-op */
     }
     
+    /**
+     * When facet accumulation is enabled, the accumulator is exposed as the record metadata so that the mapper flushes the merged sketches during cleanup.
+     */
     @Override
     public RawRecordMetadata getMetadata() {
-        return null;
+        return accumulator;
     }
     
     protected byte[] flatten(ColumnVisibility vis) {
@@ -239,10 +254,15 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         
         // compute the cardinality based on the uid, this becomes the value shared
         // across each facet row generated.
-        final HyperLogLogPlus cardinality = new HyperLogLogPlus(10);
         final String id = shardId + "/" + event.getDataType().typeName() + "/" + event.getId().toString();
-        cardinality.offer(id);
-        final Value sharedValue = new Value(cardinality.getBytes());
+        final Value sharedValue;
+        if (accumulator == null) {
+            final HyperLogLogPlus cardinality = new HyperLogLogPlus(10);
+            cardinality.offer(id);
+            sharedValue = new Value(cardinality.getBytes());
+        } else {
+            sharedValue = null;
+        }
         
         final Multimap<BulkIngestKey,Value> results = ArrayListMultimap.create();
         
@@ -267,7 +287,7 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
                         cv,
                         timestamp);
 
-                results.put(pivotIngestKey, sharedValue);
+                putFacet(results, pivotIngestKey, id, sharedValue);
 
                 if (log.isTraceEnabled()) {
                     log.trace("created BulkIngestKey (pivot): " + pivotIngestKey.getKey() +
@@ -303,7 +323,7 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
                                 cv,
                                 timestamp);
 
-                        results.put(facetIngestKey, sharedValue);
+                        putFacet(results, facetIngestKey, id, sharedValue);
 
                         if (log.isDebugEnabled()) {
                             log.debug("created BulkIngestKey (facet): " + facetIngestKey.getKey() +
@@ -323,7 +343,7 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         for (String pivot : pivotMap.keySet()) {
             if (!pivotFieldSet.contains(pivot))
                 continue;
-            results.put(generateFacetMetadataIngestKey(pivot, pivot, timestamp), EMPTY_VALUE);
+            putFacetMetadata(results, generateFacetMetadataIngestKey(pivot, pivot, timestamp));
             countWritten++;
         }
         
@@ -331,7 +351,7 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         for (Map.Entry<String,String> facet : pivotMap.entries()) {
             if (!pivotFieldSet.contains(facet.getKey()) || !facetFieldSet.contains(facet.getValue()))
                 continue;
-            results.put(generateFacetMetadataIngestKey(facet.getKey(), facet.getValue(), timestamp), EMPTY_VALUE);
+            putFacetMetadata(results, generateFacetMetadataIngestKey(facet.getKey(), facet.getValue(), timestamp));
             countWritten++;
         }
         
@@ -339,6 +359,24 @@ public class FacetHandler<KEYIN,KEYOUT,VALUEOUT> implements ExtendedDataTypeHand
         return countWritten;
     }
     
+    /**
+     * Add a facet entry to the results, or offer the record id to the accumulated sketch for the key when accumulation is enabled. Any sketches evicted from the
+     * accumulator are added to the results.
+     */
+    private void putFacet(Multimap<BulkIngestKey,Value> results, BulkIngestKey key, String id, Value sharedValue) throws IOException {
+        if (accumulator == null) {
+            results.put(key, sharedValue);
+        } else {
+            accumulator.offer(key, id, results);
+        }
+    }
+    
+    private void putFacetMetadata(Multimap<BulkIngestKey,Value> results, BulkIngestKey key) {
+        if (accumulator == null || accumulator.offerMetadata(key)) {
+            results.put(key, EMPTY_VALUE);
+        }
+    }
+    
     /**
      * Filter the source data and apply the supplied HashTableFunction to the fields provided. The results are collected and returned. This is commonly used
      * where there are a large number of values for a field.
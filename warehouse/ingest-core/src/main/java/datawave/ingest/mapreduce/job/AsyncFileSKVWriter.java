@@ -0,0 +1,195 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.log4j.Logger;
+
+/**
+ * A FileSKVWriter that hands appends off to a bounded queue which is drained into the delegate writer by a separate thread. This allows the compression and
+ * HDFS writes for several files to proceed in parallel with the thread producing the keys. The producer blocks when the queue is full, so memory use is bounded
+ * by the queue size. Any failure in the drain thread is rethrown to the producer on the next call.
+ */
+public class AsyncFileSKVWriter implements FileSKVWriter {
+    
+    private static final Logger log = Logger.getLogger(AsyncFileSKVWriter.class);
+    
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    
+    private static final long OFFER_TIMEOUT_MS = 100;
+    
+    private interface WriteOp {
+        void apply(FileSKVWriter writer) throws IOException;
+    }
+    
+    private static final WriteOp CLOSE = writer -> {};
+    
+    private final FileSKVWriter delegate;
+    private final BlockingQueue<WriteOp> queue;
+    private final Future<?> drainer;
+    private volatile Throwable failure = null;
+    private boolean closed = false;
+    private long length = 0;
+    private int maxQueueDepth = 0;
+    
+    public AsyncFileSKVWriter(FileSKVWriter delegate, int queueSize, ExecutorService executor) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.drainer = executor.submit(this::drain);
+    }
+    
+    private void drain() {
+        try {
+            WriteOp op = queue.take();
+            while (op != CLOSE) {
+                op.apply(delegate);
+                op = queue.take();
+            }
+        } catch (Throwable t) {
+            failure = t;
+            // release any producer waiting on a full queue
+            queue.clear();
+        }
+    }
+    
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IOException("Asynchronous write failed", t);
+        }
+    }
+    
+    private void enqueue(WriteOp op) throws IOException {
+        if (closed) {
+            throw new IOException("Writer has been closed");
+        }
+        try {
+            while (!queue.offer(op, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing write");
+        }
+        checkFailure();
+        int depth = queue.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+    
+    /**
+     * Wait for all queued operations to be applied to the delegate writer.
+     *
+     * @throws IOException
+     *             if a queued operation failed
+     */
+    public void flush() throws IOException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        enqueue(writer -> latch.countDown());
+        try {
+            while (!latch.await(OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing writes");
+        }
+        checkFailure();
+    }
+    
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+    
+    @Override
+    public boolean supportsLocalityGroups() {
+        return delegate.supportsLocalityGroups();
+    }
+    
+    @Override
+    public void startNewLocalityGroup(final String name, final Set<ByteSequence> columnFamilies) throws IOException {
+        enqueue(writer -> writer.startNewLocalityGroup(name, columnFamilies));
+    }
+    
+    @Override
+    public void startDefaultLocalityGroup() throws IOException {
+        enqueue(FileSKVWriter::startDefaultLocalityGroup);
+    }
+    
+    @Override
+    public void append(Key key, Value value) throws IOException {
+        // the caller may reuse the key and value, so queue copies
+        final Key keyCopy = new Key(key);
+        final Value valueCopy = (value == null ? null : new Value(value));
+        length += key.getLength() + (value == null ? 0 : value.getSize());
+        enqueue(writer -> writer.append(keyCopy, valueCopy));
+    }
+    
+    /**
+     * The meta store stream is written directly by the caller, so all queued operations are applied before it is created.
+     */
+    @Override
+    public DataOutputStream createMetaStore(String name) throws IOException {
+        flush();
+        return delegate.createMetaStore(name);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        boolean drained = false;
+        try {
+            try {
+                enqueue(CLOSE);
+            } finally {
+                closed = true;
+            }
+            drainer.get();
+            checkFailure();
+            drained = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing writer");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            if (!drained) {
+                // the delegate is closed even though the queued writes failed so that its stream is not leaked, and the write failure is what is thrown
+                drainer.cancel(true);
+                try {
+                    delegate.close();
+                } catch (Throwable t) {
+                    log.warn("Unable to close the delegate of a failed asynchronous writer: " + t.getMessage());
+                }
+            }
+        }
+        delegate.close();
+        if (log.isDebugEnabled()) {
+            log.debug("Closed asynchronous writer after " + length + " bytes with a max queue depth of " + maxQueueDepth);
+        }
+    }
+    
+    /**
+     * @return the uncompressed number of bytes appended to this writer
+     */
+    @Override
+    public long getLength() throws IOException {
+        return length;
+    }
+}
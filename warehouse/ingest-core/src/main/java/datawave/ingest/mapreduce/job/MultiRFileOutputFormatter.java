@@ -2,13 +2,19 @@ package datawave.ingest.mapreduce.job;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import datawave.ingest.data.config.ingest.AccumuloHelper;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
@@ -42,6 +48,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -53,6 +60,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Value> {
     
@@ -63,6 +71,14 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected Map<String,Path> usedWriterPaths = null;
     protected Map<String,String> writerTableNames = null;
     protected Map<String,MutableInt> writerCounts = null;
+    // access ordered set of the keys with an open writer, least recently used first
+    protected LinkedHashMap<String,Boolean> openWriterKeys = null;
+    // writers closed to stay under the open writer limit, mapped to the filename without the count
+    protected Map<String,Path> evictedWriterPaths = null;
+    // files written and closed before the last file of their key, mapped to their key
+    protected Map<Path,String> completedWriterPaths = null;
+    protected Map<String,Long> tableBytesWritten = null;
+    protected Map<String,Integer> tableMaxQueueDepth = null;
     
     protected static final String PREFIX = MultiRFileOutputFormatter.class.getName();
     
@@ -77,6 +93,14 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected static final String MAX_RFILE_UNDEDUPPED_ENTRIES = PREFIX + ".maxRFileUndeduppedEntries";
     protected static final String GENERATE_MAP_FILE_ROW_KEYS = PREFIX + ".generateMapFileRowKeys";
     protected static final String GENERATE_MAP_FILE_PER_SHARD_LOCATION = PREFIX + ".generateMapFilePerShardLocation";
+    protected static final String ASYNC_WRITERS = PREFIX + ".async.writers";
+    protected static final String ASYNC_QUEUE_SIZE = PREFIX + ".async.queue.size";
+    protected static final String ASYNC_WRITER_THREADS = PREFIX + ".async.writer.threads";
+    protected static final String MAX_OPEN_WRITERS = PREFIX + ".max.open.writers";
+    
+    public static final String BYTES_COUNTER_GROUP = MultiRFileOutputFormatter.class.getSimpleName() + ".Bytes";
+    public static final String QUEUE_DEPTH_COUNTER_GROUP = MultiRFileOutputFormatter.class.getSimpleName() + ".MaxQueueDepth";
+    public static final int DEFAULT_ASYNC_WRITER_THREADS = 16;
     
     protected static final String BASE = "bulk.output.partition.count.";
     public static final String CONFIGURE_LOCALITY_GROUPS = PREFIX + ".tables";
@@ -90,6 +114,7 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected Map<String,Map<Text,String>> tableShardLocations;
     protected Map<String,Set<Text>> shardMapFileRowKeys = new HashMap<>();
     protected Map<String,Path> shardMapFiles = new HashMap<>();
+    protected Map<Path,Set<Text>> completedShardMapFileRowKeys = new HashMap<>();
     protected Set<String> shardedTableNames = null;
     protected Set<String> shardedTablesConfigured = null;
     protected String eventTable = null;
@@ -102,6 +127,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected int maxRFileEntries = 0;
     protected boolean generateMapFileRowKeys = false;
     protected boolean generateMapFilePerShardLocation = false;
+    protected boolean asyncWriters = false;
+    protected int asyncQueueSize = AsyncFileSKVWriter.DEFAULT_QUEUE_SIZE;
+    protected int asyncWriterThreads = DEFAULT_ASYNC_WRITER_THREADS;
+    protected int maxOpenWriters = 0;
+    protected ExecutorService writerExecutor = null;
     private long startWriteTime = 0L;
     
     protected Map<String,Map<Text,String>> columnFamilyToLocalityGroup;
@@ -171,6 +201,54 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         conf.setLong(MAX_RFILE_UNCOMPRESSED_SIZE, maxSize);
     }
     
+    /**
+     * Write each RFile through a bounded queue drained by its own thread, so that compression and HDFS writes for several files can use several cores.
+     * 
+     * @param conf
+     * @param asyncWriters
+     *            true to enable the asynchronous writers
+     * @param queueSize
+     *            the number of entries that may be queued per open file
+     */
+    public static void setAsyncWriters(Configuration conf, boolean asyncWriters, int queueSize) {
+        conf.setBoolean(ASYNC_WRITERS, asyncWriters);
+        conf.setInt(ASYNC_QUEUE_SIZE, queueSize);
+    }
+    
+    /**
+     * Limit the number of concurrently open writers. When the limit is reached the least recently used writer is closed, and a new file is started for it if
+     * it is written to again.
+     * 
+     * @param conf
+     * @param maxOpenWriters
+     *            the maximum number of open writers, or 0 for no limit
+     */
+    public static void setMaxOpenWriters(Configuration conf, int maxOpenWriters) {
+        conf.setInt(MAX_OPEN_WRITERS, maxOpenWriters);
+    }
+    
+    /**
+     * Set the number of threads draining the asynchronous writers. Each open asynchronous writer holds a thread, so the number of open writers is limited to
+     * the number of threads as well.
+     *
+     * @param conf
+     * @param asyncWriterThreads
+     *            the number of threads
+     */
+    public static void setAsyncWriterThreads(Configuration conf, int asyncWriterThreads) {
+        conf.setInt(ASYNC_WRITER_THREADS, asyncWriterThreads);
+    }
+    
+    /**
+     * @return the maximum number of open writers, or 0 for no limit
+     */
+    protected int getOpenWriterLimit() {
+        if (asyncWriters && (maxOpenWriters <= 0 || maxOpenWriters > asyncWriterThreads)) {
+            return asyncWriterThreads;
+        }
+        return maxOpenWriters;
+    }
+    
     public static void addTableToLocalityGroupConfiguration(Configuration conf, String tableName) {
         String locs = conf.get(CONFIGURE_LOCALITY_GROUPS, "");
         Iterable<String> splits = Splitter.on(",").split(locs);
@@ -229,6 +307,16 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         // update the filename with the count
         filename = insertFileCount(filename, count.intValue());
         
+        // keep the file written so far, so that it is verified and its row keys are written on close
+        Path previous = usedWriterPaths.remove(key);
+        if (previous != null) {
+            completedWriterPaths.put(previous, key);
+            Set<Text> rowKeys = shardMapFileRowKeys.remove(key);
+            if (rowKeys != null) {
+                completedShardMapFileRowKeys.put(previous, rowKeys);
+            }
+        }
+        
         // now create and register the writer
         SizeTrackingWriter writer = openWriter(filename.toString(), tableConf);
         writer.startDefaultLocalityGroup();
@@ -239,11 +327,89 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             shardMapFileRowKeys.put(key, new HashSet<>());
             shardMapFiles.put(key, filename);
         }
+        openWriterKeys.put(key, Boolean.TRUE);
+        evictLeastRecentlyUsedWriters(key);
     }
     
     protected SizeTrackingWriter openWriter(String filename, AccumuloConfiguration tableConf) throws IOException {
         startWriteTime = System.currentTimeMillis();
-        return new SizeTrackingWriter(FileOperations.getInstance().newWriterBuilder().forFile(filename, fs, conf).withTableConfiguration(tableConf).build());
+        FileSKVWriter writer = createFileWriter(filename, tableConf);
+        if (asyncWriters) {
+            writer = new AsyncFileSKVWriter(writer, asyncQueueSize, getWriterExecutor());
+        }
+        return new SizeTrackingWriter(writer);
+    }
+    
+    protected FileSKVWriter createFileWriter(String filename, AccumuloConfiguration tableConf) throws IOException {
+        return FileOperations.getInstance().newWriterBuilder().forFile(filename, fs, conf).withTableConfiguration(tableConf).build();
+    }
+    
+    protected synchronized ExecutorService getWriterExecutor() {
+        if (writerExecutor == null) {
+            // the open writers are limited to the number of threads, so a writer never waits for a thread
+            writerExecutor = Executors.newFixedThreadPool(asyncWriterThreads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rfile-writer-%d")
+                            .build());
+        }
+        return writerExecutor;
+    }
+    
+    /**
+     * Close a writer and record the bytes written and the max queue depth against its table.
+     * 
+     * @param key
+     * @param writer
+     * @throws IOException
+     */
+    protected void closeWriter(String key, SizeTrackingWriter writer) throws IOException {
+        writer.close();
+        openWriterKeys.remove(key);
+        String table = writerTableNames.get(key);
+        if (table != null) {
+            tableBytesWritten.merge(table, writer.getSize(), Long::sum);
+            tableMaxQueueDepth.merge(table, writer.getMaxQueueDepth(), Math::max);
+        }
+    }
+    
+    /**
+     * Close the least recently used writers until we are within the configured max open writers. The writer for the current key is never closed. Evicted
+     * writers are reopened with the next file count by {@link #getRegisteredWriter(String)}.
+     * 
+     * @param currentKey
+     *            the key of the writer currently being used
+     * @throws IOException
+     */
+    protected void evictLeastRecentlyUsedWriters(String currentKey) throws IOException {
+        int limit = getOpenWriterLimit();
+        if (limit <= 0 || openWriterKeys.size() <= limit) {
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        Iterator<String> keys = openWriterKeys.keySet().iterator();
+        while (keys.hasNext() && openWriterKeys.size() - evicted.size() > limit) {
+            String key = keys.next();
+            if (!key.equals(currentKey)) {
+                evicted.add(key);
+            }
+        }
+        for (String key : evicted) {
+            openWriterKeys.remove(key);
+            SizeTrackingWriter writer = writers.remove(key);
+            if (writer == null) {
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Closing least recently used writer for " + key + " to stay within " + limit + " open writers");
+            }
+            closeWriter(key, writer);
+            Path unused = unusedWriterPaths.remove(key);
+            if (unused != null) {
+                // nothing was written, so there is no reason to keep the file
+                fs.delete(unused, true);
+                evictedWriterPaths.put(key, removeFileCount(unused));
+            } else {
+                evictedWriterPaths.put(key, removeFileCount(usedWriterPaths.get(key)));
+            }
+        }
     }
     
     /**
@@ -261,7 +427,7 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             Path filename = usedWriterPaths.get(key);
             // don't bother if this writer has not been used yet
             if (filename != null) {
-                writer.close();
+                closeWriter(key, writer);
                 // pull the index off the filename
                 filename = removeFileCount(filename);
                 createAndRegisterWriter(key, table, filename, tableConfigs.get(table));
@@ -278,6 +444,10 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             return size;
         }
         
+        public int getMaxQueueDepth() {
+            return (delegate instanceof AsyncFileSKVWriter ? ((AsyncFileSKVWriter) delegate).getMaxQueueDepth() : 0);
+        }
+        
         public int getNumEntries() {
             return entries;
         }
@@ -328,7 +498,15 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
      */
     protected SizeTrackingWriter getRegisteredWriter(String key) throws IOException, AccumuloException {
         SizeTrackingWriter writer = writers.get(key);
+        if (writer == null && evictedWriterPaths.containsKey(key)) {
+            // this writer was closed to stay within the max open writers, so start the next file
+            String table = writerTableNames.get(key);
+            createAndRegisterWriter(key, table, evictedWriterPaths.remove(key), tableConfigs.get(table));
+            writer = writers.get(key);
+        }
         if (writer != null) {
+            // mark the writer as the most recently used
+            openWriterKeys.get(key);
             if ((maxRFileEntries > 0 && writer.getNumEntries() >= maxRFileEntries) || (maxRFileSize > 0 && writer.getSize() >= maxRFileSize)) {
                 if (log.isInfoEnabled()) {
                     if (maxRFileEntries > 0 && writer.getNumEntries() >= maxRFileEntries) {
@@ -473,6 +651,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         generateMapFileRowKeys = conf.getBoolean(GENERATE_MAP_FILE_ROW_KEYS, generateMapFileRowKeys);
         generateMapFilePerShardLocation = conf.getBoolean(GENERATE_MAP_FILE_PER_SHARD_LOCATION, generateMapFilePerShardLocation);
         
+        asyncWriters = conf.getBoolean(ASYNC_WRITERS, asyncWriters);
+        asyncQueueSize = conf.getInt(ASYNC_QUEUE_SIZE, asyncQueueSize);
+        asyncWriterThreads = Math.max(1, conf.getInt(ASYNC_WRITER_THREADS, asyncWriterThreads));
+        maxOpenWriters = conf.getInt(MAX_OPEN_WRITERS, maxOpenWriters);
+        
         // Only do this once.
         if (null == writers) {
             writers = new HashMap<>();
@@ -480,6 +663,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             usedWriterPaths = new HashMap<>();
             writerTableNames = new HashMap<>();
             writerCounts = new HashMap<>();
+            openWriterKeys = new LinkedHashMap<>(16, 0.75f, true);
+            evictedWriterPaths = new HashMap<>();
+            completedWriterPaths = new HashMap<>();
+            tableBytesWritten = new HashMap<>();
+            tableMaxQueueDepth = new HashMap<>();
             
             Set<String> tableList = getTableList();
             
@@ -546,15 +734,34 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             @Override
             public void close(TaskAttemptContext context) throws IOException, InterruptedException {
                 // Close all of the Map File Writers
-                for (SizeTrackingWriter writer : writers.values()) {
-                    writer.close();
+                try {
+                    for (Map.Entry<String,SizeTrackingWriter> entry : writers.entrySet()) {
+                        closeWriter(entry.getKey(), entry.getValue());
+                    }
+                } finally {
+                    if (writerExecutor != null) {
+                        writerExecutor.shutdownNow();
+                        writerExecutor = null;
+                    }
+                }
+                for (Map.Entry<String,Long> entry : tableBytesWritten.entrySet()) {
+                    incrementCounter(context, BYTES_COUNTER_GROUP, entry.getKey(), entry.getValue());
+                }
+                if (asyncWriters) {
+                    for (Map.Entry<String,Integer> entry : tableMaxQueueDepth.entrySet()) {
+                        incrementCounter(context, QUEUE_DEPTH_COUNTER_GROUP, entry.getKey(), entry.getValue());
+                    }
                 }
                 // To verify the file was actually written successfully, we need to reopen it which will reread
                 // the index at the end and verify its integrity.
                 FileOperations fops = FileOperations.getInstance();
+                Map<Path,String> writtenPaths = new HashMap<>(completedWriterPaths);
                 for (Map.Entry<String,Path> entry : usedWriterPaths.entrySet()) {
-                    Path path = entry.getValue();
-                    String table = writerTableNames.get(entry.getKey());
+                    writtenPaths.put(entry.getValue(), entry.getKey());
+                }
+                for (Map.Entry<Path,String> entry : writtenPaths.entrySet()) {
+                    Path path = entry.getKey();
+                    String table = writerTableNames.get(entry.getValue());
                     try {
                         FileSKVIterator openReader = fops.newReaderBuilder().forFile(path.toString(), fs, conf).withTableConfiguration(tableConfigs.get(table))
                                         .build();
@@ -572,12 +779,16 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
                     log.info("Nothing written to " + path + ".  Deleting from HDFS.");
                     fs.delete(path, true);
                 }
-                if (generateMapFileRowKeys && !shardMapFileRowKeys.isEmpty()) {
+                if (generateMapFileRowKeys && !(shardMapFileRowKeys.isEmpty() && completedShardMapFileRowKeys.isEmpty())) {
                     log.info("Writing mapFileRowKeys");
+                    Map<Path,Set<Text>> rowKeysByPath = new HashMap<>(completedShardMapFileRowKeys);
+                    for (Map.Entry<String,Set<Text>> entry : shardMapFileRowKeys.entrySet()) {
+                        rowKeysByPath.put(shardMapFiles.get(entry.getKey()), entry.getValue());
+                    }
                     Path shardMapFilePath = new Path(workDir, getUniqueFile(context, "mapFileRowKeys", ".lst"));
                     try (SequenceFile.Writer output = SequenceFile.createWriter(fs, conf, shardMapFilePath, Text.class, Text.class)) {
-                        for (Map.Entry<String,Set<Text>> entry : shardMapFileRowKeys.entrySet()) {
-                            Path path = shardMapFiles.get(entry.getKey());
+                        for (Map.Entry<Path,Set<Text>> entry : rowKeysByPath.entrySet()) {
+                            Path path = entry.getKey();
                             Text pathText = new Text(path.getParent().getName() + "/" + path.getName());
                             for (Text rowKey : entry.getValue()) {
                                 output.append(pathText, rowKey);
@@ -634,6 +845,14 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         };
     }
     
+    private static void incrementCounter(TaskAttemptContext context, String group, String name, long value) {
+        Counter counter = context.getCounter(group, name);
+        // the counter is null when running without a reporter
+        if (counter != null) {
+            counter.increment(value);
+        }
+    }
+    
     /**
      * Read in the sequence file (that was created at job startup) for the given table that contains a list of shard IDs and the corresponding tablet server to
      * which that shard is assigned.
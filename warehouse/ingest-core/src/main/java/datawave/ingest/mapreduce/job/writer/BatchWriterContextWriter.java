@@ -0,0 +1,152 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import datawave.ingest.data.config.ingest.AccumuloHelper;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MultiTableBatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * A live ingest context writer that writes the mutations directly to Accumulo through a {@link MultiTableBatchWriter} instead of passing them to the context.
+ * The entries are grouped into one mutation per table and row (see {@link LiveContextWriter}) and handed to the batch writer, which sends them asynchronously
+ * using its own threads subject to the configured memory and latency limits. The number of mutations and entries written, along with the time spent handing
+ * mutations to the batch writer and flushing it, are reported as counters at cleanup.
+ * <p>
+ * The Accumulo connection is configured using the {@link AccumuloHelper} properties.
+ */
+public class BatchWriterContextWriter extends LiveContextWriter {
+    
+    private static final Logger log = Logger.getLogger(BatchWriterContextWriter.class);
+    
+    public static final String MAX_MEMORY = "batch.writer.context.writer.max.memory";
+    public static final String MAX_LATENCY = "batch.writer.context.writer.max.latency";
+    public static final String MAX_WRITE_THREADS = "batch.writer.context.writer.max.write.threads";
+    
+    public static final String COUNTER_GROUP = "BatchWriterContextWriter";
+    public static final String MUTATIONS_WRITTEN = "MUTATIONS_WRITTEN";
+    public static final String ENTRIES_WRITTEN = "ENTRIES_WRITTEN";
+    public static final String WRITE_TIME_MS = "WRITE_TIME_MS";
+    public static final String CLOSE_TIME_MS = "CLOSE_TIME_MS";
+    
+    private Connector connector = null;
+    private BatchWriterConfig batchWriterConfig = null;
+    private MultiTableBatchWriter writer = null;
+    
+    private long mutationsWritten = 0;
+    private long entriesWritten = 0;
+    private long writeTimeNanos = 0;
+    private long startTime = 0;
+    
+    @Override
+    public void setup(Configuration conf, boolean outputTableCounters) throws IOException, InterruptedException {
+        super.setup(conf, outputTableCounters);
+        
+        batchWriterConfig = new BatchWriterConfig();
+        batchWriterConfig.setMaxMemory(conf.getLong(MAX_MEMORY, batchWriterConfig.getMaxMemory()));
+        batchWriterConfig.setMaxLatency(conf.getLong(MAX_LATENCY, batchWriterConfig.getMaxLatency(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
+        batchWriterConfig.setMaxWriteThreads(conf.getInt(MAX_WRITE_THREADS, batchWriterConfig.getMaxWriteThreads()));
+        
+        if (connector == null) {
+            AccumuloHelper accumuloHelper = new AccumuloHelper();
+            accumuloHelper.setup(conf);
+            try {
+                connector = accumuloHelper.getConnector();
+            } catch (AccumuloException | AccumuloSecurityException e) {
+                throw new IOException("Unable to connect to accumulo", e);
+            }
+        }
+        startTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Use the supplied connector instead of one created from the configuration. This must be called before setup.
+     *
+     * @param connector
+     */
+    public void setConnector(Connector connector) {
+        this.connector = connector;
+    }
+    
+    @Override
+    protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,Text,Mutation> context) throws IOException, InterruptedException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (writer == null) {
+            writer = connector.createMultiTableBatchWriter(batchWriterConfig);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            for (Map.Entry<Text,List<Mutation>> tableMutations : getMutations(entries).entrySet()) {
+                writer.getBatchWriter(tableMutations.getKey().toString()).addMutations(tableMutations.getValue());
+                mutationsWritten += tableMutations.getValue().size();
+            }
+        } catch (AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            throw new IOException("Unable to write mutations", e);
+        } finally {
+            writeTimeNanos += System.nanoTime() - start;
+        }
+        entriesWritten += entries.size();
+    }
+    
+    @Override
+    public void cleanup(TaskInputOutputContext<?,?,Text,Mutation> context) throws IOException, InterruptedException {
+        commit(context);
+        
+        long closeTime = 0;
+        if (writer != null) {
+            long start = System.nanoTime();
+            try {
+                writer.close();
+            } catch (MutationsRejectedException e) {
+                throw new IOException("Unable to write mutations", e);
+            } finally {
+                writer = null;
+                closeTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        }
+        
+        getCounter(context, COUNTER_GROUP, MUTATIONS_WRITTEN).increment(mutationsWritten);
+        getCounter(context, COUNTER_GROUP, ENTRIES_WRITTEN).increment(entriesWritten);
+        getCounter(context, COUNTER_GROUP, WRITE_TIME_MS).increment(TimeUnit.NANOSECONDS.toMillis(writeTimeNanos));
+        getCounter(context, COUNTER_GROUP, CLOSE_TIME_MS).increment(closeTime);
+        
+        if (log.isInfoEnabled()) {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            log.info("Wrote " + entriesWritten + " entries in " + mutationsWritten + " mutations in " + elapsed + "ms (" + (entriesWritten * 1000 / elapsed)
+                            + " entries/s), spent " + TimeUnit.NANOSECONDS.toMillis(writeTimeNanos) + "ms writing and " + closeTime + "ms closing");
+        }
+        mutationsWritten = 0;
+        entriesWritten = 0;
+        writeTimeNanos = 0;
+        
+        super.cleanup(context);
+    }
+    
+    public long getMutationsWritten() {
+        return mutationsWritten;
+    }
+    
+    public long getEntriesWritten() {
+        return entriesWritten;
+    }
+}
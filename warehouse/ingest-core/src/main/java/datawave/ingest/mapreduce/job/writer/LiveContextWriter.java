@@ -1,6 +1,10 @@
 package datawave.ingest.mapreduce.job.writer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import datawave.ingest.mapreduce.job.BulkIngestKey;
@@ -8,6 +12,8 @@ import datawave.ingest.mapreduce.job.BulkIngestKey;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
@@ -16,17 +22,25 @@ import org.apache.accumulo.core.security.ColumnVisibility;
 import com.google.common.collect.Multimap;
 
 /**
- * A simple context writer that simply passes the key, value as a text, mutation to the context.
+ * A simple context writer that passes the keys, values as a text, mutation to the context. The entries in a flush are grouped by table and row so that all of
+ * the columns for a row are sent in a single mutation, and the parsed column visibilities are cached as most entries share a handful of visibilities.
  * 
  * 
  * 
  */
 public class LiveContextWriter extends AbstractContextWriter<Text,Mutation> {
     
+    // the maximum number of distinct column visibilities to cache before the cache is reset
+    private static final int MAX_VISIBILITY_CACHE_SIZE = 1000;
+    
+    private final Map<ByteSequence,ColumnVisibility> visibilityCache = new HashMap<>();
+    
     @Override
     protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,Text,Mutation> context) throws IOException, InterruptedException {
-        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
-            writeToContext(context, entry);
+        for (Map.Entry<Text,List<Mutation>> tableMutations : getMutations(entries).entrySet()) {
+            for (Mutation m : tableMutations.getValue()) {
+                context.write(tableMutations.getKey(), m);
+            }
         }
     }
     
@@ -35,6 +49,38 @@ public class LiveContextWriter extends AbstractContextWriter<Text,Mutation> {
         context.write(entry.getKey().getTableName(), getMutation(entry.getKey().getKey(), entry.getValue()));
     }
     
+    /**
+     * Turn a set of entries into mutations, grouped by table. All of the entries for a given table and row are combined into a single mutation, and the
+     * mutations for a table are returned in the order their rows were first seen.
+     * 
+     * @param entries
+     * @return the mutations by table
+     */
+    protected Map<Text,List<Mutation>> getMutations(Multimap<BulkIngestKey,Value> entries) {
+        Map<Text,Map<Text,Mutation>> mutationsByTable = new LinkedHashMap<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            Map<Text,Mutation> mutationsByRow = mutationsByTable.get(entry.getKey().getTableName());
+            if (mutationsByRow == null) {
+                mutationsByRow = new LinkedHashMap<>();
+                mutationsByTable.put(entry.getKey().getTableName(), mutationsByRow);
+            }
+            Key key = entry.getKey().getKey();
+            Text row = key.getRow();
+            Mutation m = mutationsByRow.get(row);
+            if (m == null) {
+                m = new Mutation(row);
+                mutationsByRow.put(row, m);
+            }
+            addToMutation(m, key, entry.getValue());
+        }
+        
+        Map<Text,List<Mutation>> mutations = new LinkedHashMap<>();
+        for (Map.Entry<Text,Map<Text,Mutation>> tableMutations : mutationsByTable.entrySet()) {
+            mutations.put(tableMutations.getKey(), new ArrayList<>(tableMutations.getValue().values()));
+        }
+        return mutations;
+    }
+    
     /**
      * Turn a key, value into a mutation
      * 
@@ -44,12 +90,42 @@ public class LiveContextWriter extends AbstractContextWriter<Text,Mutation> {
      */
     protected Mutation getMutation(Key key, Value value) {
         Mutation m = new Mutation(key.getRow());
+        addToMutation(m, key, value);
+        return m;
+    }
+    
+    /**
+     * Add a key, value to a mutation for the same row
+     * 
+     * @param m
+     * @param key
+     * @param value
+     */
+    protected void addToMutation(Mutation m, Key key, Value value) {
         if (key.isDeleted()) {
-            m.putDelete(key.getColumnFamily(), key.getColumnQualifier(), new ColumnVisibility(key.getColumnVisibility()), key.getTimestamp());
+            m.putDelete(key.getColumnFamily(), key.getColumnQualifier(), getColumnVisibility(key), key.getTimestamp());
         } else {
-            m.put(key.getColumnFamily(), key.getColumnQualifier(), new ColumnVisibility(key.getColumnVisibility()), key.getTimestamp(), value);
+            m.put(key.getColumnFamily(), key.getColumnQualifier(), getColumnVisibility(key), key.getTimestamp(), value);
         }
-        return m;
     }
     
+    /**
+     * Get the parsed column visibility for a key, reusing previously parsed visibilities
+     * 
+     * @param key
+     * @return the column visibility
+     */
+    protected ColumnVisibility getColumnVisibility(Key key) {
+        ByteSequence cv = key.getColumnVisibilityData();
+        ColumnVisibility visibility = visibilityCache.get(cv);
+        if (visibility == null) {
+            if (visibilityCache.size() >= MAX_VISIBILITY_CACHE_SIZE) {
+                visibilityCache.clear();
+            }
+            byte[] expression = cv.toArray();
+            visibility = new ColumnVisibility(expression);
+            visibilityCache.put(new ArrayByteSequence(expression), visibility);
+        }
+        return visibility;
+    }
 }
@@ -0,0 +1,215 @@
+package datawave.ingest.table.bloomfilter;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.file.keyfunctor.KeyFunctor;
+
+/**
+ * This is a function that will create a bloom filter key from a Key from the shard table based on the shard (row) and the document (datatype\0uid). Every
+ * column that belongs to a document is placed in the bloom filter:
+ *
+ * <pre>
+ *     event:          row, datatype\0uid, field\0value
+ *     field index:    row, fi\0field, value\0datatype\0uid
+ *     term frequency: row, tf, datatype\0uid\0value\0field
+ *     content:        row, d, datatype\0uid\0view
+ * </pre>
+ *
+ * A range is checked against the bloom filter only when every key it can contain belongs to a single document, which is the case for document specific
+ * ranges and for the field index ranges derived from them. This allows document fetches by uid to skip the RFiles of a tablet that cannot contain the
+ * document. Ranges spanning several documents (including top level document ranges which span the children) are never checked.
+ * <p>
+ * The datatype and uid of a field index key are its last two elements, as the value may itself contain null bytes. A field index range is therefore only
+ * checked when it holds the keys of a single column qualifier (as the ranges derived from a document range do), and not when it holds every column qualifier
+ * starting with a prefix, which could be a value followed by any number of documents.
+ */
+public class ShardUidKeyFunctor implements KeyFunctor {
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final byte[] FIELD_INDEX_PREFIX = new byte[] {'f', 'i', '\0'};
+    private static final byte[] TERM_FREQUENCY_COLUMN = new byte[] {'t', 'f'};
+    private static final byte[] DOCUMENT_COLUMN = new byte[] {'d'};
+    
+    /**
+     * Transform a accumulo key into a bloom filter key. Keys which do not belong to a document get a zero length bloom filter key, which is equivalent to
+     * ignoring the bloom filters for this key.
+     */
+    @Override
+    public org.apache.hadoop.util.bloom.Key transform(Key cbKey) {
+        byte[] keyData = getBloomKey(cbKey);
+        return new org.apache.hadoop.util.bloom.Key(keyData == null ? EMPTY_BYTES : keyData, 1.0);
+    }
+    
+    /**
+     * Return the bloom filter key for a range covering a single document. Returning null is equivalent to ignoring the bloom filters for this range.
+     */
+    @Override
+    public org.apache.hadoop.util.bloom.Key transform(Range range) {
+        byte[] keyData = getBloomKey(range);
+        return keyData == null ? null : new org.apache.hadoop.util.bloom.Key(keyData, 1.0);
+    }
+    
+    /**
+     * Get the bloom filter key (row\0datatype\0uid) for a key.
+     *
+     * @param cbKey
+     * @return the bloom filter key, or null if the key does not belong to a document
+     */
+    static byte[] getBloomKey(Key cbKey) {
+        ByteSequence row = cbKey.getRowData();
+        ByteSequence cf = cbKey.getColumnFamilyData();
+        ByteSequence cq = cbKey.getColumnQualifierData();
+        
+        if (startsWith(cf, FIELD_INDEX_PREFIX)) {
+            // the datatype and uid are the last two elements of the column qualifier
+            int uidSeparator = lastIndexOf(cq, cq.length(), (byte) 0);
+            int datatypeSeparator = (uidSeparator > 0 ? lastIndexOf(cq, uidSeparator, (byte) 0) : -1);
+            if (datatypeSeparator < 0) {
+                return null;
+            }
+            return createBloomKey(row, cq, datatypeSeparator + 1, cq.length());
+        } else if (isColumn(cf, TERM_FREQUENCY_COLUMN) || isColumn(cf, DOCUMENT_COLUMN)) {
+            // the datatype and uid are the first two elements of the column qualifier
+            int datatypeSeparator = indexOf(cq, 0, (byte) 0);
+            if (datatypeSeparator <= 0) {
+                return null;
+            }
+            int uidEnd = indexOf(cq, datatypeSeparator + 1, (byte) 0);
+            return createBloomKey(row, cq, 0, uidEnd < 0 ? cq.length() : uidEnd);
+        } else {
+            // the column family of an event is exactly the datatype and uid
+            int datatypeSeparator = indexOf(cf, 0, (byte) 0);
+            if (datatypeSeparator <= 0 || indexOf(cf, datatypeSeparator + 1, (byte) 0) >= 0) {
+                return null;
+            }
+            return createBloomKey(row, cf, 0, cf.length());
+        }
+    }
+    
+    /**
+     * Get the bloom filter key for a range, if every key within the range belongs to the same document.
+     *
+     * @param range
+     * @return the bloom filter key, or null if the range is not to be considered by the bloom filter
+     */
+    static byte[] getBloomKey(Range range) {
+        if (range.isInfiniteStartKey() || range.isInfiniteStopKey()) {
+            return null;
+        }
+        
+        Key start = range.getStartKey();
+        Key end = range.getEndKey();
+        if (!start.getRowData().equals(end.getRowData())) {
+            return null;
+        }
+        
+        ByteSequence startCf = start.getColumnFamilyData();
+        ByteSequence endCf = end.getColumnFamilyData();
+        if (startsWith(startCf, FIELD_INDEX_PREFIX) || isColumn(startCf, TERM_FREQUENCY_COLUMN) || isColumn(startCf, DOCUMENT_COLUMN)) {
+            // the range must stay within one column family and one document prefix of the column qualifier
+            if (!startCf.equals(endCf)) {
+                return null;
+            }
+            ByteSequence startCq = start.getColumnQualifierData();
+            boolean fieldIndex = startsWith(startCf, FIELD_INDEX_PREFIX);
+            int prefixLength = getBoundedPrefixLength(startCq, end.getColumnQualifierData(), range.isEndKeyInclusive(), !fieldIndex);
+            if (prefixLength < 0 || (!fieldIndex && indexOf(startCq, 0, (byte) 0) < 0)) {
+                return null;
+            }
+            return getBloomKey(new Key(start.getRowData().toArray(), startCf.toArray(), startCq.subSequence(0, prefixLength).toArray(), EMPTY_BYTES, 0));
+        } else {
+            // the range must stay within one event column family
+            int prefixLength = startCf.length();
+            if (!startCf.equals(endCf)) {
+                prefixLength = getBoundedPrefixLength(startCf, endCf, range.isEndKeyInclusive(), true);
+                if (prefixLength < 0 || end.getColumnQualifierData().length() > 0) {
+                    return null;
+                }
+            }
+            return getBloomKey(new Key(start.getRowData().toArray(), startCf.subSequence(0, prefixLength).toArray(), EMPTY_BYTES, EMPTY_BYTES, 0));
+        }
+    }
+    
+    /**
+     * Determine whether every byte sequence between start and end begins with the same prefix, followed by either nothing or a null byte. This is true if the
+     * end is the start (less any trailing null bytes) followed only by null bytes, or by null bytes and a final \x01 when the end is exclusive.
+     *
+     * @param start
+     * @param end
+     * @param endInclusive
+     * @param allowFollowing
+     *            whether the range may hold the byte sequences which follow the prefix and a null byte, as opposed to only the prefix padded with null bytes
+     * @return the length of the common prefix, or -1 if the bytes in the range do not share a prefix
+     */
+    static int getBoundedPrefixLength(ByteSequence start, ByteSequence end, boolean endInclusive, boolean allowFollowing) {
+        int prefixLength = start.length();
+        while (prefixLength > 0 && start.byteAt(prefixLength - 1) == 0) {
+            prefixLength--;
+        }
+        if (prefixLength == 0 || end.length() < prefixLength) {
+            return -1;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (start.byteAt(i) != end.byteAt(i)) {
+                return -1;
+            }
+        }
+        for (int i = prefixLength; i < end.length(); i++) {
+            byte b = end.byteAt(i);
+            if (b != 0 && !(allowFollowing && b == 1 && i == end.length() - 1 && !endInclusive)) {
+                return -1;
+            }
+        }
+        return prefixLength;
+    }
+    
+    private static byte[] createBloomKey(ByteSequence row, ByteSequence bytes, int start, int end) {
+        byte[] keyData = new byte[row.length() + 1 + end - start];
+        System.arraycopy(row.getBackingArray(), row.offset(), keyData, 0, row.length());
+        keyData[row.length()] = 0;
+        System.arraycopy(bytes.getBackingArray(), bytes.offset() + start, keyData, row.length() + 1, end - start);
+        return keyData;
+    }
+    
+    private static boolean startsWith(ByteSequence bytes, byte[] prefix) {
+        if (bytes.length() <= prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes.byteAt(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isColumn(ByteSequence bytes, byte[] column) {
+        if (bytes.length() != column.length) {
+            return false;
+        }
+        for (int i = 0; i < column.length; i++) {
+            if (bytes.byteAt(i) != column[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int indexOf(ByteSequence bytes, int from, byte val) {
+        for (int i = from; i < bytes.length(); i++) {
+            if (bytes.byteAt(i) == val) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int lastIndexOf(ByteSequence bytes, int before, byte val) {
+        for (int i = before - 1; i >= 0; i--) {
+            if (bytes.byteAt(i) == val) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -50,6 +50,10 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
     
     protected static final String SHARD_KEY_FUNCTOR_CLASS = ShardKeyFunctor.class.getName();
     
+    // set to datawave.ingest.table.bloomfilter.ShardUidKeyFunctor to bloom on the document instead of the field index term
+    public static final String SHARD_KEY_FUNCTOR = "shard.bloom.key.functor";
+    protected String shardKeyFunctorClass = SHARD_KEY_FUNCTOR_CLASS;
+    
     protected Logger log;
     
     public enum ShardTableType {
@@ -90,6 +94,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
         }
         
         enableBloomFilters = conf.getBoolean(ENABLE_BLOOM_FILTERS, enableBloomFilters);
+        shardKeyFunctorClass = conf.get(SHARD_KEY_FUNCTOR, SHARD_KEY_FUNCTOR_CLASS);
         
         String localityGroupsConf = null;
         if (tableName.equals(shardTableName)) {
@@ -183,7 +188,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
         
         // Set up the bloom filters for faster queries on the index portion
         if (enableBloomFilters) {
-            setPropertyIfNecessary(tableName, Property.TABLE_BLOOM_KEY_FUNCTOR.getKey(), SHARD_KEY_FUNCTOR_CLASS, tops, log);
+            setPropertyIfNecessary(tableName, Property.TABLE_BLOOM_KEY_FUNCTOR.getKey(), shardKeyFunctorClass, tops, log);
         }
         setPropertyIfNecessary(tableName, Property.TABLE_BLOOM_ENABLED.getKey(), Boolean.toString(enableBloomFilters), tops, log);
         
@@ -0,0 +1,47 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import com.google.common.collect.Sets;
+import datawave.ingest.mapreduce.handler.edge.define.EdgeDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class EdgeDefinitionMatcherTest {
+    
+    private static EdgeDefinition edgeDef(String source, String sink) {
+        EdgeDefinition edgeDef = new EdgeDefinition();
+        edgeDef.setSourceFieldName(source);
+        edgeDef.setSinkFieldName(sink);
+        return edgeDef;
+    }
+    
+    @Test
+    public void testMatchPreservesOrder() {
+        EdgeDefinition ab = edgeDef("A", "B");
+        EdgeDefinition cd = edgeDef("C", "D");
+        EdgeDefinition ba = edgeDef("B", "A");
+        EdgeDefinition ac = edgeDef("A", "C");
+        EdgeDefinitionMatcher matcher = new EdgeDefinitionMatcher(Arrays.asList(ab, cd, ba, ac));
+        
+        Assert.assertEquals(Arrays.asList(ab, ba), matcher.match(Sets.newHashSet("A", "B")));
+        Assert.assertEquals(Arrays.asList(ab, ba, ac), matcher.match(Sets.newHashSet("A", "B", "C")));
+        Assert.assertEquals(Arrays.asList(ab, cd, ba, ac), matcher.match(Sets.newHashSet("A", "B", "C", "D", "E", "F")));
+        Assert.assertEquals(Collections.emptyList(), matcher.match(Sets.newHashSet("A", "D")));
+        Assert.assertEquals(Collections.emptyList(), matcher.match(Collections.emptySet()));
+    }
+    
+    @Test
+    public void testCompiledFrom() {
+        List<EdgeDefinition> defs = new ArrayList<>(Arrays.asList(edgeDef("A", "B"), edgeDef("C", "D")));
+        EdgeDefinitionMatcher matcher = new EdgeDefinitionMatcher(defs);
+        Assert.assertTrue(matcher.isCompiledFrom(defs));
+        Assert.assertFalse(matcher.isCompiledFrom(new ArrayList<>(defs)));
+        
+        defs.remove(1);
+        Assert.assertFalse(matcher.isCompiledFrom(defs));
+    }
+}
@@ -0,0 +1,152 @@
+package datawave.ingest.mapreduce.handler.edge;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.data.hash.UID;
+import datawave.edge.util.EdgeKey;
+import datawave.ingest.config.RawRecordContainerImpl;
+import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.Type;
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.BaseNormalizedContent;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.data.config.NormalizedFieldAndValue;
+import datawave.ingest.data.config.ingest.FakeIngestHelper;
+import datawave.ingest.mapreduce.SimpleDataTypeHandler;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.mapreduce.job.writer.AbstractContextWriter;
+import datawave.ingest.test.StandaloneStatusReporter;
+import datawave.ingest.test.StandaloneTaskAttemptContext;
+import datawave.util.TableName;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+public class ProtobufEdgeDataTypeHandlerTest {
+    
+    private static final Text EDGE_TABLE_NAME = new Text(TableName.EDGE);
+    private static Path edgeKeyVersionCachePath = Paths.get(System.getProperty("user.dir"), "edge-key-version.txt");
+    private static Type type = new Type("mycsv", FakeIngestHelper.class, null, new String[] {SimpleDataTypeHandler.class.getName()}, 10, null);
+    
+    private Configuration conf;
+    
+    @BeforeClass
+    public static void setupSystemSettings() throws IOException {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+        Files.write(edgeKeyVersionCachePath, "1\t1970-01-01T00:00:00.000Z".getBytes());
+    }
+    
+    @AfterClass
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(edgeKeyVersionCachePath);
+    }
+    
+    @Before
+    public void setup() {
+        TypeRegistry.reset();
+        conf = new Configuration();
+        conf.addResource(ClassLoader.getSystemResource("config/all-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/edge-ingest-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/metadata-config.xml"));
+        TypeRegistry.getInstance(conf).put(type.typeName(), type);
+    }
+    
+    private RawRecordContainer getEvent() {
+        RawRecordContainerImpl event = new RawRecordContainerImpl();
+        event.addSecurityMarking("columnVisibility", "PRIVATE");
+        event.setDataType(type);
+        event.setId(UID.builder().newId());
+        event.setConf(conf);
+        event.setDate(Instant.from(DateTimeFormatter.ISO_INSTANT.parse("2016-04-26T01:31:53Z")).getEpochSecond());
+        return event;
+    }
+    
+    /**
+     * The same source vertex in two subgroups, which produces the same edges twice for the record
+     */
+    private Multimap<String,NormalizedContentInterface> getFields() {
+        Multimap<String,NormalizedContentInterface> fields = HashMultimap.create();
+        fields.put("EVENT_DATE", new BaseNormalizedContent("EVENT_DATE", "2016-04-26T01:31:53Z"));
+        fields.put("FOO_FIELD", new BaseNormalizedContent("FOO_FIELD", "MYFOO"));
+        fields.put("BAR_FIELD", new BaseNormalizedContent("BAR_FIELD", "MYBAR"));
+        fields.put("EDGE_VERTEX_FROM", new NormalizedFieldAndValue("EDGE_VERTEX_FROM", "VERTEX1", null, "1"));
+        fields.put("EDGE_VERTEX_FROM", new NormalizedFieldAndValue("EDGE_VERTEX_FROM", "VERTEX1", null, "2"));
+        fields.put("EDGE_VERTEX_TO", new BaseNormalizedContent("EDGE_VERTEX_TO", "VERTEX3"));
+        return fields;
+    }
+    
+    /**
+     * Process the record and get the edge keys written for it, leaving out the stats keys
+     */
+    private List<Key> getEdgeKeys(boolean dedupRecordEdges) throws Exception {
+        conf.setBoolean(ProtobufEdgeDataTypeHandler.EDGE_DEDUP_RECORD_EDGES, dedupRecordEdges);
+        ProtobufEdgeDataTypeHandler<Text,BulkIngestKey,Value> edgeHandler = new ProtobufEdgeDataTypeHandler<>();
+        edgeHandler.setup(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+        
+        RawRecordContainer event = getEvent();
+        StandaloneTaskAttemptContext<Text,RawRecordContainerImpl,BulkIngestKey,Value> context = new StandaloneTaskAttemptContext<>(conf,
+                        new StandaloneStatusReporter());
+        ListContextWriter contextWriter = new ListContextWriter();
+        contextWriter.setup(conf, false);
+        edgeHandler.process(null, event, getFields(), context, contextWriter);
+        contextWriter.commit(context);
+        
+        List<Key> edgeKeys = new ArrayList<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : contextWriter.getEntries()) {
+            if (entry.getKey().getTableName().equals(EDGE_TABLE_NAME) && !EdgeKey.decode(entry.getKey().getKey()).isStatsKey()) {
+                edgeKeys.add(entry.getKey().getKey());
+            }
+        }
+        return edgeKeys;
+    }
+    
+    @Test
+    public void testDuplicateRecordEdgesKept() throws Exception {
+        // the forward and reverse edges, once for each subgroup
+        Assert.assertEquals(4, getEdgeKeys(false).size());
+    }
+    
+    @Test
+    public void testDuplicateRecordEdgesCollapsed() throws Exception {
+        List<Key> edgeKeys = getEdgeKeys(true);
+        Assert.assertEquals(2, edgeKeys.size());
+        Assert.assertNotEquals(edgeKeys.get(0), edgeKeys.get(1));
+    }
+    
+    /**
+     * Keeps every entry written, rather than collapsing entries with the same key and value
+     */
+    private static class ListContextWriter extends AbstractContextWriter<BulkIngestKey,Value> {
+        private List<Map.Entry<BulkIngestKey,Value>> entries = new ArrayList<>();
+        
+        @Override
+        protected void flush(Multimap<BulkIngestKey,Value> entries, TaskInputOutputContext<?,?,BulkIngestKey,Value> context) throws IOException,
+                        InterruptedException {
+            this.entries.addAll(entries.entries());
+        }
+        
+        public List<Map.Entry<BulkIngestKey,Value>> getEntries() {
+            return entries;
+        }
+    }
+}
@@ -185,6 +185,35 @@ public class FacetHandlerTest {
         evaluateMultipleEventResults(keysByTable, size, expectedFacetKeyCounts);
     }
     
+    @Test
+    public void testMultipleEventsAccumulated() {
+        ctx.getConfiguration().setBoolean(FacetHandler.FACET_ACCUMULATION_ENABLED, true);
+        
+        ExtendedDataTypeHandler<Text,BulkIngestKey,Value> handler = new FacetHandler<>();
+        handler.setup(ctx);
+        
+        helper.setup(ctx.getConfiguration());
+        
+        Collection<Multimap<String,NormalizedContentInterface>> items = TestData.getDataItems();
+        
+        setupTaskAttemptContext();
+        items.forEach(f -> processEvent(event, f, handler));
+        
+        // the merged sketches are only written when the mapper flushes the handler metadata
+        assertNotNull(handler.getMetadata());
+        try {
+            contextWriter.write(handler.getMetadata().getBulkMetadata(), context);
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Error flushing accumulated facets", e);
+        }
+        Multimap<String,FacetResult> keysByTable = collectResults();
+        
+        // every facet key is written exactly once
+        Object2IntMap<String> expectedFacetKeyCounts = TestData.getExpectedFacetCounts();
+        expectedFacetKeyCounts.replaceAll((k, v) -> 1);
+        evaluateMultipleEventResults(keysByTable, 1, expectedFacetKeyCounts);
+    }
+    
     @Test
     public void testMultiValueHashing() {
         
@@ -0,0 +1,144 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncFileSKVWriterTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+    
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testAppendsInOrder() throws IOException {
+        RecordingWriter delegate = new RecordingWriter(-1);
+        AsyncFileSKVWriter writer = new AsyncFileSKVWriter(delegate, 2, executor);
+        writer.startDefaultLocalityGroup();
+        
+        Key key = new Key();
+        Value value = new Value();
+        for (int i = 0; i < 100; i++) {
+            // reuse the key and value the same way a reducer would
+            key.set(new Key("row" + i, "cf", "cq"));
+            value.set(("value" + i).getBytes());
+            writer.append(key, value);
+        }
+        writer.close();
+        
+        Assert.assertTrue(delegate.closed);
+        Assert.assertEquals(1, delegate.defaultLocalityGroups);
+        Assert.assertEquals(100, delegate.keys.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("row" + i, delegate.keys.get(i).getRow().toString());
+            Assert.assertEquals("value" + i, delegate.values.get(i).toString());
+        }
+        Assert.assertTrue(writer.getMaxQueueDepth() <= 2);
+        Assert.assertTrue(writer.getLength() > 0);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testFailurePropagates() throws IOException {
+        AsyncFileSKVWriter writer = new AsyncFileSKVWriter(new RecordingWriter(5), 2, executor);
+        for (int i = 0; i < 100; i++) {
+            writer.append(new Key("row" + i), new Value(new byte[0]));
+        }
+        writer.close();
+    }
+    
+    @Test
+    public void testDelegateClosedOnFailure() throws IOException {
+        RecordingWriter delegate = new RecordingWriter(1);
+        AsyncFileSKVWriter writer = new AsyncFileSKVWriter(delegate, 10, executor);
+        try {
+            writer.append(new Key("row1"), new Value(new byte[0]));
+            writer.append(new Key("row2"), new Value(new byte[0]));
+        } catch (IOException e) {
+            // the failure may already have been seen
+        }
+        try {
+            writer.close();
+            Assert.fail("Expected the write failure to be thrown on close");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertTrue(delegate.closed);
+    }
+    
+    @Test(expected = IOException.class)
+    public void testAppendAfterClose() throws IOException {
+        AsyncFileSKVWriter writer = new AsyncFileSKVWriter(new RecordingWriter(-1), 2, executor);
+        writer.close();
+        writer.append(new Key("row"), new Value(new byte[0]));
+    }
+    
+    private static class RecordingWriter implements FileSKVWriter {
+        private final int failAfter;
+        private final List<Key> keys = new ArrayList<>();
+        private final List<Value> values = new ArrayList<>();
+        private int defaultLocalityGroups = 0;
+        private volatile boolean closed = false;
+        
+        RecordingWriter(int failAfter) {
+            this.failAfter = failAfter;
+        }
+        
+        @Override
+        public boolean supportsLocalityGroups() {
+            return false;
+        }
+        
+        @Override
+        public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) throws IOException {}
+        
+        @Override
+        public void startDefaultLocalityGroup() throws IOException {
+            defaultLocalityGroups++;
+        }
+        
+        @Override
+        public void append(Key key, Value value) throws IOException {
+            if (failAfter >= 0 && keys.size() >= failAfter) {
+                throw new IOException("Simulated write failure");
+            }
+            keys.add(key);
+            values.add(value);
+        }
+        
+        @Override
+        public DataOutputStream createMetaStore(String name) throws IOException {
+            return null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+        
+        @Override
+        public long getLength() throws IOException {
+            return 0;
+        }
+    }
+}
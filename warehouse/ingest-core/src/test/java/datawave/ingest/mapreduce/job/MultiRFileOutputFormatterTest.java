@@ -4,6 +4,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -16,13 +17,18 @@ import datawave.util.TableName;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.JobID;
 import org.apache.hadoop.mapreduce.RecordWriter;
@@ -30,6 +36,7 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.log4j.Level;
@@ -38,7 +45,9 @@ import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.powermock.api.easymock.PowerMock;
 
 public class MultiRFileOutputFormatterTest {
@@ -54,6 +63,9 @@ public class MultiRFileOutputFormatterTest {
     private MultiRFileOutputFormatter formatter;
     private Configuration conf;
     
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
     protected List<String> retrieveUUTLogs() throws IOException {
         
         return uutAppender.retrieveLogsEntries();
@@ -405,9 +417,9 @@ public class MultiRFileOutputFormatterTest {
             }
             
             @Override
-            protected SizeTrackingWriter openWriter(String filename, AccumuloConfiguration tableConf) {
+            protected FileSKVWriter createFileWriter(String filename, AccumuloConfiguration tableConf) {
                 filenames.add(filename);
-                return new SizeTrackingWriter(new FileSKVWriter() {
+                return new FileSKVWriter() {
                     
                     @Override
                     public boolean supportsLocalityGroups() {
@@ -435,13 +447,53 @@ public class MultiRFileOutputFormatterTest {
                     
                     @Override
                     public void append(Key key, Value value) throws IOException {}
-                });
+                };
                 
             }
         };
         
     }
     
+    /**
+     * Create a formatter that writes real files, so that the files can be verified and the row keys written on close.
+     */
+    private MultiRFileOutputFormatter createFileFormatter() {
+        this.filenames.clear();
+        return new MultiRFileOutputFormatter() {
+            @Override
+            protected Set<String> getTableList() {
+                Set<String> tables = new HashSet<>();
+                tables.add(TableName.SHARD);
+                tables.add(TableName.SHARD_INDEX);
+                return tables;
+            }
+            
+            @Override
+            protected void setTableIdsAndConfigs() {
+                tableConfigs = new HashMap<>();
+                tableConfigs.put(TableName.SHARD, new ConfigurationCopy(DefaultConfiguration.getInstance()));
+                tableConfigs.put(TableName.SHARD_INDEX, new ConfigurationCopy(DefaultConfiguration.getInstance()));
+                tableIds = new HashMap<>();
+                tableIds.put(TableName.SHARD, "1");
+                tableIds.put(TableName.SHARD_INDEX, "2");
+            }
+            
+            @Override
+            protected Map<Text,String> getShardLocations(String tableName) throws IOException {
+                Map<Text,String> locations = new HashMap<>();
+                locations.put(new Text("20100101_1"), "server1");
+                locations.put(new Text("20100101_2"), "server2");
+                return locations;
+            }
+            
+            @Override
+            protected FileSKVWriter createFileWriter(String filename, AccumuloConfiguration tableConf) throws IOException {
+                filenames.add(filename);
+                return super.createFileWriter(filename, tableConf);
+            }
+        };
+    }
+    
     @Before
     public void before() {
         formatter = createFormatter();
@@ -528,6 +580,88 @@ public class MultiRFileOutputFormatterTest {
         assertFileNameForShard(4, "server2", 2);
     }
     
+    @Test
+    public void testMaxOpenWritersWithFilePerShardLoc() throws IOException, InterruptedException {
+        MultiRFileOutputFormatter.setMaxOpenWriters(conf, 1);
+        MultiRFileOutputFormatter.setGenerateMapFilePerShardLocation(conf, true);
+        RecordWriter<BulkIngestKey,Value> writer = createWriter(formatter, conf);
+        writeShardPairs(writer, 2);
+        // alternating between the two shard locations closes the least recently used writer each time
+        assertNumFileNames(5);
+        assertFileNameForShardIndex(0);
+        assertFileNameForShard(1, "server1", 1);
+        assertFileNameForShard(2, "server2", 1);
+        assertFileNameForShard(3, "server1", 2);
+        assertFileNameForShard(4, "server2", 2);
+    }
+    
+    @Test
+    public void testMaxOpenWritersNotReached() throws IOException, InterruptedException {
+        MultiRFileOutputFormatter.setMaxOpenWriters(conf, 3);
+        MultiRFileOutputFormatter.setGenerateMapFilePerShardLocation(conf, true);
+        RecordWriter<BulkIngestKey,Value> writer = createWriter(formatter, conf);
+        writeShardPairs(writer, 2);
+        assertNumFileNames(3);
+        assertFileNameForShardIndex(0);
+        assertFileNameForShard(1, "server1", 1);
+        assertFileNameForShard(2, "server2", 1);
+    }
+    
+    @Test
+    public void testAsyncWritersLimitedToThreads() throws IOException, InterruptedException {
+        MultiRFileOutputFormatter.setAsyncWriters(conf, true, 2);
+        MultiRFileOutputFormatter.setAsyncWriterThreads(conf, 1);
+        MultiRFileOutputFormatter.setGenerateMapFilePerShardLocation(conf, true);
+        RecordWriter<BulkIngestKey,Value> writer = createWriter(formatter, conf);
+        writeShardPairs(writer, 2);
+        // a single thread only allows a single open writer
+        assertNumFileNames(5);
+        assertFileNameForShardIndex(0);
+        assertFileNameForShard(1, "server1", 1);
+        assertFileNameForShard(2, "server2", 1);
+        assertFileNameForShard(3, "server1", 2);
+        assertFileNameForShard(4, "server2", 2);
+    }
+    
+    @Test
+    public void testAsyncWritersWithEvictedFiles() throws IOException, InterruptedException {
+        conf.set("mapred.output.dir", temporaryFolder.getRoot().getAbsolutePath());
+        MultiRFileOutputFormatter.setAsyncWriters(conf, true, 2);
+        MultiRFileOutputFormatter.setAsyncWriterThreads(conf, 1);
+        MultiRFileOutputFormatter.setGenerateMapFilePerShardLocation(conf, true);
+        MultiRFileOutputFormatter.setGenerateMapFileRowKeys(conf, true);
+        formatter = createFileFormatter();
+        TaskAttemptContext context = createContext(conf);
+        RecordWriter<BulkIngestKey,Value> writer = formatter.getRecordWriter(context);
+        writeShardPairs(writer, 2);
+        writer.close(context);
+        assertNumFileNames(5);
+        
+        // the unused shard index file is deleted, and every shard file is kept, including the files of the evicted writers
+        FileSystem fs = FileSystem.getLocal(conf);
+        Assert.assertFalse(fs.exists(new Path(filenames.get(0))));
+        for (int i = 1; i < filenames.size(); i++) {
+            Assert.assertTrue(filenames.get(i), fs.exists(new Path(filenames.get(i))));
+        }
+        
+        Path workDir = ((FileOutputCommitter) formatter.getOutputCommitter(context)).getWorkPath();
+        FileStatus[] rowKeyFiles = fs.listStatus(workDir, path -> path.getName().startsWith("mapFileRowKeys"));
+        Assert.assertEquals(1, rowKeyFiles.length);
+        Map<String,Set<String>> rowKeys = new HashMap<>();
+        try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(rowKeyFiles[0].getPath()))) {
+            Text file = new Text();
+            Text rowKey = new Text();
+            while (reader.next(file, rowKey)) {
+                rowKeys.computeIfAbsent(file.toString(), k -> new HashSet<>()).add(rowKey.toString());
+            }
+        }
+        Assert.assertEquals(rowKeys.toString(), 4, rowKeys.size());
+        for (int count = 1; count <= 2; count++) {
+            Assert.assertEquals(Collections.singleton("20100101_1"), rowKeys.get("shard/server1-m-00001_" + count + ".rf"));
+            Assert.assertEquals(Collections.singleton("20100101_2"), rowKeys.get("shard/server2-m-00001_" + count + ".rf"));
+        }
+    }
+    
     private void writeShardPairs(RecordWriter<BulkIngestKey,Value> writer, int numOfPairs) throws IOException, InterruptedException {
         for (int i = 0; i < numOfPairs; i++) {
             writeShardEntry(writer, 1);
@@ -540,8 +674,11 @@ public class MultiRFileOutputFormatterTest {
     }
     
     private RecordWriter<BulkIngestKey,Value> createWriter(MultiRFileOutputFormatter formatter, Configuration conf) throws IOException, InterruptedException {
-        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID(new TaskID(new JobID(JOB_ID, 1), TaskType.MAP, 1), 1));
-        return formatter.getRecordWriter(context);
+        return formatter.getRecordWriter(createContext(conf));
+    }
+    
+    private TaskAttemptContext createContext(Configuration conf) {
+        return new TaskAttemptContextImpl(conf, new TaskAttemptID(new TaskID(new JobID(JOB_ID, 1), TaskType.MAP, 1), 1));
     }
     
     private void assertFileNameForShard(int index, String prefix, int shardId) {
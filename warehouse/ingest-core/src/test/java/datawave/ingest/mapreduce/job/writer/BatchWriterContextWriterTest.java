@@ -0,0 +1,134 @@
+package datawave.ingest.mapreduce.job.writer;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.ingest.AccumuloHelper;
+import datawave.ingest.mapreduce.StandaloneStatusReporter;
+import datawave.ingest.mapreduce.StandaloneTaskAttemptContext;
+import datawave.ingest.mapreduce.job.BulkIngestKey;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.minicluster.MiniAccumuloCluster;
+import org.apache.accumulo.minicluster.MiniAccumuloConfig;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test uses mini accumulo cluster. Files are stored in warehouse/ingest-core/target/mac/datawave.ingest.mapreduce.job.writer.BatchWriterContextWriterTest
+ */
+public class BatchWriterContextWriterTest {
+    
+    private static final String TABLE = "liveShard";
+    private static final String OTHER_TABLE = "liveShardIndex";
+    
+    private static MiniAccumuloCluster mac;
+    
+    private Configuration conf;
+    private Connector connector;
+    private StandaloneTaskAttemptContext<?,?,Text,Mutation> context;
+    
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        File macDir = new File(System.getProperty("user.dir") + "/target/mac/" + BatchWriterContextWriterTest.class.getName());
+        if (macDir.exists())
+            FileUtils.deleteDirectory(macDir);
+        macDir.mkdirs();
+        mac = new MiniAccumuloCluster(new MiniAccumuloConfig(macDir, "pass"));
+        mac.start();
+    }
+    
+    @AfterClass
+    public static void shutdown() throws Exception {
+        mac.stop();
+    }
+    
+    @Before
+    public void setup() throws Exception {
+        conf = new Configuration();
+        AccumuloHelper.setUsername(conf, "root");
+        AccumuloHelper.setPassword(conf, "pass".getBytes());
+        AccumuloHelper.setInstanceName(conf, mac.getInstanceName());
+        AccumuloHelper.setZooKeepers(conf, mac.getZooKeepers());
+        conf.setInt(AbstractContextWriter.CONTEXT_WRITER_MAX_CACHE_SIZE, 10);
+        
+        connector = mac.getConnector("root", "pass");
+        for (String table : new String[] {TABLE, OTHER_TABLE}) {
+            if (connector.tableOperations().exists(table)) {
+                connector.tableOperations().delete(table);
+            }
+            connector.tableOperations().create(table);
+        }
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("A", "B"));
+        
+        context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+    }
+    
+    @Test
+    public void testMutationsGroupedByRow() throws Exception {
+        LiveContextWriter writer = new LiveContextWriter();
+        writer.setup(conf, false);
+        
+        Multimap<BulkIngestKey,Value> entries = createEntries(5, 4);
+        Map<Text,List<Mutation>> mutations = writer.getMutations(entries);
+        
+        assertEquals(2, mutations.size());
+        assertEquals(5, mutations.get(new Text(TABLE)).size());
+        assertEquals(4, mutations.get(new Text(TABLE)).get(0).size());
+        assertEquals(5, mutations.get(new Text(OTHER_TABLE)).size());
+    }
+    
+    @Test
+    public void testWriteToAccumulo() throws Exception {
+        BatchWriterContextWriter writer = new BatchWriterContextWriter();
+        writer.setup(conf, false);
+        
+        // write enough entries to cause several flushes of the context writer cache
+        Multimap<BulkIngestKey,Value> entries = createEntries(20, 3);
+        for (Map.Entry<BulkIngestKey,Value> entry : entries.entries()) {
+            writer.write(entry.getKey(), entry.getValue(), context);
+        }
+        writer.cleanup(context);
+        
+        assertEquals(60, count(TABLE));
+        assertEquals(60, count(OTHER_TABLE));
+        assertEquals(120, context.getCounter(BatchWriterContextWriter.COUNTER_GROUP, BatchWriterContextWriter.ENTRIES_WRITTEN).getValue());
+    }
+    
+    private Multimap<BulkIngestKey,Value> createEntries(int rows, int columns) {
+        Multimap<BulkIngestKey,Value> entries = ArrayListMultimap.create();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                ColumnVisibility cv = new ColumnVisibility(column % 2 == 0 ? "A" : "A&B");
+                Key key = new Key("row" + row, "fam", "qual" + column, cv, 1L);
+                entries.put(new BulkIngestKey(new Text(TABLE), key), new Value(("value" + column).getBytes()));
+                entries.put(new BulkIngestKey(new Text(OTHER_TABLE), key), new Value(("value" + column).getBytes()));
+            }
+        }
+        return entries;
+    }
+    
+    private int count(String table) throws Exception {
+        int count = 0;
+        Scanner scanner = connector.createScanner(table, new Authorizations("A", "B"));
+        for (Map.Entry<Key,Value> entry : scanner) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,232 @@
+package datawave.ingest.table.bloomfilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ShardUidKeyFunctorTest {
+    
+    private static final Logger log = Logger.getLogger(ShardUidKeyFunctorTest.class);
+    
+    private static final String SHARD = "20190314_4";
+    private static final byte[] BLOOM_KEY = (SHARD + "\0csv\0-3yhuc9.a3pnc7.-tukvp3").getBytes();
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    protected ShardUidKeyFunctor functor = null;
+    
+    @Before
+    public void setUp() {
+        functor = new ShardUidKeyFunctor();
+    }
+    
+    @Test
+    public void testTransformKey() {
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp3", "FIELD\0value")).getBytes());
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(new Key(SHARD, "fi\0FIELD", "value\0csv\0-3yhuc9.a3pnc7.-tukvp3")).getBytes());
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(new Key(SHARD, "tf", "csv\0-3yhuc9.a3pnc7.-tukvp3\0value\0FIELD")).getBytes());
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(new Key(SHARD, "d", "csv\0-3yhuc9.a3pnc7.-tukvp3\0CONTENT")).getBytes());
+        
+        Assert.assertEquals("empty key should not be in bloom filter", 0, functor.transform(new Key()).getBytes().length);
+        Assert.assertEquals("row only key should not be in bloom filter", 0, functor.transform(new Key(SHARD)).getBytes().length);
+        Assert.assertEquals("non document column should not be in bloom filter", 0, functor.transform(new Key(SHARD, "other", "cq")).getBytes().length);
+        Assert.assertEquals("fi key without uid should not be in bloom filter", 0, functor.transform(new Key(SHARD, "fi\0FIELD", "value")).getBytes().length);
+        Assert.assertEquals("tf key without uid should not be in bloom filter", 0, functor.transform(new Key(SHARD, "tf", "csv")).getBytes().length);
+    }
+    
+    @Test
+    public void testTransformDocumentRange() {
+        Key start = new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp3");
+        Range range = new Range(start, true, start.followingKey(PartialKey.ROW_COLFAM), false);
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(range).getBytes());
+        
+        // a restarted document range keeps the document
+        range = new Range(new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp3", "FIELD\0value"), false, start.followingKey(PartialKey.ROW_COLFAM), false);
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(range).getBytes());
+        
+        // the field index range derived from the document range
+        range = new Range(new Key(SHARD, "fi\0FIELD", "value\0csv\0-3yhuc9.a3pnc7.-tukvp3"), true, new Key(SHARD, "fi\0FIELD",
+                        "value\0csv\0-3yhuc9.a3pnc7.-tukvp3\0\0"), false);
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(range).getBytes());
+        
+        // the term frequency range for a single document
+        range = new Range(new Key(SHARD, "tf", "csv\0-3yhuc9.a3pnc7.-tukvp3"), true, new Key(SHARD, "tf", "csv\0-3yhuc9.a3pnc7.-tukvp3\1"), false);
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(range).getBytes());
+        
+        // the field index range derived from the document range, for a value containing a null byte
+        range = new Range(new Key(SHARD, "fi\0FIELD", "a\0b\0csv\0-3yhuc9.a3pnc7.-tukvp3"), true, new Key(SHARD, "fi\0FIELD",
+                        "a\0b\0csv\0-3yhuc9.a3pnc7.-tukvp3\0\0"), false);
+        Assert.assertArrayEquals(BLOOM_KEY, functor.transform(range).getBytes());
+    }
+    
+    @Test
+    public void testTransformFieldIndexValueRange() {
+        // every document with a value containing null bytes, where the last two elements of the value are not a datatype and uid
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "fi\0FIELD", "a\0csv\0-3yhuc9.a3pnc7.-tukvp3\0"), true, new Key(SHARD, "fi\0FIELD",
+                        "a\0csv\0-3yhuc9.a3pnc7.-tukvp3\1"), false)));
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "fi\0FIELD", "a\0b"), true, new Key(SHARD, "fi\0FIELD", "a\0b\1"), false)));
+        Assert.assertNull(functor.transform(Range.exact(SHARD, "fi\0FIELD", "a\0b")));
+        
+        // every uid of a value and datatype
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "fi\0FIELD", "value\0csv\0"), true, new Key(SHARD, "fi\0FIELD", "value\0csv\1"), false)));
+    }
+    
+    @Test
+    public void testTransformMultiDocumentRange() {
+        Assert.assertNull("shard range should not be in bloom filter", functor.transform(new Range(SHARD, true, SHARD + '\0', false)));
+        Assert.assertNull("infinite range should not be in bloom filter", functor.transform(new Range()));
+        
+        // top level document ranges span the children
+        Key start = new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp3");
+        Assert.assertNull(functor.transform(new Range(start, true, new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp3\uffff"), false)));
+        
+        // multiple documents
+        Assert.assertNull(functor.transform(new Range(start, true, new Key(SHARD, "csv\0-3yhuc9.a3pnc7.-tukvp4"), false)));
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "fi\0FIELD", "value"), true, new Key(SHARD, "fi\0FIELD", "value\1"), false)));
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "tf", "csv"), true, new Key(SHARD, "tf", "csv\1"), false)));
+        
+        // inclusive of the following document
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "tf", "csv\0-3yhuc9.a3pnc7.-tukvp3"), true, new Key(SHARD, "tf",
+                        "csv\0-3yhuc9.a3pnc7.-tukvp3\1"), true)));
+        
+        // multiple columns
+        Assert.assertNull(functor.transform(new Range(new Key(SHARD, "fi\0FIELD", "value\0csv\0-3yhuc9.a3pnc7.-tukvp3"), true, new Key(SHARD, "fi\0FIELD2",
+                        "value\0csv\0-3yhuc9.a3pnc7.-tukvp3\0\0"), false)));
+    }
+    
+    /**
+     * Fetch documents by uid from a tablet with many RFiles, with and without the bloom filters. The results must be the same, and the bloom filters should
+     * allow most files to be skipped.
+     */
+    @Test
+    public void testMultipleRFileDocumentSeeks() throws IOException {
+        int numFiles = 24;
+        int docsPerFile = 200;
+        Configuration conf = new Configuration();
+        FileSystem fs = FileSystem.getLocal(conf);
+        
+        ConfigurationCopy bloomConf = new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+        bloomConf.set(Property.TABLE_BLOOM_ENABLED, "true");
+        bloomConf.set(Property.TABLE_BLOOM_KEY_FUNCTOR, ShardUidKeyFunctor.class.getName());
+        bloomConf.set(Property.TABLE_BLOOM_LOAD_THRESHOLD, "0");
+        bloomConf.set(Property.TSERV_BLOOM_LOAD_MAXCONCURRENT, "0");
+        ConfigurationCopy noBloomConf = new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+        
+        List<String> files = new ArrayList<>();
+        List<String> uids = new ArrayList<>();
+        File dir = temporaryFolder.newFolder();
+        for (int i = 0; i < numFiles; i++) {
+            String file = new File(dir, "file" + i + ".rf").getAbsolutePath();
+            files.add(file);
+            List<Key> keys = new ArrayList<>();
+            for (int j = 0; j < docsPerFile; j++) {
+                String uid = "csv\0uid." + i + '.' + j;
+                uids.add(uid);
+                keys.add(new Key(SHARD, uid, "FIELD\0value" + j));
+                keys.add(new Key(SHARD, uid, "OTHER\0value" + i));
+                keys.add(new Key(SHARD, "fi\0FIELD", "value" + j + '\0' + uid));
+                keys.add(new Key(SHARD, "tf", uid + "\0value" + j + "\0FIELD"));
+            }
+            Collections.sort(keys);
+            FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder().forFile(file, fs, conf).withTableConfiguration(bloomConf).build();
+            writer.startDefaultLocalityGroup();
+            for (Key key : keys) {
+                writer.append(key, new Value(new byte[0]));
+            }
+            writer.close();
+        }
+        
+        List<FileSKVIterator> bloomReaders = openReaders(files, fs, conf, bloomConf);
+        List<FileSKVIterator> plainReaders = openReaders(files, fs, conf, noBloomConf);
+        
+        Random random = new Random(0);
+        List<Range> ranges = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String uid = uids.get(random.nextInt(uids.size()));
+            Key start = new Key(SHARD, uid);
+            ranges.add(new Range(start, true, start.followingKey(PartialKey.ROW_COLFAM), false));
+            ranges.add(new Range(new Key(SHARD, "fi\0FIELD", "value" + uid.substring(uid.lastIndexOf('.') + 1) + '\0' + uid), true, new Key(SHARD,
+                            "fi\0FIELD", "value" + uid.substring(uid.lastIndexOf('.') + 1) + '\0' + uid + "\0\0"), false));
+        }
+        
+        // warm up both sets of readers
+        seekAll(bloomReaders, ranges);
+        seekAll(plainReaders, ranges);
+        
+        long start = System.nanoTime();
+        SeekResult plain = seekAll(plainReaders, ranges);
+        long plainTime = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        SeekResult bloom = seekAll(bloomReaders, ranges);
+        long bloomTime = System.nanoTime() - start;
+        
+        log.info("Seeked " + ranges.size() + " document ranges over " + numFiles + " RFiles: " + (plainTime / 1000000) + " ms without bloom filters, "
+                        + (bloomTime / 1000000) + " ms with bloom filters");
+        
+        Assert.assertEquals(plain.keys, bloom.keys);
+        // every document lives in a single file, and each range should find it
+        Assert.assertEquals(ranges.size(), plain.filesWithData);
+        Assert.assertEquals(ranges.size(), bloom.filesWithData);
+        
+        for (FileSKVIterator reader : bloomReaders) {
+            reader.close();
+        }
+        for (FileSKVIterator reader : plainReaders) {
+            reader.close();
+        }
+    }
+    
+    private List<FileSKVIterator> openReaders(List<String> files, FileSystem fs, Configuration conf, AccumuloConfiguration acuConf) throws IOException {
+        List<FileSKVIterator> readers = new ArrayList<>();
+        for (String file : files) {
+            readers.add(FileOperations.getInstance().newReaderBuilder().forFile(file, fs, conf).withTableConfiguration(acuConf).build());
+        }
+        return readers;
+    }
+    
+    private static class SeekResult {
+        private final List<Key> keys = new ArrayList<>();
+        private int filesWithData = 0;
+    }
+    
+    private SeekResult seekAll(List<FileSKVIterator> readers, List<Range> ranges) throws IOException {
+        SeekResult result = new SeekResult();
+        for (Range range : ranges) {
+            for (FileSKVIterator reader : readers) {
+                reader.seek(range, Collections.emptyList(), false);
+                if (reader.hasTop()) {
+                    result.filesWithData++;
+                }
+                while (reader.hasTop()) {
+                    result.keys.add(new Key(reader.getTopKey()));
+                    reader.next();
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -23,6 +23,9 @@ import java.util.Map;
 /**
  * Skips rows whose composite terms are outside of the range defined by the upper and lower composite bounds.
  *
+ * Rows are scanned up to the seek threshold before seeking past them. The number of rows scanned is halved each time the threshold is reached, and doubled
+ * each time the next valid row is reached by scanning, so that wide gaps are seeked over sooner while narrow gaps are still scanned.
+ *
  */
 public class CompositeSeekingIterator extends WrappingIterator {
     
@@ -38,6 +41,9 @@ public class CompositeSeekingIterator extends WrappingIterator {
     private String separator;
     private int seekThreshold;
     
+    // the number of keys to scan before seeking, adjusted between 1 and the seek threshold as keys are skipped
+    private int adaptiveSeekThreshold;
+    
     private Range currentRange;
     private ShardIndexCompositeSeeker compositeSeeker;
     private Collection<ByteSequence> columnFamilies;
@@ -54,6 +60,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
         to.fieldToDiscreteIndexType = new HashMap<>(fieldToDiscreteIndexType);
         to.separator = separator;
         to.seekThreshold = seekThreshold;
+        to.adaptiveSeekThreshold = seekThreshold;
         to.compositeSeeker = new ShardIndexCompositeSeeker(to.fieldNames, to.separator, to.fieldToDiscreteIndexType);
         
         return to;
@@ -85,6 +92,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
         this.separator = options.get(SEPARATOR);
         
         this.seekThreshold = Integer.parseInt(options.getOrDefault(SEEK_THRESHOLD, "10"));
+        this.adaptiveSeekThreshold = seekThreshold;
         
         compositeSeeker = new ShardIndexCompositeSeeker(fieldNames, separator, fieldToDiscreteIndexType);
     }
@@ -100,11 +108,19 @@ public class CompositeSeekingIterator extends WrappingIterator {
             // top key precedes nextSeekKey
             if (nextSeekKey != null && getTopKey().compareTo(nextSeekKey) < 0) {
                 // if we hit the seek threshold, seek
-                if (nextCount >= seekThreshold)
+                if (nextCount >= adaptiveSeekThreshold) {
                     shouldSeek = true;
+                    
+                    // the gaps are wider than we are willing to scan, so seek sooner next time
+                    adaptiveSeekThreshold = Math.min(seekThreshold, Math.max(1, adaptiveSeekThreshold / 2));
+                }
             }
             // top key exceeds nextSeekKey, or nextSeekKey unset
             else {
+                // the last gap was scanned past without seeking, so allow more keys to be scanned next time
+                if (nextSeekKey != null)
+                    adaptiveSeekThreshold = Math.min(seekThreshold, adaptiveSeekThreshold * 2);
+                
                 nextCount = 0;
                 nextSeekKey = null;
                 
@@ -114,7 +130,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
                     nextSeekKey = newStartKey;
                     
                     // if we hit the seek threshold (i.e. if it is set to 0), seek
-                    if (nextCount >= seekThreshold)
+                    if (nextCount >= adaptiveSeekThreshold)
                         shouldSeek = true;
                 }
             }
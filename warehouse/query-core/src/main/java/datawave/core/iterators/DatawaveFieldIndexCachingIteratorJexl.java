@@ -243,6 +243,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     // as possible.
     @SuppressWarnings("unchecked")
     protected static final Collection<ByteSequence> EMPTY_CFS = Collections.EMPTY_LIST;
+    // The number of field index keys of a row sampled to decide how many ranges to split the row into
+    public static final int RANGE_SPLIT_SAMPLE_SIZE = 1000;
     
     // These are the ranges to scan in the field index
     private final List<Range> boundingFiRanges = new ArrayList<>();
@@ -273,6 +275,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     
     // The max number of field index ranges to be executed individually by the ivarator thread pool
     private final int maxRangeSplit;
+    // The number of field index ranges to split the current row into, as sampled from the field index of the row
+    private int rangeSplit;
     
     // The configured ivarator cache paths
     private final List<IvaratorCacheDir> ivaratorCacheDirs;
@@ -380,6 +384,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.maxOpenFiles = 100;
         this.numRetries = 2;
         this.maxRangeSplit = 11;
+        this.rangeSplit = this.maxRangeSplit;
         this.maxResults = -1;
         this.persistOptions = new FileSortedSet.PersistOptions();
         
@@ -433,6 +438,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.numRetries = builder.numRetries;
         this.persistOptions = builder.persistOptions;
         this.maxRangeSplit = builder.maxRangeSplit;
+        this.rangeSplit = this.maxRangeSplit;
         
         this.sortedUIDs = builder.sortedUIDs;
         
@@ -480,6 +486,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.currentRow = other.currentRow;
         this.createdRowDir = other.createdRowDir;
         this.maxRangeSplit = other.maxRangeSplit;
+        this.rangeSplit = other.rangeSplit;
         
         this.sortedUIDs = other.sortedUIDs;
         
@@ -597,6 +604,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 this.boundingFiRanges.clear();
                 if (source.hasTop()) {
                     this.fiRow = source.getTopKey().getRow();
+                    this.rangeSplit = sampleRangeSplit(source, fiRow);
                     this.boundingFiRanges.addAll(buildBoundingFiRanges(fiRow, fiName, fieldValue));
                     
                     // if we are not sorting uids and we have a starting value, then pop off the ranges until we have the one
@@ -693,6 +701,16 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         return maxRangeSplit;
     }
     
+    /**
+     * Get the number of field index ranges to split the current row into. This is the max range split unless sampling found the field to have few keys in the
+     * row.
+     *
+     * @return the number of ranges to split the current row into
+     */
+    public int getRangeSplit() {
+        return rangeSplit;
+    }
+    
     /**
      * From a field index key, this builds row=shardId, cf=datatype\0UID, cq=fieldname\0fieldvalue Note: in the non-sorted case we need to include the COLQUAL
      * to maintain the position in the FI for reseeking purposes
@@ -1292,6 +1310,47 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     @SuppressWarnings("hiding")
     protected abstract List<Range> buildBoundingFiRanges(Text rowId, Text fiName, Text fieldValue);
     
+    /**
+     * Sample the field index of the row to decide how many ranges to split it into. Each range is filled by its own thread with its own source from the pool,
+     * which is only worth the cost for a field with many keys in the row. Up to RANGE_SPLIT_SAMPLE_SIZE keys of the field, or of all fields for the ANY
+     * field, are counted, and the max range split is scaled down by the fraction of the sample found.
+     *
+     * @param source
+     *            the source to sample, which is seeked away from its current position
+     * @param row
+     *            the row to sample
+     * @return the number of ranges to split the row into
+     * @throws IOException
+     */
+    protected int sampleRangeSplit(SortedKeyValueIterator<Key,Value> source, Text row) throws IOException {
+        if (maxRangeSplit <= 1) {
+            return maxRangeSplit;
+        }
+        
+        Range sampleRange;
+        if (ANY_FINAME.equals(fiName)) {
+            // there are no field index keys for the ANY field, so sample the whole field index of the row the same way the bounding ranges cover it
+            sampleRange = new Range(new Key(row, FI_START), true, new Key(row, FI_END), false);
+        } else {
+            Key fieldStart = new Key(row, fiName);
+            sampleRange = new Range(fieldStart, true, fieldStart.followingKey(PartialKey.ROW_COLFAM), false);
+        }
+        source.seek(sampleRange, EMPTY_CFS, false);
+        scannedKeys.incrementAndGet();
+        
+        int sampled = 0;
+        while (source.hasTop() && sampled < RANGE_SPLIT_SAMPLE_SIZE) {
+            sampled++;
+            source.next();
+        }
+        
+        int split = Math.max(1, (int) (((long) sampled * maxRangeSplit + RANGE_SPLIT_SAMPLE_SIZE - 1) / RANGE_SPLIT_SAMPLE_SIZE));
+        if (log.isDebugEnabled()) {
+            log.debug("Sampled " + sampled + " keys of " + fiName + " in " + row + ", splitting into " + split + " of " + maxRangeSplit + " ranges");
+        }
+        return split;
+    }
+    
     /**
      * Does the last range seeked contain the passed in range
      * 
@@ -1351,6 +1410,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     scannedKeys.incrementAndGet();
                     if (source.hasTop()) {
                         fiRow = source.getTopKey().getRow();
+                        rangeSplit = sampleRangeSplit(source, fiRow);
                     } else {
                         fiRow = null;
                     }
@@ -94,7 +94,7 @@ public class DatawaveFieldIndexFilterIteratorJexl extends DatawaveFieldIndexRang
         if (ANY_FINAME.equals(fiName)) {
             startKey = new Key(rowId, FI_START);
             endKey = new Key(rowId, FI_END);
-            return new RangeSplitter(new Range(startKey, true, endKey, false), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, false), getRangeSplit());
         }
         // we cannot simply use startKeyInclusive in the Range as the datatype and UID follow the value in the keys
         // hence we need to compute the min possibly value that would be inclusive
@@ -119,7 +119,7 @@ public class DatawaveFieldIndexFilterIteratorJexl extends DatawaveFieldIndexRang
             this.boundingFiRangeStringBuilder.append(Constants.MAX_UNICODE_STRING);
         }
         endKey = new Key(rowId, fiName, new Text(boundingFiRangeStringBuilder.toString()));
-        return new RangeSplitter(new Range(startKey, true, endKey, true), getMaxRangeSplit());
+        return new RangeSplitter(new Range(startKey, true, endKey, true), getRangeSplit());
     }
     
     // -------------------------------------------------------------------------
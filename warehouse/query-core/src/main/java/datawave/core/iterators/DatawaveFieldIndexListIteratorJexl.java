@@ -114,7 +114,7 @@ public class DatawaveFieldIndexListIteratorJexl extends DatawaveFieldIndexCachin
         if (ANY_FINAME.equals(fiName)) {
             Key startKey = new Key(rowId, FI_START);
             Key endKey = new Key(rowId, FI_END);
-            return new RangeSplitter(new Range(startKey, true, endKey, false), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, false), getRangeSplit());
         }
         
         if (fst != null || isNegated()) {
@@ -122,7 +122,7 @@ public class DatawaveFieldIndexListIteratorJexl extends DatawaveFieldIndexCachin
             Key endKey = null;
             startKey = new Key(rowId, fiName);
             endKey = new Key(rowId, new Text(fiName + Constants.NULL_BYTE_STRING));
-            return new RangeSplitter(new Range(startKey, true, endKey, true), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, true), getRangeSplit());
         } else {
             List<Range> ranges = new ArrayList<>();
             for (String value : values) {
@@ -120,7 +120,7 @@ public class DatawaveFieldIndexRangeIteratorJexl extends DatawaveFieldIndexCachi
         if (ANY_FINAME.equals(fiName)) {
             Key startKey = new Key(rowId, FI_START);
             Key endKey = new Key(rowId, FI_END);
-            return new RangeSplitter(new Range(startKey, true, endKey, false), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, false), getRangeSplit());
         } else if (subRanges != null && !subRanges.isEmpty()) {
             List<Range> ranges = new ArrayList<>();
             
@@ -156,11 +156,11 @@ public class DatawaveFieldIndexRangeIteratorJexl extends DatawaveFieldIndexCachi
             if (isNegated()) {
                 Key startFi = new Key(rowId, fiName);
                 Key endFi = new Key(rowId, new Text(fiName.toString() + '\0'));
-                List<Range> rangeList = new ArrayList<>(new RangeSplitter(new Range(startFi, true, startKey, true), getMaxRangeSplit() / 2));
-                rangeList.addAll(new RangeSplitter(new Range(endKey, true, endFi, true), getMaxRangeSplit() / 2));
+                List<Range> rangeList = new ArrayList<>(new RangeSplitter(new Range(startFi, true, startKey, true), Math.max(1, getRangeSplit() / 2)));
+                rangeList.addAll(new RangeSplitter(new Range(endKey, true, endFi, true), Math.max(1, getRangeSplit() / 2)));
                 return rangeList;
             } else {
-                return new RangeSplitter(new Range(startKey, true, endKey, true), getMaxRangeSplit());
+                return new RangeSplitter(new Range(startKey, true, endKey, true), getRangeSplit());
             }
         }
     }
@@ -94,11 +94,11 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         if (ANY_FINAME.equals(fiName)) {
             startKey = new Key(rowId, FI_START);
             endKey = new Key(rowId, FI_END);
-            return new RangeSplitter(new Range(startKey, true, endKey, false), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, false), getRangeSplit());
         } else if (isNegated()) {
             startKey = new Key(rowId, fiName);
             endKey = new Key(rowId, new Text(fiName.toString() + '\0'));
-            return new RangeSplitter(new Range(startKey, true, endKey, true), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, true), getRangeSplit());
         } else {
             // construct new range
             this.boundingFiRangeStringBuilder.setLength(0);
@@ -107,7 +107,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
             
             this.boundingFiRangeStringBuilder.append(Constants.MAX_UNICODE_STRING);
             endKey = new Key(rowId, fiName, new Text(boundingFiRangeStringBuilder.toString()));
-            return new RangeSplitter(new Range(startKey, true, endKey, true), getMaxRangeSplit());
+            return new RangeSplitter(new Range(startKey, true, endKey, true), getRangeSplit());
         }
     }
     
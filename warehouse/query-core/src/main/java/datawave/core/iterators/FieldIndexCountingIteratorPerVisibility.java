@@ -36,6 +36,9 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 /**
@@ -88,6 +91,9 @@ public class FieldIndexCountingIteratorPerVisibility extends WrappingIterator im
     private String currentFieldValue = null;
     private String currentDataType = null;
     private Map<Text,MutableInt> currentVisibilityCounts = null;
+    // the visibility and counter of the last key consumed, so that a run of keys with the same visibility is counted without a map lookup
+    private ByteSequence lastVisibility = null;
+    private MutableInt lastVisibilityCount = null;
     
     private StringBuilder dataTypeStringBuilder = new StringBuilder();
     private StringBuilder fieldValueStringBuilder = new StringBuilder();
@@ -96,6 +102,8 @@ public class FieldIndexCountingIteratorPerVisibility extends WrappingIterator im
     public static final String DATE_FORMAT_STRING = "yyyyMMddHHmmss";
     
     private Set<ColumnVisibility> columnVisibilities = Sets.newHashSet();
+    // the combined visibility of each set of visibilities, as the same few sets recur across the field values counted
+    private final Cache<Set<Text>,Text> combinedVisibilities = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(100).build();
     private TreeMap<Key,Value> keyCache = null;
     protected static final MarkingFunctions markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
     
@@ -343,11 +351,20 @@ public class FieldIndexCountingIteratorPerVisibility extends WrappingIterator im
         }
         
         // update the visibility set
-        MutableInt counter = this.currentVisibilityCounts.get(key.getColumnVisibility());
-        if (counter == null) {
-            this.currentVisibilityCounts.put(key.getColumnVisibility(), new MutableInt(1));
+        ByteSequence visibility = key.getColumnVisibilityData();
+        if (this.lastVisibility != null && this.lastVisibility.equals(visibility)) {
+            this.lastVisibilityCount.increment();
         } else {
-            counter.increment();
+            Text cv = key.getColumnVisibility();
+            MutableInt counter = this.currentVisibilityCounts.get(cv);
+            if (counter == null) {
+                counter = new MutableInt(1);
+                this.currentVisibilityCounts.put(cv, counter);
+            } else {
+                counter.increment();
+            }
+            this.lastVisibility = new ArrayByteSequence(cv.getBytes(), 0, cv.getLength());
+            this.lastVisibilityCount = counter;
         }
         
         // update current count
@@ -550,24 +567,27 @@ public class FieldIndexCountingIteratorPerVisibility extends WrappingIterator im
             }
             return keys;
         } else {
-            for (Text visibility : currentVisibilityCounts.keySet()) {
+            Text cv = combinedVisibilities.getIfPresent(currentVisibilityCounts.keySet());
+            if (cv == null) {
+                for (Text visibility : currentVisibilityCounts.keySet()) {
+                    try {
+                        this.columnVisibilities.add(new ColumnVisibility(visibility));
+                    } catch (Exception e) {
+                        log.error("Error parsing columnVisibility of key", e);
+                    }
+                }
+                
                 try {
-                    this.columnVisibilities.add(new ColumnVisibility(visibility));
+                    // Calculate the columnVisibility for this key from the combiner.
+                    cv = new Text(markingFunctions.combine(columnVisibilities).getExpression());
                 } catch (Exception e) {
-                    log.error("Error parsing columnVisibility of key", e);
+                    log.error("Could not create combined columnVisibility for the count", e);
+                    return null;
                 }
+                combinedVisibilities.put(ImmutableSet.copyOf(currentVisibilityCounts.keySet()), cv);
             }
             
-            ColumnVisibility cv = null;
-            try {
-                // Calculate the columnVisibility for this key from the combiner.
-                cv = markingFunctions.combine(columnVisibilities);
-            } catch (Exception e) {
-                log.error("Could not create combined columnVisibility for the count", e);
-                return null;
-            }
-            
-            Key key = new Key(this.currentRow, new Text(this.currentFieldName), cq, new Text(cv.getExpression()), this.maxTimeStamp);
+            Key key = new Key(this.currentRow, new Text(this.currentFieldName), cq, cv, this.maxTimeStamp);
             Value value = new Value(Long.toString(count).getBytes());
             return Collections.singletonMap(key, value);
         }
@@ -582,6 +602,8 @@ public class FieldIndexCountingIteratorPerVisibility extends WrappingIterator im
         this.maxTimeStamp = 0;
         this.columnVisibilities.clear();
         this.currentVisibilityCounts.clear();
+        this.lastVisibility = null;
+        this.lastVisibilityCount = null;
     }
     
     /**
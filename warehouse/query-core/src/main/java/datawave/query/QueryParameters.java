@@ -128,6 +128,11 @@ public class QueryParameters {
      */
     public static final String CONTENT_VIEW_ALL = "content.view.all";
     
+    /**
+     * Used by the content query table to resolve FIELD:value terms, such as UUIDs, through the shard index
+     */
+    public static final String CONTENT_INDEX_LOOKUP = "content.index.lookup";
+    
     /**
      * Used to specify the class used to perform visibility interpretations into markings.
      */
@@ -27,7 +27,8 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
     
     /**
      * The metadata for this attribute. Really only the column visibility and timestamp are preserved in this metadata when serializing and deserializing.
-     * However more information (e.g. the document key) can be maintained in this field for use locally.
+     * However more information (e.g. the document key) can be maintained in this field for use locally. The key is interned and shared with other attributes
+     * (see {@link AttributeMetadata}), so it must be replaced rather than modified.
      */
     protected Key metadata = null;
     protected boolean toKeep = true; // a flag denoting whether this attribute is to be kept in the returned results (transient or not)
@@ -45,7 +46,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
     
     public ColumnVisibility getColumnVisibility() {
         if (isMetadataSet()) {
-            return metadata.getColumnVisibilityParsed();
+            return AttributeMetadata.getColumnVisibility(metadata);
         }
         return Constants.EMPTY_VISIBILITY;
     }
@@ -56,6 +57,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
         } else {
             metadata = new Key(EMPTY_TEXT, EMPTY_TEXT, EMPTY_TEXT, columnVisibility, -1);
         }
+        metadata = AttributeMetadata.intern(metadata);
     }
     
     public long getTimestamp() {
@@ -71,6 +73,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
         } else {
             metadata = new Key(EMPTY_TEXT, EMPTY_TEXT, EMPTY_TEXT, Constants.EMPTY_VISIBILITY, ts);
         }
+        metadata = AttributeMetadata.intern(metadata);
     }
     
     /*
@@ -83,6 +86,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
         } else {
             metadata = new Key(EMPTY_TEXT, EMPTY_TEXT, EMPTY_TEXT, vis, ts);
         }
+        metadata = AttributeMetadata.intern(metadata);
     }
     
     private static final ByteSequence EMPTY_BYTE_SEQUENCE = new ArrayByteSequence(new byte[0]);
@@ -132,6 +136,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
                                 EMPTY_BYTE_SEQUENCE.getBackingArray(), EMPTY_BYTE_SEQUENCE.offset(), EMPTY_BYTE_SEQUENCE.length(), cv.getBackingArray(),
                                 cv.offset(), cv.length(), key.getTimestamp());
             }
+            this.metadata = AttributeMetadata.intern(this.metadata);
         }
     }
     
@@ -195,7 +200,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
                 
                 in.readFully(cvBytes);
                 
-                this.setMetadata(new ColumnVisibility(cvBytes), in.readLong());
+                this.setMetadata(AttributeMetadata.getColumnVisibility(cvBytes), in.readLong());
             } else {
                 this.clearMetadata();
             }
@@ -209,7 +214,7 @@ public abstract class Attribute<T extends Comparable<T>> implements WritableComp
             if (input.readBoolean()) {
                 int size = input.readInt(true);
                 
-                this.setMetadata(new ColumnVisibility(input.readBytes(size)), input.readLong());
+                this.setMetadata(AttributeMetadata.getColumnVisibility(input.readBytes(size)), input.readLong());
             } else {
                 this.clearMetadata();
             }
@@ -0,0 +1,215 @@
+package datawave.query.attributes;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The field name to attribute dictionary of a {@link Document}. The entries are kept in a pair of parallel arrays sorted by field name, rather than in a tree
+ * of entry objects, and the field names are interned so that every document of a query shares a single copy of each name. The attributes of an event are
+ * read in field name order, so building a document is nearly always a series of appends.
+ * 
+ * The entries are iterated in field name order, as they would be with a TreeMap. Lookups are a binary search over the field names.
+ */
+public class AttributeDictionary extends AbstractMap<String,Attribute<? extends Comparable<?>>> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private static final Interner<String> FIELD_NAMES = Interners.newWeakInterner();
+    
+    private static final int INITIAL_CAPACITY = 8;
+    
+    private String[] keys;
+    private Attribute<? extends Comparable<?>>[] values;
+    private int size = 0;
+    private transient int modCount = 0;
+    
+    public AttributeDictionary() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public AttributeDictionary(int capacity) {
+        keys = new String[capacity];
+        values = new Attribute[capacity];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> put(String key, Attribute<? extends Comparable<?>> value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        int i;
+        if (size == 0 || key.compareTo(keys[size - 1]) > 0) {
+            // the common case of adding the attributes in field name order
+            i = size;
+        } else {
+            i = Arrays.binarySearch(keys, 0, size, key);
+            if (i >= 0) {
+                Attribute<? extends Comparable<?>> previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = -(i + 1);
+        }
+        insert(i, key, value);
+        return null;
+    }
+    
+    @Override
+    public Attribute<? extends Comparable<?>> remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Attribute<? extends Comparable<?>> previous = values[i];
+        removeAt(i);
+        return previous;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+    
+    @Override
+    public Set<Entry<String,Attribute<? extends Comparable<?>>>> entrySet() {
+        return new EntrySet();
+    }
+    
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+    
+    private void insert(int i, String key, Attribute<? extends Comparable<?>> value) {
+        if (size == keys.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (i < size) {
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(values, i, values, i + 1, size - i);
+        }
+        keys[i] = FIELD_NAMES.intern(key);
+        values[i] = value;
+        size++;
+        modCount++;
+    }
+    
+    private void removeAt(int i) {
+        int moved = size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            System.arraycopy(values, i + 1, values, i, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+    
+    private class EntrySet extends AbstractSet<Entry<String,Attribute<? extends Comparable<?>>>> {
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public void clear() {
+            AttributeDictionary.this.clear();
+        }
+        
+        @Override
+        public Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iterator() {
+            return new EntryIterator();
+        }
+    }
+    
+    private class EntryIterator implements Iterator<Entry<String,Attribute<? extends Comparable<?>>>> {
+        private int next = 0;
+        private int last = -1;
+        private int expectedModCount = modCount;
+        
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+        
+        @Override
+        public Entry<String,Attribute<? extends Comparable<?>>> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new DictionaryEntry(keys[last], values[last]);
+        }
+        
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+    
+    /**
+     * An entry which writes a new value through to the dictionary
+     */
+    private class DictionaryEntry extends SimpleEntry<String,Attribute<? extends Comparable<?>>> {
+        private static final long serialVersionUID = 1L;
+        
+        DictionaryEntry(String key, Attribute<? extends Comparable<?>> value) {
+            super(key, value);
+        }
+        
+        @Override
+        public Attribute<? extends Comparable<?>> setValue(Attribute<? extends Comparable<?>> value) {
+            int i = indexOf(getKey());
+            if (i < 0) {
+                throw new IllegalStateException("The entry for " + getKey() + " has been removed");
+            }
+            values[i] = value;
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package datawave.query.attributes;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+/**
+ * Shares the metadata of attributes. The attributes of a document nearly all have the same row and type\0uid, and only a handful of distinct visibilities, so
+ * their metadata keys are interned rather than each attribute holding its own copy, and the parsed visibilities are cached rather than parsed on every call.
+ * 
+ * The interned keys are shared, and so must never be modified.
+ */
+public class AttributeMetadata {
+    
+    private static final Interner<Key> KEY_INTERNER = Interners.newWeakInterner();
+    
+    private static final Cache<ByteSequence,ColumnVisibility> VISIBILITY_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100)
+                    .concurrencyLevel(10).build();
+    
+    private AttributeMetadata() {}
+    
+    /**
+     * Returns a shared key equal to the metadata
+     * 
+     * @param metadata
+     * @return the shared key, or null if the metadata is null
+     */
+    public static Key intern(Key metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        return KEY_INTERNER.intern(metadata);
+    }
+    
+    /**
+     * Returns the cached parsed visibility of the metadata
+     * 
+     * @param metadata
+     * @return the parsed visibility
+     */
+    public static ColumnVisibility getColumnVisibility(Key metadata) {
+        return getColumnVisibility(metadata.getColumnVisibilityData());
+    }
+    
+    /**
+     * Returns a cached parsed visibility
+     * 
+     * @param expression
+     *            the visibility expression
+     * @return the parsed visibility
+     */
+    public static ColumnVisibility getColumnVisibility(byte[] expression) {
+        return getColumnVisibility(new ArrayByteSequence(expression));
+    }
+    
+    private static ColumnVisibility getColumnVisibility(ByteSequence expression) {
+        ColumnVisibility visibility = VISIBILITY_CACHE.getIfPresent(expression);
+        if (null != visibility) {
+            return visibility;
+        }
+        
+        // the key must not share the backing array of a caller's key, which may be reused
+        ByteSequence copy = new ArrayByteSequence(expression.toArray());
+        visibility = new ColumnVisibility(copy.toArray());
+        VISIBILITY_CACHE.put(copy, visibility);
+        
+        return visibility;
+    }
+}
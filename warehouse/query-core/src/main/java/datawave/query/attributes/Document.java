@@ -34,7 +34,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 
 public class Document extends AttributeBag<Document> implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -45,7 +44,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     private int _count = 0;
     long _bytes = 0;
-    TreeMap<String,Attribute<? extends Comparable<?>>> dict;
+    AttributeDictionary dict;
     
     /**
      * should sizes of the documents be tracked
@@ -76,7 +75,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
     
     public Document(Key key, boolean toKeep, boolean trackSizes) {
         super(key, toKeep);
-        dict = new TreeMap<>();
+        dict = new AttributeDictionary();
         this.trackSizes = trackSizes;
     }
     
@@ -105,7 +104,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         return Collections.unmodifiableMap(this.dict);
     }
     
-    private TreeMap<String,Attribute<? extends Comparable<?>>> _getDictionary() {
+    private AttributeDictionary _getDictionary() {
         return dict;
     }
     
@@ -465,10 +464,10 @@ public class Document extends AttributeBag<Document> implements Serializable {
     @Override
     public long sizeInBytes() {
         if (trackSizes) {
-            return super.sizeInBytes(40) + _bytes + (this.dict.size() * 24) + 40;
+            return super.sizeInBytes(40) + _bytes + (this.dict.size() * 12) + 56;
             // 32 for local members
-            // 24 for TreeMap.Entry overhead, and members
-            // 56 for TreeMap members and overhead
+            // 12 for the field name and attribute references, with room for the growth of the arrays
+            // 56 for AttributeDictionary members and array overhead
         } else {
             return 1;
         }
@@ -552,7 +551,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = WritableUtils.readVInt(in);
         
-        this.dict = new TreeMap<>();
+        this.dict = new AttributeDictionary(numAttrs);
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
@@ -602,8 +601,8 @@ public class Document extends AttributeBag<Document> implements Serializable {
         } else if (size() > o.size()) {
             return 1;
         } else {
-            TreeMap<String,Attribute<? extends Comparable<?>>> map1 = _getDictionary();
-            TreeMap<String,Attribute<? extends Comparable<?>>> map2 = o._getDictionary();
+            AttributeDictionary map1 = _getDictionary();
+            AttributeDictionary map2 = o._getDictionary();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter1 = map1.entrySet().iterator();
             Iterator<Entry<String,Attribute<? extends Comparable<?>>>> iter2 = map2.entrySet().iterator();
             
@@ -784,7 +783,7 @@ public class Document extends AttributeBag<Document> implements Serializable {
         
         int numAttrs = input.readInt(true);
         
-        this.dict = new TreeMap<>();
+        this.dict = new AttributeDictionary(numAttrs);
         
         for (int i = 0; i < numAttrs; i++) {
             // Get the fieldName
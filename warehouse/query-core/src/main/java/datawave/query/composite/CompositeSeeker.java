@@ -9,6 +9,7 @@ import org.apache.hadoop.io.Text;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * The CompositeSeeker can be used within an Accumulo iterator in order to determing whether or not the current key is within the bounds of the composite range.
@@ -17,6 +18,9 @@ import java.util.Map;
 public abstract class CompositeSeeker {
     protected Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType;
     
+    // the bounds of the last range, which may be shared by the threads filling an ivarator
+    private volatile Bounds bounds;
+    
     CompositeSeeker(Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType) {
         this.fieldToDiscreteIndexType = fieldToDiscreteIndexType;
     }
@@ -25,6 +29,35 @@ public abstract class CompositeSeeker {
     
     abstract public Key nextSeekKey(List<String> fields, Key currentKey, Range currentRange, String separator);
     
+    /**
+     * Get the composite value held by the key
+     *
+     * @param key
+     *            the key
+     * @return the composite value
+     */
+    abstract String getCompositeValue(Key key);
+    
+    /**
+     * Get the bounds of the range split into component values. The bounds are the same for every key scanned within a range, so they are only split again
+     * when the range or separator changes.
+     *
+     * @param range
+     *            the current range
+     * @param separator
+     *            the separator of the component values
+     * @return the bounds of the range
+     */
+    Bounds getBounds(Range range, String separator) {
+        Bounds current = bounds;
+        if (current == null || current.range != range || !current.separator.equals(separator)) {
+            Pattern pattern = (current != null && current.separator.equals(separator)) ? current.pattern : Pattern.compile(separator);
+            current = new Bounds(range, separator, pattern, getCompositeValue(range.getStartKey()), getCompositeValue(range.getEndKey()));
+            bounds = current;
+        }
+        return current;
+    }
+    
     boolean isInRange(List<String> values, List<String> startValues, boolean isStartInclusive, List<String> endValues, boolean isEndInclusive) {
         for (int i = values.size(); i >= 0; i--) {
             String value = (i < values.size()) ? values.get(i) : null;
@@ -184,6 +217,34 @@ public abstract class CompositeSeeker {
         return fieldToDiscreteIndexType;
     }
     
+    /**
+     * The bounds of a range split into component values, along with the compiled separator. Values are split as String.split would split them, without
+     * compiling the separator for every key.
+     */
+    static class Bounds {
+        final Range range;
+        final String separator;
+        final Pattern pattern;
+        final String lowerBound;
+        final String upperBound;
+        final List<String> startValues;
+        final List<String> endValues;
+        
+        Bounds(Range range, String separator, Pattern pattern, String lowerBound, String upperBound) {
+            this.range = range;
+            this.separator = separator;
+            this.pattern = pattern;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.startValues = split(lowerBound);
+            this.endValues = split(upperBound);
+        }
+        
+        List<String> split(String value) {
+            return Arrays.asList(pattern.split(value));
+        }
+    }
+    
     /**
      * This version of the CompositeSeeker is intended to be used when scanning keys in the shard index.
      */
@@ -201,12 +262,16 @@ public abstract class CompositeSeeker {
             return isKeyInRange(currentKey, currentRange, separator);
         }
         
+        @Override
+        String getCompositeValue(Key key) {
+            return key.getRow().toString();
+        }
+        
         @Override
         public boolean isKeyInRange(Key currentKey, Range currentRange, String separator) {
-            List<String> values = Arrays.asList(currentKey.getRow().toString().split(separator));
-            List<String> startValues = Arrays.asList(currentRange.getStartKey().getRow().toString().split(separator));
-            List<String> endValues = Arrays.asList(currentRange.getEndKey().getRow().toString().split(separator));
-            return isInRange(values, startValues, currentRange.isStartKeyInclusive(), endValues, currentRange.isEndKeyInclusive());
+            Bounds bounds = getBounds(currentRange, separator);
+            List<String> values = bounds.split(getCompositeValue(currentKey));
+            return isInRange(values, bounds.startValues, currentRange.isStartKeyInclusive(), bounds.endValues, currentRange.isEndKeyInclusive());
         }
         
         public Key nextSeekKey(Key currentKey, Range currentRange) {
@@ -216,13 +281,11 @@ public abstract class CompositeSeeker {
         @Override
         public Key nextSeekKey(List<String> fields, Key currentKey, Range currentRange, String separator) {
             Key startKey = currentRange.getStartKey();
-            Key endKey = currentRange.getEndKey();
             
-            List<String> values = Arrays.asList(currentKey.getRow().toString().split(separator));
-            List<String> startValues = Arrays.asList(startKey.getRow().toString().split(separator));
-            List<String> endValues = Arrays.asList(endKey.getRow().toString().split(separator));
+            Bounds bounds = getBounds(currentRange, separator);
+            List<String> values = bounds.split(getCompositeValue(currentKey));
             
-            String nextLowerBound = nextLowerBound(fields, values, separator, startValues, currentRange.isStartKeyInclusive(), endValues,
+            String nextLowerBound = nextLowerBound(fields, values, separator, bounds.startValues, currentRange.isStartKeyInclusive(), bounds.endValues,
                             currentRange.isEndKeyInclusive());
             
             Key newStartKey = new Key(new Text(nextLowerBound), startKey.getColumnFamily(), startKey.getColumnQualifier(), startKey.getColumnVisibility(), 0L);
@@ -243,32 +306,31 @@ public abstract class CompositeSeeker {
             super(CompositeUtils.getFieldToDiscreteIndexTypeMap(fieldDatatypes));
         }
         
+        @Override
+        String getCompositeValue(Key key) {
+            String colQual = key.getColumnQualifier().toString();
+            int index = colQual.indexOf('\0');
+            return (index >= 0) ? colQual.substring(0, index) : colQual;
+        }
+        
         @Override
         public boolean isKeyInRange(Key currentKey, Range currentRange, String separator) {
-            List<String> values = Arrays.asList(currentKey.getColumnQualifier().toString().split("\0")[0].split(separator));
-            List<String> startValues = Arrays.asList(currentRange.getStartKey().getColumnQualifier().toString().split("\0")[0].split(separator));
-            List<String> endValues = Arrays.asList(currentRange.getEndKey().getColumnQualifier().toString().split("\0")[0].split(separator));
-            return isInRange(values, startValues, currentRange.isStartKeyInclusive(), endValues, currentRange.isEndKeyInclusive());
+            Bounds bounds = getBounds(currentRange, separator);
+            List<String> values = bounds.split(getCompositeValue(currentKey));
+            return isInRange(values, bounds.startValues, currentRange.isStartKeyInclusive(), bounds.endValues, currentRange.isEndKeyInclusive());
         }
         
         @Override
         public Key nextSeekKey(List<String> fields, Key currentKey, Range currentRange, String separator) {
             Key startKey = currentRange.getStartKey();
-            Key endKey = currentRange.getEndKey();
-            
-            String currentValue = currentKey.getColumnQualifier().toString().split("\0")[0];
-            
-            String startColQual = startKey.getColumnQualifier().toString();
-            String lowerBound = startColQual.split("\0")[0];
             
-            String endColQual = endKey.getColumnQualifier().toString();
-            String upperBound = endColQual.split("\0")[0];
+            String currentValue = getCompositeValue(currentKey);
             
-            List<String> values = Arrays.asList(currentValue.split(separator));
-            List<String> startValues = Arrays.asList(lowerBound.split(separator));
-            List<String> endValues = Arrays.asList(upperBound.split(separator));
+            Bounds bounds = getBounds(currentRange, separator);
+            String upperBound = bounds.upperBound;
+            List<String> values = bounds.split(currentValue);
             
-            String nextLowerBound = nextLowerBound(fields, values, separator, startValues, currentRange.isStartKeyInclusive(), endValues,
+            String nextLowerBound = nextLowerBound(fields, values, separator, bounds.startValues, currentRange.isStartKeyInclusive(), bounds.endValues,
                             currentRange.isEndKeyInclusive());
             
             // build a new range only if the new lower bound exceeds the current value without exceeding the upper bound of the range
@@ -274,6 +274,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * By default enable using term frequency instead of field index when possible for value lookup
      */
     private boolean allowTermFrequencyLookup = true;
+    /**
+     * By default gather the term frequencies of a document only when its evaluation needs them
+     */
+    private boolean delayTermFrequencyLookup = true;
     /**
      * By default we will expand unfielded expressions in a negation. May want to disable if there are non-indexed fields.
      */
@@ -476,6 +480,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setContainsCompositeTerms(other.isContainsCompositeTerms());
         this.setAllowFieldIndexEvaluation(other.isAllowFieldIndexEvaluation());
         this.setAllowTermFrequencyLookup(other.isAllowTermFrequencyLookup());
+        this.setDelayTermFrequencyLookup(other.isDelayTermFrequencyLookup());
         this.setExpandUnfieldedNegations(other.isExpandUnfieldedNegations());
         this.setReturnType(other.getReturnType());
         this.setEventPerDayThreshold(other.getEventPerDayThreshold());
@@ -1707,6 +1712,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.allowTermFrequencyLookup = allowTermFrequencyLookup;
     }
     
+    public boolean isDelayTermFrequencyLookup() {
+        return delayTermFrequencyLookup;
+    }
+    
+    public void setDelayTermFrequencyLookup(boolean delayTermFrequencyLookup) {
+        this.delayTermFrequencyLookup = delayTermFrequencyLookup;
+    }
+    
     public boolean isExpandUnfieldedNegations() {
         return expandUnfieldedNegations;
     }
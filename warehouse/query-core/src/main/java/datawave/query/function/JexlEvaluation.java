@@ -4,6 +4,7 @@ import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
 import datawave.query.jexl.DefaultArithmetic;
 import datawave.query.jexl.DelayedNonEventIndexContext;
+import datawave.query.postprocessing.tf.DelayedTermOffsetContext;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.jexl2.JexlArithmetic;
@@ -77,8 +78,15 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         boolean matched = isMatched(o);
         
         // Add delayed info to document
-        if (matched && input.third() instanceof DelayedNonEventIndexContext) {
-            ((DelayedNonEventIndexContext) input.third()).populateDocument(input.second());
+        DatawaveJexlContext context = input.third();
+        if (context instanceof DelayedTermOffsetContext) {
+            if (matched) {
+                ((DelayedTermOffsetContext) context).populateDocument(input.second());
+            }
+            context = ((DelayedTermOffsetContext) context).getDelegate();
+        }
+        if (matched && context instanceof DelayedNonEventIndexContext) {
+            ((DelayedNonEventIndexContext) context).populateDocument(input.second());
         }
         
         if (arithmetic instanceof HitListArithmetic) {
@@ -63,7 +63,9 @@ import datawave.query.jexl.visitors.DelayedNonEventSubTreeVisitor;
 import datawave.query.jexl.visitors.IteratorBuildingVisitor;
 import datawave.query.jexl.visitors.SatisfactionVisitor;
 import datawave.query.jexl.visitors.VariableNameVisitor;
+import datawave.query.postprocessing.tf.DelayedTermOffsetFunction;
 import datawave.query.postprocessing.tf.TFFactory;
+import datawave.query.postprocessing.tf.TermOffsetFunction;
 import datawave.query.predicate.EmptyDocumentFilter;
 import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.tracking.ActiveQuery;
@@ -1028,6 +1030,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             // get the function we use for the tf functionality. Note we are
             // getting an additional source deep copy for this function
             final Iterator<Tuple3<Key,Document,Map<String,Object>>> itrWithContext;
+            DelayedTermOffsetFunction delayedTermOffsetFunction = null;
             if (this.isTermFrequenciesRequired()) {
                 
                 // The TFFunction can only prune non index-only fields
@@ -1037,7 +1040,13 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 tfFunction = TFFactory.getFunction(getScript(documentSource), getContentExpansionFields(), getTermFrequencyFields(), this.getTypeMetadata(),
                                 super.equality, getEvaluationFilter(), sourceDeepCopy.deepCopy(myEnvironment), tfIndexOnlyFields);
                 
-                itrWithContext = TraceIterators.transform(tupleItr, tfFunction, "Term Frequency Lookup");
+                if (this.isDelayTermFrequencyLookup() && tfFunction instanceof TermOffsetFunction) {
+                    // gather the term frequencies only for the documents whose evaluation needs them
+                    delayedTermOffsetFunction = new DelayedTermOffsetFunction((TermOffsetFunction) tfFunction, variables);
+                    itrWithContext = Iterators.transform(tupleItr, new EmptyContext<>());
+                } else {
+                    itrWithContext = TraceIterators.transform(tupleItr, tfFunction, "Term Frequency Lookup");
+                }
             } else {
                 itrWithContext = Iterators.transform(tupleItr, new EmptyContext<>());
             }
@@ -1058,7 +1067,10 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                     contextCreator.addAdditionalEntries(exceededOrEvaluationCache);
                 }
                 
-                final Iterator<Tuple3<Key,Document,DatawaveJexlContext>> itrWithDatawaveJexlContext = Iterators.transform(itrWithContext, contextCreator);
+                Iterator<Tuple3<Key,Document,DatawaveJexlContext>> itrWithDatawaveJexlContext = Iterators.transform(itrWithContext, contextCreator);
+                if (delayedTermOffsetFunction != null) {
+                    itrWithDatawaveJexlContext = Iterators.transform(itrWithDatawaveJexlContext, delayedTermOffsetFunction);
+                }
                 Iterator<Tuple3<Key,Document,DatawaveJexlContext>> matchedDocuments = statelessFilter(itrWithDatawaveJexlContext, jexlEvaluationFunction);
                 if (log.isTraceEnabled()) {
                     log.trace("arithmetic:" + arithmetic + " range:" + getDocumentRange(documentSource) + ", thread:" + Thread.currentThread());
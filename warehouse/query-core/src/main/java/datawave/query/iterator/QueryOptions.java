@@ -191,6 +191,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String ALLOW_TERM_FREQUENCY_LOOKUP = "allow.term.frequency.lookup";
     
+    public static final String DELAY_TERM_FREQUENCY_LOOKUP = "delay.term.frequency.lookup";
+    
     public static final String HDFS_SITE_CONFIG_URLS = "hdfs.site.config.urls";
     
     public static final String HDFS_FILE_COMPRESSION_CODEC = "hdfs.file.compression.codec";
@@ -319,6 +321,8 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean allowTermFrequencyLookup = true;
     
+    protected boolean delayTermFrequencyLookup = true;
+    
     protected String hdfsSiteConfigURLs = null;
     protected String hdfsFileCompressionCodec = null;
     protected FileSystemCache fsCache = null;
@@ -770,6 +774,14 @@ public class QueryOptions implements OptionDescriber {
         this.allowTermFrequencyLookup = allowTermFrequencyLookup;
     }
     
+    public boolean isDelayTermFrequencyLookup() {
+        return delayTermFrequencyLookup;
+    }
+    
+    public void setDelayTermFrequencyLookup(boolean delayTermFrequencyLookup) {
+        this.delayTermFrequencyLookup = delayTermFrequencyLookup;
+    }
+    
     public String getHdfsSiteConfigURLs() {
         return hdfsSiteConfigURLs;
     }
@@ -1032,6 +1044,8 @@ public class QueryOptions implements OptionDescriber {
         options.put(ALLOW_FIELD_INDEX_EVALUATION,
                         "Allow the evaluation to occur purely on values pulled from the field index for queries only accessing indexed fields (default is true)");
         options.put(ALLOW_TERM_FREQUENCY_LOOKUP, "Allow the evaluation to use the term frequencies in lieu of the field index when appropriate");
+        options.put(DELAY_TERM_FREQUENCY_LOOKUP,
+                        "Gather the term frequencies of a document only when its evaluation needs them, false to gather them for every document");
         options.put(TERM_FREQUENCIES_REQUIRED, "Does the query require gathering term frequencies");
         options.put(TERM_FREQUENCY_FIELDS, "comma-delimited list of fields that contain term frequencies");
         options.put(CONTENT_EXPANSION_FIELDS, "comma-delimited list of fields used for content function expansions");
@@ -1394,6 +1408,10 @@ public class QueryOptions implements OptionDescriber {
             this.setAllowTermFrequencyLookup(Boolean.parseBoolean(options.get(ALLOW_TERM_FREQUENCY_LOOKUP)));
         }
         
+        if (options.containsKey(DELAY_TERM_FREQUENCY_LOOKUP)) {
+            this.setDelayTermFrequencyLookup(Boolean.parseBoolean(options.get(DELAY_TERM_FREQUENCY_LOOKUP)));
+        }
+        
         if (options.containsKey(HDFS_SITE_CONFIG_URLS)) {
             this.setHdfsSiteConfigURLs(options.get(HDFS_SITE_CONFIG_URLS));
         }
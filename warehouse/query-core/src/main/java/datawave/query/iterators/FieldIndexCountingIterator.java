@@ -34,6 +34,10 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
 /**
  * 
  * An iterator for the Datawave shard table, it searches FieldIndex keys and returns Event keys (its topKey must be an Event key).
@@ -89,6 +93,10 @@ public class FieldIndexCountingIterator extends WrappingIterator implements Sort
     public static final Text fi_PREFIX_TEXT = new Text("fi\u0000");
     
     private Set<Text> visibilitySet = new HashSet<>();
+    // the visibility of the last key consumed, so that a run of keys with the same visibility is only added to the set once
+    private ByteSequence lastVisibility = null;
+    // the combined visibility of each set of visibilities, as the same few sets recur across the field values counted
+    private final Cache<Set<Text>,Text> combinedVisibilities = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(100).build();
     
     protected static final MarkingFunctions markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
     
@@ -347,8 +355,11 @@ public class FieldIndexCountingIterator extends WrappingIterator implements Sort
             log.trace("consume, key: " + key);
         }
         
-        if (!this.visibilitySet.contains(key.getColumnVisibility())) {
-            this.visibilitySet.add(key.getColumnVisibility());
+        ByteSequence visibility = key.getColumnVisibilityData();
+        if (this.lastVisibility == null || !this.lastVisibility.equals(visibility)) {
+            Text cv = key.getColumnVisibility();
+            this.visibilitySet.add(cv);
+            this.lastVisibility = new ArrayByteSequence(cv.getBytes(), 0, cv.getLength());
         }
         
         // update current count
@@ -575,21 +586,24 @@ public class FieldIndexCountingIterator extends WrappingIterator implements Sort
             TextUtil.textAppend(cq, this.currentDataType);
         }
         
-        // Combine the column visibilities into a single one
-        // NOTE: key.getColumnVisibility actually returns a Text object so we need to convert them
-        Set<ColumnVisibility> columnVisibilities = new HashSet<>();
-        for (Text t : this.visibilitySet) {
-            columnVisibilities.add(new ColumnVisibility(t));
-        }
-        ColumnVisibility cv;
-        try {
-            cv = markingFunctions.combine(columnVisibilities);
-        } catch (MarkingFunctions.Exception e) {
-            log.error("Could not combine visibilities: " + visibilitySet + "  " + e);
-            return null;
+        Text cv = combinedVisibilities.getIfPresent(this.visibilitySet);
+        if (cv == null) {
+            // Combine the column visibilities into a single one
+            // NOTE: key.getColumnVisibility actually returns a Text object so we need to convert them
+            Set<ColumnVisibility> columnVisibilities = new HashSet<>();
+            for (Text t : this.visibilitySet) {
+                columnVisibilities.add(new ColumnVisibility(t));
+            }
+            try {
+                cv = new Text(markingFunctions.combine(columnVisibilities).getExpression());
+            } catch (MarkingFunctions.Exception e) {
+                log.error("Could not combine visibilities: " + visibilitySet + "  " + e);
+                return null;
+            }
+            combinedVisibilities.put(ImmutableSet.copyOf(this.visibilitySet), cv);
         }
         
-        return new Key(this.currentRow, new Text(this.currentFieldName), cq, new Text(cv.getExpression()), this.maxTimeStamp);
+        return new Key(this.currentRow, new Text(this.currentFieldName), cq, cv, this.maxTimeStamp);
     }
     
     /* TODO: make this a mutable long, also check wrap up current method */
@@ -609,6 +623,7 @@ public class FieldIndexCountingIterator extends WrappingIterator implements Sort
         this.count = 0;
         this.maxTimeStamp = 0;
         this.visibilitySet.clear();
+        this.lastVisibility = null;
     }
     
     /**
@@ -17,14 +17,10 @@ import org.apache.commons.jexl2.parser.ASTEQNode;
 import org.apache.commons.jexl2.parser.ASTERNode;
 import org.apache.commons.jexl2.parser.ASTFunctionNode;
 import org.apache.commons.jexl2.parser.ASTGENode;
-import org.apache.commons.jexl2.parser.ASTGTNode;
-import org.apache.commons.jexl2.parser.ASTIdentifier;
 import org.apache.commons.jexl2.parser.ASTLENode;
-import org.apache.commons.jexl2.parser.ASTLTNode;
 import org.apache.commons.jexl2.parser.ASTMethodNode;
 import org.apache.commons.jexl2.parser.ASTOrNode;
 import org.apache.commons.jexl2.parser.ASTReference;
-import org.apache.commons.jexl2.parser.ASTReferenceExpression;
 import org.apache.commons.jexl2.parser.ASTSizeMethod;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.hadoop.fs.Path;
@@ -34,27 +30,29 @@ import org.apache.lucene.util.fst.FST;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.regex.Pattern;
 
 /**
  * Extended so that calls to a function node, which can return a collection of 'hits' instead of a Boolean, can be evaluated as true/false based on the size of
  * the hit collection. Also, if the member 'arithmetic' has been set to a HitListArithmetic, then the returned hits will be added to the hitSet of the
  * arithmetic.
- *
+ * 
  * Also added in the ability to count attributes pulled from the ValueTuples which contribute to the positive evaluation.
  */
 public class DatawaveInterpreter extends Interpreter {
     
     protected Map<String,Object> resultMap;
     
+    // the document independent parts of evaluating the script, shared across interpreters
+    protected JexlEvaluationPlan plan;
+    
     private static final Logger log = Logger.getLogger(DatawaveInterpreter.class);
     
     public DatawaveInterpreter(JexlEngine jexl, JexlContext aContext, boolean strictFlag, boolean silentFlag) {
@@ -85,9 +83,25 @@ public class DatawaveInterpreter extends Interpreter {
         return matched;
     }
     
+    @Override
+    public Object interpret(JexlNode node) {
+        plan = JexlEvaluationPlan.get(node);
+        return super.interpret(node);
+    }
+    
+    private String getNodeString(JexlNode node) {
+        String nodeString = (plan == null ? null : plan.getNodeString(node));
+        return nodeString != null ? nodeString : JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+    }
+    
+    private boolean isExceededOrThresholdMarker(JexlNode node) {
+        Boolean marker = (plan == null ? null : plan.isExceededOrThresholdMarker(node));
+        return marker != null ? marker : ExceededOrThresholdMarkerJexlNode.instanceOf(node);
+    }
+    
     @Override
     public Object visit(ASTFunctionNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeString(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result) {
@@ -101,7 +115,8 @@ public class DatawaveInterpreter extends Interpreter {
         // if the function stands alone, then it needs to return ag boolean
         // if the function is paired with a method that is called on its results (like 'size') then the
         // actual results must be returned.
-        if (hasSiblings(node)) {
+        Boolean hasSiblings = (plan == null ? null : plan.hasSiblings(node));
+        if (hasSiblings != null ? hasSiblings : JexlEvaluationPlan.findSiblings(node)) {
             resultMap.put(nodeString, result);
             return result;
         }
@@ -139,7 +154,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTEQNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeString(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result)
@@ -151,12 +166,23 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTERNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeString(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result)
             return result;
-        result = super.visit(node, data);
+        Pattern pattern = (plan == null ? null : plan.getPattern(node));
+        if (pattern != null && arithmetic instanceof DatawaveArithmetic) {
+            // match against the pattern compiled with the plan rather than looking up the literal per document
+            Object left = node.jjtGetChild(0).jjtAccept(this, data);
+            try {
+                result = arithmetic.matches(left, pattern) ? Boolean.TRUE : Boolean.FALSE;
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(node, "=~ error", xrt);
+            }
+        } else {
+            result = super.visit(node, data);
+        }
         resultMap.put(nodeString, result);
         return result;
     }
@@ -186,52 +212,102 @@ public class DatawaveInterpreter extends Interpreter {
     }
     
     public Object visit(ASTOrNode node, Object data) {
-        Deque<JexlNode> children = new ArrayDeque<>();
-        Deque<JexlNode> stack = new ArrayDeque<>();
-        stack.push(node);
-        
-        boolean allIdentifiers = true;
-        
-        // iterative depth-first traversal of tree to avoid stack
-        // overflow when traversing large or'd lists
-        JexlNode current;
-        JexlNode child;
-        while (!stack.isEmpty()) {
-            current = stack.pop();
-            
-            if (current instanceof ASTOrNode) {
-                for (int i = current.jjtGetNumChildren() - 1; i >= 0; i--) {
-                    child = JexlASTHelper.dereference(current.jjtGetChild(i));
-                    stack.push(child);
-                }
-            } else {
-                children.push(current);
-                if (allIdentifiers && !(current instanceof ASTIdentifier)) {
-                    allIdentifiers = false;
-                }
+        JexlEvaluationPlan.OrChildren orChildren = (plan == null ? null : plan.getOrChildren(node));
+        if (orChildren == null) {
+            orChildren = JexlEvaluationPlan.flatten(node);
+        }
+        if (orChildren.getFieldValues() != null && arithmetic instanceof DatawaveArithmetic) {
+            Object result = visitFieldValues(orChildren.getFieldValues(), data);
+            if (result != null) {
+                return result;
             }
         }
+        JexlNode[] children = orChildren.getNodes();
         
-        // If all ASTIdentifiers, then traverse the whole queue. Otherwise we can attempt to short circuit.
+        // If all ASTIdentifiers, then traverse every child. Otherwise we can attempt to short circuit.
         Object result = null;
-        if (allIdentifiers) {
-            // Likely within a function and must visit every child in the stack.
+        if (orChildren.isAllIdentifiers()) {
+            // Likely within a function and must visit every child.
             // Failure to do so will short circuit value aggregation leading to incorrect function evaluation.
-            while (!children.isEmpty()) {
-                // Child nodes were put onto the stack left to right. PollLast to evaluate left to right.
-                result = interpretOr(children.pollLast().jjtAccept(this, data), result);
+            for (JexlNode child : children) {
+                result = interpretOr(child.jjtAccept(this, data), result);
             }
         } else {
             // We are likely within a normal union and can short circuit
-            while (!arithmetic.toBoolean(result) && !children.isEmpty()) {
-                // Child nodes were put onto the stack left to right. PollLast to evaluate left to right.
-                result = interpretOr(children.pollLast().jjtAccept(this, data), result);
+            for (int i = 0; !arithmetic.toBoolean(result) && i < children.length; i++) {
+                result = interpretOr(children[i].jjtAccept(this, data), result);
             }
         }
         
         return result;
     }
     
+    /**
+     * Evaluate a disjunction of equality nodes against a single field by looking up each value of the field, instead of comparing the values against every
+     * node in turn.
+     * 
+     * @param fieldValues
+     *            the values of the equality nodes
+     * @param data
+     * @return the result of the disjunction, or null if the values of the field cannot be looked up and the nodes must be evaluated
+     */
+    private Object visitFieldValues(JexlEvaluationPlan.FieldValues fieldValues, Object data) {
+        Object fieldValue = fieldValues.getField().jjtAccept(this, data);
+        Collection<?> values;
+        if (fieldValue instanceof Set) {
+            values = (Set<?>) fieldValue;
+        } else if (fieldValue instanceof Collection) {
+            return null;
+        } else {
+            values = Collections.singleton(fieldValue);
+        }
+        
+        int first = -1;
+        for (Object value : values) {
+            Object normalizedValue = ValueTuple.getNormalizedValue(value);
+            if (normalizedValue == null) {
+                continue;
+            }
+            // anything other than a string may be equal to a literal after numeric conversion
+            if (!(normalizedValue instanceof String)) {
+                return null;
+            }
+            int i = fieldValues.indexOf((String) normalizedValue);
+            if (i >= 0 && (first < 0 || i < first)) {
+                first = i;
+            }
+        }
+        if (first < 0) {
+            return Boolean.FALSE;
+        }
+        
+        // evaluate the node that a left to right evaluation would have stopped at, so that the arithmetic records the same hits
+        return arithmetic.equals(fieldValue, fieldValues.getValue(first)) ? Boolean.TRUE : Boolean.FALSE;
+    }
+    
+    /**
+     * @return true if the value is one of the given values
+     */
+    private boolean isMember(Object contextValue, Set<String> evalValues) {
+        if (contextValue == null) {
+            return false;
+        }
+        Object normalizedValue = ValueTuple.getNormalizedValue(contextValue);
+        if (normalizedValue instanceof String) {
+            if (!evalValues.contains(normalizedValue)) {
+                return false;
+            }
+            // let the arithmetic see the match so that it records the hit
+            return arithmetic.equals(contextValue, normalizedValue);
+        }
+        for (String evalValue : evalValues) {
+            if (arithmetic.equals(contextValue, evalValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public Object interpretOr(Object left, Object right) {
         FunctionalSet leftFunctionalSet = null;
         FunctionalSet rightFunctionalSet = null;
@@ -280,13 +356,6 @@ public class DatawaveInterpreter extends Interpreter {
         }
     }
     
-    private JexlNode dereference(JexlNode node) {
-        while (node.jjtGetNumChildren() == 1 && (node instanceof ASTReferenceExpression || node instanceof ASTReference)) {
-            node = node.jjtGetChild(0);
-        }
-        return node;
-    }
-    
     /**
      * * This will determine if this ANDNode contains a range, and will invoke the appropriate range function instead of evaluating the LT/LE and GT/GE nodes *
      * independently as that does not work when there are sets of values in the context. * * @param node * @return a collection of hits (or empty set) if we
@@ -295,47 +364,37 @@ public class DatawaveInterpreter extends Interpreter {
     private Collection<?> evaluateRange(ASTAndNode node) {
         Collection<?> evaluation = null;
         
-        LiteralRange range = JexlASTHelper.findRange().getRange(node);
+        JexlEvaluationPlan.RangeNodes range;
+        if (plan != null && plan.hasRange(node)) {
+            range = plan.getRange(node);
+        } else {
+            range = JexlEvaluationPlan.findRange(node);
+        }
         if (range != null) {
             JexlNode left = range.getLowerNode();
             JexlNode right = range.getUpperNode();
-            if (left instanceof ASTLENode || left instanceof ASTLTNode) {
-                JexlNode temp = left;
-                left = right;
-                right = temp;
-            }
-            if ((left instanceof ASTGENode || left instanceof ASTGTNode) && (right instanceof ASTLENode || right instanceof ASTLTNode)) {
-                JexlNode leftIdentifier = dereference(left.jjtGetChild(0));
-                JexlNode rightIdentifier = dereference(right.jjtGetChild(0));
-                if (leftIdentifier instanceof ASTIdentifier && rightIdentifier instanceof ASTIdentifier) {
-                    String fieldName = leftIdentifier.image;
-                    if (fieldName.equals(rightIdentifier.image)) {
-                        Object fieldValue = leftIdentifier.jjtAccept(this, null);
-                        Object leftValue = left.jjtGetChild(1).jjtAccept(this, null);
-                        boolean leftInclusive = left instanceof ASTGENode;
-                        Object rightValue = right.jjtGetChild(1).jjtAccept(this, null);
-                        boolean rightInclusive = right instanceof ASTLENode;
-                        if (leftValue instanceof Number && rightValue instanceof Number) {
-                            if (fieldValue instanceof Collection) {
-                                evaluation = QueryFunctions.between((Collection) fieldValue, ((Number) leftValue).floatValue(), leftInclusive,
-                                                ((Number) rightValue).floatValue(), rightInclusive);
-                            } else {
-                                evaluation = QueryFunctions.between(fieldValue, ((Number) leftValue).floatValue(), leftInclusive,
-                                                ((Number) rightValue).floatValue(), rightInclusive);
-                            }
-                        } else {
-                            if (fieldValue instanceof Collection) {
-                                evaluation = QueryFunctions.between((Collection) fieldValue, String.valueOf(leftValue), leftInclusive,
-                                                String.valueOf(rightValue), rightInclusive);
-                            } else {
-                                evaluation = QueryFunctions.between(fieldValue, String.valueOf(leftValue), leftInclusive, String.valueOf(rightValue),
-                                                rightInclusive);
-                            }
-                        }
-                        addHits(fieldValue);
-                    }
+            Object fieldValue = range.getIdentifier().jjtAccept(this, null);
+            Object leftValue = left.jjtGetChild(1).jjtAccept(this, null);
+            boolean leftInclusive = left instanceof ASTGENode;
+            Object rightValue = right.jjtGetChild(1).jjtAccept(this, null);
+            boolean rightInclusive = right instanceof ASTLENode;
+            if (leftValue instanceof Number && rightValue instanceof Number) {
+                if (fieldValue instanceof Collection) {
+                    evaluation = QueryFunctions.between((Collection) fieldValue, ((Number) leftValue).floatValue(), leftInclusive,
+                                    ((Number) rightValue).floatValue(), rightInclusive);
+                } else {
+                    evaluation = QueryFunctions.between(fieldValue, ((Number) leftValue).floatValue(), leftInclusive, ((Number) rightValue).floatValue(),
+                                    rightInclusive);
+                }
+            } else {
+                if (fieldValue instanceof Collection) {
+                    evaluation = QueryFunctions.between((Collection) fieldValue, String.valueOf(leftValue), leftInclusive, String.valueOf(rightValue),
+                                    rightInclusive);
+                } else {
+                    evaluation = QueryFunctions.between(fieldValue, String.valueOf(leftValue), leftInclusive, String.valueOf(rightValue), rightInclusive);
                 }
             }
+            addHits(fieldValue);
         }
         return evaluation;
     }
@@ -355,7 +414,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     public Object visit(ASTAndNode node, Object data) {
         // we could have arrived here after the node was dereferenced
-        if (ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+        if (isExceededOrThresholdMarker(node)) {
             return visitExceededOrThresholdMarker(node);
         }
         
@@ -445,32 +504,9 @@ public class DatawaveInterpreter extends Interpreter {
         return arithmetic.toBoolean(left) || arithmetic.toBoolean(right);
     }
     
-    /**
-     * a function node that has siblings has a method paired with it, like the size method in includeRegex(foo,bar).size() It must return its collection of
-     * results for the other method to use, instead of a boolean indicating that there were results
-     * 
-     * @param node
-     * @return
-     */
-    private boolean hasSiblings(ASTFunctionNode node) {
-        
-        JexlNode parent = node.jjtGetParent();
-        
-        if (parent.jjtGetNumChildren() > 1) {
-            return true;
-        }
-        
-        JexlNode grandparent = parent.jjtGetParent();
-        
-        if (grandparent instanceof ASTMethodNode) {
-            return true;
-        }
-        return false;
-    }
-    
     @Override
     public Object visit(ASTReference node, Object data) {
-        if (ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+        if (isExceededOrThresholdMarker(node)) {
             return visitExceededOrThresholdMarker(node);
         } else {
             return super.visit(node, data);
@@ -532,11 +568,8 @@ public class DatawaveInterpreter extends Interpreter {
         // check for value matches
         if (evalValues != null && !evalValues.isEmpty()) {
             for (Object contextValue : contextValues) {
-                for (String evalValue : evalValues) {
-                    if (arithmetic.equals(contextValue, evalValue)) {
-                        evaluation.add(contextValue);
-                        break;
-                    }
+                if (isMember(contextValue, evalValues)) {
+                    evaluation.add(contextValue);
                 }
             }
         }
@@ -0,0 +1,387 @@
+package datawave.query.jexl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTMethodNode;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of evaluating a script that do not depend on the document being evaluated: the strings used to key the results of EQ, ER and function nodes, the
+ * flattened children of OR nodes, the ExceededOrThreshold markers, the ranges within AND nodes and the compiled patterns of regex literals. These are computed
+ * once per parsed script, instead of once per document, and shared by every {@link DatawaveInterpreter} that evaluates that script.
+ * 
+ * A plan is never modified once built, and so may be used by several threads at once. The nodes of a script must not be modified once a plan exists for it.
+ */
+public class JexlEvaluationPlan {
+    
+    private static final Logger log = Logger.getLogger(JexlEvaluationPlan.class);
+    
+    // the parsed scripts are cached by the engine and shared across threads, so plans are keyed by the identity of the script root. A plan refers back
+    // to the nodes of its script, so the size bound (matching the engine's script cache) is what actually limits the number of plans held
+    private static final Cache<JexlNode,JexlEvaluationPlan> PLAN_CACHE = CacheBuilder.newBuilder().weakKeys().maximumSize(1024).concurrencyLevel(10)
+                    .build();
+    
+    private static final RangeNodes NO_RANGE = new RangeNodes(null, null, null);
+    
+    private final Map<JexlNode,String> nodeStrings = new IdentityHashMap<>();
+    private final Map<JexlNode,Boolean> functionSiblings = new IdentityHashMap<>();
+    private final Map<JexlNode,OrChildren> orChildren = new IdentityHashMap<>();
+    private final Map<JexlNode,Boolean> exceededOrThresholdMarkers = new IdentityHashMap<>();
+    private final Map<JexlNode,RangeNodes> ranges = new IdentityHashMap<>();
+    private final Map<JexlNode,Pattern> patterns = new IdentityHashMap<>();
+    
+    /**
+     * Get the plan for a script, building it on first use
+     * 
+     * @param script
+     *            the root of the script
+     * @return the plan, or null if one could not be built
+     */
+    public static JexlEvaluationPlan get(JexlNode script) {
+        try {
+            return PLAN_CACHE.get(script, () -> new JexlEvaluationPlan(script));
+        } catch (ExecutionException | RuntimeException e) {
+            log.warn("Unable to build an evaluation plan, the script will be evaluated without one", e);
+            return null;
+        }
+    }
+    
+    JexlEvaluationPlan(JexlNode script) {
+        // iterative traversal to avoid stack overflow on large or'd lists
+        Deque<JexlNode> stack = new ArrayDeque<>();
+        stack.push(script);
+        while (!stack.isEmpty()) {
+            JexlNode node = stack.pop();
+            if (node instanceof ASTOrNode) {
+                // the nested or nodes are flattened into this one and never visited on their own
+                OrChildren children = flatten((ASTOrNode) node);
+                FieldValues values = FieldValues.of(children.nodes);
+                if (values != null) {
+                    children = new OrChildren(children.nodes, children.allIdentifiers, values);
+                }
+                orChildren.put(node, children);
+                for (JexlNode child : children.nodes) {
+                    stack.push(child);
+                }
+                continue;
+            }
+            
+            if (node instanceof ASTEQNode || node instanceof ASTERNode || node instanceof ASTFunctionNode) {
+                nodeStrings.put(node, JexlStringBuildingVisitor.buildQueryWithoutParse(node));
+            }
+            if (node instanceof ASTFunctionNode) {
+                functionSiblings.put(node, findSiblings((ASTFunctionNode) node));
+            } else if (node instanceof ASTERNode) {
+                JexlNode regex = JexlASTHelper.dereference(node.jjtGetChild(1));
+                if (regex instanceof ASTStringLiteral && regex.image != null) {
+                    patterns.put(node, JexlPatternCache.getPattern(regex.image));
+                }
+            } else if (node instanceof ASTReference) {
+                exceededOrThresholdMarkers.put(node, ExceededOrThresholdMarkerJexlNode.instanceOf(node));
+            } else if (node instanceof ASTAndNode) {
+                exceededOrThresholdMarkers.put(node, ExceededOrThresholdMarkerJexlNode.instanceOf(node));
+                try {
+                    RangeNodes range = findRange((ASTAndNode) node);
+                    ranges.put(node, range == null ? NO_RANGE : range);
+                } catch (RuntimeException e) {
+                    // leave a malformed range to fail when it is evaluated, as it would without a plan
+                    log.debug("Unable to plan the range in " + JexlStringBuildingVisitor.buildQueryWithoutParse(node), e);
+                }
+            }
+            
+            for (int i = node.jjtGetNumChildren() - 1; i >= 0; i--) {
+                stack.push(node.jjtGetChild(i));
+            }
+        }
+    }
+    
+    /**
+     * @return the string used to key the result of an EQ, ER or function node, or null if the node is not part of this plan
+     */
+    public String getNodeString(JexlNode node) {
+        return nodeStrings.get(node);
+    }
+    
+    /**
+     * @return whether a function node is paired with a method, or null if the node is not part of this plan
+     */
+    public Boolean hasSiblings(JexlNode node) {
+        return functionSiblings.get(node);
+    }
+    
+    /**
+     * @return the flattened children of an or node, or null if the node is not part of this plan
+     */
+    public OrChildren getOrChildren(JexlNode node) {
+        return orChildren.get(node);
+    }
+    
+    /**
+     * @return whether an and or reference node is an ExceededOrThreshold marker, or null if the node is not part of this plan
+     */
+    public Boolean isExceededOrThresholdMarker(JexlNode node) {
+        return exceededOrThresholdMarkers.get(node);
+    }
+    
+    /**
+     * @return whether the range of an and node was determined by this plan
+     */
+    public boolean hasRange(JexlNode node) {
+        return ranges.containsKey(node);
+    }
+    
+    /**
+     * @return the range within an and node, or null if the node does not contain a range or is not part of this plan
+     */
+    public RangeNodes getRange(JexlNode node) {
+        RangeNodes range = ranges.get(node);
+        return range == NO_RANGE ? null : range;
+    }
+    
+    /**
+     * @return the compiled pattern of an ER node with a literal regex, or null if there is none
+     */
+    public Pattern getPattern(JexlNode node) {
+        return patterns.get(node);
+    }
+    
+    /**
+     * Flatten the nested or nodes beneath an or node into a single list of children, in the order they are written
+     * 
+     * @param node
+     *            an or node
+     * @return the children of the or node
+     */
+    public static OrChildren flatten(ASTOrNode node) {
+        List<JexlNode> children = new ArrayList<>();
+        Deque<JexlNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        
+        boolean allIdentifiers = true;
+        
+        // iterative depth-first traversal of tree to avoid stack
+        // overflow when traversing large or'd lists
+        while (!stack.isEmpty()) {
+            JexlNode current = stack.pop();
+            if (current instanceof ASTOrNode) {
+                for (int i = current.jjtGetNumChildren() - 1; i >= 0; i--) {
+                    stack.push(JexlASTHelper.dereference(current.jjtGetChild(i)));
+                }
+            } else {
+                children.add(current);
+                if (allIdentifiers && !(current instanceof ASTIdentifier)) {
+                    allIdentifiers = false;
+                }
+            }
+        }
+        return new OrChildren(children.toArray(new JexlNode[children.size()]), allIdentifiers, null);
+    }
+    
+    /**
+     * Find the bounded range within an and node, with the lower bound first
+     * 
+     * @param node
+     *            an and node
+     * @return the range, or null if the and node does not contain a range over a single field
+     */
+    public static RangeNodes findRange(ASTAndNode node) {
+        LiteralRange range = JexlASTHelper.findRange().getRange(node);
+        if (range != null) {
+            JexlNode left = range.getLowerNode();
+            JexlNode right = range.getUpperNode();
+            if (left instanceof ASTLENode || left instanceof ASTLTNode) {
+                JexlNode temp = left;
+                left = right;
+                right = temp;
+            }
+            if ((left instanceof ASTGENode || left instanceof ASTGTNode) && (right instanceof ASTLENode || right instanceof ASTLTNode)) {
+                JexlNode leftIdentifier = JexlASTHelper.dereference(left.jjtGetChild(0));
+                JexlNode rightIdentifier = JexlASTHelper.dereference(right.jjtGetChild(0));
+                if (leftIdentifier instanceof ASTIdentifier && rightIdentifier instanceof ASTIdentifier
+                                && leftIdentifier.image.equals(rightIdentifier.image)) {
+                    return new RangeNodes(left, right, leftIdentifier);
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * a function node that has siblings has a method paired with it, like the size method in includeRegex(foo,bar).size() It must return its collection of
+     * results for the other method to use, instead of a boolean indicating that there were results
+     * 
+     * @param node
+     * @return
+     */
+    public static boolean findSiblings(ASTFunctionNode node) {
+        JexlNode parent = node.jjtGetParent();
+        if (parent.jjtGetNumChildren() > 1) {
+            return true;
+        }
+        return parent.jjtGetParent() instanceof ASTMethodNode;
+    }
+    
+    /**
+     * The flattened children of an or node
+     */
+    public static class OrChildren {
+        private final JexlNode[] nodes;
+        private final boolean allIdentifiers;
+        private final FieldValues fieldValues;
+        
+        OrChildren(JexlNode[] nodes, boolean allIdentifiers, FieldValues fieldValues) {
+            this.nodes = nodes;
+            this.allIdentifiers = allIdentifiers;
+            this.fieldValues = fieldValues;
+        }
+        
+        /**
+         * @return the children, left to right
+         */
+        public JexlNode[] getNodes() {
+            return nodes;
+        }
+        
+        /**
+         * @return whether every child is an identifier, as when an identifier is expanded by the data model within a function
+         */
+        public boolean isAllIdentifiers() {
+            return allIdentifiers;
+        }
+        
+        /**
+         * @return the values, if every child is an equality node against the same field and a string literal, or null otherwise
+         */
+        public FieldValues getFieldValues() {
+            return fieldValues;
+        }
+    }
+    
+    /**
+     * The string literals of a disjunction of equality nodes against a single field, e.g. FOO == 'a' || FOO == 'b', indexed so that the values of the field
+     * can be looked up instead of compared against each node in turn
+     */
+    public static class FieldValues {
+        private final JexlNode field;
+        private final String[] values;
+        private final Map<String,Integer> index;
+        
+        private FieldValues(JexlNode field, String[] values) {
+            this.field = field;
+            this.values = values;
+            this.index = new HashMap<>(values.length * 4 / 3 + 1);
+            // a repeated value keeps the position of its first occurrence, which is the node that would match first
+            for (int i = values.length - 1; i >= 0; i--) {
+                index.put(values[i], i);
+            }
+        }
+        
+        static FieldValues of(JexlNode[] nodes) {
+            if (nodes.length < 2) {
+                return null;
+            }
+            String fieldName = null;
+            String[] values = new String[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                if (!(nodes[i] instanceof ASTEQNode) || nodes[i].jjtGetNumChildren() != 2) {
+                    return null;
+                }
+                JexlNode identifier = JexlASTHelper.dereference(nodes[i].jjtGetChild(0));
+                JexlNode literal = JexlASTHelper.dereference(nodes[i].jjtGetChild(1));
+                if (!(identifier instanceof ASTIdentifier) || !(literal instanceof ASTStringLiteral) || literal.image == null) {
+                    return null;
+                }
+                if (fieldName == null) {
+                    fieldName = identifier.image;
+                } else if (!fieldName.equals(identifier.image)) {
+                    return null;
+                }
+                values[i] = literal.image;
+            }
+            return new FieldValues(nodes[0].jjtGetChild(0), values);
+        }
+        
+        /**
+         * @return the node which evaluates to the values of the field
+         */
+        public JexlNode getField() {
+            return field;
+        }
+        
+        /**
+         * @return the value of the i'th node
+         */
+        public String getValue(int i) {
+            return values[i];
+        }
+        
+        /**
+         * @return the position of the first node with the value, or -1 if there is none
+         */
+        public int indexOf(String value) {
+            Integer i = index.get(value);
+            return i == null ? -1 : i;
+        }
+    }
+    
+    /**
+     * The bounds of a range within an and node
+     */
+    public static class RangeNodes {
+        private final JexlNode lower;
+        private final JexlNode upper;
+        private final JexlNode identifier;
+        
+        RangeNodes(JexlNode lower, JexlNode upper, JexlNode identifier) {
+            this.lower = lower;
+            this.upper = upper;
+            this.identifier = identifier;
+        }
+        
+        /**
+         * @return the GE or GT node
+         */
+        public JexlNode getLowerNode() {
+            return lower;
+        }
+        
+        /**
+         * @return the LE or LT node
+         */
+        public JexlNode getUpperNode() {
+            return upper;
+        }
+        
+        /**
+         * @return the identifier of the field being bounded
+         */
+        public JexlNode getIdentifier() {
+            return identifier;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import datawave.ingest.protobuf.TermWeightPosition;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
@@ -56,6 +57,14 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
             return false;
         }
         
+        // Most documents which contain all of the terms do not contain the phrase, so reject those before building the term positions
+        if (!isPossibleMatch(offsets)) {
+            if (log.isTraceEnabled()) {
+                log.trace("No possible match for " + offsets);
+            }
+            return false;
+        }
+        
         NavigableSet<EvaluateTermPosition> termPositions = new TreeSet<>();
         int direction = FORWARD;
         
@@ -111,6 +120,149 @@ public class ContentOrderedEvaluator extends ContentFunctionEvaluator {
         return false;
     }
     
+    /**
+     * Tests whether the terms can possibly be found in order within the distance of each other. The positions of each term are reduced to a sorted array of
+     * packed offsets and skips, and a galloping search over the possible offsets of the previous term finds the positions which can follow it. No objects are
+     * created per position.
+     * <p>
+     * This test is looser than the traversal, which may also move along the positions of a term before moving on to the next term, so it never rejects a
+     * document which the traversal would match.
+     *
+     * @param offsets
+     *            the offsets of each term
+     * @return false if the terms cannot be found in order, true if they may be
+     */
+    protected boolean isPossibleMatch(List<List<TermWeightPosition>> offsets) {
+        int[] previous = null;
+        int previousLength = 0;
+        int previousMaxSkip = 0;
+        
+        for (int i = 0; i < terms.length; i++) {
+            long[] positions = getSortedPositions(offsets.get(i));
+            boolean[] possible = new boolean[positions.length];
+            
+            // a position is possible if a possible position of the previous term is within the distance of it
+            int from = 0;
+            int maxSkip = 0;
+            for (int j = 0; j < positions.length; j++) {
+                int offset = getOffset(positions[j]);
+                int skips = getSkips(positions[j]);
+                maxSkip = Math.max(maxSkip, skips);
+                if (previous == null) {
+                    possible[j] = true;
+                } else {
+                    from = seek(previous, previousLength, from, (long) offset - skips - distance);
+                    possible[j] = from < previousLength && previous[from] <= (long) offset + previousMaxSkip;
+                }
+            }
+            
+            // the traversal may replace a position with a nearby position of the same term, so those are possible too
+            long reach = (long) distance + maxSkip;
+            for (int j = 1; j < positions.length; j++) {
+                if (!possible[j] && possible[j - 1] && (long) getOffset(positions[j]) - getOffset(positions[j - 1]) <= reach) {
+                    possible[j] = true;
+                }
+            }
+            for (int j = positions.length - 2; j >= 0; j--) {
+                if (!possible[j] && possible[j + 1] && (long) getOffset(positions[j + 1]) - getOffset(positions[j]) <= reach) {
+                    possible[j] = true;
+                }
+            }
+            
+            int[] next = new int[positions.length];
+            int nextLength = 0;
+            int nextMaxSkip = 0;
+            for (int j = 0; j < positions.length; j++) {
+                if (possible[j]) {
+                    next[nextLength++] = getOffset(positions[j]);
+                    nextMaxSkip = Math.max(nextMaxSkip, getSkips(positions[j]));
+                }
+            }
+            if (nextLength == 0) {
+                return false;
+            }
+            
+            previous = next;
+            previousLength = nextLength;
+            previousMaxSkip = nextMaxSkip;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Packs the offset and skips of each position within the max score into a long, sorted by offset
+     *
+     * @param offsets
+     * @return the sorted positions
+     */
+    private long[] getSortedPositions(List<TermWeightPosition> offsets) {
+        long[] positions = new long[offsets.size()];
+        int length = 0;
+        for (TermWeightPosition twp : offsets) {
+            if (twp.getScore() > maxScore) {
+                continue;
+            }
+            positions[length++] = ((long) twp.getOffset() << 32) | ((twp.getOffset() - twp.getLowOffset()) & 0xffffffffL);
+        }
+        if (length < positions.length) {
+            positions = Arrays.copyOf(positions, length);
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+    
+    private static int getOffset(long position) {
+        return (int) (position >> 32);
+    }
+    
+    private static int getSkips(long position) {
+        return (int) position;
+    }
+    
+    /**
+     * Finds the first of the sorted values which is at least the key, galloping forward from the last index found
+     *
+     * @param values
+     *            the sorted values
+     * @param length
+     *            the number of values
+     * @param from
+     *            the last index found
+     * @param key
+     *            the key
+     * @return the index of the first value which is at least the key, or length if there is none
+     */
+    private static int seek(int[] values, int length, int from, long key) {
+        int low;
+        int high;
+        if (from > 0 && values[from - 1] >= key) {
+            // the key is before the last index found
+            low = 0;
+            high = from - 1;
+        } else {
+            low = from;
+            high = from;
+            int step = 1;
+            while (high < length && values[high] < key) {
+                low = high + 1;
+                high = low + step;
+                step <<= 1;
+            }
+            high = Math.min(high, length);
+        }
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
     /**
      * Prune the lists by the maximum first offset and the min last offset
      *
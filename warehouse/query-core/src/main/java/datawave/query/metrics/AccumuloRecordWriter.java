@@ -108,10 +108,10 @@ public class AccumuloRecordWriter extends RecordWriter<Text,Mutation> {
     
     /**
      * Push a mutation into a table. If table is null, the defaultTable will be used. If canCreateTable is set, the table will be created if it does not exist.
-     * The table name must only contain alphanumerics and underscore.
+     * The table name must only contain alphanumerics and underscore. Mutations may be written from several threads at once.
      */
     @Override
-    public void write(Text table, Mutation mutation) throws IOException {
+    public synchronized void write(Text table, Mutation mutation) throws IOException {
         if (table == null || table.toString().isEmpty()) {
             table = this.defaultTableName;
         }
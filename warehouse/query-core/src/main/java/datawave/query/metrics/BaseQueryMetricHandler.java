@@ -1,8 +1,11 @@
 package datawave.query.metrics;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
 
 import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
@@ -78,62 +81,66 @@ public abstract class BaseQueryMetricHandler<T extends BaseQueryMetric> implemen
     
     public void binSummary(T metric, QueryMetricsSummaryResponse summary, Date hour1, Date hour6, Date hour12, Date day1, Date day7, Date day30, Date day60,
                     Date day90) {
-        Date d = metric.getCreateDate();
-        // Find out which bucket this query belongs to
+        for (QueryMetricSummary bucket : getSummaryBuckets(metric.getCreateDate(), summary, hour1, hour6, hour12, day1, day7, day30, day60, day90)) {
+            populateSummary(metric, bucket);
+        }
+    }
+    
+    /**
+     * Summarize the query metric rollups. Each rollup is binned by the start of its hour.
+     */
+    public <S extends QueryMetricsSummaryResponse> S processQueryMetricRollups(SortedMap<Date,QueryMetricRollups.Rollup> rollups, S summary) {
+        Date now = new Date();
+        Date hour1 = DateUtils.addHours(now, -1);
+        Date hour6 = DateUtils.addHours(now, -6);
+        Date hour12 = DateUtils.addHours(now, -12);
+        Date day1 = DateUtils.addDays(now, -1);
+        Date day7 = DateUtils.addDays(now, -7);
+        Date day30 = DateUtils.addDays(now, -30);
+        Date day60 = DateUtils.addDays(now, -60);
+        Date day90 = DateUtils.addDays(now, -90);
+        
+        for (Entry<Date,QueryMetricRollups.Rollup> rollup : rollups.entrySet()) {
+            for (QueryMetricSummary bucket : getSummaryBuckets(rollup.getKey(), summary, hour1, hour6, hour12, day1, day7, day30, day60, day90)) {
+                rollup.getValue().addTo(bucket);
+            }
+        }
+        
+        return summary;
+    }
+    
+    /**
+     * Get the summary buckets covering a date, from the most recent one to the bucket for all time.
+     */
+    protected List<QueryMetricSummary> getSummaryBuckets(Date d, QueryMetricsSummaryResponse summary, Date hour1, Date hour6, Date hour12, Date day1,
+                    Date day7, Date day30, Date day60, Date day90) {
+        List<QueryMetricSummary> buckets = new ArrayList<>();
+        // the buckets are nested, so a date belongs to every bucket starting with the first one that covers it
         if (d.after(hour1)) {
-            populateSummary(metric, summary.getHour1());
-            populateSummary(metric, summary.getHour6());
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(hour6)) {
-            populateSummary(metric, summary.getHour6());
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(hour12)) {
-            populateSummary(metric, summary.getHour12());
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day1)) {
-            populateSummary(metric, summary.getDay1());
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day7)) {
-            populateSummary(metric, summary.getDay7());
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day30)) {
-            populateSummary(metric, summary.getDay30());
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day60)) {
-            populateSummary(metric, summary.getDay60());
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else if (d.after(day90)) {
-            populateSummary(metric, summary.getDay90());
-            populateSummary(metric, summary.getAll());
-        } else {
-            populateSummary(metric, summary.getAll());
+            buckets.add(summary.getHour1());
+        }
+        if (d.after(hour6)) {
+            buckets.add(summary.getHour6());
+        }
+        if (d.after(hour12)) {
+            buckets.add(summary.getHour12());
+        }
+        if (d.after(day1)) {
+            buckets.add(summary.getDay1());
+        }
+        if (d.after(day7)) {
+            buckets.add(summary.getDay7());
+        }
+        if (d.after(day30)) {
+            buckets.add(summary.getDay30());
+        }
+        if (d.after(day60)) {
+            buckets.add(summary.getDay60());
+        }
+        if (d.after(day90)) {
+            buckets.add(summary.getDay90());
         }
+        buckets.add(summary.getAll());
+        return buckets;
     }
 }
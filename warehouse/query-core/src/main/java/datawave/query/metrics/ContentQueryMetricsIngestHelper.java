@@ -1,7 +1,7 @@
 package datawave.query.metrics;
 
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -53,10 +53,6 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
         this.deleteMode = deleteMode;
     }
     
-    public Multimap<String,NormalizedContentInterface> getEventFieldsToDelete(BaseQueryMetric updatedQueryMetric, BaseQueryMetric storedQueryMetric) {
-        return normalize(delegate.getEventFieldsToDelete(updatedQueryMetric, storedQueryMetric));
-    }
-    
     @Override
     public Multimap<String,NormalizedContentInterface> normalize(Multimap<String,String> fields) {
         Multimap<String,NormalizedContentInterface> results = HashMultimap.create();
@@ -84,6 +80,10 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
         return normalize(delegate.getEventFieldsToWrite(updatedQueryMetric));
     }
     
+    public Multimap<String,NormalizedContentInterface> getEventFieldsToAppend(BaseQueryMetric updatedQueryMetric, BaseQueryMetric writtenQueryMetric) {
+        return normalize(delegate.getEventFieldsToAppend(updatedQueryMetric, writtenQueryMetric));
+    }
+    
     @Override
     public boolean isTermFrequencyField(String field) {
         return contentIndexFields.contains(field);
@@ -105,7 +105,41 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
     
     public static class HelperDelegate<T extends BaseQueryMetric> {
         
+        /**
+         * The fields that change with every update and so are not appended to the metric event
+         */
+        private static final Set<String> UPDATED_FIELDS = new HashSet<>(QueryMetricState.COLUMNS);
+        
+        static {
+            UPDATED_FIELDS.addAll(Arrays.asList("ELAPSED_TIME", "NUM_PAGES", "NUM_RESULTS"));
+        }
+        
         public Multimap<String,String> getEventFieldsToWrite(T updatedQueryMetric) {
+            return getEventFieldsToWrite(updatedQueryMetric, true);
+        }
+        
+        /**
+         * Get the fields of the updated metric to append to its event. The fields that change with every update are left out, since they are written to the
+         * {@link QueryMetricState} instead or are derived from the page metrics and the last updated date, as are the values already written for the
+         * previous update of the metric. Nothing written to the event is ever deleted.
+         * 
+         * @param updatedQueryMetric
+         *            the metric being written
+         * @param writtenQueryMetric
+         *            the metric as it was last written, or null to append all of the fields
+         */
+        public Multimap<String,String> getEventFieldsToAppend(T updatedQueryMetric, T writtenQueryMetric) {
+            Multimap<String,String> fields = getEventFieldsToWrite(updatedQueryMetric, true);
+            fields.keySet().removeAll(UPDATED_FIELDS);
+            if (writtenQueryMetric != null) {
+                // the selectors were written with the first update and never change
+                Multimap<String,String> writtenFields = getEventFieldsToWrite(writtenQueryMetric, false);
+                fields.entries().removeIf(e -> writtenFields.containsEntry(e.getKey(), e.getValue()));
+            }
+            return fields;
+        }
+        
+        private Multimap<String,String> getEventFieldsToWrite(T updatedQueryMetric, boolean includeSelectors) {
             
             HashMultimap<String,String> fields = HashMultimap.create();
             
@@ -114,7 +148,7 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             
             String type = updatedQueryMetric.getQueryType();
             // this is time consuming - we only need to parse the query and write the selectors once
-            if (type.equalsIgnoreCase("RunningQuery") && updatedQueryMetric.getNumUpdates() == 0) {
+            if (includeSelectors && type.equalsIgnoreCase("RunningQuery") && updatedQueryMetric.getNumUpdates() == 0) {
                 
                 String query = updatedQueryMetric.getQuery();
                 
@@ -250,102 +284,5 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
         protected void putExtendedFieldsToWrite(T updatedQueryMetric, Multimap<String,String> fields) {
             
         }
-        
-        public Multimap<String,String> getEventFieldsToDelete(T updatedQueryMetric, T storedQueryMetric) {
-            
-            HashMultimap<String,String> fields = HashMultimap.create();
-            
-            SimpleDateFormat sdf_date_time2 = new SimpleDateFormat("yyyyMMdd HHmmss");
-            
-            if (updatedQueryMetric.getElapsedTime() != storedQueryMetric.getElapsedTime()) {
-                fields.put("ELAPSED_TIME", Long.toString(storedQueryMetric.getElapsedTime()));
-            }
-            
-            if (storedQueryMetric.getLastUpdated() != null && updatedQueryMetric.getLastUpdated() != null) {
-                String storedValue = sdf_date_time2.format(storedQueryMetric.getLastUpdated());
-                String updatedValue = sdf_date_time2.format(updatedQueryMetric.getLastUpdated());
-                if (!updatedValue.equals(storedValue)) {
-                    fields.put("LAST_UPDATED", storedValue);
-                }
-            }
-            
-            fields.put("NUM_UPDATES", Long.toString(storedQueryMetric.getNumUpdates()));
-            
-            if (!updatedQueryMetric.getLifecycle().equals(storedQueryMetric.getLifecycle())) {
-                if (storedQueryMetric.getLifecycle() != null) {
-                    fields.put("LIFECYCLE", storedQueryMetric.getLifecycle().toString());
-                }
-            }
-            
-            if (updatedQueryMetric.getNumPages() != storedQueryMetric.getNumPages()) {
-                fields.put("NUM_PAGES", Long.toString(storedQueryMetric.getNumPages()));
-            }
-            
-            if (updatedQueryMetric.getNumResults() != storedQueryMetric.getNumResults()) {
-                fields.put("NUM_RESULTS", Long.toString(storedQueryMetric.getNumResults()));
-            }
-            
-            if (updatedQueryMetric.getSetupTime() != storedQueryMetric.getSetupTime()) {
-                fields.put("SETUP_TIME", Long.toString(storedQueryMetric.getSetupTime()));
-            }
-            
-            if (updatedQueryMetric.getLoginTime() != storedQueryMetric.getLoginTime()) {
-                fields.put("LOGIN_TIME", Long.toString(storedQueryMetric.getLoginTime()));
-            }
-            
-            Map<Long,PageMetric> storedPageMetricMap = new HashMap<>();
-            List<PageMetric> storedPageMetrics = storedQueryMetric.getPageTimes();
-            if (storedPageMetrics != null) {
-                for (PageMetric p : storedPageMetrics) {
-                    storedPageMetricMap.put(p.getPageNumber(), p);
-                }
-            }
-            
-            List<PageMetric> updatedPageMetrics = updatedQueryMetric.getPageTimes();
-            if (updatedPageMetrics != null) {
-                for (PageMetric p : updatedPageMetrics) {
-                    long pageNum = p.getPageNumber();
-                    PageMetric storedPageMetric = storedPageMetricMap.get(pageNum);
-                    if (storedPageMetric != null && !storedPageMetric.equals(p)) {
-                        fields.put("PAGE_METRICS." + pageNum,
-                                        storedPageMetric.getPagesize() + "/" + storedPageMetric.getReturnTime() + "/" + storedPageMetric.getCallTime() + "/"
-                                                        + storedPageMetric.getSerializationTime() + "/" + storedPageMetric.getBytesWritten() + "/"
-                                                        + storedPageMetric.getPageRequested() + "/" + storedPageMetric.getPageReturned() + "/"
-                                                        + storedPageMetric.getLoginTime());
-                    }
-                }
-            }
-            
-            if (updatedQueryMetric.getCreateCallTime() != storedQueryMetric.getCreateCallTime()) {
-                fields.put("CREATE_CALL_TIME", Long.toString(storedQueryMetric.getCreateCallTime()));
-            }
-            
-            if (updatedQueryMetric.getSourceCount() != storedQueryMetric.getSourceCount()) {
-                fields.put("SOURCE_COUNT", Long.toString(storedQueryMetric.getSourceCount()));
-            }
-            if (updatedQueryMetric.getNextCount() != storedQueryMetric.getNextCount()) {
-                fields.put("NEXT_COUNT", Long.toString(storedQueryMetric.getNextCount()));
-            }
-            if (updatedQueryMetric.getSeekCount() != storedQueryMetric.getSeekCount()) {
-                fields.put("SEEK_COUNT", Long.toString(storedQueryMetric.getSeekCount()));
-            }
-            if (updatedQueryMetric.getYieldCount() != storedQueryMetric.getYieldCount()) {
-                fields.put("YIELD_COUNT", Long.toString(storedQueryMetric.getYieldCount()));
-            }
-            if (updatedQueryMetric.getDocRanges() != storedQueryMetric.getDocRanges()) {
-                fields.put("DOC_RANGES", Long.toString(storedQueryMetric.getDocRanges()));
-            }
-            if (updatedQueryMetric.getFiRanges() != storedQueryMetric.getFiRanges()) {
-                fields.put("FI_RANGES", Long.toString(storedQueryMetric.getFiRanges()));
-            }
-            
-            putExtendedFieldsToDelete(updatedQueryMetric, fields);
-            
-            return fields;
-        }
-        
-        protected void putExtendedFieldsToDelete(T updatedQueryMetric, Multimap<String,String> fields) {
-            
-        }
     }
 }
@@ -0,0 +1,45 @@
+package datawave.query.metrics;
+
+import datawave.ingest.table.config.AbstractTableConfigHelper;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.user.MaxCombiner;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+
+/**
+ * Configures the combiner of the query metric rollup table, which keeps the greatest of the totals written for each query. See {@link QueryMetricRollups}.
+ */
+public class QueryMetricRollupTableConfigHelper extends AbstractTableConfigHelper {
+    
+    protected Logger log;
+    protected Configuration conf;
+    protected String tableName;
+    
+    @Override
+    public void setup(String tableName, Configuration config, Logger log) throws IllegalArgumentException {
+        this.log = log;
+        this.conf = config;
+        this.tableName = conf.get(QueryMetricRollups.ROLLUP_TABLE_NAME, null);
+        
+        if (this.tableName == null || !this.tableName.equals(tableName)) {
+            throw new IllegalArgumentException("No Such Table: " + tableName);
+        }
+    }
+    
+    @Override
+    public void configure(TableOperations tops) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        for (IteratorScope scope : IteratorScope.values()) {
+            String stem = String.format("%s%s.%s", Property.TABLE_ITERATOR_PREFIX, scope.name(), "max");
+            setPropertyIfNecessary(tableName, stem, "19," + MaxCombiner.class.getName(), tops, log);
+            setPropertyIfNecessary(tableName, stem + ".opt.columns", StringUtils.join(QueryMetricRollups.COLUMNS, ','), tops, log);
+            setPropertyIfNecessary(tableName, stem + ".opt.type", "STRING", tops, log);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package datawave.query.metrics;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetricSummary;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * Hourly rollups of the query metrics, kept in a table of their own so that the summaries do not have to query every metric in the date range.
+ * <p>
+ * The rollups are maintained as the metrics are written. Each query has its own cells holding its totals, which only ever grow, so every update writes the
+ * totals of the query as they are after the update and the {@link org.apache.accumulo.core.iterators.user.MaxCombiner} configured by
+ * {@link QueryMetricRollupTableConfigHelper} keeps the largest. Writing an update again, as a retry does, writes the same totals, so nothing is counted twice.
+ * The summaries add up the cells of the queries in each hour, which is far less to read than the metrics themselves.
+ * <p>
+ * The row is the hour in which the query was created (yyyyMMddHH, GMT), the column family is the statistic and the column qualifier is the user, a null byte
+ * and the query id.
+ */
+public class QueryMetricRollups {
+    
+    private static final Logger log = Logger.getLogger(QueryMetricRollups.class);
+    
+    public static final String ROLLUP_TABLE_NAME = "querymetrics.rollup.table.name";
+    
+    public static final String QUERIES = "QUERIES";
+    public static final String PAGES = "PAGES";
+    public static final String PAGE_RESULTS = "PAGE_RESULTS";
+    public static final String PAGE_TIME = "PAGE_TIME";
+    public static final String MAX_PAGE_RESULTS = "MAX_PAGE_RESULTS";
+    public static final String MAX_PAGE_TIME = "MAX_PAGE_TIME";
+    
+    /**
+     * The columns that are summed across the queries by the summaries
+     */
+    public static final List<String> SUMMED_COLUMNS = Collections.unmodifiableList(Arrays.asList(QUERIES, PAGES, PAGE_RESULTS, PAGE_TIME));
+    
+    /**
+     * The columns whose maximum across the queries is kept by the summaries
+     */
+    public static final List<String> MAX_COLUMNS = Collections.unmodifiableList(Arrays.asList(MAX_PAGE_RESULTS, MAX_PAGE_TIME));
+    
+    /**
+     * All of the columns, each of which keeps the maximum of the totals written for a query
+     */
+    public static final List<String> COLUMNS;
+    
+    static {
+        List<String> columns = new ArrayList<>(SUMMED_COLUMNS);
+        columns.addAll(MAX_COLUMNS);
+        COLUMNS = Collections.unmodifiableList(columns);
+    }
+    
+    private static final String NULL_BYTE = "\0";
+    private static final String ROW_FORMAT = "yyyyMMddHH";
+    
+    private QueryMetricRollups() {}
+    
+    /**
+     * Bring the totals of a query up to date with the updated metric. Pages are numbered from one as they are returned, so the pages numbered beyond those
+     * already counted are added, and a page is never counted twice.
+     *
+     * @param previous
+     *            the totals of the query as last written, or null if none have been written
+     * @param updated
+     *            the metric being written
+     * @return the updated totals, or the previous totals if nothing changed
+     */
+    public static Rollup update(Rollup previous, BaseQueryMetric updated) {
+        Rollup totals = new Rollup();
+        totals.queries = 1;
+        if (previous != null) {
+            totals.pages = previous.pages;
+            totals.pageResults = previous.pageResults;
+            totals.pageTime = previous.pageTime;
+            totals.maxPageResults = previous.maxPageResults;
+            totals.maxPageTime = previous.maxPageTime;
+        }
+        
+        List<PageMetric> pageMetrics = new ArrayList<>();
+        if (updated.getPageTimes() != null) {
+            pageMetrics.addAll(updated.getPageTimes());
+        }
+        pageMetrics.sort(Comparator.comparingLong(PageMetric::getPageNumber));
+        for (PageMetric p : pageMetrics) {
+            if (p.getPageNumber() > totals.pages) {
+                totals.pages = p.getPageNumber();
+                totals.pageResults += p.getPagesize();
+                totals.pageTime += p.getReturnTime();
+                totals.maxPageResults = Math.max(totals.maxPageResults, p.getPagesize());
+                totals.maxPageTime = Math.max(totals.maxPageTime, p.getReturnTime());
+            }
+        }
+        
+        if (previous != null && totals.pages == previous.pages) {
+            return previous;
+        }
+        return totals;
+    }
+    
+    /**
+     * Get the mutation that writes the totals of a query.
+     *
+     * @param updated
+     *            the metric being written
+     * @param totals
+     *            the totals of the query, see {@link #update(Rollup, BaseQueryMetric)}
+     * @param user
+     *            the user that ran the query
+     * @param visibility
+     *            the visibility of the metric
+     * @return the mutation, or null if the metric has no create date
+     */
+    public static Mutation getMutation(BaseQueryMetric updated, Rollup totals, String user, ColumnVisibility visibility) {
+        if (updated.getCreateDate() == null) {
+            return null;
+        }
+        Text qualifier = new Text(getQualifier(user, updated.getQueryId()));
+        Mutation m = new Mutation(getRow(updated.getCreateDate()));
+        put(m, QUERIES, qualifier, visibility, totals.queries);
+        put(m, PAGES, qualifier, visibility, totals.pages);
+        put(m, PAGE_RESULTS, qualifier, visibility, totals.pageResults);
+        put(m, PAGE_TIME, qualifier, visibility, totals.pageTime);
+        put(m, MAX_PAGE_RESULTS, qualifier, visibility, totals.maxPageResults);
+        put(m, MAX_PAGE_TIME, qualifier, visibility, totals.maxPageTime);
+        return m;
+    }
+    
+    private static void put(Mutation m, String family, Text qualifier, ColumnVisibility visibility, long value) {
+        m.put(new Text(family), qualifier, visibility, new Value(Long.toString(value).getBytes()));
+    }
+    
+    private static String getQualifier(String user, String queryId) {
+        return (user == null ? "" : user) + NULL_BYTE + queryId;
+    }
+    
+    private static SimpleDateFormat getRowFormat() {
+        SimpleDateFormat format = new SimpleDateFormat(ROW_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+    
+    static String getRow(Date date) {
+        return getRowFormat().format(date);
+    }
+    
+    /**
+     * @return the range of the hours covering the dates
+     */
+    public static Range getRange(Date begin, Date end) {
+        return new Range(getRow(begin), true, getRow(end), true);
+    }
+    
+    /**
+     * Fetch the columns needed for the summaries.
+     *
+     * @param scanner
+     *            the scanner over the rollup table
+     * @param user
+     *            the user to summarize, or null to summarize all users
+     */
+    public static void fetchSummaryColumns(ScannerBase scanner, String user) {
+        for (String family : COLUMNS) {
+            scanner.fetchColumnFamily(new Text(family));
+        }
+        if (user != null) {
+            IteratorSetting setting = new IteratorSetting(50, "user", RegExFilter.class);
+            RegExFilter.setRegexs(setting, null, null, Pattern.quote(user + NULL_BYTE) + ".*", null, false);
+            scanner.addScanIterator(setting);
+        }
+    }
+    
+    /**
+     * Fetch the totals of a single query.
+     *
+     * @param scanner
+     *            the scanner over the rollup table
+     * @param metric
+     *            the metric of the query
+     * @param user
+     *            the user that ran the query
+     */
+    public static void fetchQueryColumns(Scanner scanner, BaseQueryMetric metric, String user) {
+        scanner.setRange(Range.exact(getRow(metric.getCreateDate())));
+        Text qualifier = new Text(getQualifier(user, metric.getQueryId()));
+        for (String family : COLUMNS) {
+            scanner.fetchColumn(new Text(family), qualifier);
+        }
+    }
+    
+    /**
+     * Aggregate the totals of the queries read from the rollup table by hour, counting the totals of a query written under more than one visibility once.
+     *
+     * @param entries
+     *            the entries read from the rollup table
+     * @return the rollups keyed by the start of the hour
+     */
+    public static SortedMap<Date,Rollup> read(Iterable<Entry<Key,Value>> entries) {
+        SortedMap<Date,Rollup> rollups = new TreeMap<>();
+        SimpleDateFormat format = getRowFormat();
+        String lastRow = null;
+        Rollup rollup = null;
+        Key lastKey = null;
+        long lastValue = 0;
+        for (Entry<Key,Value> entry : entries) {
+            Long value = parse(entry.getValue());
+            if (value == null) {
+                continue;
+            }
+            // the totals of a query written under more than one visibility are only counted once
+            if (lastKey != null && entry.getKey().equals(lastKey, PartialKey.ROW_COLFAM_COLQUAL)) {
+                lastValue = Math.max(lastValue, value);
+                continue;
+            }
+            if (rollup != null) {
+                rollup.add(lastKey.getColumnFamily().toString(), lastValue);
+            }
+            lastKey = entry.getKey();
+            lastValue = value;
+            
+            String row = lastKey.getRow().toString();
+            if (!row.equals(lastRow)) {
+                lastRow = row;
+                try {
+                    rollup = rollups.computeIfAbsent(format.parse(row), d -> new Rollup());
+                } catch (ParseException e) {
+                    log.warn("Ignoring query metric rollup with unexpected row " + row);
+                    rollup = null;
+                }
+            }
+        }
+        if (rollup != null) {
+            rollup.add(lastKey.getColumnFamily().toString(), lastValue);
+        }
+        return rollups;
+    }
+    
+    /**
+     * Read the totals of a single query, see {@link #fetchQueryColumns(Scanner, BaseQueryMetric, String)}.
+     *
+     * @param entries
+     *            the entries read from the rollup table
+     * @return the totals, or null if none have been written
+     */
+    public static Rollup readQuery(Iterable<Entry<Key,Value>> entries) {
+        SortedMap<Date,Rollup> rollups = read(entries);
+        return rollups.isEmpty() ? null : rollups.values().iterator().next();
+    }
+    
+    private static Long parse(Value value) {
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring query metric rollup with unexpected value " + value);
+            return null;
+        }
+    }
+    
+    /**
+     * The totals of the queries created within an hour, or of a single query.
+     */
+    public static class Rollup {
+        private long queries = 0;
+        private long pages = 0;
+        private long pageResults = 0;
+        private long pageTime = 0;
+        private long maxPageResults = 0;
+        private long maxPageTime = 0;
+        
+        void add(String family, long v) {
+            switch (family) {
+                case QUERIES:
+                    queries += v;
+                    break;
+                case PAGES:
+                    pages += v;
+                    break;
+                case PAGE_RESULTS:
+                    pageResults += v;
+                    break;
+                case PAGE_TIME:
+                    pageTime += v;
+                    break;
+                case MAX_PAGE_RESULTS:
+                    maxPageResults = Math.max(maxPageResults, v);
+                    break;
+                case MAX_PAGE_TIME:
+                    maxPageTime = Math.max(maxPageTime, v);
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        public void addTo(QueryMetricSummary bucket) {
+            bucket.addQueries(queries);
+            bucket.addPages(pages, pageResults, maxPageResults, pageTime, maxPageTime);
+        }
+        
+        public long getQueries() {
+            return queries;
+        }
+        
+        public long getPages() {
+            return pages;
+        }
+        
+        public long getPageResults() {
+            return pageResults;
+        }
+        
+        public long getPageTime() {
+            return pageTime;
+        }
+        
+        public long getMaxPageResults() {
+            return maxPageResults;
+        }
+        
+        public long getMaxPageTime() {
+            return maxPageTime;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package datawave.query.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * The fields of the query metrics that change with every update, kept in a table of their own so that metric updates only ever append.
+ * <p>
+ * The metric events in the shard table hold the fields that are set once and the page metrics, which are appended as the pages are returned. The fields kept
+ * here are written in full with every update and merged at scan time instead of being deleted and rewritten in the event. The counts and the last updated date
+ * only ever grow, so the {@link org.apache.accumulo.core.iterators.user.MaxCombiner} configured by {@link QueryMetricStateTableConfigHelper} keeps the most
+ * recent of them whatever order the updates are written in, and a retried update writes the same values again. The lifecycle does not grow in a fixed order,
+ * so it is written with the last updated date as its timestamp and the versioning iterator keeps the most recent.
+ * <p>
+ * The row is the query id, the column family is the field and the column qualifier is empty.
+ */
+public class QueryMetricState {
+    
+    private static final Logger log = Logger.getLogger(QueryMetricState.class);
+    
+    public static final String STATE_TABLE_NAME = "querymetrics.state.table.name";
+    
+    public static final String LIFECYCLE = "LIFECYCLE";
+    public static final String LAST_UPDATED = "LAST_UPDATED";
+    public static final String NUM_UPDATES = "NUM_UPDATES";
+    public static final String SOURCE_COUNT = "SOURCE_COUNT";
+    public static final String NEXT_COUNT = "NEXT_COUNT";
+    public static final String SEEK_COUNT = "SEEK_COUNT";
+    public static final String YIELD_COUNT = "YIELD_COUNT";
+    public static final String DOC_RANGES = "DOC_RANGES";
+    public static final String FI_RANGES = "FI_RANGES";
+    
+    /**
+     * The columns that keep the maximum
+     */
+    public static final List<String> MAX_COLUMNS = Collections.unmodifiableList(Arrays.asList(LAST_UPDATED, NUM_UPDATES, SOURCE_COUNT, NEXT_COUNT,
+                    SEEK_COUNT, YIELD_COUNT, DOC_RANGES, FI_RANGES));
+    
+    /**
+     * All of the columns, which are the fields that are not written to the metric events
+     */
+    public static final List<String> COLUMNS;
+    
+    static {
+        List<String> columns = new ArrayList<>(MAX_COLUMNS);
+        columns.add(LIFECYCLE);
+        COLUMNS = Collections.unmodifiableList(columns);
+    }
+    
+    private static final Text EMPTY_TEXT = new Text();
+    
+    private QueryMetricState() {}
+    
+    /**
+     * Get the mutation that writes the state of the metric.
+     *
+     * @param metric
+     *            the metric being written
+     * @param visibility
+     *            the visibility of the metric
+     * @return the mutation
+     */
+    public static Mutation getMutation(BaseQueryMetric metric, ColumnVisibility visibility) {
+        Date lastUpdated = metric.getLastUpdated();
+        long timestamp = (lastUpdated == null ? System.currentTimeMillis() : lastUpdated.getTime());
+        
+        Mutation m = new Mutation(metric.getQueryId());
+        if (metric.getLifecycle() != null) {
+            put(m, LIFECYCLE, visibility, timestamp, metric.getLifecycle().name());
+        }
+        if (lastUpdated != null) {
+            put(m, LAST_UPDATED, visibility, timestamp, Long.toString(lastUpdated.getTime()));
+        }
+        put(m, NUM_UPDATES, visibility, timestamp, Long.toString(metric.getNumUpdates()));
+        put(m, SOURCE_COUNT, visibility, timestamp, Long.toString(metric.getSourceCount()));
+        put(m, NEXT_COUNT, visibility, timestamp, Long.toString(metric.getNextCount()));
+        put(m, SEEK_COUNT, visibility, timestamp, Long.toString(metric.getSeekCount()));
+        put(m, YIELD_COUNT, visibility, timestamp, Long.toString(metric.getYieldCount()));
+        put(m, DOC_RANGES, visibility, timestamp, Long.toString(metric.getDocRanges()));
+        put(m, FI_RANGES, visibility, timestamp, Long.toString(metric.getFiRanges()));
+        return m;
+    }
+    
+    private static void put(Mutation m, String column, ColumnVisibility visibility, long timestamp, String value) {
+        m.put(new Text(column), EMPTY_TEXT, visibility, timestamp, new Value(value.getBytes()));
+    }
+    
+    /**
+     * @return the ranges covering the state of the metrics
+     */
+    public static Collection<Range> getRanges(Collection<? extends BaseQueryMetric> metrics) {
+        List<Range> ranges = new ArrayList<>(metrics.size());
+        for (BaseQueryMetric metric : metrics) {
+            if (metric != null && metric.getQueryId() != null) {
+                ranges.add(new Range(metric.getQueryId()));
+            }
+        }
+        return ranges;
+    }
+    
+    /**
+     * Read the state of the metrics, merging the entries written under different visibilities.
+     *
+     * @param entries
+     *            the entries read from the state table
+     * @return the fields of each metric, keyed by query id
+     */
+    public static Map<String,Map<String,String>> read(Iterable<Entry<Key,Value>> entries) {
+        Map<String,Map<String,String>> states = new HashMap<>();
+        Map<String,Long> lifecycleTimestamps = new HashMap<>();
+        for (Entry<Key,Value> entry : entries) {
+            String queryId = entry.getKey().getRow().toString();
+            String column = entry.getKey().getColumnFamily().toString();
+            String value = entry.getValue().toString();
+            Map<String,String> state = states.computeIfAbsent(queryId, k -> new HashMap<>());
+            if (column.equals(LIFECYCLE)) {
+                long timestamp = entry.getKey().getTimestamp();
+                Long previous = lifecycleTimestamps.get(queryId);
+                if (previous == null || timestamp > previous) {
+                    lifecycleTimestamps.put(queryId, timestamp);
+                    state.put(column, value);
+                }
+            } else if (MAX_COLUMNS.contains(column)) {
+                state.merge(column, value, (a, b) -> (parse(a) >= parse(b) ? a : b));
+            }
+        }
+        return states;
+    }
+    
+    private static long parse(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring query metric state with unexpected value " + value);
+            return Long.MIN_VALUE;
+        }
+    }
+    
+    /**
+     * Apply the state read from the state table to a metric read from its event.
+     *
+     * @param metric
+     *            the metric
+     * @param state
+     *            the fields of the metric read from the state table, or null if there are none, in which case the fields read from the event are kept
+     */
+    public static void apply(BaseQueryMetric metric, Map<String,String> state) {
+        if (state == null) {
+            return;
+        }
+        for (Entry<String,String> e : state.entrySet()) {
+            String value = e.getValue();
+            if (e.getKey().equals(LIFECYCLE)) {
+                try {
+                    metric.setLifecycle(Lifecycle.valueOf(value));
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Ignoring query metric state with unexpected lifecycle " + value);
+                }
+                continue;
+            }
+            long v = parse(value);
+            if (v == Long.MIN_VALUE) {
+                continue;
+            }
+            switch (e.getKey()) {
+                case LAST_UPDATED:
+                    metric.setLastUpdated(new Date(v));
+                    break;
+                case NUM_UPDATES:
+                    metric.setNumUpdates(v);
+                    break;
+                case SOURCE_COUNT:
+                    metric.setSourceCount(v);
+                    break;
+                case NEXT_COUNT:
+                    metric.setNextCount(v);
+                    break;
+                case SEEK_COUNT:
+                    metric.setSeekCount(v);
+                    break;
+                case YIELD_COUNT:
+                    metric.setYieldCount(v);
+                    break;
+                case DOC_RANGES:
+                    metric.setDocRanges(v);
+                    break;
+                case FI_RANGES:
+                    metric.setFiRanges(v);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -46,6 +46,7 @@ import datawave.query.map.SimpleQueryGeometryHandler;
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.security.system.CallerPrincipal;
 import datawave.security.util.AuthorizationsUtil;
+import datawave.security.util.ScannerHelper;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
 import datawave.webservice.common.logging.ThreadConfigurableLogger;
@@ -61,7 +62,6 @@ import datawave.webservice.query.logic.QueryLogicFactory;
 import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
 import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
-import datawave.webservice.query.metric.BaseQueryMetricListResponse;
 import datawave.webservice.query.metric.QueryMetric;
 import datawave.webservice.query.metric.QueryMetricListResponse;
 import datawave.webservice.query.metric.QueryMetricsDetailListResponse;
@@ -77,16 +77,21 @@ import datawave.webservice.result.EventQueryResponseBase;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.apache.deltaspike.core.api.config.ConfigProperty;
@@ -130,12 +135,18 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     @ConfigProperty(name = "dw.query.metrics.visibility")
     protected String visibilityString;
     
+    @Inject
+    @ConfigProperty(name = "dw.query.metrics.summary.useRollups", defaultValue = "false")
+    protected boolean useRollups;
+    
     @Inject
     private QueryMetricFactory metricFactory;
     
     private Collection<String> connectorAuthorizationCollection = null;
     private String connectorAuthorizations = null;
     private MarkingFunctions markingFunctions = null;
+    private String rollupTableName = null;
+    private String stateTableName = null;
     
     @SuppressWarnings("FieldCanBeLocal")
     private final String JOB_ID = "job_201109071404_1";
@@ -146,6 +157,9 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     // static to share the cache across instances of this class held by QueryExecutorBean, CachedResultsBean, QueryMetricsEnrichmentInterceptor, etc
     @SuppressWarnings("unchecked")
     private static Map metricsCache = Collections.synchronizedMap(new LRUMap(5000));
+    // the totals of the queries last written to the rollup table
+    @SuppressWarnings("unchecked")
+    private static Map rollupCache = Collections.synchronizedMap(new LRUMap(5000));
     
     private final Configuration conf = new Configuration();
     private final StatusReporter reporter = new MockStatusReporter();
@@ -164,6 +178,9 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         byte[] encodedAccumuloPassword = Base64.encodeBase64(accumuloPassword.getBytes());
         conf.set("AccumuloRecordWriter.password", new String(encodedAccumuloPassword));
         markingFunctions = MarkingFunctions.Factory.createMarkingFunctions();
+        rollupTableName = conf.get(QueryMetricRollups.ROLLUP_TABLE_NAME, null);
+        stateTableName = conf.get(QueryMetricState.STATE_TABLE_NAME, null);
+        Preconditions.checkNotNull(stateTableName, "The query metric configuration must set " + QueryMetricState.STATE_TABLE_NAME);
     }
     
     @PostConstruct
@@ -208,7 +225,11 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         try {
             connector = this.connectionFactory.getConnection(Priority.ADMIN, new HashMap<>());
             AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
-            createAndConfigureTablesIfNecessary(handler.getTableNames(conf), connector.tableOperations(), conf);
+            String[] tableNames = ArrayUtils.add(handler.getTableNames(conf), stateTableName);
+            if (rollupTableName != null) {
+                tableNames = ArrayUtils.add(tableNames, rollupTableName);
+            }
+            createAndConfigureTablesIfNecessary(tableNames, connector.tableOperations(), conf);
         } catch (Exception e) {
             log.error("Error verifying table configuration", e);
         } finally {
@@ -222,7 +243,15 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         }
     }
     
-    private void writeMetrics(QueryMetric updatedQueryMetric, List<QueryMetric> storedQueryMetrics, Date lastUpdated, boolean delete) throws Exception {
+    /**
+     * Append the entries of the updated metric to its event, and write its state.
+     *
+     * @param updatedQueryMetric
+     *            the metric to write
+     * @param writtenQueryMetric
+     *            the metric as it was last written, in which case only the fields that have changed since are appended, or null to write all fields
+     */
+    private void writeMetrics(QueryMetric updatedQueryMetric, QueryMetric writtenQueryMetric) throws Exception {
         LiveContextWriter contextWriter = null;
         
         MapContext<Text,RawRecordContainer,Text,Mutation> context = null;
@@ -234,29 +263,29 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             TaskAttemptID taskId = new TaskAttemptID(new TaskID(new JobID(JOB_ID, 1), TaskType.MAP, 1), 1);
             context = new MapContextImpl<>(conf, taskId, null, recordWriter, null, reporter, null);
             
-            for (QueryMetric storedQueryMetric : storedQueryMetrics) {
-                AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
-                handler.setup(context);
-                
-                Multimap<BulkIngestKey,Value> r = getEntries(handler, updatedQueryMetric, storedQueryMetric, lastUpdated, delete);
+            AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
+            handler.setup(context);
+            
+            Multimap<BulkIngestKey,Value> r = getEntries(handler, updatedQueryMetric, writtenQueryMetric);
+            
+            try {
+                if (r != null) {
+                    contextWriter.write(r, context);
+                }
                 
-                try {
-                    if (r != null) {
-                        contextWriter.write(r, context);
-                    }
-                    
-                    if (handler.getMetadata() != null) {
-                        contextWriter.write(handler.getMetadata().getBulkMetadata(), context);
-                    }
-                } finally {
-                    contextWriter.commit(context);
+                if (handler.getMetadata() != null) {
+                    contextWriter.write(handler.getMetadata().getBulkMetadata(), context);
                 }
+            } finally {
+                contextWriter.commit(context);
             }
         } finally {
             if (contextWriter != null && context != null) {
                 contextWriter.cleanup(context);
             }
         }
+        
+        recordWriter.write(new Text(stateTableName), QueryMetricState.getMutation(updatedQueryMetric, getColumnVisibility(updatedQueryMetric)));
     }
     
     public Map<String,String> getEventFields(BaseQueryMetric queryMetric) {
@@ -271,42 +300,24 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         return eventFields;
     }
     
-    private Multimap<BulkIngestKey,Value> getEntries(AbstractColumnBasedHandler<Key> handler, QueryMetric updatedQueryMetric, QueryMetric storedQueryMetric,
-                    Date lastUpdated, boolean delete) {
+    private Multimap<BulkIngestKey,Value> getEntries(AbstractColumnBasedHandler<Key> handler, QueryMetric updatedQueryMetric, QueryMetric writtenQueryMetric) {
         Type type = TypeRegistry.getType("querymetrics");
-        ContentQueryMetricsIngestHelper ingestHelper = new ContentQueryMetricsIngestHelper(delete);
+        ContentQueryMetricsIngestHelper ingestHelper = new ContentQueryMetricsIngestHelper(false);
         
         ingestHelper.setup(conf);
         
         RawRecordContainerImpl event = new RawRecordContainerImpl();
         event.setConf(this.conf);
         event.setDataType(type);
-        event.setDate(storedQueryMetric.getCreateDate().getTime());
-        // get security markings from metric, otherwise default to PUBLIC
-        Map<String,String> markings = updatedQueryMetric.getMarkings();
-        if (markingFunctions == null || markings == null || markings.isEmpty()) {
-            event.setVisibility(new ColumnVisibility(DEFAULT_SECURITY_MARKING));
-        } else {
-            try {
-                event.setVisibility(this.markingFunctions.translateToColumnVisibility(markings));
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-                event.setVisibility(new ColumnVisibility(DEFAULT_SECURITY_MARKING));
-            }
-        }
-        event.setAuxData(storedQueryMetric);
+        event.setDate(updatedQueryMetric.getCreateDate().getTime());
+        event.setVisibility(getColumnVisibility(updatedQueryMetric));
+        event.setAuxData(updatedQueryMetric);
         event.setRawRecordNumber(1000L);
-        event.addAltId(storedQueryMetric.getQueryId());
+        event.addAltId(updatedQueryMetric.getQueryId());
         
-        event.setId(uidBuilder.newId(storedQueryMetric.getQueryId().getBytes(), (Date) null));
+        event.setId(uidBuilder.newId(updatedQueryMetric.getQueryId().getBytes(), (Date) null));
         
-        final Multimap<String,NormalizedContentInterface> fields;
-        
-        if (delete) {
-            fields = ingestHelper.getEventFieldsToDelete(updatedQueryMetric, storedQueryMetric);
-        } else {
-            fields = ingestHelper.getEventFieldsToWrite(updatedQueryMetric);
-        }
+        final Multimap<String,NormalizedContentInterface> fields = ingestHelper.getEventFieldsToAppend(updatedQueryMetric, writtenQueryMetric);
         
         Key key = new Key();
         
@@ -347,23 +358,91 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         }
         
         for (Entry<BulkIngestKey,Collection<Value>> entry : r.asMap().entrySet()) {
-            if (delete) {
-                entry.getKey().getKey().setTimestamp(lastUpdated.getTime());
-            } else {
-                // this will ensure that the QueryMetrics can be found within second precision in most cases
-                entry.getKey().getKey().setTimestamp(storedQueryMetric.getCreateDate().getTime() + storedQueryMetric.getNumUpdates());
-            }
-            entry.getKey().getKey().setDeleted(delete);
+            // this will ensure that the QueryMetrics can be found within second precision in most cases
+            entry.getKey().getKey().setTimestamp(updatedQueryMetric.getCreateDate().getTime() + updatedQueryMetric.getNumUpdates());
         }
         
         return r;
     }
     
+    private ColumnVisibility getColumnVisibility(QueryMetric queryMetric) {
+        // get security markings from metric, otherwise default to PUBLIC
+        Map<String,String> markings = queryMetric.getMarkings();
+        if (markingFunctions == null || markings == null || markings.isEmpty()) {
+            return new ColumnVisibility(DEFAULT_SECURITY_MARKING);
+        } else {
+            try {
+                return this.markingFunctions.translateToColumnVisibility(markings);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                return new ColumnVisibility(DEFAULT_SECURITY_MARKING);
+            }
+        }
+    }
+    
+    /**
+     * Bring the rollups up to date with the updated metric
+     *
+     * @param updatedQueryMetric
+     *            the metric being written
+     * @param user
+     *            the user that ran the query
+     */
+    private void writeRollups(QueryMetric updatedQueryMetric, String user) throws IOException, InterruptedException {
+        String queryId = updatedQueryMetric.getQueryId();
+        QueryMetricRollups.Rollup previous = (QueryMetricRollups.Rollup) rollupCache.get(queryId);
+        if (previous == null && updatedQueryMetric.getNumPages() > 0) {
+            // the totals are not cached (a failed write cleared the cache, or another server wrote the earlier updates), so continue from what is stored
+            previous = readRollup(updatedQueryMetric, user);
+        }
+        QueryMetricRollups.Rollup totals = QueryMetricRollups.update(previous, updatedQueryMetric);
+        if (totals == previous) {
+            return;
+        }
+        rollupCache.put(queryId, totals);
+        Mutation m = QueryMetricRollups.getMutation(updatedQueryMetric, totals, user, getColumnVisibility(updatedQueryMetric));
+        if (m != null) {
+            recordWriter.write(new Text(rollupTableName), m);
+        }
+    }
+    
+    /**
+     * Read the totals of a query from the rollup table
+     *
+     * @return the totals, or null if none are stored or they could not be read
+     */
+    private QueryMetricRollups.Rollup readRollup(QueryMetric queryMetric, String user) {
+        if (queryMetric.getCreateDate() == null) {
+            return null;
+        }
+        Connector connector = null;
+        try {
+            connector = connectionFactory.getConnection(Priority.ADMIN, new HashMap<>());
+            Authorizations authorizations = new Authorizations(connectorAuthorizationCollection.toArray(new String[0]));
+            try (Scanner scanner = connector.createScanner(rollupTableName, authorizations)) {
+                QueryMetricRollups.fetchQueryColumns(scanner, queryMetric, user);
+                return QueryMetricRollups.readQuery(scanner);
+            }
+        } catch (Exception e) {
+            // the totals written are the greatest kept, so totals that leave out the stored pages cannot count them twice
+            log.error("Error reading query metric rollup of " + queryMetric.getQueryId() + " from " + rollupTableName, e);
+            return null;
+        } finally {
+            if (connector != null) {
+                try {
+                    connectionFactory.returnConnection(connector);
+                } catch (Exception e) {
+                    log.error("Error returning connection to connection factory", e);
+                }
+            }
+        }
+    }
+    
     @SuppressWarnings("unchecked")
     @Override
     public void updateMetric(QueryMetric updatedQueryMetric, DatawavePrincipal datawavePrincipal) throws Exception {
-        Date lastUpdated = updatedQueryMetric.getLastUpdated();
-        
+        // metrics are written in parallel on pooled threads, so the levels of the thread are restored rather than cleared
+        Map<String,Level> previousLevels = ThreadConfigurableLogger.getThreadLevels();
         try {
             enableLogs(false);
             String sid = updatedQueryMetric.getUser();
@@ -371,21 +450,18 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 sid = datawavePrincipal.getShortName();
             }
             
-            // find and remove previous entries
-            BaseQueryMetricListResponse response = new QueryMetricListResponse();
-            Date end = new Date();
-            Date begin = DateUtils.setYears(end, 2000);
-            
-            // user's DatawavePrincipal must have the Administrator role to use the Metrics query logic
-            QueryMetric cachedQueryMetric;
+            // Updates only append: the fields of the event that were not written by the previous update, and the state of the metric, which is merged
+            // at scan time. Nothing is read back or deleted, so a metric that is not cached (its first update, or any update after a failed write cleared
+            // the cache) has all of its event fields written again, which rewrites the same entries.
+            QueryMetric writtenQueryMetric;
             QueryMetric newCachedQueryMetric;
             synchronized (ShardTableQueryMetricHandler.class) {
-                cachedQueryMetric = (QueryMetric) metricsCache.get(updatedQueryMetric.getQueryId());
+                writtenQueryMetric = (QueryMetric) metricsCache.get(updatedQueryMetric.getQueryId());
                 // duplicate updatedQueryMetric because we're counting on the cache to be a snapshot of the QueryMetric
-                // so that we can retrieve it next update call to create the delete Mutations for the values written to Accumulo
+                // so that we can retrieve it next update call to leave out the values already written
                 Map<Long,PageMetric> storedPageMetricMap = new TreeMap<>();
-                if (cachedQueryMetric != null) {
-                    List<PageMetric> cachedPageMetrics = cachedQueryMetric.getPageTimes();
+                if (writtenQueryMetric != null) {
+                    List<PageMetric> cachedPageMetrics = writtenQueryMetric.getPageTimes();
                     if (cachedPageMetrics != null) {
                         for (PageMetric p : cachedPageMetrics) {
                             storedPageMetricMap.put(p.getPageNumber(), p);
@@ -396,6 +472,8 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 for (PageMetric p : updatedQueryMetric.getPageTimes()) {
                     storedPageMetricMap.put(p.getPageNumber(), p);
                 }
+                long nextUpdateNumber = (writtenQueryMetric == null ? 0 : writtenQueryMetric.getNumUpdates() + 1);
+                updatedQueryMetric.setNumUpdates(nextUpdateNumber);
                 newCachedQueryMetric = (QueryMetric) updatedQueryMetric.duplicate();
                 ArrayList<PageMetric> newPageMetrics = new ArrayList<>();
                 newPageMetrics.addAll(storedPageMetricMap.values());
@@ -403,54 +481,13 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 metricsCache.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
             }
             
-            List<QueryMetric> queryMetrics = new ArrayList<>();
-            
-            if (cachedQueryMetric == null) {
-                // if numPages > 0 or Lifecycle > DEFINED, then we should have a metric cached already
-                // if we don't, then query for the current stored metric
-                if (updatedQueryMetric.getNumPages() > 0 || updatedQueryMetric.getLifecycle().compareTo(Lifecycle.DEFINED) > 0) {
-                    QueryImpl query = new QueryImpl();
-                    query.setBeginDate(begin);
-                    query.setEndDate(end);
-                    query.setQueryLogicName(QUERY_METRICS_LOGIC_NAME);
-                    query.setQuery("QUERY_ID == '" + updatedQueryMetric.getQueryId() + "'");
-                    query.setQueryName(QUERY_METRICS_LOGIC_NAME);
-                    query.setColumnVisibility(visibilityString);
-                    query.setQueryAuthorizations(connectorAuthorizations);
-                    query.setUserDN(sid);
-                    query.setExpirationDate(DateUtils.addDays(new Date(), 1));
-                    query.setPagesize(1000);
-                    query.setId(UUID.randomUUID());
-                    query.setParameters(ImmutableMap.of(QueryOptions.INCLUDE_GROUPING_CONTEXT, "true"));
-                    queryMetrics = getQueryMetrics(response, query, callerPrincipal);
-                }
-            } else {
-                queryMetrics = Collections.singletonList(cachedQueryMetric);
-            }
+            writeMetrics(updatedQueryMetric, writtenQueryMetric);
             
-            if (!queryMetrics.isEmpty()) {
-                writeMetrics(updatedQueryMetric, queryMetrics, lastUpdated, true);
+            if (rollupTableName != null) {
+                writeRollups(updatedQueryMetric, sid);
             }
-            
-            long nextUpdateNumber = 0;
-            
-            for (BaseQueryMetric m : queryMetrics) {
-                if ((m.getNumUpdates() + 1) > nextUpdateNumber) {
-                    nextUpdateNumber = m.getNumUpdates() + 1;
-                }
-            }
-            
-            updatedQueryMetric.setNumUpdates(nextUpdateNumber);
-            
-            synchronized (ShardTableQueryMetricHandler.class) {
-                newCachedQueryMetric.setNumUpdates(nextUpdateNumber);
-                metricsCache.put(updatedQueryMetric.getQueryId(), newCachedQueryMetric);
-            }
-            
-            // write new entry
-            writeMetrics(updatedQueryMetric, Collections.singletonList(updatedQueryMetric), lastUpdated, false);
         } finally {
-            enableLogs(true);
+            ThreadConfigurableLogger.setThreadLevels(previousLevels);
         }
     }
     
@@ -506,6 +543,8 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 QueryMetric metric = toMetric(event);
                 queryMetrics.add(metric);
             }
+            
+            readState(connector, query, queryMetrics);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             if (response != null) {
@@ -532,6 +571,29 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         return queryMetrics;
     }
     
+    /**
+     * Apply the state of the metrics, which is kept apart from their events. See {@link QueryMetricState}.
+     */
+    private void readState(Connector connector, Query query, List<QueryMetric> queryMetrics) throws TableNotFoundException {
+        Collection<Range> ranges = QueryMetricState.getRanges(queryMetrics);
+        if (ranges.isEmpty()) {
+            return;
+        }
+        Authorizations authorizations = new Authorizations(StringUtils.split(query.getQueryAuthorizations(), ","));
+        BatchScanner scanner = connector.createBatchScanner(stateTableName, authorizations, 8);
+        try {
+            scanner.setRanges(ranges);
+            Map<String,Map<String,String>> states = QueryMetricState.read(scanner);
+            for (QueryMetric metric : queryMetrics) {
+                if (metric != null) {
+                    QueryMetricState.apply(metric, states.get(metric.getQueryId()));
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+    
     @Override
     public QueryMetricListResponse query(String user, String queryId, DatawavePrincipal datawavePrincipal) {
         QueryMetricsDetailListResponse response = new QueryMetricsDetailListResponse();
@@ -579,6 +641,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (isRollupsEnabled()) {
+                return getRollupSummary(response, begin, end, null, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -615,6 +681,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (isRollupsEnabled()) {
+                return getRollupSummary(response, begin, end, user, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -641,6 +711,49 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         return response;
     }
     
+    private boolean isRollupsEnabled() {
+        return useRollups && rollupTableName != null;
+    }
+    
+    /**
+     * Summarize the metrics from the rollup table instead of querying every metric in the date range. The summary is resolved to whole hours.
+     *
+     * @param summary
+     *            the summary to populate
+     * @param begin
+     *            the begin date
+     * @param end
+     *            the end date
+     * @param user
+     *            the user to summarize, or null to summarize all users
+     * @param datawavePrincipal
+     *            the principal whose authorizations are used to read the rollups
+     * @return the populated summary
+     */
+    private <S extends QueryMetricsSummaryResponse> S getRollupSummary(S summary, Date begin, Date end, String user, DatawavePrincipal datawavePrincipal) {
+        Connector connector = null;
+        try {
+            connector = connectionFactory.getConnection(Priority.ADMIN, new HashMap<>());
+            Set<Authorizations> authorizations = AuthorizationsUtil.buildAuthorizations(datawavePrincipal.getAuthorizations());
+            try (Scanner scanner = ScannerHelper.createScanner(connector, rollupTableName, authorizations)) {
+                scanner.setRange(QueryMetricRollups.getRange(begin, end));
+                QueryMetricRollups.fetchSummaryColumns(scanner, user);
+                return processQueryMetricRollups(QueryMetricRollups.read(scanner), summary);
+            }
+        } catch (Exception e) {
+            log.error("Error reading query metric rollups from " + rollupTableName, e);
+        } finally {
+            if (connector != null) {
+                try {
+                    connectionFactory.returnConnection(connector);
+                } catch (Exception e) {
+                    log.error("Error returning connection to connection factory", e);
+                }
+            }
+        }
+        return summary;
+    }
+    
     public QueryMetric toMetric(datawave.webservice.query.result.event.EventBase event) {
         SimpleDateFormat sdf_date_time1 = new SimpleDateFormat("yyyyMMdd HHmmss");
         SimpleDateFormat sdf_date_time2 = new SimpleDateFormat("yyyyMMdd HHmmss");
@@ -705,9 +818,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 } else if (fieldName.equals("ERROR_MESSAGE")) {
                     m.setErrorMessage(fieldValue);
                 } else if (fieldName.equals("SETUP_TIME")) {
-                    m.setSetupTime(Long.parseLong(fieldValue));
+                    // a value that changes is appended rather than replaced, and these only change from unset to set
+                    m.setSetupTime(Math.max(m.getSetupTime(), Long.parseLong(fieldValue)));
                 } else if (fieldName.equals("CREATE_CALL_TIME")) {
-                    m.setCreateCallTime(Long.parseLong(fieldValue));
+                    m.setCreateCallTime(Math.max(m.getCreateCallTime(), Long.parseLong(fieldValue)));
                 } else if (fieldName.startsWith("PAGE_METRICS")) {
                     int index = fieldName.indexOf(".");
                     if (-1 == index) {
@@ -730,7 +844,8 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                             pageMetric = new PageMetric(Long.parseLong(parts[0]), Long.parseLong(parts[1]), 0l, 0l);
                         }
                         
-                        if (pageMetric != null)
+                        // a page metric is appended again once its call time is known, so keep the more complete of them
+                        if (pageMetric != null && (!pageMetrics.containsKey(repetition) || isMoreComplete(pageMetric, pageMetrics.get(repetition))))
                             pageMetrics.put(repetition, pageMetric);
                     }
                 } else if (fieldName.equals("POSITIVE_SELECTORS")) {
@@ -812,6 +927,13 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         }
     }
     
+    private static boolean isMoreComplete(PageMetric pageMetric, PageMetric other) {
+        if (pageMetric.getCallTime() != other.getCallTime()) {
+            return pageMetric.getCallTime() > other.getCallTime();
+        }
+        return pageMetric.getBytesWritten() > other.getBytesWritten();
+    }
+    
     protected void createAndConfigureTablesIfNecessary(String[] tableNames, TableOperations tops, Configuration conf) throws AccumuloSecurityException,
                     AccumuloException, TableNotFoundException {
         for (String table : tableNames) {
@@ -897,6 +1019,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     
     @Override
     public void reload() {
+        // we are reloading because of a failed write, so the cached metrics may not match what is stored. Updates only append the fields that changed
+        // since the cached metric, so forget the cached metrics and append all of the fields of their next updates instead.
+        metricsCache.clear();
+        rollupCache.clear();
         try {
             if (this.recordWriter != null) {
                 // don't try to flush the mtbw (close). If recordWriter != null then this method is being called
@@ -919,6 +1045,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (isRollupsEnabled()) {
+                return getRollupSummary(response, begin, end, null, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
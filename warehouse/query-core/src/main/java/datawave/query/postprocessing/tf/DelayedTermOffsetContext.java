@@ -0,0 +1,195 @@
+package datawave.query.postprocessing.tf;
+
+import datawave.query.Constants;
+import datawave.query.attributes.Document;
+import datawave.query.collections.FunctionalSet;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.accumulo.core.data.Key;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Responsible for gathering the term frequencies of a document only when the evaluation first needs them. Looking up a term frequency field gathers that
+ * field alone, while looking up the term offset map or the any field gathers every term frequency field not yet gathered, as content functions and unfielded
+ * terms may use any of them. A document rejected by the rest of the query never has its term frequencies read. The term frequency attributes are merged with
+ * any values already in the delegate, and once the document matches the remaining fields are gathered and all of them are added to it, so that matching
+ * documents are the same as if the term frequencies had been gathered up front.
+ */
+public class DelayedTermOffsetContext extends DatawaveJexlContext {
+    private final DatawaveJexlContext delegate;
+    private final TermOffsetFunction termOffsetFunction;
+    private final Key key;
+    private final Document document;
+    private final Collection<String> variables;
+    private final Set<String> delayedNames;
+    private final Map<String,String> delayedFields;
+    
+    /**
+     * the term frequency fields gathered so far
+     */
+    private final Set<String> fetchedFields = new HashSet<>();
+    
+    /**
+     * the term frequency attributes gathered so far
+     */
+    private final Document termFrequencies = new Document();
+    
+    /**
+     * the term offsets gathered so far, or null if none have been
+     */
+    private Map<String,Object> termOffsets = null;
+    
+    /**
+     * @param delayedNames
+     *            the names which gather every term frequency field when looked up
+     * @param delayedFields
+     *            the term frequency fields keyed by the identifier which gathers them when looked up
+     */
+    public DelayedTermOffsetContext(DatawaveJexlContext delegate, TermOffsetFunction termOffsetFunction, Key key, Document document,
+                    Collection<String> variables, Set<String> delayedNames, Map<String,String> delayedFields) {
+        this.delegate = delegate;
+        this.termOffsetFunction = termOffsetFunction;
+        this.key = key;
+        this.document = document;
+        this.variables = variables;
+        this.delayedNames = delayedNames;
+        this.delayedFields = delayedFields;
+    }
+    
+    public DatawaveJexlContext getDelegate() {
+        return delegate;
+    }
+    
+    @Override
+    public void set(String name, Object value) {
+        delegate.set(name, value);
+    }
+    
+    @Override
+    public Object get(String name) {
+        fetchIfDelayed(name);
+        return delegate.get(name);
+    }
+    
+    @Override
+    public boolean has(String name) {
+        fetchIfDelayed(name);
+        return delegate.has(name);
+    }
+    
+    private void fetchIfDelayed(String name) {
+        if (delayedNames.contains(name)) {
+            fetchAll();
+        } else {
+            String field = delayedFields.get(name);
+            if (field != null && !fetchedFields.contains(field)) {
+                fetch(Collections.singleton(field));
+            }
+        }
+    }
+    
+    /**
+     * Gather the term frequency fields not gathered yet
+     */
+    private void fetchAll() {
+        Set<String> fields = termOffsetFunction.getTermFrequencyFields();
+        if (fetchedFields.isEmpty()) {
+            fetch(null);
+        } else if (!fetchedFields.containsAll(fields)) {
+            Set<String> remaining = new HashSet<>(fields);
+            remaining.removeAll(fetchedFields);
+            fetch(remaining);
+        }
+    }
+    
+    /**
+     * Gather the term frequencies of some of the fields of the document and merge them into the delegate as if they had been part of the document when the
+     * context was created
+     *
+     * @param fields
+     *            the term frequency fields to gather, or null to gather all of them
+     */
+    @SuppressWarnings("unchecked")
+    private void fetch(Set<String> fields) {
+        Map<String,Object> fetchedOffsets = termOffsetFunction.getContextMap(key, document, fields);
+        fetchedFields.addAll(fields == null ? termOffsetFunction.getTermFrequencyFields() : fields);
+        if (fetchedOffsets == null) {
+            return;
+        }
+        Document fetched = termOffsetFunction.document();
+        termFrequencies.putAll(fetched, false);
+        
+        // the values in the delegate may be shared, so replace them with copies before the term frequency attributes are added to them
+        for (String field : fetched.getDictionary().keySet()) {
+            String identifier = JexlASTHelper.rebuildIdentifier(field, false);
+            Object value = delegate.get(identifier);
+            if (value instanceof Collection) {
+                delegate.set(identifier, new FunctionalSet<>((Collection) value));
+            }
+        }
+        
+        // visiting the attributes replaces the values of the any field rather than adding to them
+        Object any = delegate.get(Constants.ANY_FIELD);
+        fetched.visit(variables, delegate);
+        if (any instanceof Collection) {
+            Set<Object> merged = new HashSet<>((Collection<Object>) any);
+            Object visited = delegate.get(Constants.ANY_FIELD);
+            if (visited instanceof Collection) {
+                merged.addAll((Collection<Object>) visited);
+            }
+            delegate.set(Constants.ANY_FIELD, merged);
+        }
+        
+        termOffsets = (termOffsets == null ? fetchedOffsets : TermOffsetPopulator.mergeContextMap(termOffsets, fetchedOffsets));
+        for (Map.Entry<String,Object> entry : termOffsets.entrySet()) {
+            delegate.set(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Add the term frequency attributes to the main document, gathering the fields the evaluation did not need
+     *
+     * @param d
+     *            the main document
+     */
+    public void populateDocument(Document d) {
+        fetchAll();
+        d.putAll(termFrequencies, false);
+    }
+    
+    @Override
+    public void clear() {
+        this.delegate.clear();
+    }
+    
+    @Override
+    public int size() {
+        return this.delegate.size();
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        DelayedTermOffsetContext that = (DelayedTermOffsetContext) o;
+        return Objects.equals(delegate, that.delegate) && Objects.equals(key, that.key) && Objects.equals(termFrequencies, that.termFrequencies);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(delegate, key);
+    }
+    
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
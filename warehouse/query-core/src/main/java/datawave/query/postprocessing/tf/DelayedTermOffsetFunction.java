@@ -0,0 +1,53 @@
+package datawave.query.postprocessing.tf;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.query.Constants;
+import datawave.query.attributes.Document;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.util.Tuple3;
+import datawave.query.util.Tuples;
+
+import org.apache.accumulo.core.data.Key;
+
+import com.google.common.base.Function;
+
+/**
+ * Wraps the context of each document in a {@link DelayedTermOffsetContext}, so that the term frequencies are gathered only if the evaluation needs them, in
+ * place of gathering them for every document with the {@link TermOffsetFunction} before the context is created.
+ */
+public class DelayedTermOffsetFunction implements Function<Tuple3<Key,Document,DatawaveJexlContext>,Tuple3<Key,Document,DatawaveJexlContext>> {
+    
+    private final TermOffsetFunction termOffsetFunction;
+    private final Collection<String> variables;
+    private final Set<String> delayedNames;
+    private final Map<String,String> delayedFields;
+    
+    public DelayedTermOffsetFunction(TermOffsetFunction termOffsetFunction, Collection<String> variables) {
+        this.termOffsetFunction = termOffsetFunction;
+        this.variables = variables;
+        
+        // the names which are looked up to evaluate a content function or an unfielded term, which need every term frequency field
+        delayedNames = new HashSet<>();
+        delayedNames.add(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME);
+        delayedNames.add(Constants.ANY_FIELD);
+        
+        // the identifiers which are looked up to evaluate a term frequency field, which need that field only
+        delayedFields = new HashMap<>();
+        for (String field : termOffsetFunction.getTermFrequencyFields()) {
+            delayedFields.put(JexlASTHelper.rebuildIdentifier(field, false), field);
+        }
+    }
+    
+    @Override
+    public Tuple3<Key,Document,DatawaveJexlContext> apply(Tuple3<Key,Document,DatawaveJexlContext> from) {
+        DatawaveJexlContext context = new DelayedTermOffsetContext(from.third(), termOffsetFunction, from.first(), from.second(), variables, delayedNames,
+                        delayedFields);
+        return Tuples.tuple(from.first(), from.second(), context);
+    }
+}
@@ -29,13 +29,44 @@ public class TermOffsetFunction implements com.google.common.base.Function<Tuple
     @Override
     public Tuple3<Key,Document,Map<String,Object>> apply(Tuple2<Key,Document> from) {
         Document merged = from.second();
+        Map<String,Object> map = getContextMap(from.first(), merged);
+        merged.putAll(document(), false);
+        return Tuples.tuple(from.first(), merged, map);
+    }
+    
+    /**
+     * Gathers the term offsets for a document without merging the term frequency attributes into it
+     *
+     * @param key
+     *            the document key
+     * @param doc
+     *            the document
+     * @return the context map of term offsets, with the term frequency attributes left in {@link #document()}
+     */
+    public Map<String,Object> getContextMap(Key key, Document doc) {
+        return getContextMap(key, doc, null);
+    }
+    
+    /**
+     * Gathers the term offsets of some of the term frequency fields of a document without merging the term frequency attributes into it
+     *
+     * @param key
+     *            the document key
+     * @param doc
+     *            the document
+     * @param tfFields
+     *            the term frequency fields to gather, or null to gather all of them
+     * @return the context map of term offsets, with the term frequency attributes left in {@link #document()}, or null if none of the fields can be gathered
+     *         for the document, in which case nothing is read and {@link #document()} is left as it was
+     */
+    public Map<String,Object> getContextMap(Key key, Document doc, Set<String> tfFields) {
         Map<String,Object> map = new HashMap<>();
-        Attribute<?> docKeyAttr = merged.get(Document.DOCKEY_FIELD_NAME);
+        Attribute<?> docKeyAttr = doc.get(Document.DOCKEY_FIELD_NAME);
         
         // gather the set of doc keys
         Set<Key> docKeys = new HashSet<>();
         if (docKeyAttr == null) {
-            docKeys.add(from.first());
+            docKeys.add(key);
         } else if (docKeyAttr instanceof DocumentKey) {
             docKeys.add(((DocumentKey) docKeyAttr).getDocKey());
         } else if (docKeyAttr instanceof Attributes) {
@@ -50,11 +81,32 @@ public class TermOffsetFunction implements com.google.common.base.Function<Tuple
             throw new IllegalStateException("Unexpected Attribute type for " + Document.DOCKEY_FIELD_NAME + ": " + docKeys.getClass());
         }
         
-        Set<String> fields = getFieldsToRemove(from.second(), tfPopulator.getTermFrequencyFieldValues());
+        Set<String> fields = getFieldsToRemove(doc, tfPopulator.getTermFrequencyFieldValues());
+        if (tfFields != null) {
+            for (String tfField : getTermFrequencyFields()) {
+                if (!tfFields.contains(tfField)) {
+                    fields.add(tfField);
+                }
+            }
+            // the populator gathers every field when all of them are removed
+            if (fields.containsAll(getTermFrequencyFields())) {
+                return null;
+            }
+        }
         
-        map.putAll(tfPopulator.getContextMap(from.first(), docKeys, fields));
-        merged.putAll(tfPopulator.document(), false);
-        return Tuples.tuple(from.first(), merged, map);
+        map.putAll(tfPopulator.getContextMap(key, docKeys, fields));
+        return map;
+    }
+    
+    /**
+     * @return the term frequency attributes gathered by the last call to {@link #getContextMap(Key, Document)}
+     */
+    public Document document() {
+        return tfPopulator.document();
+    }
+    
+    public Set<String> getTermFrequencyFields() {
+        return tfPopulator.getTermFrequencyFieldValues().keySet();
     }
     
     private Set<String> getFieldsToRemove(Document doc, Multimap<String,String> tfFVs) {
@@ -18,6 +18,9 @@ public class RangeFactory {
      *
      * Example: Given shard 20190314_4 and document docId0, will return tld doc range [20190314_4 docId0, 20190314_4 docId0x00)
      *
+     * This range covers a single document, so it is checked against the shard table bloom filters when they are configured with the
+     * {@link datawave.ingest.table.bloomfilter.ShardUidKeyFunctor}.
+     *
      * @param shard
      * @param docId
      * @return
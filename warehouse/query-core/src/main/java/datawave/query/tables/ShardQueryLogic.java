@@ -2018,6 +2018,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setAllowTermFrequencyLookup(allowTermFrequencyLookup);
     }
     
+    public boolean isDelayTermFrequencyLookup() {
+        return getConfig().isDelayTermFrequencyLookup();
+    }
+    
+    public void setDelayTermFrequencyLookup(boolean delayTermFrequencyLookup) {
+        getConfig().setDelayTermFrequencyLookup(delayTermFrequencyLookup);
+    }
+    
     public boolean isExpandUnfieldedNegations() {
         return getConfig().isExpandUnfieldedNegations();
     }
@@ -2,11 +2,13 @@ package datawave.query.tables.content;
 
 import com.google.common.collect.Lists;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.ingest.protobuf.Uid;
 import datawave.query.QueryParameters;
 import datawave.query.config.ContentQueryConfiguration;
 import datawave.query.Constants;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.transformer.ContentQueryTransformer;
+import datawave.util.time.DateHelper;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl.Parameter;
@@ -25,12 +27,19 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
@@ -46,6 +55,11 @@ import java.util.TreeSet;
  * 
  * The optional parameter content.view.name can be used to retrieve an alternate view of the document, assuming one is stored with that name. The optional
  * parameter content.view.all can be used to retrieve all documents for the parent and children Both optional parameters can be used together
+ * <p>
+ * If an index table is configured and the parameter content.index.lookup is true, terms of the form FIELD:value (e.g. UUID:1234) are also accepted. The
+ * values are resolved through the shard index in sorted batches, and the shard, datatype and uids found in the index are turned directly into document ranges.
+ * This allows bulk UUID lookups to fetch content without planning a query. The value is looked up as given and lowercased, and only index entries within the
+ * query date range are used.
  */
 public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
@@ -54,9 +68,13 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     private static final String PARENT_ONLY = "\1";
     private static final String ALL = "\u10FFFF";
     
+    private static final String DOCUMENT_FIELD = "DOCUMENT";
+    
     private int queryThreads = 100;
     private ScannerFactory scannerFactory;
     private String viewName = null;
+    private String indexTableName = null;
+    private int indexLookupBatchSize = 1000;
     
     public ContentQueryTable() {
         super();
@@ -64,6 +82,8 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
     public ContentQueryTable(final ContentQueryTable contentQueryTable) {
         super(contentQueryTable);
+        this.indexTableName = contentQueryTable.indexTableName;
+        this.indexLookupBatchSize = contentQueryTable.indexLookupBatchSize;
     }
     
     /**
@@ -110,8 +130,15 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
             end = PARENT_ONLY;
         }
         
+        // Decide whether or not to resolve FIELD:value terms through the shard index
+        p = settings.findParameter(QueryParameters.CONTENT_INDEX_LOOKUP);
+        final boolean indexLookup = (null != p) && Boolean.parseBoolean(p.getParameterValue());
+        if (indexLookup && null == this.indexTableName) {
+            throw new IllegalArgumentException("No index table is configured to resolve the terms of " + settings.getQuery());
+        }
+        
         // Configure ranges
-        final Collection<Range> ranges = this.createRanges(settings, end);
+        final Collection<Range> ranges = this.createRanges(settings, end, indexLookup, config);
         config.setRanges(ranges);
         
         return config;
@@ -121,6 +148,22 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         this.queryThreads = queryThreads;
     }
     
+    public String getIndexTableName() {
+        return this.indexTableName;
+    }
+    
+    public void setIndexTableName(String indexTableName) {
+        this.indexTableName = indexTableName;
+    }
+    
+    public int getIndexLookupBatchSize() {
+        return this.indexLookupBatchSize;
+    }
+    
+    public void setIndexLookupBatchSize(int indexLookupBatchSize) {
+        this.indexLookupBatchSize = indexLookupBatchSize;
+    }
+    
     @Override
     public void setupQuery(GenericQueryConfiguration genericConfig) throws Exception {
         if (!genericConfig.getClass().getName().equals(ContentQueryConfiguration.class.getName())) {
@@ -155,12 +198,20 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
      * 
      * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
      * 
+     * @param indexLookup whether or not FIELD:value terms are resolved through the shard index
+     * 
+     * @param config the configuration used to resolve FIELD:value terms through the shard index
+     * 
      * @return one or more Ranges
      */
-    private Collection<Range> createRanges(final Query settings, final String endKeyTerminator) {
+    private Collection<Range> createRanges(final Query settings, final String endKeyTerminator, final boolean indexLookup,
+                    final ContentQueryConfiguration config) throws TableNotFoundException {
         // Initialize the returned collection of ordered ranges
         final Set<Range> ranges = new TreeSet<>();
         
+        // Initialize the sorted values, and their fields, to resolve through the shard index
+        final SortedMap<String,Set<String>> indexedValues = new TreeMap<>();
+        
         // Get the query
         final String query = settings.getQuery().trim();
         
@@ -188,9 +239,15 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                     value = term;
                 }
                 
-                // Validate the value
+                // Collect FIELD:value terms to resolve through the shard index
                 final String[] parts = value.split("/");
-                if (parts.length != 3) {
+                final String field = (fieldSeparation > 0) ? term.substring(0, fieldSeparation).toUpperCase() : null;
+                if (indexLookup && null != field && !DOCUMENT_FIELD.equals(field) && parts.length != 3 && !value.isEmpty()) {
+                    indexedValues.computeIfAbsent(value, v -> new TreeSet<>()).add(field);
+                    indexedValues.computeIfAbsent(value.toLowerCase(), v -> new TreeSet<>()).add(field);
+                }
+                // Validate the value
+                else if (parts.length != 3) {
                     throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                                     + ". Each space-delimited term should be of the form 'DOCUMENT:shardId/datatype/eventUID'.");
                 }
@@ -204,18 +261,18 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                     log.debug("Received pieces: " + shardId + ", " + datatype + ", " + uid);
                     
                     // Create and add a Range
-                    final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
-                    final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
-                    final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
-                    final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
-                    final Range r = new Range(startKey, true, endKey, false);
-                    ranges.add(r);
-                    
-                    log.debug("Adding range: " + r);
+                    ranges.add(this.createRange(shardId, datatype, uid, endKeyTerminator));
                 }
             }
         }
         
+        if (!indexedValues.isEmpty()) {
+            this.addIndexedRanges(settings, endKeyTerminator, config, indexedValues, ranges);
+            if (ranges.isEmpty()) {
+                throw new IllegalArgumentException("No documents found in " + this.indexTableName + " for " + settings.getQuery());
+            }
+        }
+        
         if (ranges.isEmpty()) {
             throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                             + ". At least one term required of the form 'DOCUMENT:shardId/datatype/eventUID'.");
@@ -224,6 +281,86 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         return ranges;
     }
     
+    /*
+     * Create the Range over the content of a document
+     */
+    private Range createRange(final String shardId, final String datatype, final String uid, final String endKeyTerminator) {
+        final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
+        final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
+        final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
+        final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
+        final Range r = new Range(startKey, true, endKey, false);
+        
+        log.debug("Adding range: " + r);
+        return r;
+    }
+    
+    /*
+     * Resolve the values through the shard index in sorted batches, adding a Range for every document found within the query date range
+     * 
+     * @param indexedValues the values to look up, and the fields they may be indexed under
+     */
+    private void addIndexedRanges(final Query settings, final String endKeyTerminator, final ContentQueryConfiguration config,
+                    final SortedMap<String,Set<String>> indexedValues, final Set<Range> ranges) throws TableNotFoundException {
+        final String beginShard = (null != settings.getBeginDate()) ? DateHelper.format(settings.getBeginDate()) : null;
+        final String endShard = (null != settings.getEndDate()) ? DateHelper.format(settings.getEndDate()) : null;
+        
+        final List<String> values = new ArrayList<>(indexedValues.keySet());
+        for (final List<String> batch : Lists.partition(values, Math.max(1, this.indexLookupBatchSize))) {
+            final BatchScanner scanner = this.scannerFactory.newScanner(this.indexTableName, config.getAuthorizations(), this.queryThreads, settings);
+            try {
+                final Set<Range> indexRanges = new TreeSet<>();
+                final Set<String> fields = new TreeSet<>();
+                for (final String value : batch) {
+                    indexRanges.add(Range.exact(value));
+                    fields.addAll(indexedValues.get(value));
+                }
+                scanner.setRanges(indexRanges);
+                for (final String field : fields) {
+                    scanner.fetchColumnFamily(new Text(field));
+                }
+                
+                for (final Entry<Key,Value> entry : scanner) {
+                    final Key key = entry.getKey();
+                    final Set<String> valueFields = indexedValues.get(key.getRow().toString());
+                    if (null == valueFields || !valueFields.contains(key.getColumnFamily().toString())) {
+                        continue;
+                    }
+                    
+                    // The column qualifier is shardId\0datatype
+                    final String cq = key.getColumnQualifier().toString();
+                    final int separator = cq.indexOf(Constants.NULL_BYTE_STRING);
+                    if (separator < 0) {
+                        continue;
+                    }
+                    final String shardId = cq.substring(0, separator);
+                    final String datatype = cq.substring(separator + 1);
+                    if ((null != beginShard && shardId.compareTo(beginShard) < 0)
+                                    || (null != endShard && shardId.compareTo(endShard + Constants.MAX_UNICODE_STRING) > 0)) {
+                        continue;
+                    }
+                    
+                    final Uid.List uids;
+                    try {
+                        uids = Uid.List.parseFrom(entry.getValue().get());
+                    } catch (InvalidProtocolBufferException e) {
+                        log.warn("Unable to parse the uid list of " + key, e);
+                        continue;
+                    }
+                    if (uids.getIGNORE()) {
+                        log.warn("Too many documents for " + key.getColumnFamily() + ":" + key.getRow() + " in " + shardId + " to look up their content");
+                        continue;
+                    }
+                    for (final String uid : uids.getUIDList()) {
+                        ranges.add(this.createRange(shardId, datatype, uid, endKeyTerminator));
+                    }
+                }
+            } finally {
+                this.scannerFactory.close(scanner);
+            }
+        }
+    }
+    
     @Override
     public AccumuloConnectionFactory.Priority getConnectionPriority() {
         return AccumuloConnectionFactory.Priority.NORMAL;
@@ -248,6 +385,7 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         Set<String> params = new TreeSet<>();
         params.add(QueryParameters.CONTENT_VIEW_NAME);
         params.add(QueryParameters.CONTENT_VIEW_ALL);
+        params.add(QueryParameters.CONTENT_INDEX_LOOKUP);
         return params;
     }
     
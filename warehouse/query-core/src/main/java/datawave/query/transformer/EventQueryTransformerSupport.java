@@ -12,6 +12,7 @@ import datawave.webservice.query.cachedresults.CacheableQueryRow;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.BaseQueryLogicTransformer;
+import datawave.webservice.query.logic.EstimatesResultSize;
 import datawave.webservice.query.result.event.EventBase;
 import datawave.webservice.query.result.event.FieldBase;
 import datawave.webservice.query.result.event.Metadata;
@@ -33,7 +34,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
-public abstract class EventQueryTransformerSupport<I,O> extends BaseQueryLogicTransformer<I,O> implements CacheableLogic {
+public abstract class EventQueryTransformerSupport<I,O> extends BaseQueryLogicTransformer<I,O> implements CacheableLogic, EstimatesResultSize {
+    
+    // rough per object overhead used when estimating the size of an event from its fields
+    private static final long EVENT_OVERHEAD_BYTES = 128;
+    private static final long FIELD_OVERHEAD_BYTES = 64;
     
     protected EventFields eventFields = new EventFields();
     
@@ -78,6 +83,33 @@ public abstract class EventQueryTransformerSupport<I,O> extends BaseQueryLogicTr
         return this.auths;
     }
     
+    /**
+     * Use the size set on the event when transformed, falling back to the length of the field names, values and visibilities.
+     */
+    @Override
+    public long estimateResultSize(Object result) {
+        if (!(result instanceof EventBase)) {
+            return -1;
+        }
+        EventBase<?,?> event = (EventBase<?,?>) result;
+        long size = event.getSizeInBytes();
+        if (size > 0) {
+            return size;
+        }
+        size = EVENT_OVERHEAD_BYTES;
+        List<? extends FieldBase<?>> fields = event.getFields();
+        if (fields != null) {
+            for (FieldBase<?> f : fields) {
+                size += FIELD_OVERHEAD_BYTES + 2L * (length(f.getName()) + length(f.getValueString()) + length(f.getColumnVisibility()));
+            }
+        }
+        return size;
+    }
+    
+    private static int length(String s) {
+        return (s == null ? 0 : s.length());
+    }
+    
     @Override
     public List<CacheableQueryRow> writeToCache(Object o) throws QueryException {
         
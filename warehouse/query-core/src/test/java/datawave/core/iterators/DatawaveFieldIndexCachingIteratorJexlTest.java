@@ -0,0 +1,87 @@
+package datawave.core.iterators;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import datawave.query.Constants;
+import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+
+public class DatawaveFieldIndexCachingIteratorJexlTest {
+    
+    private static final int MAX_RANGE_SPLIT = 11;
+    private static final Text ROW1 = new Text("20190101_1");
+    private static final Text ROW2 = new Text("20190101_2");
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private SortedMapIterator source;
+    
+    @Before
+    public void setup() {
+        TreeMap<Key,Value> data = new TreeMap<>();
+        addFieldIndex(data, ROW1, "SMALL", 10);
+        addFieldIndex(data, ROW1, "MEDIUM", 500);
+        addFieldIndex(data, ROW2, "LARGE", 2000);
+        // keys outside of the field index are never sampled
+        for (int i = 0; i < 2000; i++) {
+            data.put(new Key(ROW1, new Text("datatype\0uid" + i), new Text("FIELD\0value")), new Value(new byte[0]));
+        }
+        source = new SortedMapIterator(data);
+    }
+    
+    private void addFieldIndex(TreeMap<Key,Value> data, Text row, String field, int count) {
+        for (int i = 0; i < count; i++) {
+            data.put(new Key(row, new Text("fi\0" + field), new Text(String.format("value%04d\0datatype\0uid", i))), new Value(new byte[0]));
+        }
+    }
+    
+    private DatawaveFieldIndexCachingIteratorJexl createIvarator(String fieldName) throws IOException {
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+        String uri = temporaryFolder.getRoot().toURI().toString();
+        // @formatter:off
+        return DatawaveFieldIndexRegexIteratorJexl.builder()
+                        .withFieldName(fieldName)
+                        .withFieldValue("value.*")
+                        .withMaxRangeSplit(MAX_RANGE_SPLIT)
+                        .withIvaratorCacheDirs(Collections.singletonList(new IvaratorCacheDir(new IvaratorCacheDirConfig(uri), fs, uri)))
+                        .build();
+        // @formatter:on
+    }
+    
+    @Test
+    public void testSmallFieldUsesOneRange() throws IOException {
+        Assert.assertEquals(1, createIvarator("SMALL").sampleRangeSplit(source, ROW1));
+        // a field without any keys in the row
+        Assert.assertEquals(1, createIvarator("LARGE").sampleRangeSplit(source, ROW1));
+    }
+    
+    @Test
+    public void testSplitScalesWithFieldSize() throws IOException {
+        // 500 of the 1000 sampled keys
+        Assert.assertEquals(6, createIvarator("MEDIUM").sampleRangeSplit(source, ROW1));
+        Assert.assertEquals(MAX_RANGE_SPLIT, createIvarator("LARGE").sampleRangeSplit(source, ROW2));
+    }
+    
+    @Test
+    public void testAnyFieldSamplesWholeFieldIndex() throws IOException {
+        DatawaveFieldIndexCachingIteratorJexl ivarator = createIvarator(Constants.ANY_FIELD);
+        // the 510 field index keys of all of the fields in the row
+        Assert.assertEquals(6, ivarator.sampleRangeSplit(source, ROW1));
+        Assert.assertEquals(MAX_RANGE_SPLIT, ivarator.sampleRangeSplit(source, ROW2));
+    }
+}
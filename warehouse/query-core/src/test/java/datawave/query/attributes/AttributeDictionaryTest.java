@@ -0,0 +1,88 @@
+package datawave.query.attributes;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AttributeDictionaryTest {
+    
+    private static final Key KEY = new Key("20190101_0", "datatype\0uid");
+    
+    private static Attribute<? extends Comparable<?>> attribute(String value) {
+        return new Content(value, KEY, true);
+    }
+    
+    /**
+     * Verify that the dictionary behaves as the TreeMap it replaces, whatever order the fields are put in.
+     */
+    @Test
+    public void testMatchesTreeMap() {
+        AttributeDictionary dictionary = new AttributeDictionary(0);
+        TreeMap<String,Attribute<? extends Comparable<?>>> expected = new TreeMap<>();
+        for (String field : Arrays.asList("B", "D", "A", "F", "C", "E", "A", "G")) {
+            Attribute<? extends Comparable<?>> attribute = attribute(field);
+            assertEquals(expected.put(field, attribute), dictionary.put(field, attribute));
+        }
+        
+        assertEquals(expected, dictionary);
+        assertEquals(expected.hashCode(), dictionary.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(dictionary.keySet()));
+        assertTrue(dictionary.containsKey("C"));
+        assertFalse(dictionary.containsKey("H"));
+        assertNull(dictionary.get("H"));
+        assertSame(expected.get("E"), dictionary.get("E"));
+        
+        assertSame(expected.remove("A"), dictionary.remove("A"));
+        assertSame(expected.remove("G"), dictionary.remove("G"));
+        assertNull(dictionary.remove("A"));
+        assertEquals(expected, dictionary);
+    }
+    
+    /**
+     * Verify that entries can be replaced and removed while iterating, as Document.reduceToKeep does.
+     */
+    @Test
+    public void testIteratorUpdates() {
+        AttributeDictionary dictionary = new AttributeDictionary();
+        for (String field : Arrays.asList("A", "B", "C", "D")) {
+            dictionary.put(field, attribute(field));
+        }
+        
+        Attribute<? extends Comparable<?>> replacement = attribute("replacement");
+        for (Iterator<Map.Entry<String,Attribute<? extends Comparable<?>>>> it = dictionary.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String,Attribute<? extends Comparable<?>>> entry = it.next();
+            if (entry.getKey().equals("A") || entry.getKey().equals("C")) {
+                it.remove();
+            } else if (entry.getKey().equals("D")) {
+                entry.setValue(replacement);
+            }
+        }
+        
+        assertEquals(Arrays.asList("B", "D"), new ArrayList<>(dictionary.keySet()));
+        assertSame(replacement, dictionary.get("D"));
+    }
+    
+    /**
+     * Verify that the field names of different documents are shared.
+     */
+    @Test
+    public void testFieldNamesInterned() {
+        Document first = new Document();
+        Document second = new Document();
+        first.put(new String("FIELD"), attribute("a"));
+        second.put(new String("FIELD"), attribute("b"));
+        
+        assertSame(first.getDictionary().keySet().iterator().next(), second.getDictionary().keySet().iterator().next());
+    }
+}
@@ -0,0 +1,69 @@
+package datawave.query.attributes;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class AttributeMetadataTest {
+    
+    /**
+     * Verify that attributes built from different keys of the same document share their metadata.
+     */
+    @Test
+    public void testMetadataShared() {
+        Content first = new Content("a", new Key("20190101_0", "datatype\0uid", "FOO\0a", "A&B", 1000L), true);
+        Content second = new Content("b", new Key("20190101_0", "fi\0BAR", "b\0datatype\0uid", "A&B", 1000L), true);
+        Content third = new Content("c", new Key("20190101_0", "datatype\0uid", "FOO\0c", "A|B", 1000L), true);
+        
+        assertEquals(new Key("20190101_0", "datatype\0uid", "", "A&B", 1000L), first.getMetadata());
+        assertSame(first.getMetadata(), second.getMetadata());
+        assertNotSame(first.getMetadata(), third.getMetadata());
+        assertSame(first.getColumnVisibility(), second.getColumnVisibility());
+        assertEquals(new ColumnVisibility("A|B"), third.getColumnVisibility());
+    }
+    
+    /**
+     * Verify that updating the metadata of one attribute does not affect the attributes it shared the metadata with.
+     */
+    @Test
+    public void testUpdateDoesNotAffectSharedMetadata() {
+        Content first = new Content("a", new Key("20190101_0", "datatype\0uid", "FOO\0a", "A&B", 1000L), true);
+        Content second = new Content("b", new Key("20190101_0", "datatype\0uid", "FOO\0b", "A&B", 1000L), true);
+        
+        second.setTimestamp(2000L);
+        second.setColumnVisibility(new ColumnVisibility("C"));
+        assertEquals(1000L, first.getTimestamp());
+        assertEquals(new ColumnVisibility("A&B"), first.getColumnVisibility());
+        assertEquals(2000L, second.getTimestamp());
+        assertEquals(new ColumnVisibility("C"), second.getColumnVisibility());
+    }
+    
+    /**
+     * Verify that deserialized attributes share their metadata.
+     */
+    @Test
+    public void testDeserializedMetadataShared() throws IOException {
+        Content content = new Content("a", new Key("20190101_0", "datatype\0uid", "FOO\0a", "A&B", 1000L), true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        content.write(new DataOutputStream(bytes));
+        
+        Content first = new Content();
+        first.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Content second = new Content();
+        second.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        
+        assertEquals(content.getColumnVisibility(), first.getColumnVisibility());
+        assertEquals(1000L, first.getTimestamp());
+        assertSame(first.getMetadata(), second.getMetadata());
+    }
+}
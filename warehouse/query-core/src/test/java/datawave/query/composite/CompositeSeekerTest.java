@@ -0,0 +1,47 @@
+package datawave.query.composite;
+
+import com.google.common.collect.HashMultimap;
+import datawave.query.composite.CompositeSeeker.FieldIndexCompositeSeeker;
+import datawave.query.composite.CompositeSeeker.ShardIndexCompositeSeeker;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class CompositeSeekerTest {
+    
+    /**
+     * Verify that the bounds of each range are used, as the split bounds are kept between keys.
+     */
+    @Test
+    public void shardIndexRangeChangeTest() {
+        ShardIndexCompositeSeeker seeker = new ShardIndexCompositeSeeker(Arrays.asList("FIELD_A", "FIELD_B"), ",", new HashMap<>());
+        
+        Range first = new Range(new Key("b,b"), true, new Key("d,d"), true);
+        Assert.assertTrue(seeker.isKeyInRange(new Key("c,c"), first));
+        Assert.assertFalse(seeker.isKeyInRange(new Key("c,e"), first));
+        Assert.assertFalse(seeker.isKeyInRange(new Key("a,c"), first));
+        
+        Range second = new Range(new Key("a,a"), true, new Key("b,z"), true);
+        Assert.assertTrue(seeker.isKeyInRange(new Key("a,c"), second));
+        Assert.assertFalse(seeker.isKeyInRange(new Key("c,c"), second));
+        
+        // a range with a different separator is split with that separator
+        Assert.assertTrue(seeker.isKeyInRange(new Key("c;c"), new Range(new Key("b;b"), true, new Key("d;d"), true), ";"));
+    }
+    
+    /**
+     * Verify that only the composite value before the datatype and uid of a field index key is compared.
+     */
+    @Test
+    public void fieldIndexValueTest() {
+        FieldIndexCompositeSeeker seeker = new FieldIndexCompositeSeeker(HashMultimap.create());
+        
+        Range range = new Range(new Key("row", "fi\0FIELD", "b,b\0"), true, new Key("row", "fi\0FIELD", "d,d\0"), true);
+        Assert.assertTrue(seeker.isKeyInRange(new Key("row", "fi\0FIELD", "c,c\0datatype\0uid"), range, ","));
+        Assert.assertFalse(seeker.isKeyInRange(new Key("row", "fi\0FIELD", "c,e\0datatype\0uid"), range, ","));
+    }
+}
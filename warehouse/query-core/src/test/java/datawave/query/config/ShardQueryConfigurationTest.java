@@ -149,6 +149,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isContainsCompositeTerms());
         Assert.assertTrue(config.isAllowFieldIndexEvaluation());
         Assert.assertTrue(config.isAllowTermFrequencyLookup());
+        Assert.assertTrue(config.isDelayTermFrequencyLookup());
         Assert.assertEquals(DocumentSerialization.DEFAULT_RETURN_TYPE, config.getReturnType());
         Assert.assertEquals(10000, config.getEventPerDayThreshold());
         Assert.assertEquals(10, config.getShardsPerDayThreshold());
@@ -0,0 +1,93 @@
+package datawave.query.iterators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import datawave.marking.MarkingFunctions;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FieldIndexCountingIteratorTest {
+    
+    private static final String ROW = "20200101_0";
+    private static final long TIMESTAMP = 1577836800000L;
+    
+    private TreeMap<Key,Value> data;
+    
+    @Before
+    public void setup() {
+        data = new TreeMap<>();
+        // a run of one visibility followed by another
+        put("blue", "uid1", "A");
+        put("blue", "uid2", "A");
+        put("blue", "uid3", "B");
+        // starts with the visibility the previous value ended with
+        put("green", "uid1", "B");
+        put("green", "uid2", "B");
+        // the same visibilities as the first value, interleaved
+        put("red", "uid1", "A");
+        put("red", "uid2", "B");
+        put("red", "uid3", "A");
+    }
+    
+    private void put(String fieldValue, String uid, String visibility) {
+        data.put(new Key(ROW, "fi\0COLOR", fieldValue + "\0datatype\0" + uid, visibility, TIMESTAMP), new Value(new byte[0]));
+    }
+    
+    private static String combine(String... visibilities) throws MarkingFunctions.Exception {
+        Set<ColumnVisibility> columnVisibilities = new HashSet<>();
+        for (String visibility : visibilities) {
+            columnVisibilities.add(new ColumnVisibility(visibility));
+        }
+        return new String(MarkingFunctions.Factory.createMarkingFunctions().combine(columnVisibilities).getExpression());
+    }
+    
+    /**
+     * @return the visibility and count returned for each field value
+     */
+    private Map<String,String> scan(FieldIndexCountingIterator iterator) throws IOException {
+        Map<String,String> counts = new HashMap<>();
+        iterator.seek(new Range(ROW), Collections.emptyList(), false);
+        while (iterator.hasTop()) {
+            Key key = iterator.getTopKey();
+            counts.put(key.getColumnQualifier().toString(), key.getColumnVisibility() + "=" + iterator.getTopValue());
+            iterator.next();
+        }
+        return counts;
+    }
+    
+    @Test
+    public void testMixedVisibilities() throws Exception {
+        Map<String,String> options = new HashMap<>();
+        options.put(FieldIndexCountingIterator.START_TIME, "20190101000000");
+        options.put(FieldIndexCountingIterator.STOP_TIME, "20210101000000");
+        options.put(FieldIndexCountingIterator.FIELD_NAMES, "COLOR");
+        
+        FieldIndexCountingIterator iterator = new FieldIndexCountingIterator();
+        iterator.init(new ColumnFamilySkippingIterator(new SortedMapIterator(data)), options, null);
+        
+        Map<String,String> expected = new HashMap<>();
+        expected.put("blue", combine("A", "B") + "=3");
+        expected.put("green", combine("B") + "=2");
+        expected.put("red", combine("A", "B") + "=3");
+        assertEquals(expected, scan(iterator));
+        assertFalse(iterator.hasTop());
+        
+        // seeking again resets the counts, while the combined visibilities are reused
+        assertEquals(expected, scan(iterator));
+    }
+}
@@ -0,0 +1,143 @@
+package datawave.query.jexl;
+
+import datawave.query.attributes.ValueTuple;
+import datawave.query.collections.FunctionalSet;
+import org.apache.commons.jexl2.Script;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JexlEvaluationPlanTest {
+    
+    private static <T extends JexlNode> List<T> find(JexlNode node, Class<T> clazz) {
+        List<T> found = new ArrayList<>();
+        if (clazz.isInstance(node)) {
+            found.add(clazz.cast(node));
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            found.addAll(find(node.jjtGetChild(i), clazz));
+        }
+        return found;
+    }
+    
+    @Test
+    public void testPlanIsCachedPerScript() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'bar'");
+        Assert.assertSame(JexlEvaluationPlan.get(script), JexlEvaluationPlan.get(script));
+        Assert.assertNotSame(JexlEvaluationPlan.get(script), JexlEvaluationPlan.get(JexlASTHelper.parseJexlQuery("FOO == 'bar'")));
+    }
+    
+    @Test
+    public void testOrChildrenFlattened() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a' || (FOO == 'b' || FOO == 'c') || FOO =~ 'd.*'");
+        JexlEvaluationPlan plan = JexlEvaluationPlan.get(script);
+        
+        List<ASTOrNode> orNodes = find(script, ASTOrNode.class);
+        ASTOrNode top = orNodes.get(0);
+        JexlEvaluationPlan.OrChildren children = plan.getOrChildren(top);
+        Assert.assertEquals(4, children.getNodes().length);
+        Assert.assertFalse(children.isAllIdentifiers());
+        Assert.assertEquals("FOO == 'a'", plan.getNodeString(children.getNodes()[0]));
+        Assert.assertEquals("FOO == 'c'", plan.getNodeString(children.getNodes()[2]));
+        
+        // the nested or nodes are only evaluated through the top level node
+        for (ASTOrNode nested : orNodes.subList(1, orNodes.size())) {
+            Assert.assertNull(plan.getOrChildren(nested));
+        }
+        
+        ASTERNode er = find(script, ASTERNode.class).get(0);
+        Assert.assertEquals("d.*", plan.getPattern(er).pattern());
+    }
+    
+    @Test
+    public void testRange() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("((_Bounded_ = true) && (NUM <= '5' && NUM >= '1')) && (FOO >= '1' && BAR <= '5')");
+        JexlEvaluationPlan plan = JexlEvaluationPlan.get(script);
+        
+        int ranges = 0;
+        for (ASTAndNode and : find(script, ASTAndNode.class)) {
+            Assert.assertTrue(plan.hasRange(and));
+            Assert.assertFalse(plan.isExceededOrThresholdMarker(and));
+            JexlEvaluationPlan.RangeNodes range = plan.getRange(and);
+            if (range != null) {
+                ranges++;
+                Assert.assertEquals("NUM", range.getIdentifier().image);
+                Assert.assertTrue(range.getLowerNode() instanceof ASTGENode);
+                Assert.assertTrue(range.getUpperNode() instanceof ASTLENode);
+            }
+        }
+        Assert.assertEquals(1, ranges);
+    }
+    
+    @Test
+    public void testPlannedEvaluation() {
+        String query = "(FOO =~ 'B.*' || FOO == 'baz') && ((_Bounded_ = true) && (NUM >= '1' && NUM <= '5')) && !(FOO =~ 'x.*')";
+        Script script = ArithmeticJexlEngines.getEngine(new DefaultArithmetic()).createScript(query);
+        
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", "bar");
+        context.set("NUM", "3");
+        Assert.assertTrue(DatawaveInterpreter.isMatched(script.execute(context)));
+        
+        // the same plan is used to evaluate the next document
+        context = new DatawaveJexlContext();
+        context.set("FOO", "bar");
+        context.set("NUM", "7");
+        Assert.assertFalse(DatawaveInterpreter.isMatched(script.execute(context)));
+        
+        context = new DatawaveJexlContext();
+        context.set("FOO", "xbar");
+        context.set("NUM", "3");
+        Assert.assertFalse(DatawaveInterpreter.isMatched(script.execute(context)));
+    }
+    
+    @Test
+    public void testFieldValues() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a' || FOO == 'b' || (FOO == 'c' || FOO == 'a')");
+        JexlEvaluationPlan plan = JexlEvaluationPlan.get(script);
+        
+        JexlEvaluationPlan.FieldValues values = plan.getOrChildren(find(script, ASTOrNode.class).get(0)).getFieldValues();
+        Assert.assertEquals(0, values.indexOf("a"));
+        Assert.assertEquals(2, values.indexOf("c"));
+        Assert.assertEquals(-1, values.indexOf("d"));
+        
+        // mixed fields and non-equality nodes are evaluated node by node
+        script = JexlASTHelper.parseJexlQuery("(FOO == 'a' || BAR == 'b') && (FOO == 'a' || FOO =~ 'b.*') && (FOO == 'a' || FOO == 1)");
+        plan = JexlEvaluationPlan.get(script);
+        for (ASTOrNode or : find(script, ASTOrNode.class)) {
+            Assert.assertNull(plan.getOrChildren(or).getFieldValues());
+        }
+    }
+    
+    @Test
+    public void testFieldValuesEvaluation() {
+        String query = "FOO == 'a' || FOO == 'b' || FOO == 'c'";
+        HitListArithmetic arithmetic = new HitListArithmetic();
+        Script script = ArithmeticJexlEngines.getEngine(arithmetic).createScript(query);
+        
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        ValueTuple c = new ValueTuple("FOO", "C", "c", null);
+        context.set("FOO", new FunctionalSet(Arrays.asList(new ValueTuple("FOO", "X", "x", null), c)));
+        Assert.assertEquals(Boolean.TRUE, script.execute(context));
+        Assert.assertEquals(Collections.singleton(c), arithmetic.getHitTuples());
+        
+        context = new DatawaveJexlContext();
+        context.set("FOO", new ValueTuple("FOO", "D", "d", null));
+        Assert.assertEquals(Boolean.FALSE, script.execute(context));
+        
+        context = new DatawaveJexlContext();
+        Assert.assertEquals(Boolean.FALSE, script.execute(context));
+    }
+}
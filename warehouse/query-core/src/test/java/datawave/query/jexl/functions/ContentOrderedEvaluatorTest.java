@@ -6,6 +6,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -283,6 +284,65 @@ public class ContentOrderedEvaluatorTest {
         Assert.assertTrue(evaluator.evaluate(offsets));
     }
     
+    @Test
+    public void isPossibleMatch_largeDocumentTest() {
+        // none of the b's follow an a
+        int[] a = new int[10000];
+        int[] b = new int[10000];
+        int[] c = new int[10000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i * 10;
+            b[i] = i * 10 + 5;
+            c[i] = i * 10 + 6;
+        }
+        
+        List<List<TermWeightPosition>> offsets = new ArrayList<>();
+        offsets.add(asList(a));
+        offsets.add(asList(b));
+        offsets.add(asList(c));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 1, new HashMap<>(), "a", "b", "c");
+        
+        Assert.assertFalse(evaluator.isPossibleMatch(offsets));
+        Assert.assertFalse(evaluator.evaluate(offsets));
+        
+        // but one does, at the end of the document
+        b[b.length - 1] = a[a.length - 1] + 1;
+        c[c.length - 1] = b[b.length - 1] + 1;
+        offsets.set(1, asList(b));
+        offsets.set(2, asList(c));
+        
+        Assert.assertTrue(evaluator.isPossibleMatch(offsets));
+    }
+    
+    @Test
+    public void isPossibleMatch_skipsTest() {
+        // b at 5 may be at 2 after its skips
+        List<List<TermWeightPosition>> offsets = new ArrayList<>();
+        offsets.add(asList(true, Arrays.asList(1), Arrays.asList(0)));
+        offsets.add(asList(true, Arrays.asList(5), Arrays.asList(3)));
+        offsets.add(asList(true, Arrays.asList(6), Arrays.asList(0)));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 1, new HashMap<>(), "a", "b", "c");
+        Assert.assertTrue(evaluator.isPossibleMatch(offsets));
+        
+        offsets.set(1, asList(true, Arrays.asList(5), Arrays.asList(2)));
+        Assert.assertFalse(evaluator.isPossibleMatch(offsets));
+    }
+    
+    @Test
+    public void isPossibleMatch_sameTermTest() {
+        // the traversal may move from b at 2 to b at 3 before moving on to c, so c at 4 must not be rejected
+        List<List<TermWeightPosition>> offsets = new ArrayList<>();
+        offsets.add(asList(1));
+        offsets.add(asList(2, 3));
+        offsets.add(asList(4));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 1, new HashMap<>(), "a", "b", "c");
+        
+        Assert.assertTrue(evaluator.isPossibleMatch(offsets));
+    }
+    
     private static class WrappedContentOrderedEvaluator extends ContentOrderedEvaluator {
         public WrappedContentOrderedEvaluator(Set<String> fields, int distance, Map<String,TermFrequencyList> termOffsetMap, String... terms) {
             super(fields, distance, Float.MIN_VALUE, termOffsetMap, terms);
@@ -0,0 +1,83 @@
+package datawave.query.metrics;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Multimap;
+
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+import datawave.webservice.query.metric.QueryMetric;
+
+public class ContentQueryMetricsIngestHelperTest {
+    
+    private ContentQueryMetricsIngestHelper.HelperDelegate<QueryMetric> delegate = new ContentQueryMetricsIngestHelper.HelperDelegate<>();
+    
+    private QueryMetric createMetric() {
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryType("RunningQuery");
+        metric.setQueryId("query-id");
+        metric.setUser("user");
+        metric.setQuery("FOO == 'bar'");
+        metric.setQueryLogic("EventQuery");
+        metric.setLifecycle(Lifecycle.INITIALIZED);
+        metric.setLastUpdated(new Date(metric.getCreateDate().getTime() + 1000));
+        metric.setNumUpdates(1);
+        return metric;
+    }
+    
+    @Test
+    public void testOnlyChangedFieldsAreAppended() {
+        QueryMetric stored = createMetric();
+        stored.addPageTime(10, 100, 1000, 1100);
+        
+        QueryMetric updated = (QueryMetric) stored.duplicate();
+        updated.addPageTime(10, 200, 2000, 2200);
+        updated.setLifecycle(Lifecycle.RESULTS);
+        updated.setLastUpdated(new Date(stored.getLastUpdated().getTime() + 60000));
+        updated.setNumUpdates(2);
+        
+        Multimap<String,String> fields = delegate.getEventFieldsToAppend(updated, stored);
+        
+        // the fields that change with every update are written to the state table
+        for (String field : QueryMetricState.COLUMNS) {
+            Assert.assertFalse(field, fields.containsKey(field));
+        }
+        Assert.assertFalse(fields.containsKey("NUM_PAGES"));
+        Assert.assertFalse(fields.containsKey("NUM_RESULTS"));
+        Assert.assertFalse(fields.containsKey("ELAPSED_TIME"));
+        // only the new page is written
+        Assert.assertTrue(fields.containsKey("PAGE_METRICS.2"));
+        Assert.assertFalse(fields.containsKey("PAGE_METRICS.1"));
+        
+        // unchanged fields are not rewritten
+        Assert.assertFalse(fields.containsKey("QUERY"));
+        Assert.assertFalse(fields.containsKey("QUERY_ID"));
+        Assert.assertFalse(fields.containsKey("USER"));
+        Assert.assertFalse(fields.containsKey("QUERY_LOGIC"));
+        Assert.assertFalse(fields.containsKey("CREATE_DATE"));
+        Assert.assertFalse(fields.containsKey("SETUP_TIME"));
+    }
+    
+    @Test
+    public void testAllFieldsAppendedWithoutWrittenMetric() {
+        QueryMetric updated = createMetric();
+        Multimap<String,String> fields = delegate.getEventFieldsToAppend(updated, null);
+        Assert.assertTrue(fields.containsKey("QUERY"));
+        Assert.assertTrue(fields.containsKey("QUERY_ID"));
+        Assert.assertTrue(fields.containsKey("USER"));
+        Assert.assertTrue(fields.containsKey("SETUP_TIME"));
+        Assert.assertFalse(fields.containsKey("LIFECYCLE"));
+    }
+    
+    @Test
+    public void testAllFieldsWritten() {
+        QueryMetric updated = createMetric();
+        Multimap<String,String> fields = delegate.getEventFieldsToWrite(updated);
+        Assert.assertTrue(fields.containsKey("QUERY"));
+        Assert.assertTrue(fields.containsKey("QUERY_ID"));
+        Assert.assertTrue(fields.containsKey("USER"));
+        Assert.assertTrue(fields.containsKey("LIFECYCLE"));
+    }
+}
@@ -0,0 +1,145 @@
+package datawave.query.metrics;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.ingest.table.config.AbstractTableConfigHelper;
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+import datawave.webservice.query.metric.QueryMetric;
+
+public class QueryMetricRollupTableConfigHelperTest {
+    
+    private static final String TABLE_NAME = "QueryMetrics_r";
+    private static final ColumnVisibility PUBLIC = new ColumnVisibility("PUBLIC");
+    
+    private Connector connector;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(QueryMetricRollupTableConfigHelperTest.class.getName()).getConnector("root", new PasswordToken(""));
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("PUBLIC"));
+        connector.tableOperations().create(TABLE_NAME);
+        
+        Configuration conf = new Configuration();
+        conf.set(QueryMetricRollups.ROLLUP_TABLE_NAME, TABLE_NAME);
+        QueryMetricRollupTableConfigHelper helper = new QueryMetricRollupTableConfigHelper();
+        helper.setup(TABLE_NAME, conf, Logger.getLogger(QueryMetricRollupTableConfigHelperTest.class));
+        helper.configure(connector.tableOperations());
+    }
+    
+    @Test
+    public void testIteratorPrioritiesAreUnique() throws Exception {
+        Map<String,String> properties = AbstractTableConfigHelper.generateInitialTableProperties();
+        for (Entry<String,String> property : connector.tableOperations().getProperties(TABLE_NAME)) {
+            properties.put(property.getKey(), property.getValue());
+        }
+        for (IteratorScope scope : IteratorScope.values()) {
+            String prefix = Property.TABLE_ITERATOR_PREFIX + scope.name() + ".";
+            Map<String,String> priorities = new HashMap<>();
+            for (Entry<String,String> property : properties.entrySet()) {
+                String name = property.getKey().startsWith(prefix) ? property.getKey().substring(prefix.length()) : null;
+                if (name != null && !name.contains(".")) {
+                    String priority = property.getValue().split(",")[0];
+                    String existing = priorities.put(priority, name);
+                    Assert.assertNull(scope + " iterators " + existing + " and " + name + " share priority " + priority, existing);
+                }
+            }
+            Assert.assertTrue(priorities.containsValue("max"));
+        }
+    }
+    
+    @Test
+    public void testReadCombinesVersions() throws Exception {
+        QueryMetric defined = new QueryMetric();
+        defined.setCreateDate(new Date(0));
+        defined.setQueryId("query-id");
+        defined.setUser("user");
+        defined.setLifecycle(Lifecycle.DEFINED);
+        
+        QueryMetric firstPage = (QueryMetric) defined.duplicate();
+        firstPage.setLifecycle(Lifecycle.RESULTS);
+        firstPage.addPageTime(10, 200, 0, 0);
+        
+        QueryMetric secondPage = (QueryMetric) firstPage.duplicate();
+        secondPage.setLifecycle(Lifecycle.CLOSED);
+        secondPage.addPageTime(5, 3000, 0, 0);
+        
+        QueryMetric other = (QueryMetric) defined.duplicate();
+        other.setQueryId("other-query-id");
+        other.addPageTime(20, 100, 0, 0);
+        
+        QueryMetricRollups.Rollup definedTotals = QueryMetricRollups.update(null, defined);
+        QueryMetricRollups.Rollup firstPageTotals = QueryMetricRollups.update(definedTotals, firstPage);
+        QueryMetricRollups.Rollup secondPageTotals = QueryMetricRollups.update(firstPageTotals, secondPage);
+        
+        // each mutation is written separately, so that every column holds several versions, and the first page is written again after the second, as a
+        // retried write would be
+        BatchWriterConfig config = new BatchWriterConfig().setMaxLatency(0, TimeUnit.SECONDS).setMaxMemory(0).setMaxWriteThreads(1);
+        BatchWriter writer = connector.createBatchWriter(TABLE_NAME, config);
+        writer.addMutation(QueryMetricRollups.getMutation(defined, definedTotals, "user", PUBLIC));
+        writer.flush();
+        writer.addMutation(QueryMetricRollups.getMutation(firstPage, firstPageTotals, "user", PUBLIC));
+        writer.flush();
+        writer.addMutation(QueryMetricRollups.getMutation(secondPage, secondPageTotals, "user", PUBLIC));
+        writer.flush();
+        writer.addMutation(QueryMetricRollups.getMutation(firstPage, firstPageTotals, "user", PUBLIC));
+        writer.flush();
+        writer.addMutation(QueryMetricRollups.getMutation(other, QueryMetricRollups.update(null, other), "other-user", PUBLIC));
+        writer.close();
+        
+        QueryMetricRollups.Rollup rollup = read(null).get(new Date(0));
+        Assert.assertEquals(2, rollup.getQueries());
+        Assert.assertEquals(3, rollup.getPages());
+        Assert.assertEquals(35, rollup.getPageResults());
+        Assert.assertEquals(3300, rollup.getPageTime());
+        Assert.assertEquals(20, rollup.getMaxPageResults());
+        Assert.assertEquals(3000, rollup.getMaxPageTime());
+        
+        rollup = read("user").get(new Date(0));
+        Assert.assertEquals(1, rollup.getQueries());
+        Assert.assertEquals(2, rollup.getPages());
+        Assert.assertEquals(15, rollup.getPageResults());
+        
+        try (Scanner scanner = connector.createScanner(TABLE_NAME, new Authorizations("PUBLIC"))) {
+            QueryMetricRollups.fetchQueryColumns(scanner, secondPage, "user");
+            Assert.assertEquals(2, QueryMetricRollups.readQuery(scanner).getPages());
+        }
+    }
+    
+    private SortedMap<Date,QueryMetricRollups.Rollup> read(String user) throws Exception {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        try (Scanner scanner = connector.createScanner(TABLE_NAME, new Authorizations("PUBLIC"))) {
+            scanner.setRange(QueryMetricRollups.getRange(new Date(0), new Date(0)));
+            QueryMetricRollups.fetchSummaryColumns(scanner, user);
+            scanner.forEach(entries::add);
+        }
+        
+        SortedMap<Date,QueryMetricRollups.Rollup> rollups = QueryMetricRollups.read(entries);
+        Assert.assertEquals(1, rollups.size());
+        return rollups;
+    }
+}
@@ -0,0 +1,147 @@
+package datawave.query.metrics;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Test;
+
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+import datawave.webservice.query.metric.QueryMetric;
+import datawave.webservice.query.metric.QueryMetricSummary;
+
+public class QueryMetricRollupsTest {
+    
+    private static final ColumnVisibility PUBLIC = new ColumnVisibility("PUBLIC");
+    
+    private QueryMetric createMetric(Date createDate) {
+        QueryMetric metric = new QueryMetric();
+        metric.setCreateDate(createDate);
+        metric.setQueryId("query-id");
+        metric.setUser("user");
+        metric.setLifecycle(Lifecycle.DEFINED);
+        return metric;
+    }
+    
+    private Map<String,Long> getColumns(Mutation m) {
+        Map<String,Long> columns = new HashMap<>();
+        for (ColumnUpdate update : m.getUpdates()) {
+            columns.put(new String(update.getColumnFamily()) + ":" + new String(update.getColumnQualifier()), Long.parseLong(new String(update.getValue())));
+        }
+        return columns;
+    }
+    
+    @Test
+    public void testFirstWriteCountsQuery() {
+        QueryMetric metric = createMetric(new Date(0));
+        Mutation m = QueryMetricRollups.getMutation(metric, QueryMetricRollups.update(null, metric), "user", PUBLIC);
+        
+        Assert.assertEquals("1970010100", new String(m.getRow()));
+        Map<String,Long> columns = getColumns(m);
+        Assert.assertEquals(6, columns.size());
+        Assert.assertEquals(1L, (long) columns.get("QUERIES:user\0query-id"));
+        Assert.assertEquals(0L, (long) columns.get("PAGES:user\0query-id"));
+    }
+    
+    @Test
+    public void testUpdateWritesTotals() {
+        QueryMetric previous = createMetric(new Date(0));
+        previous.setLifecycle(Lifecycle.RESULTS);
+        previous.addPageTime(10, 200, 0, 0);
+        QueryMetricRollups.Rollup previousTotals = QueryMetricRollups.update(null, previous);
+        
+        // the page already counted is sent again along with the new page
+        QueryMetric updated = (QueryMetric) previous.duplicate();
+        updated.setLifecycle(Lifecycle.CLOSED);
+        updated.addPageTime(5, 3000, 0, 0);
+        QueryMetricRollups.Rollup totals = QueryMetricRollups.update(previousTotals, updated);
+        
+        Map<String,Long> columns = getColumns(QueryMetricRollups.getMutation(updated, totals, "user", PUBLIC));
+        Assert.assertEquals(1L, (long) columns.get("QUERIES:user\0query-id"));
+        Assert.assertEquals(2L, (long) columns.get("PAGES:user\0query-id"));
+        Assert.assertEquals(15L, (long) columns.get("PAGE_RESULTS:user\0query-id"));
+        Assert.assertEquals(3200L, (long) columns.get("PAGE_TIME:user\0query-id"));
+        Assert.assertEquals(10L, (long) columns.get("MAX_PAGE_RESULTS:user\0query-id"));
+        Assert.assertEquals(3000L, (long) columns.get("MAX_PAGE_TIME:user\0query-id"));
+        
+        // nothing changed
+        Assert.assertSame(totals, QueryMetricRollups.update(totals, updated));
+    }
+    
+    @Test
+    public void testRetriedUpdateNotCountedTwice() {
+        QueryMetric metric = createMetric(new Date(0));
+        metric.addPageTime(10, 200, 0, 0);
+        QueryMetricRollups.Rollup totals = QueryMetricRollups.update(null, metric);
+        
+        // the update is written twice, as it is when a failed write is retried, and once more under another visibility
+        TreeMap<Key,Value> table = new TreeMap<>();
+        for (Mutation m : new Mutation[] {QueryMetricRollups.getMutation(metric, totals, "user", PUBLIC),
+                QueryMetricRollups.getMutation(metric, totals, "user", PUBLIC),
+                QueryMetricRollups.getMutation(metric, totals, "user", new ColumnVisibility("PRIVATE"))}) {
+            for (ColumnUpdate update : m.getUpdates()) {
+                Key key = new Key(m.getRow(), update.getColumnFamily(), update.getColumnQualifier(), update.getColumnVisibility(), 0);
+                // the versions of a column are combined to the greatest
+                table.merge(key, new Value(update.getValue()), (a, b) -> Long.parseLong(a.toString()) >= Long.parseLong(b.toString()) ? a : b);
+            }
+        }
+        
+        QueryMetricRollups.Rollup rollup = QueryMetricRollups.read(table.entrySet()).get(new Date(0));
+        Assert.assertEquals(1, rollup.getQueries());
+        Assert.assertEquals(1, rollup.getPages());
+        Assert.assertEquals(10, rollup.getPageResults());
+        Assert.assertEquals(200, rollup.getPageTime());
+        
+        // the totals read back are continued from rather than counted again
+        QueryMetricRollups.Rollup stored = QueryMetricRollups.readQuery(table.entrySet());
+        Assert.assertEquals(10, stored.getPageResults());
+        Assert.assertSame(stored, QueryMetricRollups.update(stored, metric));
+    }
+    
+    @Test
+    public void testReadAggregatesUsersAndVisibilities() {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        TreeMap<Key,Value> table = new TreeMap<>();
+        table.put(new Key("1970010100", "QUERIES", "user1\0q1", "A"), new Value("1".getBytes()));
+        table.put(new Key("1970010100", "QUERIES", "user1\0q1", "B"), new Value("1".getBytes()));
+        table.put(new Key("1970010100", "QUERIES", "user1\0q2", "A"), new Value("1".getBytes()));
+        table.put(new Key("1970010100", "QUERIES", "user2\0q3", "A"), new Value("1".getBytes()));
+        table.put(new Key("1970010100", "PAGES", "user1\0q1", "A"), new Value("3".getBytes()));
+        table.put(new Key("1970010100", "PAGES", "user1\0q1", "B"), new Value("3".getBytes()));
+        table.put(new Key("1970010100", "PAGES", "user1\0q2", "A"), new Value("1".getBytes()));
+        table.put(new Key("1970010100", "PAGE_RESULTS", "user1\0q1", "A"), new Value("30".getBytes()));
+        table.put(new Key("1970010100", "PAGE_RESULTS", "user1\0q2", "A"), new Value("10".getBytes()));
+        table.put(new Key("1970010100", "MAX_PAGE_TIME", "user1\0q1", "A"), new Value("70".getBytes()));
+        table.put(new Key("1970010100", "MAX_PAGE_TIME", "user2\0q3", "A"), new Value("90".getBytes()));
+        table.put(new Key("1970010101", "QUERIES", "user1\0q4", "A"), new Value("1".getBytes()));
+        entries.addAll(table.entrySet());
+        
+        SortedMap<Date,QueryMetricRollups.Rollup> rollups = QueryMetricRollups.read(entries);
+        Assert.assertEquals(2, rollups.size());
+        QueryMetricRollups.Rollup first = rollups.get(new Date(0));
+        // the query written under both visibilities is counted once
+        Assert.assertEquals(3, first.getQueries());
+        Assert.assertEquals(4, first.getPages());
+        Assert.assertEquals(40, first.getPageResults());
+        Assert.assertEquals(90, first.getMaxPageTime());
+        Assert.assertEquals(1, rollups.get(new Date(3600 * 1000)).getQueries());
+        
+        QueryMetricSummary summary = new QueryMetricSummary();
+        first.addTo(summary);
+        Assert.assertEquals(3, summary.getQueryCount());
+        Assert.assertEquals(4, summary.getTotalPages());
+        Assert.assertEquals(40, summary.getTotalPageResultSize());
+        Assert.assertEquals(90, summary.getMaxPageResponseTime());
+    }
+}
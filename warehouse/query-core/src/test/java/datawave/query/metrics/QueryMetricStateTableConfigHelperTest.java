@@ -0,0 +1,104 @@
+package datawave.query.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.query.metric.BaseQueryMetric.Lifecycle;
+import datawave.webservice.query.metric.QueryMetric;
+
+public class QueryMetricStateTableConfigHelperTest {
+    
+    private static final String TABLE_NAME = "QueryMetrics_state";
+    private static final ColumnVisibility PUBLIC = new ColumnVisibility("PUBLIC");
+    
+    private Connector connector;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(QueryMetricStateTableConfigHelperTest.class.getName()).getConnector("root", new PasswordToken(""));
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("PUBLIC"));
+        connector.tableOperations().create(TABLE_NAME);
+        
+        Configuration conf = new Configuration();
+        conf.set(QueryMetricState.STATE_TABLE_NAME, TABLE_NAME);
+        QueryMetricStateTableConfigHelper helper = new QueryMetricStateTableConfigHelper();
+        helper.setup(TABLE_NAME, conf, Logger.getLogger(QueryMetricStateTableConfigHelperTest.class));
+        helper.configure(connector.tableOperations());
+    }
+    
+    private QueryMetric createMetric(Lifecycle lifecycle, long lastUpdated, long numUpdates, long nextCount) {
+        QueryMetric metric = new QueryMetric();
+        metric.setCreateDate(new Date(0));
+        metric.setQueryId("query-id");
+        metric.setLifecycle(lifecycle);
+        metric.setLastUpdated(new Date(lastUpdated));
+        metric.setNumUpdates(numUpdates);
+        metric.setNextCount(nextCount);
+        return metric;
+    }
+    
+    private Map<String,Map<String,String>> read() throws Exception {
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        try (Scanner scanner = connector.createScanner(TABLE_NAME, new Authorizations("PUBLIC"))) {
+            scanner.forEach(entries::add);
+        }
+        return QueryMetricState.read(entries);
+    }
+    
+    @Test
+    public void testUpdatesMergedOutOfOrder() throws Exception {
+        QueryMetric defined = createMetric(Lifecycle.DEFINED, 1000, 0, 0);
+        QueryMetric maxWork = createMetric(Lifecycle.MAXWORK, 2000, 1, 50);
+        QueryMetric closed = createMetric(Lifecycle.CLOSED, 3000, 2, 100);
+        
+        // each mutation is written separately, so that every column holds several versions, and the last update is written before the others
+        BatchWriterConfig config = new BatchWriterConfig().setMaxLatency(0, TimeUnit.SECONDS).setMaxMemory(0).setMaxWriteThreads(1);
+        BatchWriter writer = connector.createBatchWriter(TABLE_NAME, config);
+        for (QueryMetric metric : new QueryMetric[] {closed, defined, maxWork, maxWork}) {
+            writer.addMutation(QueryMetricState.getMutation(metric, PUBLIC));
+            writer.flush();
+        }
+        writer.close();
+        
+        Map<String,Map<String,String>> states = read();
+        Assert.assertEquals(Collections.singleton("query-id"), states.keySet());
+        
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryId("query-id");
+        QueryMetricState.apply(metric, states.get("query-id"));
+        // the lifecycle is the most recent even though it is not the greatest
+        Assert.assertEquals(Lifecycle.CLOSED, metric.getLifecycle());
+        Assert.assertEquals(new Date(3000), metric.getLastUpdated());
+        Assert.assertEquals(2, metric.getNumUpdates());
+        Assert.assertEquals(100, metric.getNextCount());
+    }
+    
+    @Test
+    public void testMetricWithoutStateUnchanged() {
+        QueryMetric metric = createMetric(Lifecycle.RESULTS, 1000, 1, 10);
+        QueryMetricState.apply(metric, null);
+        Assert.assertEquals(Lifecycle.RESULTS, metric.getLifecycle());
+        Assert.assertEquals(1, metric.getNumUpdates());
+    }
+}
@@ -0,0 +1,183 @@
+package datawave.query.postprocessing.tf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.query.Constants;
+import datawave.query.attributes.Attribute;
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.function.JexlEvaluation;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.HitListArithmetic;
+import datawave.query.util.Tuple3;
+import datawave.query.util.Tuples;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DelayedTermOffsetContextTest {
+    
+    private static final Key KEY = new Key("shard", "datatype\0uid");
+    
+    private Document termFrequencies;
+    private Document fetched;
+    private List<Set<String>> fetchedFields;
+    private int fetches;
+    
+    /**
+     * Counts the fetches and the fields fetched in place of reading the term frequencies with a {@link TermOffsetPopulator}
+     */
+    private class TestTermOffsetFunction extends TermOffsetFunction {
+        public TestTermOffsetFunction() {
+            super(null, Collections.emptySet());
+        }
+        
+        @Override
+        public Map<String,Object> getContextMap(Key key, Document doc, Set<String> tfFields) {
+            fetches++;
+            fetchedFields.add(tfFields);
+            fetched = new Document();
+            for (String field : termFrequencies.getDictionary().keySet()) {
+                if (tfFields == null || tfFields.contains(field)) {
+                    fetched.put(field, termFrequencies.get(field));
+                }
+            }
+            Map<String,Object> map = new HashMap<>();
+            map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, new HashMap<>());
+            return map;
+        }
+        
+        @Override
+        public Document document() {
+            return fetched;
+        }
+        
+        @Override
+        public Set<String> getTermFrequencyFields() {
+            return termFrequencies.getDictionary().keySet();
+        }
+    }
+    
+    @Before
+    public void setup() {
+        fetches = 0;
+        fetchedFields = new ArrayList<>();
+        termFrequencies = new Document();
+        termFrequencies.put("TEXT", new Content("b", KEY, true));
+    }
+    
+    private Document createDocument(String... fieldValues) {
+        Document document = new Document();
+        for (int i = 0; i < fieldValues.length; i += 2) {
+            document.put(fieldValues[i], new Content(fieldValues[i + 1], KEY, true));
+        }
+        return document;
+    }
+    
+    private Tuple3<Key,Document,DatawaveJexlContext> createContext(Document document, Collection<String> variables) {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        document.visit(variables, context);
+        DelayedTermOffsetFunction function = new DelayedTermOffsetFunction(new TestTermOffsetFunction(), variables);
+        return function.apply(Tuples.tuple(KEY, document, context));
+    }
+    
+    @Test
+    public void testRejectedWithoutFetch() {
+        Document document = createDocument("FOO", "x");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Arrays.asList("FOO", "TEXT"));
+        
+        // the conjunction is rejected before the term frequency field is looked up
+        Assert.assertFalse(new JexlEvaluation("FOO == 'y' && TEXT == 'b'", new HitListArithmetic()).apply(input));
+        Assert.assertEquals(0, fetches);
+        Assert.assertNull(document.get("TEXT"));
+    }
+    
+    @Test
+    public void testMatchWithoutTermFrequencies() {
+        Document document = createDocument("FOO", "x");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Arrays.asList("FOO", "TEXT"));
+        
+        // the term frequencies are still gathered for the matching document
+        Assert.assertTrue(new JexlEvaluation("FOO == 'x'").apply(input));
+        Assert.assertEquals(1, fetches);
+        Assert.assertNotNull(document.get("TEXT"));
+    }
+    
+    @Test
+    public void testMatchThroughAnyField() {
+        Document document = createDocument("FOO", "x");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Collections.singleton(Constants.ANY_FIELD));
+        
+        Assert.assertTrue(new JexlEvaluation(Constants.ANY_FIELD + " == 'b'").apply(input));
+        Assert.assertEquals(1, fetches);
+        
+        // the any field holds the values of the document as well as the term frequency values
+        Object any = ((DelayedTermOffsetContext) input.third()).getDelegate().get(Constants.ANY_FIELD);
+        Assert.assertTrue(any instanceof HashSet);
+        Assert.assertEquals(2, ((Collection<?>) any).size());
+    }
+    
+    @Test
+    public void testMatchOnTermFrequencyFieldWithValues() {
+        Document document = createDocument("FOO", "x", "TEXT", "a");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Arrays.asList("FOO", "TEXT"));
+        Collection<?> values = (Collection<?>) ((DelayedTermOffsetContext) input.third()).getDelegate().get("TEXT");
+        
+        Assert.assertTrue(new JexlEvaluation("FOO == 'x' && TEXT == 'b'", new HitListArithmetic()).apply(input));
+        Assert.assertEquals(1, fetches);
+        
+        // the values in the context before the fetch are copied rather than added to
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals(2, ((Collection<?>) input.third().get("TEXT")).size());
+        
+        // the term frequency attributes are in the document before the hit terms are gathered
+        Attribute<?> text = document.get("TEXT");
+        Assert.assertTrue(text instanceof Attributes);
+        Assert.assertEquals(2, ((Attributes) text).size());
+        Set<Object> hits = new HashSet<>();
+        for (Attribute<?> hit : ((Attributes) document.get(JexlEvaluation.HIT_TERM_FIELD)).getAttributes()) {
+            hits.add(hit.getData());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("FOO:x", "TEXT:b")), hits);
+    }
+    
+    @Test
+    public void testFetchLookedUpFieldOnly() {
+        termFrequencies.put("BODY", new Content("c", KEY, true));
+        Document document = createDocument("FOO", "x");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Arrays.asList("FOO", "TEXT", "BODY"));
+        
+        // the conjunction is rejected by the first term frequency field, so the other is never read
+        Assert.assertFalse(new JexlEvaluation("TEXT == 'a' && BODY == 'c'", new HitListArithmetic()).apply(input));
+        Assert.assertEquals(Collections.singletonList(Collections.singleton("TEXT")), fetchedFields);
+        Assert.assertNull(document.get("BODY"));
+    }
+    
+    @Test
+    public void testMatchFetchesRemainingFields() {
+        termFrequencies.put("BODY", new Content("c", KEY, true));
+        Document document = createDocument("FOO", "x");
+        Tuple3<Key,Document,DatawaveJexlContext> input = createContext(document, Arrays.asList("FOO", "TEXT", "BODY"));
+        
+        // the field looked up is fetched alone, and the matching document is populated with the rest
+        Assert.assertTrue(new JexlEvaluation("TEXT == 'b'", new HitListArithmetic()).apply(input));
+        Assert.assertEquals(Arrays.asList(Collections.singleton("TEXT"), Collections.singleton("BODY")), fetchedFields);
+        Assert.assertNotNull(document.get("TEXT"));
+        Assert.assertNotNull(document.get("BODY"));
+        
+        // every field is fetched already, so looking up the term offsets reads nothing more
+        input.third().get(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME);
+        Assert.assertEquals(2, fetches);
+    }
+}
@@ -1,9 +1,12 @@
 package datawave.query.ranges;
 
+import datawave.ingest.table.bloomfilter.ShardUidKeyFunctor;
 import org.apache.accumulo.core.data.Range;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class RangeFactoryTest {
     
@@ -35,6 +38,15 @@ public class RangeFactoryTest {
         assertEquals(expectedEndKeyCF, tldDocRange.getEndKey().getColumnFamily().toString());
     }
     
+    @Test
+    public void testDocumentSpecificRangeUsesBloomFilter() {
+        ShardUidKeyFunctor functor = new ShardUidKeyFunctor();
+        assertNotNull(functor.transform(RangeFactory.createDocumentSpecificRange("20190314_0", "datatype\0docId0")));
+        // tld ranges span the child documents
+        assertNull(functor.transform(RangeFactory.createTldDocumentSpecificRange("20190314_0", "datatype\0docId0")));
+        assertNull(functor.transform(RangeFactory.createShardRange("20190314_0")));
+    }
+    
     @Test
     public void testBuildShardRange() {
         String shard = "20190314_0";
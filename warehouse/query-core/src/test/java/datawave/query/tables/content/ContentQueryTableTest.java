@@ -0,0 +1,129 @@
+package datawave.query.tables.content;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.ingest.protobuf.Uid;
+import datawave.query.Constants;
+import datawave.query.QueryParameters;
+import datawave.util.time.DateHelper;
+import datawave.webservice.query.QueryImpl;
+
+public class ContentQueryTableTest {
+    
+    private static final String SHARD_TABLE = "shard";
+    private static final String INDEX_TABLE = "shardIndex";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations());
+    
+    private Connector connector;
+    private ContentQueryTable logic;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(ContentQueryTableTest.class.getName() + UUID.randomUUID()).getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(SHARD_TABLE);
+        connector.tableOperations().create(INDEX_TABLE);
+        
+        BatchWriter writer = connector.createBatchWriter(INDEX_TABLE, new BatchWriterConfig());
+        writer.addMutation(createIndexMutation("abc", "UUID", "20190101_0", "uid1", "uid2"));
+        writer.addMutation(createIndexMutation("abc", "OTHER", "20190101_0", "uid9"));
+        // outside of the query date range
+        writer.addMutation(createIndexMutation("abc", "UUID", "20180101_0", "uid4"));
+        // indexed lowercased
+        writer.addMutation(createIndexMutation("def", "UUID", "20190102_1", "uid3"));
+        // too many documents to list their uids
+        Mutation ignored = new Mutation("ghi");
+        ignored.put("UUID", "20190101_0\0datatype", new Value(Uid.List.newBuilder().setIGNORE(true).setCOUNT(50).build().toByteArray()));
+        writer.addMutation(ignored);
+        writer.close();
+        
+        logic = new ContentQueryTable();
+        logic.setTableName(SHARD_TABLE);
+        logic.setIndexTableName(INDEX_TABLE);
+    }
+    
+    private Mutation createIndexMutation(String value, String field, String shard, String... uids) {
+        Uid.List uidList = Uid.List.newBuilder().setIGNORE(false).setCOUNT(uids.length).addAllUID(Arrays.asList(uids)).build();
+        Mutation mutation = new Mutation(value);
+        mutation.put(field, shard + Constants.NULL_BYTE_STRING + "datatype", new Value(uidList.toByteArray()));
+        return mutation;
+    }
+    
+    private QueryImpl createSettings(String query, boolean indexLookup) {
+        QueryImpl settings = new QueryImpl();
+        settings.setId(UUID.randomUUID());
+        settings.setQueryLogicName("ContentQuery");
+        settings.setQuery(query);
+        settings.setBeginDate(DateHelper.parse("20190101"));
+        settings.setEndDate(DateHelper.parse("20190131"));
+        if (indexLookup) {
+            settings.addParameter(QueryParameters.CONTENT_INDEX_LOOKUP, "true");
+        }
+        return settings;
+    }
+    
+    private Set<Range> getRanges(QueryImpl settings) throws Exception {
+        return new TreeSet<>(logic.initialize(connector, settings, AUTHS).getRanges());
+    }
+    
+    private Range createRange(String shard, String uid) {
+        String cq = "datatype" + Constants.NULL_BYTE_STRING + uid;
+        return new Range(new Key(shard, ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY, cq + Constants.NULL_BYTE_STRING), true,
+                        new Key(shard, ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY, cq + "\1"), false);
+    }
+    
+    @Test
+    public void testDocumentTerms() throws Exception {
+        Set<Range> expected = new TreeSet<>(Arrays.asList(createRange("20190105_2", "uid5"), createRange("20190106_3", "uid6")));
+        Assert.assertEquals(expected, getRanges(createSettings("DOCUMENT:20190105_2/datatype/uid5 20190106_3/datatype/uid6", false)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFieldTermsRequireIndexLookup() throws Exception {
+        // the index table is configured, but the shard index is only scanned when requested
+        getRanges(createSettings("UUID:abc", false));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexLookupRequiresIndexTable() throws Exception {
+        logic.setIndexTableName(null);
+        getRanges(createSettings("DOCUMENT:20190105_2/datatype/uid5", true));
+    }
+    
+    @Test
+    public void testIndexedRanges() throws Exception {
+        // resolve one value per batch
+        logic.setIndexLookupBatchSize(1);
+        // @formatter:off
+        Set<Range> expected = new TreeSet<>(Arrays.asList(
+                        createRange("20190101_0", "uid1"),
+                        createRange("20190101_0", "uid2"),
+                        createRange("20190102_1", "uid3"),
+                        createRange("20190105_2", "uid5")));
+        // @formatter:on
+        Assert.assertEquals(expected, getRanges(createSettings("UUID:abc uuid:DEF UUID:ghi DOCUMENT:20190105_2/datatype/uid5", true)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoIndexedDocuments() throws Exception {
+        getRanges(createSettings("UUID:missing", true));
+    }
+}
@@ -1,5 +1,6 @@
 package datawave.webservice.query.database;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,6 +8,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -27,6 +29,8 @@ import javax.sql.rowset.RowSetProvider;
 
 import datawave.configuration.spring.SpringBean;
 import datawave.webservice.results.cached.CachedResultsParameters;
+import datawave.webservice.results.cached.CachedRunningQuery;
+import datawave.webservice.results.cached.ColumnarCachedResults;
 import org.apache.log4j.Logger;
 
 /**
@@ -107,6 +111,32 @@ public class CachedResultsCleanupBean {
         } catch (SQLException e) {
             log.error("Error cleaning up cached result objects: " + e.getMessage());
         }
+        cleanupColumnarResults();
+    }
+    
+    /**
+     * Removes the columnar cached results files, and their cached queries, that are older than the days to live.
+     */
+    private void cleanupColumnarResults() {
+        File directory = CachedRunningQuery.getColumnarDirectory();
+        if (directory == null) {
+            return;
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(ColumnarCachedResults.FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(cachedResultsCleanupConfiguration.getDaysToLive());
+        for (File file : files) {
+            if (file.lastModified() < cutoff) {
+                String viewName = file.getName().substring(0, file.getName().length() - ColumnarCachedResults.FILE_SUFFIX.length());
+                if (file.delete()) {
+                    removeCrqRow(viewName);
+                } else {
+                    log.error("Unable to delete " + file);
+                }
+            }
+        }
     }
     
     private void removeCrqRow(String id) {
@@ -259,6 +259,7 @@ public class CachedResultsBean {
         }
         
         CachedRunningQuery.setDatasource(ds);
+        CachedRunningQuery.setColumnarDirectory(getColumnarDirectory());
         CachedRunningQuery.setQueryFactory(queryFactory);
         CachedRunningQuery.setResponseObjectFactory(responseObjectFactory);
         
@@ -272,6 +273,24 @@ public class CachedResultsBean {
         }
     }
     
+    /*
+     * Get the directory of the columnar cached results. The directory is used even if the SQL backend is configured, so that results loaded while the columnar
+     * backend was configured can still be read.
+     */
+    private File getColumnarDirectory() {
+        String dir = cachedResultsConfiguration.getColumnarDirectory();
+        File directory;
+        if (StringUtils.isBlank(dir)) {
+            directory = new File(System.getProperty("jboss.server.data.dir"), "CachedResults");
+        } else {
+            directory = new File(dir);
+        }
+        if (cachedResultsConfiguration.isColumnarBackend() && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new EJBException("Unable to create the columnar cached results directory " + directory);
+        }
+        return directory;
+    }
+    
     protected void loadBatch(PreparedStatement ps, String owner, String queryId, String logicName, Map<String,Integer> fieldMap, CacheableQueryRow cqo,
                     int maxFieldSize) throws SQLException {
         
@@ -356,6 +375,7 @@ public class CachedResultsBean {
         String viewName = "v" + nameBase;
         Connection con = null;
         PreparedStatement ps = null;
+        ColumnarCachedResults.Writer columnarWriter = null;
         boolean tableCreated = false;
         boolean viewCreated = false;
         CachedRunningQuery crq = null;
@@ -497,21 +517,26 @@ public class CachedResultsBean {
                 throw new IllegalArgumentException(logic.getLogicName() + " does not support CachedResults calls");
             }
             
-            try {
-                con = ds.getConnection();
-                // Create the result table for this query
-                Statement s = con.createStatement();
-                String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
-                createTable = createTable.replace(TABLE, tableName);
-                s.execute(createTable);
-                s.close();
-                tableCreated = true;
-                // Parse the PreparedStatement
-                String insert = cachedResultsConfiguration.getParameters().get("INSERT");
-                insert = insert.replace(TABLE, tableName);
-                ps = con.prepareStatement(insert);
-            } catch (SQLException sqle) {
-                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
+            if (cachedResultsConfiguration.isColumnarBackend()) {
+                // Write the results to a columnar file for this query instead of a table
+                columnarWriter = new ColumnarCachedResults.Writer(ColumnarCachedResults.getFile(CachedRunningQuery.getColumnarDirectory(), viewName));
+            } else {
+                try {
+                    con = ds.getConnection();
+                    // Create the result table for this query
+                    Statement s = con.createStatement();
+                    String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
+                    createTable = createTable.replace(TABLE, tableName);
+                    s.execute(createTable);
+                    s.close();
+                    tableCreated = true;
+                    // Parse the PreparedStatement
+                    String insert = cachedResultsConfiguration.getParameters().get("INSERT");
+                    insert = insert.replace(TABLE, tableName);
+                    ps = con.prepareStatement(insert);
+                } catch (SQLException sqle) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
+                }
             }
             
             // Object for keeping track of which fields are placed in which
@@ -557,6 +582,11 @@ public class CachedResultsBean {
                     
                     for (CacheableQueryRow cacheableQueryObject : cacheableQueryRowList) {
                         
+                        if (columnarWriter != null) {
+                            columnarWriter.add(owner, queryId, logic.getLogicName(), cacheableQueryObject, fieldMap);
+                            continue;
+                        }
+                        
                         Collection<String> values = ((CacheableQueryRow) cacheableQueryObject).getColumnValues().values();
                         int maxValueLength = 0;
                         for (String s : values) {
@@ -621,14 +651,20 @@ public class CachedResultsBean {
                 }
             }
             
-            // Create the view of the table
-            viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            if (columnarWriter != null) {
+                // Write the columnar file, there is no table or view to create
+                columnarWriter.close();
+            } else {
+                // Create the view of the table
+                viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            }
             
             // create the CachedRunningQuery and store it under the originalQueryName, but do not activate it
             crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(), queryId,
                             fieldMap.keySet(), null, metricFactory);
             crq.setOriginalQueryId(queryId);
             crq.setTableName(tableName);
+            crq.setBackend(columnarWriter != null ? CachedResultsConfiguration.COLUMNAR_BACKEND : CachedResultsConfiguration.SQL_BACKEND);
             crq.setStatus(CachedRunningQuery.Status.LOADED);
             crq.setPrincipal(ctx.getCallerPrincipal());
             persist(crq, owner);
@@ -689,6 +725,12 @@ public class CachedResultsBean {
             } else {
                 log.error(t.getMessage(), t);
             }
+            if (columnarWriter != null) {
+                File file = ColumnarCachedResults.getFile(CachedRunningQuery.getColumnarDirectory(), viewName);
+                if (file.exists() && !file.delete()) {
+                    log.error("Unable to delete " + file);
+                }
+            }
             if (con != null) {
                 Statement s = null;
                 try {
@@ -728,6 +770,10 @@ public class CachedResultsBean {
             throw new DatawaveWebApplicationException(t, response, statusCode);
         } finally {
             DbUtils.closeQuietly(con, ps, null);
+            if (columnarWriter != null) {
+                // removes the blocks written so far if the load did not complete
+                columnarWriter.discard();
+            }
             if (queryLockedException == false) {
                 CachedResultsBean.loadingQueryMap.remove(queryId);
                 CachedResultsBean.loadingQueries.remove(queryId);
@@ -1171,27 +1217,37 @@ public class CachedResultsBean {
             
             List<String> columns = new ArrayList<>();
             Integer numRows = null;
-            try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
-                try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
-                    if (rs.next()) {
-                        numRows = rs.getInt(1);
-                    }
+            if (crq.isColumnar()) {
+                try {
+                    ColumnarCachedResults results = ColumnarCachedResults.read(CachedRunningQuery.getColumnarFile(view));
+                    numRows = results.getRowCount();
+                    columns.addAll(results.getVariableColumnNames());
+                } catch (IOException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR, e);
                 }
-                
-                try (ResultSet rs = s.executeQuery("show columns from " + view)) {
-                    Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
-                    while (rs.next()) {
-                        String column = rs.getString(1);
-                        if (!fixedColumns.contains(column)) {
-                            columns.add(column);
+            } else {
+                try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
+                    try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
+                        if (rs.next()) {
+                            numRows = rs.getInt(1);
                         }
                     }
+                    
+                    try (ResultSet rs = s.executeQuery("show columns from " + view)) {
+                        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+                        while (rs.next()) {
+                            String column = rs.getString(1);
+                            if (!fixedColumns.contains(column)) {
+                                columns.add(column);
+                            }
+                        }
+                    }
+                    
+                } catch (SQLSyntaxErrorException e) {
+                    throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
+                } catch (SQLException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
                 }
-                
-            } catch (SQLSyntaxErrorException e) {
-                throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
-            } catch (SQLException e) {
-                throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
             }
             
             response.setColumns(columns);
@@ -1282,6 +1338,7 @@ public class CachedResultsBean {
             crq.setStatus(CachedRunningQuery.Status.CREATING);
             crq.setOriginalQueryId(originalQueryId);
             crq.setTableName(table);
+            crq.setBackend(loadCrq.getBackend());
             persist(crq, owner);
             // see above comment about using loadCrq.getView() instead of cp.getView()
             CachedRunningQuery.removeFromDatabase(loadCrq.getView());
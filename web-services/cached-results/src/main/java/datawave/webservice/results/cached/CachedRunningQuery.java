@@ -22,6 +22,8 @@ import org.springframework.util.MultiValueMap;
 import javax.sql.DataSource;
 import javax.sql.rowset.CachedRowSet;
 import javax.sql.rowset.RowSetProvider;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -50,6 +52,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private static Logger log = Logger.getLogger(CachedRunningQuery.class);
     
     private static DataSource datasource = null;
+    private static File columnarDirectory = null;
     
     private static final long serialVersionUID = 1L;
     
@@ -57,6 +60,10 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private transient Connection connection = null;
     private transient CachedRowSet crs = null;
     private transient Statement statement = null;
+    private transient ColumnarCachedResults columnarResults = null;
+    private transient int[] columnarRows = null;
+    private transient Set<String> columnarColumns = null;
+    private transient int columnarPageStart = 0;
     
     private transient CacheableLogic cacheableLogic = null;
     private transient QueryLogic<?> queryLogic = null;
@@ -91,6 +98,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private String queryLogicName = null;
     private String view = null;
     private String tableName = null;
+    private String backend = CachedResultsConfiguration.SQL_BACKEND;
     private String fields = null;
     private String conditions = null;
     private String grouping = null;
@@ -120,20 +128,24 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                     + "grouping LONGTEXT," + "orderBy LONGTEXT," + "variableFields LONGTEXT," + "originalQuery LONGTEXT," + "originalQueryBegin TIMESTAMP,"
                     + "originalQueryEnd TIMESTAMP," + "originalQueryAuths LONGTEXT," + "originalQueryLogicName VARCHAR(100),"
                     + "originalQueryName VARCHAR(200)," + "originalQueryUserDn VARCHAR(200)," + "originalQueryId VARCHAR(200)," + "originalQueryPageSize LONG,"
-                    + "fixedFieldsInEvent VARCHAR(2000)," + "optionalQueryParameters BLOB," + "UNIQUE (queryId))";
+                    + "fixedFieldsInEvent VARCHAR(2000)," + "optionalQueryParameters BLOB," + "backend VARCHAR(20)," + "UNIQUE (queryId))";
+    
+    // the backend column was added to the table after it was first created
+    private static String addBackendColumn = "ALTER TABLE cachedResultsQuery ADD COLUMN backend VARCHAR(20)";
     
     private static String insertCrqTable = "INSERT INTO cachedResultsQuery ("
                     + "queryId, alias, lastUpdate, pagesize, user, view, tableName, status, statusMessage, fields, "
                     + "conditions, grouping, orderBy, variableFields, originalQuery, " + "originalQueryBegin, originalQueryEnd, originalQueryAuths, "
                     + "originalQueryLogicName, originalQueryName, "
-                    + "originalQueryUserDn, originalQueryId, originalQueryPageSize, fixedFieldsInEvent, optionalQueryParameters) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                    + "originalQueryUserDn, originalQueryId, originalQueryPageSize, fixedFieldsInEvent, optionalQueryParameters, backend) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     
     private static String updateCrqTable = "UPDATE cachedResultsQuery SET "
                     + "queryId=?, alias=?, lastUpdate=?, pagesize=?, user=?, view=?, tableName=?, status=?, statusMessage=?, fields=?, conditions=?, "
                     + "grouping=?, orderBy=?, variableFields=?, originalQuery=?, originalQueryBegin=?, originalQueryEnd=?, "
                     + "originalQueryAuths=?, originalQueryLogicName=?, originalQueryName=?, "
-                    + "originalQueryUserDn=?, originalQueryId=?, originalQueryPageSize=?, fixedFieldsInEvent=?, optionalQueryParameters=? WHERE queryId=?";
+                    + "originalQueryUserDn=?, originalQueryId=?, originalQueryPageSize=?, fixedFieldsInEvent=?, optionalQueryParameters=?, backend=? "
+                    + "WHERE queryId=?";
     
     private static String updateSatusCrqTable = "INSERT INTO cachedResultsQuery (queryId, alias, user, status, statusMessage)  " + "VALUES (?, ?, ?, ?, ?) "
                     + "ON DUPLICATE KEY UPDATE alias=?, lastUpdate=?, status=?, statusMessage=?";
@@ -543,7 +555,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     }
     
     public boolean isActivated() {
-        if (this.connection != null && this.statement != null && this.crs != null) {
+        if (this.connection != null && ((this.statement != null && this.crs != null) || this.columnarRows != null)) {
             return true;
         } else {
             return false;
@@ -552,6 +564,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private List<String> getViewColumnNames(Connection connection, String view) throws SQLException {
         CachedResultsParameters.validate(view);
+        if (isColumnar()) {
+            return getColumnarResults().getVariableColumnNames();
+        }
         List<String> columns = new ArrayList<>();
         try (Statement s = connection.createStatement(); ResultSet rs = s.executeQuery("show columns from " + view)) {
             Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
@@ -587,8 +602,12 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                 log.trace("activating CRS on host:" + host + ", " + this);
             }
             
-            this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            initialize();
+            if (isColumnar()) {
+                initializeColumnar();
+            } else {
+                this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+                initialize();
+            }
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
             throw e;
@@ -634,6 +653,60 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.currentRow = position.BEFORE_FIRST;
     }
     
+    /**
+     * Select the rows of the columnar cached results. The SQL is still generated for the query metric and the audit.
+     */
+    private void initializeColumnar() throws SQLException {
+        
+        this.sqlQuery = this.generateSql(this.view, this.fields, this.conditions, this.grouping, this.order, this.user, this.connection);
+        this.getMetric().setQuery(sqlQuery);
+        
+        ColumnarCachedResults results = getColumnarResults();
+        this.columnarColumns = results.getSelectedColumns(this.fields);
+        this.columnarRows = results.select(this.user, this.conditions, this.grouping, this.order);
+        this.totalRows = this.columnarRows.length;
+        this.columnarPageStart = 0;
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Selected " + this.totalRows + " of " + results.getRowCount() + " columnar cached results rows");
+        }
+        
+        this.currentRow = position.BEFORE_FIRST;
+    }
+    
+    /**
+     * @return true if the results of the view were loaded into columnar cached results rather than a SQL table
+     */
+    public boolean isColumnar() {
+        return CachedResultsConfiguration.COLUMNAR_BACKEND.equalsIgnoreCase(this.backend);
+    }
+    
+    /**
+     * Get the columnar cached results file of a view.
+     *
+     * @throws FileNotFoundException
+     *             if the file is not on this server, as the columnar cached results are written to the directory of the server that loaded them
+     */
+    public static File getColumnarFile(String view) throws FileNotFoundException {
+        File file = (columnarDirectory == null) ? null : ColumnarCachedResults.getFile(columnarDirectory, view);
+        if (file == null || !file.isFile()) {
+            throw new FileNotFoundException("The columnar cached results of " + view + " are not on this server. They are only available on the server that "
+                            + "loaded them, unless the columnar cached results directory is shared.");
+        }
+        return file;
+    }
+    
+    private ColumnarCachedResults getColumnarResults() throws SQLException {
+        if (this.columnarResults == null) {
+            try {
+                this.columnarResults = ColumnarCachedResults.read(getColumnarFile(this.view));
+            } catch (IOException e) {
+                throw new SQLException("Unable to read the columnar cached results of " + this.view + ": " + e.getMessage(), e);
+            }
+        }
+        return this.columnarResults;
+    }
+    
     public String getUser() {
         return this.user;
     }
@@ -651,6 +724,16 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         updateTimestamp();
         long pageStartTime = System.currentTimeMillis();
         
+        if (this.columnarRows != null) {
+            ResultsPage resultList = convert(rowBegin - 1, rowEnd, pageByteTrigger);
+            
+            // Update the metric
+            long now = System.currentTimeMillis();
+            this.getMetric().addPageTime(resultList.getResults().size(), (now - pageStartTime), pageStartTime, now);
+            updateTimestamp();
+            return resultList;
+        }
+        
         // We need to apply a default ORDER BY clause if one does not EXIST in the query
         StringBuilder query = new StringBuilder(this.sqlQuery);
         if (!this.sqlQuery.toUpperCase().contains(" ORDER BY ")) {
@@ -701,6 +784,25 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         return hasRows;
     }
     
+    private ResultsPage nextColumnarPage(long pageByteTrigger) {
+        int start = (currentRow == position.BEFORE_FIRST) ? 0 : this.columnarPageStart + this.pagesize;
+        if (currentRow == position.AFTER_LAST || start >= this.columnarRows.length) {
+            return new ResultsPage();
+        }
+        this.columnarPageStart = start;
+        return convert(start, start + this.pagesize, pageByteTrigger);
+    }
+    
+    private ResultsPage previousColumnarPage(long pageByteTrigger) {
+        // as with the SQL backend, the page before the last page is returned after moving past the last page
+        int start = this.columnarPageStart - this.pagesize;
+        if (currentRow == position.BEFORE_FIRST || start < 0) {
+            return new ResultsPage();
+        }
+        this.columnarPageStart = start;
+        return convert(start, start + this.pagesize, pageByteTrigger);
+    }
+    
     private boolean previousPageOfResults() {
         
         boolean hasRows = false;
@@ -736,7 +838,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (nextPageOfResults()) {
+        if (this.columnarRows != null) {
+            resultList = nextColumnarPage(pageByteTrigger);
+        } else if (nextPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -774,7 +878,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (previousPageOfResults()) {
+        if (this.columnarRows != null) {
+            resultList = previousColumnarPage(pageByteTrigger);
+        } else if (previousPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -864,10 +970,46 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
     }
     
+    /**
+     * Convert a range of the selected columnar cached results rows into a result list.
+     * 
+     * @param begin
+     *            the first selected row, starting at 0
+     * @param end
+     *            the selected row after the last row
+     * @param pageByteTrigger
+     * @return
+     */
+    private ResultsPage convert(int begin, int end, long pageByteTrigger) {
+        boolean hitPageByteTrigger = false;
+        List<CacheableQueryRow> cacheableQueryRowList = new ArrayList<>();
+        long resultBytes = 0;
+        for (int i = Math.max(begin, 0); i < Math.min(end, this.columnarRows.length) && !hitPageByteTrigger; i++) {
+            CacheableQueryRow row = this.columnarResults.getRow(this.columnarRows[i], this.columnarColumns, this.fixedFieldsInEvent);
+            cacheableQueryRowList.add(row);
+            if (pageByteTrigger != 0) {
+                resultBytes += ObjectSizeOf.Sizer.getObjectSize(row);
+                if (resultBytes >= pageByteTrigger) {
+                    hitPageByteTrigger = true;
+                }
+            }
+        }
+        
+        if (this.cacheableLogic == null) {
+            return new ResultsPage();
+        } else {
+            return new ResultsPage(this.cacheableLogic.readFromCache(cacheableQueryRowList), (hitPageByteTrigger ? ResultsPage.Status.PARTIAL
+                            : ResultsPage.Status.COMPLETE));
+        }
+    }
+    
     public void resetConnection() {
         this.connection = null;
         this.statement = null;
         this.crs = null;
+        this.columnarResults = null;
+        this.columnarRows = null;
+        this.columnarColumns = null;
     }
     
     public Connection getConnection() {
@@ -999,6 +1141,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         
         try (Connection localConnection = datasource.getConnection(); Statement s = localConnection.createStatement()) {
             s.execute(createCrqTable);
+            try (ResultSet rs = localConnection.getMetaData().getColumns(null, null, "cachedResultsQuery", "backend")) {
+                if (!rs.next()) {
+                    s.execute(addBackendColumn);
+                }
+            }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -1070,6 +1217,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
             else
                 ps.setObject(x++, optionalQueryParameters);
             
+            ps.setString(x++, backend);
+            
             if (update == true) {
                 ps.setString(x++, queryId);
             }
@@ -1196,6 +1345,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                         }
                     }
                     
+                    String backend = resultSet.getString("backend");
+                    if (backend != null) {
+                        crq.backend = backend;
+                    }
+                    
                     crq.query = query;
                     crq.queryLogicName = query.getQueryLogicName();
                     crq.originalQueryId = uuid;
@@ -1217,6 +1371,17 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         return crq;
     }
     
+    /**
+     * Sets the directory of the columnar cached results, or null if they are not used.
+     */
+    public static void setColumnarDirectory(File columnarDirectory) {
+        CachedRunningQuery.columnarDirectory = columnarDirectory;
+    }
+    
+    public static File getColumnarDirectory() {
+        return columnarDirectory;
+    }
+    
     public static void setDatasource(DataSource datasource) {
         CachedRunningQuery.datasource = datasource;
     }
@@ -1245,6 +1410,17 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.view = CachedResultsParameters.validate(view);
     }
     
+    /**
+     * @return where the results were loaded, see {@link CachedResultsConfiguration#SQL_BACKEND} and {@link CachedResultsConfiguration#COLUMNAR_BACKEND}
+     */
+    public String getBackend() {
+        return backend;
+    }
+    
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+    
     public String getTableName() {
         return tableName;
     }
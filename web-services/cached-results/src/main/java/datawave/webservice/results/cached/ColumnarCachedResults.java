@@ -0,0 +1,946 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import datawave.marking.MarkingFunctions;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowReader;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A cached results backend that stores the rows of a cached query in a local file, column by column, instead of in a SQL table.
+ * <p>
+ * Each column is dictionary encoded: the distinct values of a column are stored once and each row stores the code of its value in one, two or four bytes
+ * depending on the size of the dictionary. The file also stores the rows sorted by _eventId_, which is the default order of the SQL backend. The file is read
+ * into memory when the cached query is activated, and the conditions and order of the cached query are evaluated in process against the dictionaries.
+ * <p>
+ * The file is written to the directory of the server that loaded the cached query, so unless that directory is shared by the servers, the cached query can
+ * only be read on that server, and it fails with a {@link java.io.FileNotFoundException} elsewhere.
+ * <p>
+ * Only a subset of the SQL accepted by the SQL backend is supported. Conditions are comparisons of a column with a value (=, !=, &lt;&gt;, &lt;, &lt;=, &gt;,
+ * &gt;=, [NOT] LIKE, [NOT] IN, IS [NOT] NULL) joined with AND, the order is a list of columns each followed by an optional ASC or DESC, and grouping and
+ * functions are not supported. Strings are compared ignoring case, as with the default collation of the SQL backend.
+ */
+public class ColumnarCachedResults {
+    
+    private static final Logger log = Logger.getLogger(ColumnarCachedResults.class);
+    
+    public static final String FILE_SUFFIX = ".crc";
+    
+    private static final int MAGIC = 0x44574352;
+    private static final int VERSION = 2;
+    private static final int NULL = -1;
+    
+    private static final String USER_COLUMN = "_user_";
+    private static final String EVENT_ID_COLUMN = "_eventId_";
+    
+    private final int rowCount;
+    private final String[] columnNames;
+    private final int[] columnNumbers;
+    private final Column[] columns;
+    private final int[] eventIdOrder;
+    private final Map<String,Integer> columnIndexes = new HashMap<>();
+    
+    private ColumnarCachedResults(int rowCount, String[] columnNames, int[] columnNumbers, Column[] columns, int[] eventIdOrder) {
+        this.rowCount = rowCount;
+        this.columnNames = columnNames;
+        this.columnNumbers = columnNumbers;
+        this.columns = columns;
+        this.eventIdOrder = eventIdOrder;
+        for (int i = 0; i < columnNames.length; i++) {
+            this.columnIndexes.put(columnNames[i], i);
+        }
+    }
+    
+    /**
+     * @return the file of the cached results of a view
+     */
+    public static File getFile(File directory, String view) {
+        return new File(directory, CachedResultsParameters.validate(view) + FILE_SUFFIX);
+    }
+    
+    /**
+     * Read the cached results from a file written by a {@link Writer}. The file holds the blocks of codes followed by the dictionaries of the columns and
+     * the order of the rows by _eventId_, and ends with the position of the dictionaries, which are read first so that the columns can be sized.
+     */
+    public static ColumnarCachedResults read(File file) throws IOException {
+        long start = System.currentTimeMillis();
+        long footer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < 16 || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                throw new IOException("Unexpected cached results file format: " + file);
+            }
+            raf.seek(raf.length() - 8);
+            footer = raf.readLong();
+        }
+        
+        int rowCount;
+        String[] columnNames;
+        int[] columnNumbers;
+        Column[] columns;
+        int[] eventIdOrder;
+        try (FileInputStream fin = new FileInputStream(file)) {
+            fin.getChannel().position(footer);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fin));
+            rowCount = in.readInt();
+            int columnCount = in.readInt();
+            columnNames = new String[columnCount];
+            columnNumbers = new int[columnCount];
+            columns = new Column[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columnNames[i] = in.readUTF();
+                columnNumbers[i] = in.readInt();
+                columns[i] = Column.read(in, rowCount);
+            }
+            eventIdOrder = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                eventIdOrder[i] = in.readInt();
+            }
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // skip the magic number and version
+            in.readLong();
+            int row = 0;
+            for (int blockRows = in.readInt(); blockRows > 0; blockRows = in.readInt()) {
+                int blockColumns = in.readInt();
+                for (int i = 0; i < blockColumns; i++) {
+                    columns[in.readInt()].readBlock(in, row, blockRows);
+                }
+                row += blockRows;
+            }
+            if (row != rowCount) {
+                throw new IOException("Expected " + rowCount + " rows but read " + row + " from " + file);
+            }
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Read " + rowCount + " rows and " + columns.length + " columns from " + file + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return new ColumnarCachedResults(rowCount, columnNames, columnNumbers, columns, eventIdOrder);
+    }
+    
+    public int getRowCount() {
+        return this.rowCount;
+    }
+    
+    /**
+     * @return the names of the columns that are not fixed columns, in the order they were loaded
+     */
+    public List<String> getVariableColumnNames() {
+        List<String> names = new ArrayList<>();
+        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+        for (String name : this.columnNames) {
+            if (!fixedColumns.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Get the columns selected by the fields of a cached query.
+     *
+     * @param fields
+     *            comma separated list of fields, as given to the SQL backend
+     * @return the selected columns, or null if all columns are selected
+     */
+    public Set<String> getSelectedColumns(String fields) {
+        if (StringUtils.isBlank(fields)) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            field = field.replace("`", "").trim();
+            if (field.equals("*")) {
+                return null;
+            }
+            selected.add(this.columnNames[getColumnIndex(field)]);
+        }
+        return selected;
+    }
+    
+    /**
+     * Select the rows of a user that match the conditions, in the requested order.
+     *
+     * @param user
+     *            the owner of the rows
+     * @param conditions
+     *            the conditions, or null
+     * @param grouping
+     *            the grouping, which must be empty
+     * @param order
+     *            the order, or null for the _eventId_ order
+     * @return the selected row numbers, in order
+     */
+    public int[] select(String user, String conditions, String grouping, String order) {
+        if (StringUtils.isNotBlank(grouping)) {
+            throw new IllegalArgumentException("Grouping is not supported by the columnar cached results");
+        }
+        
+        List<Predicate> predicates = new ArrayList<>();
+        if (this.columnIndexes.containsKey(USER_COLUMN)) {
+            predicates.add(new Predicate(this.columnIndexes.get(USER_COLUMN), "=", false, Arrays.asList(user), false));
+        }
+        if (StringUtils.isNotBlank(conditions)) {
+            new ConditionParser(conditions).parse(predicates);
+        }
+        
+        // evaluate each predicate once per dictionary entry rather than once per row
+        boolean[][] matches = new boolean[predicates.size()][];
+        boolean[] nullMatches = new boolean[predicates.size()];
+        int[] predicateColumns = new int[predicates.size()];
+        for (int p = 0; p < predicates.size(); p++) {
+            Predicate predicate = predicates.get(p);
+            predicateColumns[p] = predicate.column;
+            matches[p] = predicate.evaluate(this.columns[predicate.column].dictionary);
+            nullMatches[p] = predicate.matchesNull();
+        }
+        
+        int[] selected = new int[this.rowCount];
+        int count = 0;
+        for (int row : this.eventIdOrder) {
+            boolean match = true;
+            for (int p = 0; match && p < matches.length; p++) {
+                int code = this.columns[predicateColumns[p]].get(row);
+                match = (code == NULL) ? nullMatches[p] : matches[p][code];
+            }
+            if (match) {
+                selected[count++] = row;
+            }
+        }
+        selected = Arrays.copyOf(selected, count);
+        
+        if (StringUtils.isNotBlank(order)) {
+            selected = sort(selected, order);
+        }
+        return selected;
+    }
+    
+    private int[] sort(int[] rows, String order) {
+        Comparator<Integer> comparator = null;
+        for (String term : order.split(",")) {
+            String[] parts = term.trim().split("\\s+");
+            if (parts.length > 2 || term.contains("(")) {
+                throw new IllegalArgumentException("Unsupported order by the columnar cached results: " + term);
+            }
+            boolean descending = false;
+            if (parts.length == 2) {
+                if (parts[1].equalsIgnoreCase("DESC")) {
+                    descending = true;
+                } else if (!parts[1].equalsIgnoreCase("ASC")) {
+                    throw new IllegalArgumentException("Unsupported order by the columnar cached results: " + term);
+                }
+            }
+            final Column column = this.columns[getColumnIndex(parts[0].replace("`", ""))];
+            final int[] ranks = column.getRanks();
+            // nulls sort first in ascending order, as with the SQL backend
+            Comparator<Integer> next = Comparator.comparingInt(row -> {
+                int code = column.get(row);
+                return (code == NULL) ? -1 : ranks[code];
+            });
+            if (descending) {
+                next = next.reversed();
+            }
+            comparator = (comparator == null) ? next : comparator.thenComparing(next);
+        }
+        
+        // a stable sort, so that rows that compare equal stay in _eventId_ order
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        Arrays.sort(boxed, comparator);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            sorted[i] = boxed[i];
+        }
+        return sorted;
+    }
+    
+    private int getColumnIndex(String name) {
+        Integer index = this.columnIndexes.get(name);
+        if (index == null) {
+            // column names are not case sensitive in the SQL backend
+            for (int i = 0; i < this.columnNames.length; i++) {
+                if (this.columnNames[i].equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+        return index;
+    }
+    
+    /**
+     * Create a row of the cached results.
+     *
+     * @param row
+     *            the row number
+     * @param selectedColumns
+     *            the columns to include besides the fixed columns, or null for all columns
+     * @param fixedFieldsInEvent
+     *            the fixed columns to return as fields of the event
+     */
+    public CacheableQueryRow getRow(int row, Set<String> selectedColumns, Set<String> fixedFieldsInEvent) {
+        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+        Map<String,String> values = new LinkedHashMap<>();
+        Map<String,Integer> columnToIndexMap = new HashMap<>();
+        for (int i = 0; i < this.columnNames.length; i++) {
+            String name = this.columnNames[i];
+            if (selectedColumns == null || selectedColumns.contains(name) || fixedColumns.contains(name)) {
+                int code = this.columns[i].get(row);
+                values.put(name, (code == NULL) ? null : this.columns[i].dictionary[code]);
+                columnToIndexMap.put(name, this.columnNumbers[i]);
+            }
+        }
+        return CacheableQueryRowReader.createRow(values, columnToIndexMap, fixedFieldsInEvent);
+    }
+    
+    /**
+     * A dictionary encoded column. The codes are stored incremented by one so that zero is null.
+     */
+    private static class Column {
+        private final String[] dictionary;
+        private byte[] byteCodes;
+        private short[] shortCodes;
+        private int[] intCodes;
+        private int[] ranks;
+        
+        private Column(String[] dictionary, int rowCount) {
+            this.dictionary = dictionary;
+            switch (getWidth(dictionary.length)) {
+                case 1:
+                    this.byteCodes = new byte[rowCount];
+                    break;
+                case 2:
+                    this.shortCodes = new short[rowCount];
+                    break;
+                default:
+                    this.intCodes = new int[rowCount];
+                    break;
+            }
+        }
+        
+        int get(int row) {
+            if (this.byteCodes != null) {
+                return (this.byteCodes[row] & 0xFF) - 1;
+            } else if (this.shortCodes != null) {
+                return (this.shortCodes[row] & 0xFFFF) - 1;
+            } else {
+                return this.intCodes[row] - 1;
+            }
+        }
+        
+        private void set(int row, int code) {
+            if (this.byteCodes != null) {
+                this.byteCodes[row] = (byte) code;
+            } else if (this.shortCodes != null) {
+                this.shortCodes[row] = (short) code;
+            } else {
+                this.intCodes[row] = code;
+            }
+        }
+        
+        /**
+         * @return the rank of each dictionary entry in case insensitive order
+         */
+        synchronized int[] getRanks() {
+            if (this.ranks == null) {
+                Integer[] order = new Integer[this.dictionary.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(this.dictionary[a], this.dictionary[b]));
+                int[] ranks = new int[this.dictionary.length];
+                int rank = 0;
+                for (int i = 0; i < order.length; i++) {
+                    if (i > 0 && String.CASE_INSENSITIVE_ORDER.compare(this.dictionary[order[i - 1]], this.dictionary[order[i]]) != 0) {
+                        rank++;
+                    }
+                    ranks[order[i]] = rank;
+                }
+                this.ranks = ranks;
+            }
+            return this.ranks;
+        }
+        
+        static int getWidth(int dictionarySize) {
+            if (dictionarySize < 0xFF) {
+                return 1;
+            } else if (dictionarySize < 0xFFFF) {
+                return 2;
+            } else {
+                return 4;
+            }
+        }
+        
+        /**
+         * Read the dictionary of a column. The codes are read from the blocks, see {@link #readBlock(DataInputStream, int, int)}.
+         */
+        static Column read(DataInputStream in, int rowCount) throws IOException {
+            String[] dictionary = new String[in.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new Column(dictionary, rowCount);
+        }
+        
+        /**
+         * Read the codes of a block of rows
+         */
+        void readBlock(DataInputStream in, int firstRow, int rows) throws IOException {
+            int width = in.readByte();
+            for (int row = firstRow; row < firstRow + rows; row++) {
+                if (width == 1) {
+                    set(row, in.readByte() & 0xFF);
+                } else if (width == 2) {
+                    set(row, in.readShort() & 0xFFFF);
+                } else {
+                    set(row, in.readInt());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes the rows of a cached query to a file as they are loaded. The codes of the rows are written a block at a time, so only the dictionaries of the
+     * columns, the codes of the current block and the order of the rows by _eventId_ are held in memory. The file is only renamed into place when the writer
+     * is closed.
+     */
+    public static class Writer implements Closeable {
+        
+        static final int BLOCK_SIZE = 4096;
+        
+        private final File file;
+        private final File tmp;
+        private final DataOutputStream out;
+        private final int blockSize;
+        private final Map<String,ColumnBuilder> builders = new LinkedHashMap<>();
+        private final Map<String,Integer> columnNumbers = new HashMap<>();
+        private int[] eventIdCodes = new int[1024];
+        private int rowCount = 0;
+        private int blockRows = 0;
+        private boolean closed = false;
+        
+        public Writer(File file) throws IOException {
+            this(file, BLOCK_SIZE);
+        }
+        
+        Writer(File file, int blockSize) throws IOException {
+            this.file = file;
+            this.tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            this.blockSize = blockSize;
+            int columnNumber = 1;
+            for (String column : CacheableQueryRow.getFixedColumnSet()) {
+                this.builders.put(column, new ColumnBuilder(this.builders.size(), blockSize));
+                this.columnNumbers.put(column, columnNumber++);
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.tmp)));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+        
+        /**
+         * Add a row. The fields of the row are assigned column numbers in the field map the same way as they are by the SQL backend, since the column
+         * markings and timestamps of the row refer to them.
+         */
+        public void add(String owner, String queryId, String logicName, CacheableQueryRow row, Map<String,Integer> fieldMap) throws IOException {
+            for (Entry<String,String> e : row.getColumnValues().entrySet()) {
+                Integer columnNumber = fieldMap.get(e.getKey());
+                if (columnNumber == null) {
+                    columnNumber = CacheableQueryRow.getFixedColumnSet().size() + fieldMap.size() + 1;
+                    fieldMap.put(e.getKey(), columnNumber);
+                }
+                ColumnBuilder builder = this.builders.get(e.getKey());
+                if (builder == null) {
+                    builder = new ColumnBuilder(this.builders.size(), this.blockSize);
+                    this.builders.put(e.getKey(), builder);
+                    this.columnNumbers.put(e.getKey(), columnNumber);
+                }
+                builder.set(this.blockRows, e.getValue());
+            }
+            set("_user_", owner);
+            set("_queryId_", queryId);
+            set("_logicName_", logicName);
+            set("_datatype_", row.getDataType());
+            if (this.rowCount >= this.eventIdCodes.length) {
+                this.eventIdCodes = Arrays.copyOf(this.eventIdCodes, this.eventIdCodes.length * 2);
+            }
+            this.eventIdCodes[this.rowCount] = set(EVENT_ID_COLUMN, row.getEventId());
+            set("_row_", row.getRow());
+            set("_colf_", row.getColFam());
+            set("_markings_", MarkingFunctions.Encoding.toString(new TreeMap<>(row.getMarkings())));
+            set("_column_markings_", row.getColumnSecurityMarkingString(fieldMap));
+            set("_column_timestamps_", row.getColumnTimestampString(fieldMap));
+            this.rowCount++;
+            this.blockRows++;
+            if (this.blockRows == this.blockSize) {
+                writeBlock();
+            }
+        }
+        
+        private int set(String column, String value) {
+            return this.builders.get(column).set(this.blockRows, value);
+        }
+        
+        public int getRowCount() {
+            return this.rowCount;
+        }
+        
+        /**
+         * Write the codes of the current block for the columns that have a value in it
+         */
+        private void writeBlock() throws IOException {
+            List<ColumnBuilder> columns = new ArrayList<>();
+            for (ColumnBuilder builder : this.builders.values()) {
+                if (builder.hasValues()) {
+                    columns.add(builder);
+                }
+            }
+            this.out.writeInt(this.blockRows);
+            this.out.writeInt(columns.size());
+            for (ColumnBuilder builder : columns) {
+                builder.writeBlock(this.out, this.blockRows);
+            }
+            this.blockRows = 0;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            long start = System.currentTimeMillis();
+            
+            // the sort index of the rows by _eventId_
+            final ColumnBuilder eventIds = this.builders.get(EVENT_ID_COLUMN);
+            Integer[] order = new Integer[this.rowCount];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing((Integer row) -> eventIds.getValue(this.eventIdCodes[row]),
+                            Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+            
+            try (DataOutputStream out = this.out) {
+                if (this.blockRows > 0) {
+                    writeBlock();
+                }
+                out.writeInt(0);
+                out.flush();
+                long footer = this.tmp.length();
+                out.writeInt(this.rowCount);
+                out.writeInt(this.builders.size());
+                for (Entry<String,ColumnBuilder> e : this.builders.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(this.columnNumbers.get(e.getKey()));
+                    e.getValue().writeDictionary(out);
+                }
+                for (Integer row : order) {
+                    out.writeInt(row);
+                }
+                out.writeLong(footer);
+            } catch (IOException e) {
+                deleteTmp();
+                throw e;
+            }
+            if (!this.tmp.renameTo(this.file)) {
+                throw new IOException("Unable to rename " + this.tmp + " to " + this.file);
+            }
+            
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + this.rowCount + " rows and " + this.builders.size() + " columns to " + this.file + " in "
+                                + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+        
+        /**
+         * Close the writer without writing the file, removing the blocks already written
+         */
+        public void discard() {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.out.close();
+            } catch (IOException e) {
+                log.warn("Unable to close " + this.tmp, e);
+            }
+            deleteTmp();
+        }
+        
+        private void deleteTmp() {
+            if (this.tmp.exists() && !this.tmp.delete()) {
+                log.warn("Unable to delete " + this.tmp);
+            }
+        }
+    }
+    
+    /**
+     * Builds the dictionary of a column as rows are added, and the codes of the current block
+     */
+    private static class ColumnBuilder {
+        private final int ordinal;
+        private final Map<String,Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final int[] block;
+        private boolean hasValues = false;
+        
+        ColumnBuilder(int ordinal, int blockSize) {
+            this.ordinal = ordinal;
+            this.block = new int[blockSize];
+        }
+        
+        /**
+         * @return the code stored for the value
+         */
+        int set(int blockRow, String value) {
+            int code = 0;
+            if (value != null) {
+                Integer c = this.codes.get(value);
+                if (c == null) {
+                    c = this.dictionary.size();
+                    this.codes.put(value, c);
+                    this.dictionary.add(value);
+                }
+                code = c + 1;
+                this.hasValues = true;
+            }
+            this.block[blockRow] = code;
+            return code;
+        }
+        
+        boolean hasValues() {
+            return this.hasValues;
+        }
+        
+        String getValue(int code) {
+            return (code == 0) ? null : this.dictionary.get(code - 1);
+        }
+        
+        void writeBlock(DataOutputStream out, int rows) throws IOException {
+            out.writeInt(this.ordinal);
+            // the dictionary may still grow, so the codes are written in the width of the dictionary so far
+            int width = Column.getWidth(this.dictionary.size());
+            out.writeByte(width);
+            for (int row = 0; row < rows; row++) {
+                int code = this.block[row];
+                if (width == 1) {
+                    out.writeByte(code);
+                } else if (width == 2) {
+                    out.writeShort(code);
+                } else {
+                    out.writeInt(code);
+                }
+            }
+            Arrays.fill(this.block, 0, rows, 0);
+            this.hasValues = false;
+        }
+        
+        void writeDictionary(DataOutputStream out) throws IOException {
+            out.writeInt(this.dictionary.size());
+            for (String value : this.dictionary) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+    
+    /**
+     * A comparison of a column with one or more values
+     */
+    private static class Predicate {
+        private final int column;
+        private final String operator;
+        private final boolean numeric;
+        private final List<String> values;
+        private final boolean negated;
+        private Pattern pattern;
+        
+        Predicate(int column, String operator, boolean numeric, List<String> values, boolean negated) {
+            this.column = column;
+            this.operator = operator;
+            this.numeric = numeric;
+            this.values = values;
+            this.negated = negated;
+            if (operator.equals("LIKE")) {
+                this.pattern = toPattern(values.get(0));
+            }
+        }
+        
+        boolean matchesNull() {
+            // only IS NULL matches null values, any other comparison with null is not true
+            return this.operator.equals("NULL") && !this.negated;
+        }
+        
+        boolean[] evaluate(String[] dictionary) {
+            boolean[] matches = new boolean[dictionary.length];
+            for (int i = 0; i < dictionary.length; i++) {
+                matches[i] = matches(dictionary[i]) != this.negated;
+            }
+            return matches;
+        }
+        
+        private boolean matches(String value) {
+            switch (this.operator) {
+                case "NULL":
+                    return false;
+                case "LIKE":
+                    return this.pattern.matcher(value).matches();
+                case "IN":
+                    for (String v : this.values) {
+                        if (compare(value, v) == 0) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    int c = compare(value, this.values.get(0));
+                    switch (this.operator) {
+                        case "=":
+                            return c == 0;
+                        case "<":
+                            return c < 0;
+                        case "<=":
+                            return c <= 0;
+                        case ">":
+                            return c > 0;
+                        case ">=":
+                            return c >= 0;
+                        default:
+                            throw new IllegalArgumentException("Unsupported operator: " + this.operator);
+                    }
+            }
+        }
+        
+        private int compare(String value, String other) {
+            if (this.numeric) {
+                // compared as numbers, as the SQL backend does when a string is compared with a number
+                return Double.compare(toNumber(value), toNumber(other));
+            }
+            return String.CASE_INSENSITIVE_ORDER.compare(value, other);
+        }
+        
+        private static double toNumber(String value) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        
+        private static Pattern toPattern(String like) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '\\' && i + 1 < like.length()) {
+                    regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+                } else if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        }
+    }
+    
+    /**
+     * Parses the supported subset of the SQL conditions into predicates that must all be true
+     */
+    private class ConditionParser {
+        private final String conditions;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Boolean> quoted = new ArrayList<>();
+        private int position = 0;
+        
+        ConditionParser(String conditions) {
+            this.conditions = conditions;
+            tokenize();
+        }
+        
+        private void tokenize() {
+            int i = 0;
+            while (i < this.conditions.length()) {
+                char c = this.conditions.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'' || c == '"') {
+                    StringBuilder value = new StringBuilder();
+                    int j = i + 1;
+                    while (true) {
+                        if (j >= this.conditions.length()) {
+                            throw unsupported();
+                        }
+                        char d = this.conditions.charAt(j);
+                        if (d == c && j + 1 < this.conditions.length() && this.conditions.charAt(j + 1) == c) {
+                            value.append(c);
+                            j += 2;
+                        } else if (d == c) {
+                            break;
+                        } else {
+                            value.append(d);
+                            j++;
+                        }
+                    }
+                    add(value.toString(), true);
+                    i = j + 1;
+                } else if (c == '`') {
+                    int j = this.conditions.indexOf('`', i + 1);
+                    if (j < 0) {
+                        throw unsupported();
+                    }
+                    add(this.conditions.substring(i + 1, j), false);
+                    i = j + 1;
+                } else if ("(),".indexOf(c) >= 0) {
+                    add(String.valueOf(c), false);
+                    i++;
+                } else if ("=<>!".indexOf(c) >= 0) {
+                    int j = i + 1;
+                    while (j < this.conditions.length() && "=<>".indexOf(this.conditions.charAt(j)) >= 0) {
+                        j++;
+                    }
+                    add(this.conditions.substring(i, j), false);
+                    i = j;
+                } else {
+                    int j = i;
+                    while (j < this.conditions.length() && !Character.isWhitespace(this.conditions.charAt(j))
+                                    && "(),=<>!'\"`".indexOf(this.conditions.charAt(j)) < 0) {
+                        j++;
+                    }
+                    add(this.conditions.substring(i, j), false);
+                    i = j;
+                }
+            }
+        }
+        
+        private void add(String token, boolean isQuoted) {
+            this.tokens.add(token);
+            this.quoted.add(isQuoted);
+        }
+        
+        private IllegalArgumentException unsupported() {
+            return new IllegalArgumentException("Unsupported conditions for the columnar cached results: " + this.conditions);
+        }
+        
+        private String next() {
+            if (this.position >= this.tokens.size()) {
+                throw unsupported();
+            }
+            return this.tokens.get(this.position++);
+        }
+        
+        private boolean accept(String keyword) {
+            if (this.position < this.tokens.size() && !this.quoted.get(this.position) && this.tokens.get(this.position).equalsIgnoreCase(keyword)) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+        
+        void parse(List<Predicate> predicates) {
+            parseConjunction(predicates);
+            if (this.position != this.tokens.size()) {
+                throw unsupported();
+            }
+        }
+        
+        private void parseConjunction(List<Predicate> predicates) {
+            do {
+                if (accept("(")) {
+                    parseConjunction(predicates);
+                    if (!accept(")")) {
+                        throw unsupported();
+                    }
+                } else {
+                    predicates.add(parsePredicate());
+                }
+            } while (accept("AND"));
+        }
+        
+        private Predicate parsePredicate() {
+            int column = getColumnIndex(next());
+            if (accept("IS")) {
+                boolean negated = accept("NOT");
+                if (!accept("NULL")) {
+                    throw unsupported();
+                }
+                return new Predicate(column, "NULL", false, null, negated);
+            }
+            boolean negated = accept("NOT");
+            if (accept("LIKE")) {
+                return new Predicate(column, "LIKE", false, Arrays.asList(next()), negated);
+            }
+            if (accept("IN")) {
+                if (!accept("(")) {
+                    throw unsupported();
+                }
+                List<String> values = new ArrayList<>();
+                boolean numeric = false;
+                do {
+                    numeric |= isNumber();
+                    values.add(next());
+                } while (accept(","));
+                if (!accept(")")) {
+                    throw unsupported();
+                }
+                return new Predicate(column, "IN", numeric, values, negated);
+            }
+            if (negated) {
+                throw unsupported();
+            }
+            String operator = next();
+            if (operator.equals("!=") || operator.equals("<>")) {
+                operator = "=";
+                negated = true;
+            } else if (!Arrays.asList("=", "<", "<=", ">", ">=").contains(operator)) {
+                throw unsupported();
+            }
+            boolean numeric = isNumber();
+            return new Predicate(column, operator, numeric, Arrays.asList(next()), negated);
+        }
+        
+        private boolean isNumber() {
+            if (this.position >= this.tokens.size() || this.quoted.get(this.position)) {
+                return false;
+            }
+            try {
+                Double.parseDouble(this.tokens.get(this.position));
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package datawave.webservice.results.cached;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowImpl;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarCachedResultsTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private ColumnarCachedResults results;
+    private Map<String,Integer> fieldMap = new HashMap<>();
+    
+    private CacheableQueryRow createRow(String eventId, String name, String age) {
+        CacheableQueryRowImpl row = new CacheableQueryRowImpl();
+        row.setEventId(eventId);
+        row.setDataType("test");
+        row.setRow("20190101_0");
+        row.setColFam("test\0" + eventId);
+        Map<String,Set<String>> columnValues = new HashMap<>();
+        columnValues.put("NAME", Collections.singleton(name));
+        if (age != null) {
+            columnValues.put("AGE", Collections.singleton(age));
+        }
+        row.setColumnValues(columnValues);
+        return row;
+    }
+    
+    @Before
+    public void setup() throws IOException {
+        File file = ColumnarCachedResults.getFile(temporaryFolder.getRoot(), "vTest");
+        try (ColumnarCachedResults.Writer writer = new ColumnarCachedResults.Writer(file)) {
+            writer.add("me", "queryId", "logic", createRow("c", "bob", "9"), fieldMap);
+            writer.add("me", "queryId", "logic", createRow("a", "Bill", "20"), fieldMap);
+            writer.add("me", "queryId", "logic", createRow("b", "alice", "100"), fieldMap);
+            writer.add("me", "queryId", "logic", createRow("d", "ben", null), fieldMap);
+        }
+        results = ColumnarCachedResults.read(file);
+    }
+    
+    private String[] getEventIds(int[] rows) {
+        String[] eventIds = new String[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            eventIds[i] = results.getRow(rows[i], null, Collections.emptySet()).getEventId();
+        }
+        return eventIds;
+    }
+    
+    @Test
+    public void testDescribe() {
+        Assert.assertEquals(4, results.getRowCount());
+        Assert.assertEquals(new LinkedHashSet<>(fieldMap.keySet()), new LinkedHashSet<>(results.getVariableColumnNames()));
+    }
+    
+    @Test
+    public void testEventIdOrder() {
+        Assert.assertArrayEquals(new String[] {"a", "b", "c", "d"}, getEventIds(results.select("me", null, null, null)));
+        Assert.assertEquals(0, results.select("other", null, null, null).length);
+    }
+    
+    @Test
+    public void testConditions() {
+        Assert.assertArrayEquals(new String[] {"a", "c"}, getEventIds(results.select("me", "NAME LIKE 'b%' AND AGE IS NOT NULL", null, null)));
+        Assert.assertArrayEquals(new String[] {"a", "b"}, getEventIds(results.select("me", "AGE > 10", null, null)));
+        Assert.assertArrayEquals(new String[] {"b", "c"}, getEventIds(results.select("me", "NAME IN ('BOB', 'alice')", null, null)));
+        Assert.assertArrayEquals(new String[] {"d"}, getEventIds(results.select("me", "AGE IS NULL", null, null)));
+    }
+    
+    @Test
+    public void testOrder() {
+        // the values are compared as strings
+        Assert.assertArrayEquals(new String[] {"c", "a", "b", "d"}, getEventIds(results.select("me", null, null, "AGE DESC")));
+        Assert.assertArrayEquals(new String[] {"b", "d", "a", "c"}, getEventIds(results.select("me", null, null, "NAME")));
+    }
+    
+    @Test
+    public void testRow() {
+        int[] rows = results.select("me", "NAME = 'bob'", null, null);
+        Assert.assertEquals(1, rows.length);
+        CacheableQueryRow row = results.getRow(rows[0], results.getSelectedColumns("NAME"), Collections.emptySet());
+        Assert.assertEquals("me", row.getUser());
+        Assert.assertEquals("c", row.getEventId());
+        Assert.assertEquals("bob", row.getColumnValues().get("NAME"));
+        Assert.assertFalse(row.getColumnValues().containsKey("AGE"));
+    }
+    
+    @Test
+    public void testBlocks() throws IOException {
+        File file = ColumnarCachedResults.getFile(temporaryFolder.getRoot(), "vBlocks");
+        Map<String,Integer> blockFieldMap = new HashMap<>();
+        // blocks of two rows, with the AGE column only appearing in the second block, and a block left partly filled
+        try (ColumnarCachedResults.Writer writer = new ColumnarCachedResults.Writer(file, 2)) {
+            writer.add("me", "queryId", "logic", createRow("e", "eve", null), blockFieldMap);
+            writer.add("me", "queryId", "logic", createRow("d", "dan", null), blockFieldMap);
+            writer.add("me", "queryId", "logic", createRow("c", "cat", "30"), blockFieldMap);
+            writer.add("me", "queryId", "logic", createRow("b", "bob", null), blockFieldMap);
+            writer.add("me", "queryId", "logic", createRow("a", "al", "10"), blockFieldMap);
+        }
+        Assert.assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+        
+        results = ColumnarCachedResults.read(file);
+        Assert.assertEquals(5, results.getRowCount());
+        Assert.assertArrayEquals(new String[] {"a", "b", "c", "d", "e"}, getEventIds(results.select("me", null, null, null)));
+        Assert.assertArrayEquals(new String[] {"a", "c"}, getEventIds(results.select("me", "AGE IS NOT NULL", null, null)));
+        Assert.assertEquals("cat", results.getRow(results.select("me", "AGE = 30", null, null)[0], null, Collections.emptySet()).getColumnValues()
+                        .get("NAME"));
+    }
+    
+    @Test
+    public void testDiscard() throws IOException {
+        File file = ColumnarCachedResults.getFile(temporaryFolder.getRoot(), "vDiscard");
+        ColumnarCachedResults.Writer writer = new ColumnarCachedResults.Writer(file, 1);
+        writer.add("me", "queryId", "logic", createRow("a", "al", "10"), new HashMap<>());
+        writer.discard();
+        writer.close();
+        Assert.assertFalse(file.exists());
+        Assert.assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupingNotSupported() {
+        results.select("me", null, "NAME", null);
+    }
+}
@@ -157,4 +157,29 @@ public class QueryMetricSummary implements Serializable {
         
     }
     
+    /**
+     * Add the totals of a number of queries, as kept by the query metric rollups.
+     */
+    public void addQueries(long queries) {
+        this.queryCount = saturatedAdd(this.queryCount, queries);
+    }
+    
+    /**
+     * Add the totals of a number of pages, as kept by the query metric rollups.
+     */
+    public void addPages(long pages, long totalResultSize, long maxResultSize, long totalResponseTime, long maxResponseTime) {
+        this.maxPageResultSize = Math.max(this.maxPageResultSize, maxResultSize);
+        this.totalPageResultSize = saturatedAdd(this.totalPageResultSize, totalResultSize);
+        this.maxPageResponseTime = Math.max(this.maxPageResponseTime, maxResponseTime);
+        this.totalPageResponseTime = saturatedAdd(this.totalPageResponseTime, totalResponseTime);
+        this.totalPages = saturatedAdd(this.totalPages, pages);
+    }
+    
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        if (sum < 0 && a >= 0 && b >= 0)
+            return Long.MAX_VALUE;
+        return sum;
+    }
+    
 }
@@ -238,4 +238,26 @@ public class ThreadConfigurableLogger extends Logger {
             levelMap.clear();
         }
     }
+    
+    /**
+     * @return a copy of the levels set for the current thread, which can be restored with {@link #setThreadLevels(Map)}
+     */
+    public static Map<String,Level> getThreadLevels() {
+        Map<String,Level> levelMap = logToLevelMap.get();
+        return levelMap == null ? new HashMap<>() : new HashMap<>(levelMap);
+    }
+    
+    /**
+     * Replace the levels set for the current thread
+     *
+     * @param levels
+     *            the levels, as returned by {@link #getThreadLevels()}
+     */
+    public static void setThreadLevels(Map<String,Level> levels) {
+        Map<String,Level> levelMap = logToLevelMap.get();
+        if (levelMap != null) {
+            levelMap.clear();
+            levelMap.putAll(levels);
+        }
+    }
 }
@@ -56,7 +56,7 @@ public class AccumuloTableCacheStatus extends BaseResponse implements HtmlProvid
         builder.append("<h2>").append("Table Caches").append("</h2>");
         builder.append("<br/>");
         builder.append("<table>");
-        builder.append("<tr><th>Table Name</th><th>Connection Pool</th><th>Authorizations</th><th>Reload Interval (ms)</th><th>Max Rows</th><th>Last Refresh</th><th>Refreshing Now</th></tr>");
+        builder.append("<tr><th>Table Name</th><th>Connection Pool</th><th>Authorizations</th><th>Reload Interval (ms)</th><th>Max Rows</th><th>Last Refresh</th><th>Refreshing Now</th><th>Last Full Refresh</th><th>Last Reload Incremental</th><th>Last Reload Duration (ms)</th><th>Last Reload Size</th><th>Cached Entries</th></tr>");
         for (TableCache cache : caches) {
             builder.append("<tr>");
             builder.append("<td>").append(cache.getTableName()).append("</td>");
@@ -66,6 +66,11 @@ public class AccumuloTableCacheStatus extends BaseResponse implements HtmlProvid
             builder.append("<td>").append(cache.getMaxRows()).append("</td>");
             builder.append("<td>").append(cache.getLastRefresh()).append("</td>");
             builder.append("<td>").append(cache.getCurrentlyRefreshing()).append("</td>");
+            builder.append("<td>").append(cache.getLastFullRefresh()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadIncremental()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadDuration()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadSize()).append("</td>");
+            builder.append("<td>").append(cache.getCachedEntries()).append("</td>");
             builder.append("</tr>");
         }
         builder.append("</table>");
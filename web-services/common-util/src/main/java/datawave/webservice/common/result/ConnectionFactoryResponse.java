@@ -89,7 +89,8 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
         builder.append("<h2>").append("Connection Pools").append("</h2>");
         builder.append("<br/>");
         builder.append("<table class=\"connectionPools\">");
-        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th></tr>");
+        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th>");
+        builder.append("<th>Mean Borrow Wait (ms)</th><th>Max Borrow Wait (ms)</th><th>Borrow Wait Histogram</th></tr>");
         
         Set<ConnectionPool> poolSet = new TreeSet<>();
         poolSet.addAll(connectionPools);
@@ -103,6 +104,15 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
             builder.append("<td>").append(f.getNumIdle()).append("</td>");
             builder.append("<td>").append(f.getMaxIdle()).append("</td>");
             builder.append("<td>").append(f.getNumWaiting()).append("</td>");
+            builder.append("<td>").append(f.getMeanBorrowWaitTime()).append("</td>");
+            builder.append("<td>").append(f.getMaxBorrowWaitTime()).append("</td>");
+            builder.append("<td>");
+            if (f.getBorrowWaitTimeHistogram() != null) {
+                for (ConnectionProperty bucket : f.getBorrowWaitTimeHistogram()) {
+                    builder.append(bucket.getName()).append(": ").append(bucket.getValue()).append("<br/>");
+                }
+            }
+            builder.append("</td>");
             builder.append("</tr>");
         }
         builder.append("</table>");
@@ -17,7 +17,7 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
 @XmlAccessorType(XmlAccessType.NONE)
 public class ConnectionPool implements Serializable, Comparable<ConnectionPool> {
     
-    private static final long serialVersionUID = 2L;
+    private static final long serialVersionUID = 3L;
     
     public enum Priority {
         ADMIN, HIGH, NORMAL, LOW
@@ -44,6 +44,16 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
     @XmlElement(name = "NumWaiting")
     private Integer numWaiting = null;
     
+    @XmlElement(name = "MeanBorrowWaitTime")
+    private Long meanBorrowWaitTime = null;
+    
+    @XmlElement(name = "MaxBorrowWaitTime")
+    private Long maxBorrowWaitTime = null;
+    
+    @XmlElementWrapper(name = "BorrowWaitTimeHistogram")
+    @XmlElement(name = "Bucket")
+    private List<ConnectionProperty> borrowWaitTimeHistogram = null;
+    
     @XmlElementWrapper(name = "ConnectionRequests")
     @XmlElement(name = "Connection")
     private List<Connection> connectionRequests = null;
@@ -88,6 +98,30 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
         this.numWaiting = numWaiting;
     }
     
+    public Long getMeanBorrowWaitTime() {
+        return meanBorrowWaitTime;
+    }
+    
+    public void setMeanBorrowWaitTime(Long meanBorrowWaitTime) {
+        this.meanBorrowWaitTime = meanBorrowWaitTime;
+    }
+    
+    public Long getMaxBorrowWaitTime() {
+        return maxBorrowWaitTime;
+    }
+    
+    public void setMaxBorrowWaitTime(Long maxBorrowWaitTime) {
+        this.maxBorrowWaitTime = maxBorrowWaitTime;
+    }
+    
+    public List<ConnectionProperty> getBorrowWaitTimeHistogram() {
+        return borrowWaitTimeHistogram;
+    }
+    
+    public void setBorrowWaitTimeHistogram(List<ConnectionProperty> borrowWaitTimeHistogram) {
+        this.borrowWaitTimeHistogram = borrowWaitTimeHistogram;
+    }
+    
     public List<Connection> getConnectionRequests() {
         return connectionRequests;
     }
@@ -35,6 +35,24 @@ public class TableCache implements Serializable {
     @XmlAttribute
     private Boolean currentlyRefreshing = null;
     
+    @XmlAttribute
+    private Boolean incrementalReloads = null;
+    
+    @XmlAttribute
+    private Date lastFullRefresh = null;
+    
+    @XmlAttribute
+    private Boolean lastReloadIncremental = null;
+    
+    @XmlAttribute
+    private Long lastReloadDuration = null;
+    
+    @XmlAttribute
+    private Long lastReloadSize = null;
+    
+    @XmlAttribute
+    private Long cachedEntries = null;
+    
     public String getTableName() {
         return tableName;
     }
@@ -91,4 +109,52 @@ public class TableCache implements Serializable {
         this.currentlyRefreshing = currentlyRefreshing;
     }
     
+    public Boolean getIncrementalReloads() {
+        return incrementalReloads;
+    }
+    
+    public void setIncrementalReloads(Boolean incrementalReloads) {
+        this.incrementalReloads = incrementalReloads;
+    }
+    
+    public Date getLastFullRefresh() {
+        return lastFullRefresh;
+    }
+    
+    public void setLastFullRefresh(Date lastFullRefresh) {
+        this.lastFullRefresh = lastFullRefresh;
+    }
+    
+    public Boolean getLastReloadIncremental() {
+        return lastReloadIncremental;
+    }
+    
+    public void setLastReloadIncremental(Boolean lastReloadIncremental) {
+        this.lastReloadIncremental = lastReloadIncremental;
+    }
+    
+    public Long getLastReloadDuration() {
+        return lastReloadDuration;
+    }
+    
+    public void setLastReloadDuration(Long lastReloadDuration) {
+        this.lastReloadDuration = lastReloadDuration;
+    }
+    
+    public Long getLastReloadSize() {
+        return lastReloadSize;
+    }
+    
+    public void setLastReloadSize(Long lastReloadSize) {
+        this.lastReloadSize = lastReloadSize;
+    }
+    
+    public Long getCachedEntries() {
+        return cachedEntries;
+    }
+    
+    public void setCachedEntries(Long cachedEntries) {
+        this.cachedEntries = cachedEntries;
+    }
+    
 }
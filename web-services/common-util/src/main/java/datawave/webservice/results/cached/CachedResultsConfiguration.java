@@ -5,10 +5,23 @@ import java.util.Map;
 
 public class CachedResultsConfiguration {
     
+    /**
+     * Cached results are loaded into a table of the cached results database
+     */
+    public static final String SQL_BACKEND = "SQL";
+    
+    /**
+     * Cached results are loaded into columnar files on the local disk. The cached results database is still used to track the cached queries. A cached query
+     * can only be read on the server that loaded it unless the columnar directory is shared by the servers.
+     */
+    public static final String COLUMNAR_BACKEND = "COLUMNAR";
+    
     private int defaultPageSize = 20;
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
     private Map<String,String> parameters = new HashMap<>();
+    private String backend = SQL_BACKEND;
+    private String columnarDirectory = null;
     
     public int getDefaultPageSize() {
         return defaultPageSize;
@@ -42,6 +55,26 @@ public class CachedResultsConfiguration {
         this.parameters = parameters;
     }
     
+    public String getBackend() {
+        return backend;
+    }
+    
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+    
+    public boolean isColumnarBackend() {
+        return COLUMNAR_BACKEND.equalsIgnoreCase(backend);
+    }
+    
+    public String getColumnarDirectory() {
+        return columnarDirectory;
+    }
+    
+    public void setColumnarDirectory(String columnarDirectory) {
+        this.columnarDirectory = columnarDirectory;
+    }
+    
     public int getRowsPerBatch() {
         return Integer.parseInt(getParameters().get("ROWS_PER_BATCH"));
     }
@@ -317,6 +317,12 @@ public class AccumuloTableCache {
             t.setMaxRows(entry.getValue().getMaxRows());
             t.setLastRefresh(entry.getValue().getLastRefresh());
             t.setCurrentlyRefreshing((entry.getValue().getReference() != null));
+            t.setIncrementalReloads(entry.getValue().isIncrementalReloads());
+            t.setLastFullRefresh(entry.getValue().getLastFullRefresh());
+            t.setLastReloadIncremental(entry.getValue().isLastReloadIncremental());
+            t.setLastReloadDuration(entry.getValue().getLastReloadDuration());
+            t.setLastReloadSize(entry.getValue().getLastReloadSize());
+            t.setCachedEntries(entry.getValue().getCachedEntries());
             response.getCaches().add(t);
         }
         return response;
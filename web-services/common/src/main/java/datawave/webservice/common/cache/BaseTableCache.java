@@ -21,6 +21,7 @@ import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.NamespaceExistsException;
+import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import datawave.accumulo.inmemory.InMemoryInstance;
 import org.apache.accumulo.core.client.admin.NamespaceOperations;
@@ -29,10 +30,12 @@ import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.log4j.Logger;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 public class BaseTableCache implements Serializable, TableCache {
@@ -47,9 +50,17 @@ public class BaseTableCache implements Serializable, TableCache {
     private String auths = null;
     private long reloadInterval = 0;
     private long maxRows = Long.MAX_VALUE;
+    private boolean incrementalReloads = false;
+    private long fullReloadInterval = 0;
     
     /** set programatically **/
     private Date lastRefresh = new Date(0);
+    private Date lastFullRefresh = new Date(0);
+    private long newestTimestamp = -1;
+    private long lastReloadDuration = 0;
+    private long lastReloadSize = 0;
+    private long cachedEntries = 0;
+    private boolean lastReloadIncremental = false;
     private AccumuloConnectionFactory connectionFactory = null;
     private transient InMemoryInstance instance = null;
     private SharedCacheCoordinator watcher = null;
@@ -157,6 +168,57 @@ public class BaseTableCache implements Serializable, TableCache {
         this.maxRows = maxRows;
     }
     
+    @Override
+    public boolean isIncrementalReloads() {
+        return incrementalReloads;
+    }
+    
+    @Override
+    public void setIncrementalReloads(boolean incrementalReloads) {
+        this.incrementalReloads = incrementalReloads;
+    }
+    
+    @Override
+    public long getFullReloadInterval() {
+        return fullReloadInterval;
+    }
+    
+    @Override
+    public void setFullReloadInterval(long fullReloadInterval) {
+        this.fullReloadInterval = fullReloadInterval;
+    }
+    
+    @Override
+    public Date getLastFullRefresh() {
+        return lastFullRefresh;
+    }
+    
+    @Override
+    public long getLastReloadDuration() {
+        return lastReloadDuration;
+    }
+    
+    @Override
+    public long getLastReloadSize() {
+        return lastReloadSize;
+    }
+    
+    @Override
+    public long getCachedEntries() {
+        return cachedEntries;
+    }
+    
+    @Override
+    public boolean isLastReloadIncremental() {
+        return lastReloadIncremental;
+    }
+    
+    /**
+     * Reload the table. A full reload copies the whole table. An incremental reload copies the cached table and applies the entries written since the newest
+     * entry already cached. Accumulo does not return deleted entries to a scan, and entries may be written with older timestamps, so a full reload is still
+     * done every {@link #getFullReloadInterval()} to pick up the changes an incremental reload cannot see. Either way the new copy replaces the cached table
+     * in one step. {@link #getMaxRows()} limits the entries read from Accumulo by a reload, not the entries cached.
+     */
     @Override
     public Boolean call() throws Exception {
         if (!lock.tryLock(0, TimeUnit.SECONDS))
@@ -167,6 +229,7 @@ public class BaseTableCache implements Serializable, TableCache {
         Connector accumuloConn = null;
         
         String tempTableName = tableName + "Temp";
+        long start = System.currentTimeMillis();
         try {
             Map<String,String> map = connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
             accumuloConn = connectionFactory.getConnection(connectionPoolName, Priority.ADMIN, map);
@@ -184,6 +247,9 @@ public class BaseTableCache implements Serializable, TableCache {
             Connector instanceConnector = instance.getConnector(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD);
             instanceConnector.securityOperations().changeUserAuthorizations(AccumuloTableCache.MOCK_USERNAME, authorizations);
             
+            boolean incremental = incrementalReloads && newestTimestamp >= 0 && (start - lastFullRefresh.getTime()) < fullReloadInterval
+                            && instanceConnector.tableOperations().exists(tableName);
+            
             createNamespaceIfNecessary(instanceConnector.namespaceOperations(), tempTableName);
             
             if (instanceConnector.tableOperations().exists(tempTableName)) {
@@ -196,30 +262,62 @@ public class BaseTableCache implements Serializable, TableCache {
             
             setupScanner(scanner);
             
+            long newest = -1;
+            if (incremental) {
+                // start from what we have cached
+                try (Scanner cached = instanceConnector.createScanner(tableName, authorizations)) {
+                    for (Entry<Key,Value> entry : cached) {
+                        writer.addMutation(toMutation(entry));
+                        newest = Math.max(newest, entry.getKey().getTimestamp());
+                    }
+                }
+                // include the newest timestamp, since more entries may have been written with it after the last reload
+                IteratorSetting newEntries = new IteratorSetting(101, "newEntries", TimestampFilter.class);
+                TimestampFilter.setStart(newEntries, newestTimestamp, true);
+                scanner.addScanIterator(newEntries);
+            }
+            
             Iterator<Entry<Key,Value>> iter = scanner.iterator();
-            long count = 0;
+            long loaded = 0;
+            boolean truncated = false;
             while (iter.hasNext()) {
                 
-                if (count > maxRows)
+                if (loaded > maxRows) {
+                    truncated = true;
                     break;
+                }
                 Entry<Key,Value> value = iter.next();
                 
-                Key valueKey = value.getKey();
-                
-                Mutation m = new Mutation(value.getKey().getRow());
-                m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
-                                value.getValue());
-                writer.addMutation(m);
-                count++;
+                writer.addMutation(toMutation(value));
+                newest = Math.max(newest, value.getKey().getTimestamp());
+                loaded++;
             }
+            writer.flush();
             this.lastRefresh = new Date();
+            if (!incremental) {
+                this.lastFullRefresh = this.lastRefresh;
+            }
             try {
                 instanceConnector.tableOperations().delete(tableName);
             } catch (TableNotFoundException e) {
                 // the table will not exist the first time this is run
             }
             instanceConnector.tableOperations().rename(tempTableName, tableName);
-            log.info("Cached " + count + " k,v for table: " + tableName);
+            
+            // an incremental reload reads the entries at the newest timestamp again, which replace the cached ones, so count what is now cached
+            long count;
+            try (Scanner cached = instanceConnector.createScanner(tableName, authorizations)) {
+                count = Iterators.size(cached.iterator());
+            }
+            
+            // the batch scanner returns entries out of order, so when it was cut short the entries left unread may be older than the newest entry read
+            this.newestTimestamp = (incremental && truncated ? newestTimestamp : newest);
+            this.lastReloadIncremental = incremental;
+            this.lastReloadSize = loaded;
+            this.cachedEntries = count;
+            this.lastReloadDuration = System.currentTimeMillis() - start;
+            log.info("Cached " + count + " k,v for table: " + tableName + ", read " + loaded + " k,v in a " + (incremental ? "incremental" : "full")
+                            + " reload that took " + lastReloadDuration + "ms");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw e;
@@ -243,6 +341,13 @@ public class BaseTableCache implements Serializable, TableCache {
         return true;
     }
     
+    private Mutation toMutation(Entry<Key,Value> entry) {
+        Key key = entry.getKey();
+        Mutation m = new Mutation(key.getRow());
+        m.put(key.getColumnFamily(), key.getColumnQualifier(), new ColumnVisibility(key.getColumnVisibility()), key.getTimestamp(), entry.getValue());
+        return m;
+    }
+    
     public void setupScanner(BatchScanner scanner) {
         scanner.setRanges(Lists.newArrayList(new Range()));
         Map<String,String> options = new HashMap<>();
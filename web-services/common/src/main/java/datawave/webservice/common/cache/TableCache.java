@@ -31,6 +31,29 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     long getMaxRows();
     
+    boolean isIncrementalReloads();
+    
+    long getFullReloadInterval();
+    
+    Date getLastFullRefresh();
+    
+    /**
+     * @return the time taken by the last reload, in milliseconds
+     */
+    long getLastReloadDuration();
+    
+    /**
+     * @return the number of entries read from Accumulo by the last reload
+     */
+    long getLastReloadSize();
+    
+    /**
+     * @return the number of entries written to the cached table by the last reload. An entry replaced by an incremental reload is counted twice.
+     */
+    long getCachedEntries();
+    
+    boolean isLastReloadIncremental();
+    
     void setTableName(String tableName);
     
     void setConnectionPoolName(String connectionPoolName);
@@ -51,6 +74,10 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     void setMaxRows(long maxRows);
     
+    void setIncrementalReloads(boolean incrementalReloads);
+    
+    void setFullReloadInterval(long fullReloadInterval);
+    
     Boolean call() throws Exception;
     
 }
@@ -8,6 +8,7 @@ import datawave.webservice.common.connection.config.ConnectionPoolsConfiguration
 import datawave.webservice.common.result.Connection;
 import datawave.webservice.common.result.ConnectionFactoryResponse;
 import datawave.webservice.common.result.ConnectionPool;
+import datawave.webservice.common.result.ConnectionProperty;
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.ClientConfiguration;
 import org.apache.accumulo.core.client.Connector;
@@ -356,8 +357,7 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 MutableInt maxIdle = new MutableInt();
                 MutableInt numIdle = new MutableInt();
                 MutableInt numWaiting = new MutableInt();
-                // getConnectionPoolStats will collect the tracking maps and maxActive, numActive, maxIdle, numIdle while synchronized
-                // to ensure consistency between the GenericObjectPool and the tracking maps
+                // getConnectionPoolStats takes a snapshot of the tracking maps and maxActive, numActive, maxIdle, numIdle without blocking borrowers
                 List<Map<String,String>> requestingConnectionsMap = p.getConnectionPoolStats(maxActive, numActive, maxIdle, numIdle, numWaiting);
                 
                 ConnectionPool poolInfo = new ConnectionPool();
@@ -368,6 +368,13 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 poolInfo.setMaxIdle(maxIdle.toInteger());
                 poolInfo.setNumIdle(numIdle.toInteger());
                 poolInfo.setPoolName(poolName);
+                poolInfo.setMeanBorrowWaitTime(p.getMeanBorrowWaitTimeMillis());
+                poolInfo.setMaxBorrowWaitTime(p.getMaxBorrowWaitTimeMillis());
+                List<ConnectionProperty> borrowWaitTimeHistogram = new ArrayList<>();
+                for (Map.Entry<String,Long> e : p.getBorrowWaitHistogram().entrySet()) {
+                    borrowWaitTimeHistogram.add(new ConnectionProperty(e.getKey(), e.getValue().toString()));
+                }
+                poolInfo.setBorrowWaitTimeHistogram(borrowWaitTimeHistogram);
                 
                 List<Connection> requestingConnections = new ArrayList<>();
                 for (Map<String,String> m : requestingConnectionsMap) {
@@ -3,25 +3,49 @@ package datawave.webservice.common.connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.commons.lang.mutable.MutableInt;
 import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.log4j.Logger;
 
+/**
+ * The pool of connections of one priority of a connection pool. Waiting borrowers are served in the order they arrived, and the connections are tracked
+ * without locking so that taking the stats does not hold up borrowing and returning connections.
+ */
 public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     
     private static final Logger log = Logger.getLogger(AccumuloConnectionPool.class);
-    private final Map<Long,Map<String,String>> threadToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
-    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
+    
+    /**
+     * The upper bounds, in milliseconds, of the borrow wait time histogram buckets. Longer waits fall in the last bucket.
+     */
+    private static final long[] BORROW_WAIT_BUCKETS = {1, 10, 100, 1000, 10000, 60000};
+    
+    private final Map<Long,Map<String,String>> threadToTrackingMapMap = new ConcurrentHashMap<>();
+    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = new ConcurrentHashMap<>();
+    private final LongAdder[] borrowWaitCounts = new LongAdder[BORROW_WAIT_BUCKETS.length + 1];
     private AccumuloConnectionPoolFactory factory = null;
     
     public AccumuloConnectionPool(AccumuloConnectionPoolFactory factory) {
-        super(factory);
+        super(factory, createConfig());
         this.factory = factory;
+        for (int i = 0; i < borrowWaitCounts.length; i++) {
+            borrowWaitCounts[i] = new LongAdder();
+        }
+    }
+    
+    private static GenericObjectPoolConfig createConfig() {
+        GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+        // serve waiting borrowers in the order they arrived
+        config.setFairness(true);
+        return config;
     }
     
     @Override
@@ -33,21 +57,23 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
         
         Long threadId = Thread.currentThread().getId();
         Connector o = null;
+        long start = System.currentTimeMillis();
         try {
-            trackingMap.put("connection.state.start", Long.valueOf(System.currentTimeMillis()).toString());
+            trackingMap.put("connection.state.start", Long.valueOf(start).toString());
             trackingMap.put("state", AccumuloConnectionFactory.State.WAITING.toString());
             trackingMap.put("thread.name", Thread.currentThread().getName());
             threadToTrackingMapMap.put(threadId, trackingMap);
             o = super.borrowObject();
-            log.debug(System.currentTimeMillis() + " thread: " + threadId + " borrowed connector: " + o);
+            long now = System.currentTimeMillis();
+            recordBorrowWait(now - start);
+            log.debug(now + " thread: " + threadId + " borrowed connector: " + o);
             if (log.isTraceEnabled()) {
-                log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
+                log.trace(now + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
             }
-            // hopefully insignificant gap in synchronization where an object could be returned (and numActive incremented) without the
-            // connection being moved from the threadToTrackingMapMap to the connectorToTrackingMapMap
-            
+            // move the tracking map from the waiting threads to the connections, it is briefly in neither so that the stats never report it twice
+            threadToTrackingMapMap.remove(threadId);
             if (o != null) {
-                trackingMap.put("connection.state.start", Long.valueOf(System.currentTimeMillis()).toString());
+                trackingMap.put("connection.state.start", Long.valueOf(now).toString());
                 trackingMap.put("state", AccumuloConnectionFactory.State.CONNECTED.toString());
                 connectorToTrackingMapMap.put(o, trackingMap);
             }
@@ -65,43 +91,53 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     
     public void returnObject(Connector connector) {
         if (connector != null) {
-            synchronized (connectorToTrackingMapMap) {
-                connectorToTrackingMapMap.remove(connector);
-                Long threadId = Thread.currentThread().getId();
-                log.debug(System.currentTimeMillis() + " thread: " + threadId + " returned connector: " + connector);
-                if (log.isTraceEnabled()) {
-                    log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
-                }
+            connectorToTrackingMapMap.remove(connector);
+            if (log.isDebugEnabled()) {
+                log.debug(System.currentTimeMillis() + " thread: " + Thread.currentThread().getId() + " returned connector: " + connector);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
             }
             
             super.returnObject(connector);
         }
     }
     
+    private void recordBorrowWait(long waitMillis) {
+        int bucket = 0;
+        while (bucket < BORROW_WAIT_BUCKETS.length && waitMillis > BORROW_WAIT_BUCKETS[bucket]) {
+            bucket++;
+        }
+        borrowWaitCounts[bucket].increment();
+    }
+    
+    /**
+     * @return the number of borrows by the upper bound of their wait time, in order
+     */
+    public Map<String,Long> getBorrowWaitHistogram() {
+        Map<String,Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BORROW_WAIT_BUCKETS.length; i++) {
+            histogram.put("<=" + BORROW_WAIT_BUCKETS[i] + "ms", borrowWaitCounts[i].sum());
+        }
+        histogram.put(">" + BORROW_WAIT_BUCKETS[BORROW_WAIT_BUCKETS.length - 1] + "ms", borrowWaitCounts[BORROW_WAIT_BUCKETS.length].sum());
+        return histogram;
+    }
+    
+    /**
+     * Take a snapshot of the stats of the pool without blocking borrowers. The values are read one at a time, so they may be slightly inconsistent with each
+     * other while connections are being borrowed and returned.
+     */
     public List<Map<String,String>> getConnectionPoolStats(MutableInt maxTotal, MutableInt numActive, MutableInt maxIdle, MutableInt numIdle,
                     MutableInt numWaiting) {
         
         ArrayList<Map<String,String>> t = new ArrayList<>();
-        // no changes to underlying values while collecting metrics
-        synchronized (connectorToTrackingMapMap) {
-            // no changes to underlying values while collecting metrics
-            synchronized (threadToTrackingMapMap) {
-                // synchronize this last to prevent race condition for this lock underlying super type
-                synchronized (this) {
-                    if (!threadToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(threadToTrackingMapMap.values()));
-                    }
-                    if (!connectorToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(connectorToTrackingMapMap.values()));
-                    }
-                    maxTotal.setValue(getMaxTotal());
-                    numActive.setValue(getNumActive());
-                    maxIdle.setValue(getMaxIdle());
-                    numIdle.setValue(getNumIdle());
-                    numWaiting.setValue(getNumWaiters());
-                }
-            }
-        }
+        t.addAll(threadToTrackingMapMap.values());
+        t.addAll(connectorToTrackingMapMap.values());
+        maxTotal.setValue(getMaxTotal());
+        numActive.setValue(getNumActive());
+        maxIdle.setValue(getMaxIdle());
+        numIdle.setValue(getNumIdle());
+        numWaiting.setValue(getNumWaiters());
         return Collections.unmodifiableList(t);
     }
     
@@ -0,0 +1,111 @@
+package datawave.webservice.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the reloads of the {@link BaseTableCache}.
+ */
+public class BaseTableCacheTest {
+    
+    private static final String TABLE_NAME = "cachedTable";
+    private static final String POOL_NAME = "WAREHOUSE";
+    
+    private Connector connector;
+    private InMemoryInstance cacheInstance;
+    private BaseTableCache cache;
+    
+    @Before
+    public void setUp() throws Exception {
+        connector = new InMemoryInstance(BaseTableCacheTest.class.getName()).getConnector("root", new PasswordToken(""));
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("PUBLIC"));
+        connector.tableOperations().create(TABLE_NAME);
+        
+        AccumuloConnectionFactory connectionFactory = EasyMock.createMock(AccumuloConnectionFactory.class);
+        EasyMock.expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(new HashMap<>()).anyTimes();
+        EasyMock.expect(connectionFactory.getConnection(EasyMock.eq(POOL_NAME), EasyMock.eq(Priority.ADMIN), EasyMock.anyObject())).andReturn(connector)
+                        .anyTimes();
+        connectionFactory.returnConnection(connector);
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(connectionFactory);
+        
+        cacheInstance = new InMemoryInstance(BaseTableCacheTest.class.getName() + "Cache");
+        cache = new BaseTableCache();
+        cache.setTableName(TABLE_NAME);
+        cache.setConnectionPoolName(POOL_NAME);
+        cache.setAuths("PUBLIC");
+        cache.setConnectionFactory(connectionFactory);
+        cache.setInstance(cacheInstance);
+        cache.setIncrementalReloads(true);
+        cache.setFullReloadInterval(Long.MAX_VALUE);
+    }
+    
+    private void write(String row, long timestamp) throws Exception {
+        BatchWriter writer = connector.createBatchWriter(TABLE_NAME, new BatchWriterConfig());
+        Mutation m = new Mutation(row);
+        m.put("cf", "cq", new ColumnVisibility("PUBLIC"), timestamp, new Value(row.getBytes()));
+        writer.addMutation(m);
+        writer.close();
+    }
+    
+    private Set<String> getCachedRows() throws Exception {
+        Set<String> rows = new HashSet<>();
+        Connector cacheConnector = cacheInstance.getConnector(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD);
+        try (Scanner scanner = cacheConnector.createScanner(TABLE_NAME, new Authorizations("PUBLIC"))) {
+            for (Entry<Key,Value> entry : scanner) {
+                rows.add(entry.getKey().getRow().toString());
+            }
+        }
+        return rows;
+    }
+    
+    @Test
+    public void testIncrementalReload() throws Exception {
+        write("row1", 100);
+        assertTrue(cache.call());
+        assertFalse(cache.isLastReloadIncremental());
+        assertEquals(1, cache.getCachedEntries());
+        
+        // a newer entry, and an entry written with a timestamp older than the newest entry cached
+        write("row2", 200);
+        write("row0", 50);
+        assertTrue(cache.call());
+        assertTrue(cache.isLastReloadIncremental());
+        assertEquals(Sets.newHashSet("row1", "row2"), getCachedRows());
+        // the newest entry cached is read again, but only cached once
+        assertEquals(2, cache.getLastReloadSize());
+        assertEquals(2, cache.getCachedEntries());
+        
+        // the older entry is picked up by the next full reload
+        cache.setFullReloadInterval(0);
+        assertTrue(cache.call());
+        assertFalse(cache.isLastReloadIncremental());
+        assertEquals(Sets.newHashSet("row0", "row1", "row2"), getCachedRows());
+        assertEquals(3, cache.getCachedEntries());
+    }
+}
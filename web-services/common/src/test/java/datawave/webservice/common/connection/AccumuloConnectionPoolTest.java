@@ -0,0 +1,76 @@
+package datawave.webservice.common.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.common.connection.AccumuloConnectionFactoryTest.MyAccumuloConnectionPoolFactory;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.commons.lang.mutable.MutableInt;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+public class AccumuloConnectionPoolTest {
+    
+    private AccumuloConnectionPool pool;
+    private Connector connector;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance().getConnector("root", new PasswordToken(""));
+        MyAccumuloConnectionPoolFactory factory = Whitebox.newInstance(MyAccumuloConnectionPoolFactory.class);
+        factory.setConnector(connector);
+        pool = new AccumuloConnectionPool(factory);
+        pool.setMaxTotal(1);
+    }
+    
+    private List<Map<String,String>> getTrackingMaps(MutableInt numActive) {
+        return pool.getConnectionPoolStats(new MutableInt(), numActive, new MutableInt(), new MutableInt(), new MutableInt());
+    }
+    
+    @Test
+    public void testFairness() {
+        assertTrue(pool.getFairness());
+    }
+    
+    @Test
+    public void testBorrowAndReturn() throws Exception {
+        Map<String,String> trackingMap = new HashMap<>();
+        Connector c = pool.borrowObject(trackingMap);
+        assertSame(connector, c);
+        assertTrue(pool.connectorCameFromHere(c));
+        assertEquals(AccumuloConnectionFactory.State.CONNECTED.toString(), trackingMap.get("state"));
+        
+        MutableInt numActive = new MutableInt();
+        List<Map<String,String>> trackingMaps = getTrackingMaps(numActive);
+        assertEquals(1, trackingMaps.size());
+        assertSame(trackingMap, trackingMaps.get(0));
+        assertEquals(1, numActive.intValue());
+        
+        pool.returnObject(c);
+        assertFalse(pool.connectorCameFromHere(c));
+        assertTrue(getTrackingMaps(numActive).isEmpty());
+        assertEquals(0, numActive.intValue());
+    }
+    
+    @Test
+    public void testBorrowWaitHistogram() throws Exception {
+        pool.returnObject(pool.borrowObject(new HashMap<>()));
+        pool.returnObject(pool.borrowObject(new HashMap<>()));
+        
+        long borrows = 0;
+        for (long count : pool.getBorrowWaitHistogram().values()) {
+            borrows += count;
+        }
+        assertEquals(2, borrows);
+        assertEquals(7, pool.getBorrowWaitHistogram().size());
+    }
+}
@@ -3,10 +3,15 @@ package datawave.webservice.websocket;
 import static datawave.webservice.metrics.Constants.REQUEST_LOGIN_TIME_HEADER;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.interceptor.Interceptors;
+import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
+import javax.websocket.EncodeException;
 import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
@@ -14,21 +19,25 @@ import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 
+import com.google.common.base.Utf8;
 import datawave.security.websocket.WebsocketSecurityConfigurator;
 import datawave.security.websocket.WebsocketSecurityInterceptor;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.runner.AsyncQueryStatusObserver;
 import datawave.webservice.query.runner.QueryExecutorBean;
 import datawave.webservice.result.BaseQueryResponse;
+import datawave.webservice.result.EventQueryResponseBase;
 import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.VoidResponse;
 import datawave.webservice.websocket.codec.JsonQueryMessageDecoder;
 import datawave.webservice.websocket.codec.QueryResponseMessageJsonEncoder;
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
+import datawave.webservice.websocket.messages.CreditMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage;
 import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +48,12 @@ import org.slf4j.LoggerFactory;
  * {@link CancelMessage} while the query is in progress in order to cancel execution of the query. Note that if there is a problem creating the query, a
  * creation failure message is sent and the websocket is closed.
  * <p>
+ * Pages of results are subject to flow control (see {@link ResultFlowControl}). A client may include a "credit" parameter in the {@link CreateQueryMessage},
+ * in which case no more pages are sent once that many results have been sent until the client grants more credit with a {@link CreditMessage}. Independent of
+ * credit, the bytes of results queued in the container for a slow client are capped. While either limit is reached the query stops producing pages, so large
+ * result sets can be streamed without buffering them on the server. A client that neither grants credit nor reads results for the idle timeout has its query
+ * cancelled and the websocket closed.
+ * <p>
  * Per the JSR-356 specification (section 2.1.1), since we have not configured the endpoint otherwise, there shall be one instance of this class per endpoint,
  * per peer.
  * <p>
@@ -54,12 +69,22 @@ public class QueryWebsocket {
     private static final String LOGIC_NAME = "logicName";
     private static final String ACTIVE_QUERY_FUTURE = "activeQueryFuture";
     private static final String ACTIVE_QUERY_ID = "activeQueryId";
+    private static final String FLOW_CONTROL = "flowControl";
+    private static final String CREDIT = "credit";
     
     private Logger log = LoggerFactory.getLogger(getClass());
     
     @Inject
     private QueryExecutorBean queryExecutorBean;
     
+    @Inject
+    @ConfigProperty(name = "dw.websocket.maxUnacknowledgedBytes", defaultValue = "16777216")
+    private long maxUnacknowledgedBytes;
+    
+    @Inject
+    @ConfigProperty(name = "dw.websocket.idleTimeoutSeconds", defaultValue = "300")
+    private long idleTimeoutSeconds;
+    
     @OnOpen
     public void openConnection(@PathParam("logic-name") String logicName, Session session) throws IOException {
         session.getUserProperties().put(LOGIC_NAME, logicName);
@@ -68,6 +93,7 @@ public class QueryWebsocket {
     @OnClose
     public void closeConnection(Session session) throws IOException {
         cancelActiveQuery(session);
+        cancelFlowControl(session);
     }
     
     @OnMessage
@@ -80,7 +106,22 @@ public class QueryWebsocket {
                 } else {
                     CreateQueryMessage cqm = (CreateQueryMessage) message;
                     String logicName = (String) session.getUserProperties().get(LOGIC_NAME);
-                    QueryObserver observer = new QueryObserver(log, session);
+                    
+                    // the credit is for the websocket, not the query
+                    Long initialCredit = null;
+                    String credit = cqm.getParameters().getFirst(CREDIT);
+                    cqm.getParameters().remove(CREDIT);
+                    if (credit != null) {
+                        try {
+                            initialCredit = Long.valueOf(credit);
+                        } catch (NumberFormatException e) {
+                            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Invalid credit " + credit));
+                            break;
+                        }
+                    }
+                    ResultFlowControl flowControl = new ResultFlowControl(initialCredit, maxUnacknowledgedBytes, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds));
+                    session.getUserProperties().put(FLOW_CONTROL, flowControl);
+                    QueryObserver observer = new QueryObserver(log, session, flowControl, () -> closeIdleConnection(session));
                     
                     Long startTime = System.nanoTime();
                     Long loginTime = null;
@@ -97,11 +138,45 @@ public class QueryWebsocket {
                 break;
             case CANCEL: {
                 cancelActiveQuery(session);
+                cancelFlowControl(session);
+            }
+                break;
+            case CREDIT: {
+                ResultFlowControl flowControl = (ResultFlowControl) session.getUserProperties().get(FLOW_CONTROL);
+                if (flowControl != null) {
+                    flowControl.grant(((CreditMessage) message).getCredit());
+                }
             }
                 break;
         }
     }
     
+    protected void cancelFlowControl(Session session) {
+        // release the query thread if it is waiting to send results
+        ResultFlowControl flowControl = (ResultFlowControl) session.getUserProperties().get(FLOW_CONTROL);
+        if (flowControl != null) {
+            flowControl.cancel();
+        }
+    }
+    
+    /**
+     * Cancel the query of an idle peer and close the websocket. This is called on the query thread, which is the thread that cancelling the active query may
+     * interrupt, so the interrupt is cleared again rather than being left to fail whatever the thread runs next.
+     */
+    protected void closeIdleConnection(Session session) {
+        boolean interrupted = Thread.currentThread().isInterrupted();
+        cancelActiveQuery(session);
+        if (!interrupted && Thread.interrupted()) {
+            log.debug("Cleared the interrupt of the query thread after cancelling the query of an idle peer");
+        }
+        cancelFlowControl(session);
+        try {
+            session.close(new CloseReason(CloseCodes.VIOLATED_POLICY, "No credit granted or results read within " + idleTimeoutSeconds + " seconds"));
+        } catch (IOException e) {
+            log.warn("Unable to close idle peer connection.", e);
+        }
+    }
+    
     protected void cancelActiveQuery(Session session) {
         Future<?> activeQuery = (Future<?>) session.getUserProperties().get(ACTIVE_QUERY_FUTURE);
         if (activeQuery != null && !activeQuery.isDone()) {
@@ -122,10 +197,17 @@ public class QueryWebsocket {
     private static class QueryObserver implements AsyncQueryStatusObserver {
         private Logger log;
         private Session session;
+        private ResultFlowControl flowControl;
+        private Runnable idleHandler;
+        private QueryResponseMessageJsonEncoder encoder;
         
-        public QueryObserver(Logger log, Session session) {
+        public QueryObserver(Logger log, Session session, ResultFlowControl flowControl, Runnable idleHandler) {
             this.log = log;
             this.session = session;
+            this.flowControl = flowControl;
+            this.idleHandler = idleHandler;
+            this.encoder = new QueryResponseMessageJsonEncoder();
+            this.encoder.init(null);
         }
         
         @Override
@@ -134,9 +216,57 @@ public class QueryWebsocket {
             session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
         }
         
+        /**
+         * Send a page of results once the flow control allows it. This is called on the query thread, so waiting here holds off the next page.
+         */
         @Override
         public void queryResultsAvailable(BaseQueryResponse results) {
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.RESULTS, results));
+            try {
+                while (!flowControl.awaitPermit(1, TimeUnit.SECONDS)) {
+                    if (flowControl.isCancelled() || !session.isOpen()) {
+                        log.debug("Dropping page " + results.getPageNumber() + " of query " + results.getQueryId() + ", the websocket is no longer active");
+                        return;
+                    }
+                    if (flowControl.isIdle()) {
+                        log.warn("Closing the websocket of query " + results.getQueryId() + ", the client has not granted credit or read results");
+                        idleHandler.run();
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            
+            StringWriter writer = new StringWriter();
+            try {
+                encoder.encode(new QueryResponseMessage(ResponseType.RESULTS, results), writer);
+            } catch (EncodeException | IOException e) {
+                log.error("Unable to encode page " + results.getPageNumber() + " of query " + results.getQueryId(), e);
+                throw new RuntimeException(e);
+            }
+            String text = writer.toString();
+            final long bytes = Utf8.encodedLength(text);
+            flowControl.sent(getResultCount(results), bytes);
+            session.getAsyncRemote().sendText(text, result -> {
+                flowControl.acknowledged(bytes);
+                if (!result.isOK()) {
+                    log.warn("Failed to send page " + results.getPageNumber() + " of query " + results.getQueryId(), result.getException());
+                }
+            });
+        }
+        
+        /**
+         * The number of results in a page, counted against the credit. Responses that do not report a count are counted as a single result.
+         */
+        private long getResultCount(BaseQueryResponse results) {
+            if (results instanceof EventQueryResponseBase) {
+                Long returned = ((EventQueryResponseBase) results).getReturnedEvents();
+                if (returned != null) {
+                    return returned;
+                }
+            }
+            return 1;
         }
         
         @Override
@@ -156,6 +286,7 @@ public class QueryWebsocket {
         public void queryException(QueryException ex) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(FLOW_CONTROL);
             
             VoidResponse response = new VoidResponse();
             response.addException(ex);
@@ -166,6 +297,7 @@ public class QueryWebsocket {
         public void queryFinished(String queryId) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(FLOW_CONTROL);
             
             session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.COMPLETED));
             try {
@@ -0,0 +1,117 @@
+package datawave.webservice.websocket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the flow of results to a single websocket peer. Two limits are applied before a page of results may be sent:
+ * <ul>
+ * <li>the result credit granted by the client, which is decremented by the number of results in each page sent. A page is sent as long as any credit remains,
+ * so a page may take the credit negative. Clients that never grant credit get unlimited credit.</li>
+ * <li>the number of bytes handed to the websocket container for which the send has not completed yet. This bounds what the container buffers for a slow peer.
+ * </li>
+ * </ul>
+ * The query thread waits in {@link #awaitPermit(long, TimeUnit)} while either limit is reached, which stops the next page from being produced. A peer that
+ * neither grants credit nor completes a send for the idle timeout while a limit is reached is reported by {@link #isIdle()}, so that its query can be closed
+ * instead of waiting forever.
+ */
+public class ResultFlowControl {
+    private final long maxUnacknowledgedBytes;
+    private final long idleTimeoutNanos;
+    private long credit;
+    private long unacknowledgedBytes = 0;
+    private long lastActivity = System.nanoTime();
+    private boolean cancelled = false;
+    
+    /**
+     * @param initialCredit
+     *            the number of results the client will accept before granting more credit, or null for unlimited credit
+     * @param maxUnacknowledgedBytes
+     *            the number of bytes that may be pending in the container before sending waits
+     * @param idleTimeoutMillis
+     *            the time a peer may leave a limit reached without granting credit or completing a send before it is idle, or 0 to wait forever
+     */
+    public ResultFlowControl(Long initialCredit, long maxUnacknowledgedBytes, long idleTimeoutMillis) {
+        this.credit = (initialCredit == null ? Long.MAX_VALUE : initialCredit);
+        this.maxUnacknowledgedBytes = maxUnacknowledgedBytes;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+    
+    /**
+     * Grant credit for more results.
+     */
+    public synchronized void grant(long results) {
+        if (results > 0) {
+            credit = (credit > Long.MAX_VALUE - results ? Long.MAX_VALUE : credit + results);
+            lastActivity = System.nanoTime();
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Wait until a page of results may be sent.
+     *
+     * @return true if a page may be sent, false if the timeout expired or the flow was cancelled
+     */
+    public synchronized boolean awaitPermit(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!cancelled && !isPermitted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return !cancelled;
+    }
+    
+    private boolean isPermitted() {
+        return credit > 0 && unacknowledgedBytes < maxUnacknowledgedBytes;
+    }
+    
+    /**
+     * Record a page handed to the container.
+     */
+    public synchronized void sent(long results, long bytes) {
+        if (credit != Long.MAX_VALUE) {
+            credit -= results;
+        }
+        unacknowledgedBytes += bytes;
+        lastActivity = System.nanoTime();
+    }
+    
+    /**
+     * Record the completion of a send, whether it succeeded or not.
+     */
+    public synchronized void acknowledged(long bytes) {
+        unacknowledgedBytes -= bytes;
+        lastActivity = System.nanoTime();
+        notifyAll();
+    }
+    
+    /**
+     * Release any thread waiting for a permit. No more permits are given out afterwards.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+    
+    /**
+     * Whether a limit is reached and the peer has neither granted credit nor completed a send within the idle timeout.
+     */
+    public synchronized boolean isIdle() {
+        return idleTimeoutNanos > 0 && !cancelled && !isPermitted() && System.nanoTime() - lastActivity >= idleTimeoutNanos;
+    }
+    
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public synchronized long getCredit() {
+        return credit;
+    }
+    
+    public synchronized long getUnacknowledgedBytes() {
+        return unacknowledgedBytes;
+    }
+}
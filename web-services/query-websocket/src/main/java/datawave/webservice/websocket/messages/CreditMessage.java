@@ -0,0 +1,28 @@
+package datawave.webservice.websocket.messages;
+
+/**
+ * A query message for clients to send to grant the server credit for more results on this websocket. The client should send a JSON message with a single
+ * property "credit" set to the number of additional results it is prepared to receive. For example,
+ *
+ * <pre>
+ * <code>
+ * { "credit": 1000 }
+ * </code>
+ * </pre>
+ */
+public class CreditMessage implements QueryMessage {
+    private long credit;
+    
+    public CreditMessage(long credit) {
+        this.credit = credit;
+    }
+    
+    public long getCredit() {
+        return credit;
+    }
+    
+    @Override
+    public Type getType() {
+        return Type.CREDIT;
+    }
+}
@@ -0,0 +1,54 @@
+package datawave.webservice.websocket;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.websocket.Session;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryWebsocketTest {
+    
+    @Test
+    public void testCloseIdleConnectionKeepsQueryThreadUninterrupted() {
+        Map<String,Object> userProperties = new HashMap<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUserProperties":
+                    return userProperties;
+                case "close":
+                    closed.set(true);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        
+        // the active query is running on this thread, so cancelling it interrupts this thread
+        Thread queryThread = Thread.currentThread();
+        FutureTask<Object> activeQuery = new FutureTask<Object>(() -> null) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (mayInterruptIfRunning) {
+                    queryThread.interrupt();
+                }
+                return super.cancel(false);
+            }
+        };
+        userProperties.put("activeQueryFuture", activeQuery);
+        ResultFlowControl flowControl = new ResultFlowControl(0L, 1000, 0);
+        userProperties.put("flowControl", flowControl);
+        
+        new QueryWebsocket().closeIdleConnection(session);
+        
+        Assert.assertFalse(Thread.interrupted());
+        Assert.assertTrue(activeQuery.isCancelled());
+        Assert.assertTrue(flowControl.isCancelled());
+        Assert.assertTrue(closed.get());
+    }
+}
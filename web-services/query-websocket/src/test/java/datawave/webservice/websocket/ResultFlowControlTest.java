@@ -0,0 +1,142 @@
+package datawave.webservice.websocket;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultFlowControlTest {
+    
+    private static final long MAX_BYTES = 1000;
+    
+    @Test
+    public void testUnlimitedCredit() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(null, MAX_BYTES, 0);
+        flowControl.sent(1000000, 10);
+        Assert.assertEquals(Long.MAX_VALUE, flowControl.getCredit());
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testCredit() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(10L, MAX_BYTES, 0);
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+        
+        // a page is sent while any credit remains, and may take the credit negative
+        flowControl.sent(6, 0);
+        Assert.assertEquals(4, flowControl.getCredit());
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+        flowControl.sent(6, 0);
+        Assert.assertEquals(-2, flowControl.getCredit());
+        Assert.assertFalse(flowControl.awaitPermit(10, TimeUnit.MILLISECONDS));
+        
+        flowControl.grant(2);
+        Assert.assertFalse(flowControl.awaitPermit(10, TimeUnit.MILLISECONDS));
+        flowControl.grant(1);
+        Assert.assertEquals(1, flowControl.getCredit());
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+        
+        // non-positive grants are ignored, and large grants do not overflow
+        flowControl.grant(-5);
+        Assert.assertEquals(1, flowControl.getCredit());
+        flowControl.grant(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, flowControl.getCredit());
+    }
+    
+    @Test
+    public void testUnacknowledgedBytes() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(null, MAX_BYTES, 0);
+        flowControl.sent(1, 600);
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+        flowControl.sent(1, 400);
+        Assert.assertEquals(1000, flowControl.getUnacknowledgedBytes());
+        Assert.assertFalse(flowControl.awaitPermit(10, TimeUnit.MILLISECONDS));
+        
+        flowControl.acknowledged(600);
+        Assert.assertEquals(400, flowControl.getUnacknowledgedBytes());
+        Assert.assertTrue(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testPermitReleasedByGrant() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(0L, MAX_BYTES, 0);
+        AtomicBoolean permitted = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                permitted.set(flowControl.awaitPermit(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        waiter.start();
+        
+        Assert.assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+        flowControl.grant(1);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(permitted.get());
+    }
+    
+    @Test
+    public void testCancelReleasesWaiter() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(0L, MAX_BYTES, 0);
+        AtomicBoolean permitted = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                permitted.set(flowControl.awaitPermit(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        waiter.start();
+        
+        Assert.assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+        flowControl.cancel();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(permitted.get());
+        Assert.assertTrue(flowControl.isCancelled());
+        
+        // no more permits are given out once cancelled
+        flowControl.grant(10);
+        Assert.assertFalse(flowControl.awaitPermit(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testIdle() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(1L, MAX_BYTES, 50);
+        Thread.sleep(100);
+        // a peer is only idle while a limit is reached
+        Assert.assertFalse(flowControl.isIdle());
+        
+        flowControl.sent(1, 2000);
+        Assert.assertFalse(flowControl.isIdle());
+        Thread.sleep(100);
+        Assert.assertTrue(flowControl.isIdle());
+        
+        // completing a send is activity, but the credit is still used up
+        flowControl.acknowledged(2000);
+        Assert.assertFalse(flowControl.isIdle());
+        Thread.sleep(100);
+        Assert.assertTrue(flowControl.isIdle());
+        
+        flowControl.grant(1);
+        Assert.assertFalse(flowControl.isIdle());
+        
+        flowControl.sent(1, 0);
+        Thread.sleep(100);
+        flowControl.cancel();
+        Assert.assertFalse(flowControl.isIdle());
+    }
+    
+    @Test
+    public void testIdleTimeoutDisabled() throws InterruptedException {
+        ResultFlowControl flowControl = new ResultFlowControl(0L, MAX_BYTES, 0);
+        Thread.sleep(20);
+        Assert.assertFalse(flowControl.isIdle());
+    }
+}
@@ -3,6 +3,7 @@ package datawave.webservice.query.cachedresults;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -20,97 +21,116 @@ public class CacheableQueryRowReader {
     
     public static CacheableQueryRow createRow(CachedRowSet cachedRowSet, Set<String> fixedFieldsInEvent) {
         
-        CacheableQueryRowImpl cqfc = new CacheableQueryRowImpl();
-        
-        ResultSetMetaData metadata;
+        Map<String,String> values = new LinkedHashMap<>();
+        Map<String,Integer> columnToIndexMap = new HashMap<>();
         try {
-            metadata = cachedRowSet.getMetaData();
-            
+            ResultSetMetaData metadata = cachedRowSet.getMetaData();
             int numColumns = metadata.getColumnCount();
-            Map<String,Integer> columnToIndexMap = new HashMap<>();
-            Map<String,Set<String>> columnValues = new HashMap<>();
-            Set<String> variableColumnNames = new TreeSet<>();
-            Set<String> fixedColumnNames = CacheableQueryRowImpl.getFixedColumnSet();
-            // lets do a quick size estimate
-            long characters = 0;
             for (int x = 1; x <= numColumns; x++) {
                 String columnLabel = metadata.getColumnLabel(x);
                 columnToIndexMap.put(columnLabel, x);
-                String s = cachedRowSet.getString(x);
-                if (s != null) {
-                    characters += s.length();
-                }
-                if (fixedColumnNames.contains(columnLabel) == false || fixedFieldsInEvent.contains(columnLabel)) {
-                    characters += columnLabel.length();
-                    variableColumnNames.add(columnLabel);
-                    if (s == null) {
-                        columnValues.put(columnLabel, new LinkedHashSet<>());
-                    } else {
-                        Set<String> columnValuesSet = new LinkedHashSet<>();
-                        columnValuesSet.add(s);
-                        columnValues.put(columnLabel, columnValuesSet);
-                    }
-                }
-            }
-            
-            // set the the size of the values in characters...internally converted to approximate bytes
-            cqfc.setSizeInStoredCharacters(characters);
-            
-            cqfc.setVariableColumnNames(variableColumnNames);
-            cqfc.setColumnValues(columnValues);
-            
-            if (columnToIndexMap.get("_user_") != null) {
-                cqfc.setUser(cachedRowSet.getString(columnToIndexMap.get("_user_")));
-            }
-            if (columnToIndexMap.get("_queryId_") != null) {
-                cqfc.setQueryId(cachedRowSet.getString(columnToIndexMap.get("_queryId_")));
-            }
-            if (columnToIndexMap.get("_logicName_") != null) {
-                cqfc.setLogicName(cachedRowSet.getString(columnToIndexMap.get("_logicName_")));
-            }
-            if (columnToIndexMap.get("_datatype_") != null) {
-                cqfc.setDataType(cachedRowSet.getString(columnToIndexMap.get("_datatype_")));
-            }
-            if (columnToIndexMap.get("_eventId_") != null) {
-                cqfc.setEventId(cachedRowSet.getString(columnToIndexMap.get("_eventId_")));
-            }
-            if (columnToIndexMap.get("_row_") != null) {
-                cqfc.setRow(cachedRowSet.getString(columnToIndexMap.get("_row_")));
+                values.put(columnLabel, cachedRowSet.getString(x));
             }
-            if (columnToIndexMap.get("_colf_") != null) {
-                cqfc.setColFam(cachedRowSet.getString(columnToIndexMap.get("_colf_")));
-            }
-            if (columnToIndexMap.get("_markings_") != null) {
-                String mStr = cachedRowSet.getString(columnToIndexMap.get("_markings_"));
-                cqfc.setMarkings(MarkingFunctions.Encoding.fromString(mStr));
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+        }
+        
+        return createRow(values, columnToIndexMap, fixedFieldsInEvent);
+    }
+    
+    /**
+     * Create a row from the values of its columns.
+     *
+     * @param values
+     *            the value of each column, which may be null
+     * @param columnToIndexMap
+     *            the column numbers that the column markings and timestamps refer to
+     * @param fixedFieldsInEvent
+     *            the fixed columns to return as fields of the event
+     * @return the row
+     */
+    public static CacheableQueryRow createRow(Map<String,String> values, Map<String,Integer> columnToIndexMap, Set<String> fixedFieldsInEvent) {
+        
+        CacheableQueryRowImpl cqfc = new CacheableQueryRowImpl();
+        
+        Map<String,Set<String>> columnValues = new HashMap<>();
+        Set<String> variableColumnNames = new TreeSet<>();
+        Set<String> fixedColumnNames = CacheableQueryRowImpl.getFixedColumnSet();
+        // lets do a quick size estimate
+        long characters = 0;
+        for (Map.Entry<String,String> entry : values.entrySet()) {
+            String columnLabel = entry.getKey();
+            String s = entry.getValue();
+            if (s != null) {
+                characters += s.length();
             }
-            if (columnToIndexMap.get("_column_markings_") != null) {
-                String columnMarkings = cachedRowSet.getString(columnToIndexMap.get("_column_markings_"));
-                Map<String,String> combinedColumnMarkings = parseColumnMarkings(columnMarkings, columnToIndexMap);
-                Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
-                Map<String,String> columnVisibilityMap = new HashMap<>();
-                for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
-                    String columnName = entry.getKey();
-                    String combinedString = entry.getValue();
-                    int x = combinedString.lastIndexOf(":");
-                    if (x >= 0) {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
-                        columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
-                    } else {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
-                        columnVisibilityMap.put(columnName, "");
-                    }
+            if (fixedColumnNames.contains(columnLabel) == false || fixedFieldsInEvent.contains(columnLabel)) {
+                characters += columnLabel.length();
+                variableColumnNames.add(columnLabel);
+                if (s == null) {
+                    columnValues.put(columnLabel, new LinkedHashSet<>());
+                } else {
+                    Set<String> columnValuesSet = new LinkedHashSet<>();
+                    columnValuesSet.add(s);
+                    columnValues.put(columnLabel, columnValuesSet);
                 }
-                cqfc.setColumnMarkingsMap(columnMarkingsMap);
-                cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
             }
-            if (columnToIndexMap.get("_column_timestamps_") != null) {
-                String columnTimestamps = cachedRowSet.getString(columnToIndexMap.get("_column_timestamps_"));
-                cqfc.setColumnTimestampMap(parseColumnTimestamps(columnTimestamps, columnToIndexMap));
+        }
+        
+        // set the the size of the values in characters...internally converted to approximate bytes
+        cqfc.setSizeInStoredCharacters(characters);
+        
+        cqfc.setVariableColumnNames(variableColumnNames);
+        cqfc.setColumnValues(columnValues);
+        
+        if (values.get("_user_") != null) {
+            cqfc.setUser(values.get("_user_"));
+        }
+        if (values.get("_queryId_") != null) {
+            cqfc.setQueryId(values.get("_queryId_"));
+        }
+        if (values.get("_logicName_") != null) {
+            cqfc.setLogicName(values.get("_logicName_"));
+        }
+        if (values.get("_datatype_") != null) {
+            cqfc.setDataType(values.get("_datatype_"));
+        }
+        if (values.get("_eventId_") != null) {
+            cqfc.setEventId(values.get("_eventId_"));
+        }
+        if (values.get("_row_") != null) {
+            cqfc.setRow(values.get("_row_"));
+        }
+        if (values.get("_colf_") != null) {
+            cqfc.setColFam(values.get("_colf_"));
+        }
+        if (values.get("_markings_") != null) {
+            String mStr = values.get("_markings_");
+            cqfc.setMarkings(MarkingFunctions.Encoding.fromString(mStr));
+        }
+        if (values.get("_column_markings_") != null) {
+            String columnMarkings = values.get("_column_markings_");
+            Map<String,String> combinedColumnMarkings = parseColumnMarkings(columnMarkings, columnToIndexMap);
+            Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
+            Map<String,String> columnVisibilityMap = new HashMap<>();
+            for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
+                String columnName = entry.getKey();
+                String combinedString = entry.getValue();
+                int x = combinedString.lastIndexOf(":");
+                if (x >= 0) {
+                    columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
+                    columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
+                } else {
+                    columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
+                    columnVisibilityMap.put(columnName, "");
+                }
             }
-            
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
+            cqfc.setColumnMarkingsMap(columnMarkingsMap);
+            cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
+        }
+        if (values.get("_column_timestamps_") != null) {
+            String columnTimestamps = values.get("_column_timestamps_");
+            cqfc.setColumnTimestampMap(parseColumnTimestamps(columnTimestamps, columnToIndexMap));
         }
         
         return cqfc;
@@ -19,6 +19,7 @@ public class LookupUUIDConfiguration {
     protected int batchLookupUpperLimit = LookupUUIDConstants.DEFAULT_BATCH_LOOKUP_UPPER_LIMIT;
     protected String beginDate = null;
     protected String columnVisibility;
+    protected boolean indexedContentLookup = false;
     
     /**
      * Returns the maximum number of UUIDs allowed for batch lookup. A zero or negative value is interpreted as unlimited. The default value is 100.
@@ -37,6 +38,15 @@ public class LookupUUIDConfiguration {
         return this.columnVisibility;
     }
     
+    /**
+     * Returns true if streamed content lookups of UUIDs are resolved directly through the shard index by the ContentQuery, skipping the UUID lookup query.
+     * 
+     * @return true if streamed content lookups are resolved through the shard index
+     */
+    public boolean isIndexedContentLookup() {
+        return this.indexedContentLookup;
+    }
+    
     public List<UUIDType> getUuidTypes() {
         return this.uuidTypes;
     }
@@ -59,6 +69,10 @@ public class LookupUUIDConfiguration {
         this.columnVisibility = columnVisibility;
     }
     
+    public void setIndexedContentLookup(boolean indexedContentLookup) {
+        this.indexedContentLookup = indexedContentLookup;
+    }
+    
     public void setUuidTypes(List<UUIDType> uuidTypes) {
         this.uuidTypes = uuidTypes;
     }
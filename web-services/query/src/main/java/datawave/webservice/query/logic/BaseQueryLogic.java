@@ -36,6 +36,7 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
     private boolean collectQueryMetrics = true;
+    private boolean prefetchEnabled = false;
     private String _connPoolName;
     private Set<String> authorizedDNs;
     protected Principal principal;
@@ -71,6 +72,7 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
         setMaxPageSize(other.getMaxPageSize());
         setPageByteTrigger(other.getPageByteTrigger());
         setCollectQueryMetrics(other.getCollectQueryMetrics());
+        setPrefetchEnabled(other.isPrefetchEnabled());
         setConnPoolName(other.getConnPoolName());
         setPrincipal(other.getPrincipal());
         setRoleManager(other.getRoleManager());
@@ -265,6 +267,16 @@ public abstract class BaseQueryLogic<T> implements QueryLogic<T> {
         this.collectQueryMetrics = collectQueryMetrics;
     }
     
+    @Override
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+    
+    @Override
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+    
     public RoleManager getRoleManager() {
         return roleManager;
     }
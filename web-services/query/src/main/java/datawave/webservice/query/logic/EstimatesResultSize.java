@@ -0,0 +1,15 @@
+package datawave.webservice.query.logic;
+
+/**
+ * Implemented by query logic transformers that can cheaply estimate the serialized size of the results they produce. This is used in place of the reflective
+ * object size calculation when checking the page byte trigger.
+ */
+public interface EstimatesResultSize {
+    
+    /**
+     * @param result
+     *            a result produced by this transformer
+     * @return the estimated size of the result in bytes, or a negative number if no estimate is available
+     */
+    long estimateResultSize(Object result);
+}
@@ -237,6 +237,17 @@ public interface QueryLogic<T> extends Iterable<T>, Cloneable, ParameterValidato
      */
     boolean getCollectQueryMetrics();
     
+    /**
+     * @return whether the next page of results is produced on a background thread while the current page is being returned
+     */
+    boolean isPrefetchEnabled();
+    
+    /**
+     * @param prefetchEnabled
+     *            whether the next page of results is produced on a background thread while the current page is being returned
+     */
+    void setPrefetchEnabled(boolean prefetchEnabled);
+    
     /**
      * @param collectQueryMetrics
      *            whether query metrics be collected for this query logic
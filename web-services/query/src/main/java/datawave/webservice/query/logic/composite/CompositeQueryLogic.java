@@ -10,8 +10,10 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Typed;
 
@@ -30,10 +32,15 @@ import org.apache.commons.collections4.functors.NOPTransformer;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel and results are retrieved as they come
  * back from the delegates. This class restricts the delegates such that they have to return the same type of response object and two query logics with the same
  * class name and tableName cannot be configured.
+ * <p>
+ * The delegates of all composite queries are run on a shared executor with a bounded number of threads (see {@link #setDelegateThreads(int)}). If a result
+ * comparator is configured and every delegate returns its results in that order, the results are merged in order instead of interleaved.
  */
 public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
@@ -50,18 +57,12 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
     }
     
-    private class QueryLogicHolder extends Thread {
+    private class QueryLogicHolder {
         private GenericQueryConfiguration config;
         private TransformIterator transformIterator;
         private Query settings;
-        private boolean started = false;
         private long maxResults;
         
-        public QueryLogicHolder(String logicName) {
-            this.setDaemon(true);
-            this.setName(Thread.currentThread().getName() + "-CompositeQueryLogic-" + logicName + "-" + UUID.randomUUID());
-        }
-        
         public GenericQueryConfiguration getConfig() {
             return config;
         }
@@ -89,48 +90,19 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         public void setSettings(Query settings) {
             this.settings = settings;
         }
-        
-        public void run() {
-            long resultCount = 0L;
-            
-            log.trace("Starting thread: " + this.getName());
-            if (!started) {
-                startLatch.countDown();
-                started = true;
-            }
-            try {
-                Object last = new Object();
-                if (this.getMaxResults() < 0)
-                    this.setMaxResults(Long.MAX_VALUE);
-                while ((null != last) && !interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
-                    try {
-                        last = transformIterator.next();
-                        if (null != last) {
-                            log.debug(Thread.currentThread().getName() + ": Added object to results");
-                            results.add(last);
-                        }
-                    } catch (InterruptedException e) {
-                        log.warn("QueryLogic thread interrupted", e);
-                    }
-                    resultCount++;
-                }
-                
-            } finally {
-                completionLatch.countDown();
-                log.trace("Finished thread: " + this.getName());
-            }
-        }
-        
     }
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogic.class);
     
+    public static final int DEFAULT_DELEGATE_THREADS = 32;
+    
+    private static ThreadPoolExecutor delegateExecutor = null;
+    
     private List<BaseQueryLogic<?>> queryLogics = null;
     private QueryLogicTransformer transformer;
     private Priority p = Priority.NORMAL;
-    private volatile boolean interrupted = false;
-    private CountDownLatch startLatch = null;
-    private CountDownLatch completionLatch = null;
+    private int delegateThreads = DEFAULT_DELEGATE_THREADS;
+    private Comparator<Object> resultComparator = null;
     private Map<BaseQueryLogic<?>,QueryLogicHolder> logicState = new TreeMap<>(new QueryLogicComparator());
     private CompositeQueryLogicResults results = null;
     
@@ -139,6 +111,23 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     public CompositeQueryLogic(CompositeQueryLogic other) {
         super(other);
         this.queryLogics = new ArrayList<>(other.queryLogics);
+        this.delegateThreads = other.delegateThreads;
+        this.resultComparator = other.resultComparator;
+    }
+    
+    /**
+     * Get the executor shared by the delegates of all composite queries, growing it if this logic is configured with more threads.
+     */
+    protected static synchronized ExecutorService getDelegateExecutor(int threads) {
+        if (null == delegateExecutor) {
+            delegateExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                            .setDaemon(true).setNameFormat("CompositeQueryLogic-%d").build());
+            delegateExecutor.allowCoreThreadTimeOut(true);
+        } else if (threads > delegateExecutor.getMaximumPoolSize()) {
+            delegateExecutor.setMaximumPoolSize(threads);
+            delegateExecutor.setCorePoolSize(threads);
+        }
+        return delegateExecutor;
     }
     
     @Override
@@ -176,7 +165,7 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 logicQueryStringBuilder.append("(table=" + config.getTableName());
                 logicQueryStringBuilder.append(",query=" + config.getQueryString());
                 logicQueryStringBuilder.append(") ");
-                QueryLogicHolder holder = new QueryLogicHolder(logic.getClass().getSimpleName());
+                QueryLogicHolder holder = new QueryLogicHolder();
                 holder.setConfig(config);
                 holder.setSettings(settings);
                 holder.setMaxResults(logic.getMaxResults());
@@ -190,9 +179,7 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 }
             }
         }
-        startLatch = new CountDownLatch(logicState.values().size());
-        completionLatch = new CountDownLatch(logicState.values().size());
-        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), completionLatch);
+        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), resultComparator);
         if (log.isDebugEnabled()) {
             log.debug("CompositeQuery initialized with the following queryLogics: ");
             for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : this.logicState.entrySet()) {
@@ -230,13 +217,11 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             entry.getKey().setupQuery(entry.getValue().getConfig());
             TransformIterator transformIterator = entry.getKey().getTransformIterator(entry.getValue().getSettings());
             entry.getValue().setTransformIterator(transformIterator);
+            results.addDelegate(entry.getKey().getClass().getSimpleName() + "(" + entry.getKey().getTableName() + ")", transformIterator, entry.getValue()
+                            .getMaxResults());
         }
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            entry.getValue().start();
-        }
-        // Wait until all threads have started
-        startLatch.await();
-        log.trace("All threads have started.");
+        results.start(getDelegateExecutor(delegateThreads));
+        log.trace("All query logics have started.");
     }
     
     @Override
@@ -293,18 +278,11 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
     @Override
     public void close() {
-        this.interrupted = true;
+        // stop producing results before closing the delegates underneath the producers
+        if (null != results)
+            results.cancel();
         for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
             entry.getKey().close();
-            entry.getValue().interrupt();
-        }
-        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
-            try {
-                entry.getValue().join();
-            } catch (InterruptedException e) {
-                log.error("Error joining query logic thread", e);
-                throw new RuntimeException("Error joining query logic thread", e);
-            }
         }
         logicState.clear();
         if (null != results)
@@ -319,6 +297,28 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         this.queryLogics = queryLogics;
     }
     
+    public int getDelegateThreads() {
+        return delegateThreads;
+    }
+    
+    /**
+     * Set the number of threads in the executor shared by the delegates of all composite queries. The executor only grows.
+     */
+    public void setDelegateThreads(int delegateThreads) {
+        this.delegateThreads = delegateThreads;
+    }
+    
+    public Comparator<Object> getResultComparator() {
+        return resultComparator;
+    }
+    
+    /**
+     * Set the order in which every delegate returns its results, so that the results are merged in that order. By default the results are interleaved.
+     */
+    public void setResultComparator(Comparator<Object> resultComparator) {
+        this.resultComparator = resultComparator;
+    }
+    
     @Override
     public boolean canRunQuery(Principal principal) {
         // user can run this composite query if they can run at least one of the configured query logics
@@ -1,38 +1,249 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.log4j.Logger;
+
+/**
+ * The results of the delegates of a {@link CompositeQueryLogic}. Each delegate has its own bounded queue which is filled by a task on a shared executor. A
+ * task runs until the queue of its delegate is full or the delegate is exhausted, and is rescheduled as the queue is drained, so no thread is held by a
+ * delegate that is waiting on the client. The results are returned in round robin order across the delegates, or merged in order when a comparator is
+ * supplied and each delegate returns its results in that order.
+ */
 public class CompositeQueryLogicResults implements Iterable<Object> {
     
-    private ArrayBlockingQueue<Object> results = null;
-    private CountDownLatch completionLatch = null;
+    protected static final Logger log = Logger.getLogger(CompositeQueryLogicResults.class);
+    
+    private final int queueSize;
+    private final Comparator<Object> comparator;
+    private final List<DelegateResults> delegates = new ArrayList<>();
+    private final Object signal = new Object();
+    private long version = 0;
+    private ExecutorService executor = null;
+    private volatile boolean cancelled = false;
+    
+    /**
+     * @param queueSize
+     *            the number of results to queue per delegate
+     * @param comparator
+     *            the order in which the delegates return their results, or null to interleave the results as they are produced
+     */
+    public CompositeQueryLogicResults(int queueSize, Comparator<Object> comparator) {
+        this.queueSize = Math.max(1, queueSize);
+        this.comparator = comparator;
+    }
+    
+    /**
+     * Add a delegate. All delegates must be added before the results are started.
+     *
+     * @param name
+     *            the name of the delegate, for logging
+     * @param source
+     *            the results of the delegate
+     * @param maxResults
+     *            the maximum number of results to take from the delegate, negative for no limit
+     */
+    public void addDelegate(String name, Iterator<?> source, long maxResults) {
+        delegates.add(new DelegateResults(name, source, maxResults < 0 ? Long.MAX_VALUE : maxResults));
+    }
     
-    public CompositeQueryLogicResults(int pagesize, CountDownLatch completionLatch) {
-        this.results = new ArrayBlockingQueue<>(pagesize);
-        this.completionLatch = completionLatch;
+    /**
+     * Start producing results from each delegate on the executor.
+     */
+    public void start(ExecutorService executor) {
+        this.executor = executor;
+        for (DelegateResults delegate : delegates) {
+            delegate.schedule();
+        }
     }
     
-    public void add(Object object) throws InterruptedException {
-        this.results.put(object);
+    /**
+     * Stop producing results, interrupting any delegate in the middle of producing a result.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (DelegateResults delegate : delegates) {
+            delegate.cancel();
+        }
+        signal();
     }
     
     public void clear() {
-        this.results.clear();
+        for (DelegateResults delegate : delegates) {
+            delegate.queue.clear();
+        }
     }
     
     public int size() {
-        return results.size();
+        int size = 0;
+        for (DelegateResults delegate : delegates) {
+            size += delegate.queue.size();
+        }
+        return size;
     }
     
     public boolean contains(Object o) {
-        return results.contains(o);
+        for (DelegateResults delegate : delegates) {
+            if (delegate.queue.contains(o)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
     public Iterator<Object> iterator() {
-        return new CompositeQueryLogicResultsIterator(this.results, this.completionLatch);
+        return new CompositeQueryLogicResultsIterator(this);
     }
     
+    List<DelegateResults> getDelegates() {
+        return Collections.unmodifiableList(delegates);
+    }
+    
+    Comparator<Object> getComparator() {
+        return comparator;
+    }
+    
+    boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * @return true if every delegate is exhausted and all of their results have been taken
+     */
+    boolean isExhausted() {
+        for (DelegateResults delegate : delegates) {
+            if (!delegate.isExhausted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    long getVersion() {
+        synchronized (signal) {
+            return version;
+        }
+    }
+    
+    /**
+     * Wait for a delegate to produce a result or finish after the given version.
+     */
+    void awaitChange(long lastVersion, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (signal) {
+            while (version == lastVersion && !cancelled) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+            }
+        }
+    }
+    
+    private void signal() {
+        synchronized (signal) {
+            version++;
+            signal.notifyAll();
+        }
+    }
+    
+    class DelegateResults implements Runnable {
+        private final String name;
+        private final Iterator<?> source;
+        private final long maxResults;
+        private final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean done = false;
+        private volatile Future<?> future = null;
+        private long resultCount = 0;
+        
+        DelegateResults(String name, Iterator<?> source, long maxResults) {
+            this.name = name;
+            this.source = source;
+            this.maxResults = maxResults;
+        }
+        
+        void schedule() {
+            if (!done && !cancelled && scheduled.compareAndSet(false, true)) {
+                try {
+                    future = executor.submit(this);
+                } catch (RejectedExecutionException e) {
+                    log.error("Unable to schedule query logic " + name + ", continuing with the remaining query logics", e);
+                    scheduled.set(false);
+                    done = true;
+                    signal();
+                }
+            }
+        }
+        
+        @Override
+        public void run() {
+            log.trace("Producing results for " + name);
+            try {
+                while (!done && !cancelled && queue.remainingCapacity() > 0) {
+                    if (resultCount >= maxResults || !source.hasNext()) {
+                        done = true;
+                        break;
+                    }
+                    Object next = source.next();
+                    if (null == next) {
+                        done = true;
+                        break;
+                    }
+                    // this is the only producer for the queue, so there is room for the result
+                    queue.add(next);
+                    resultCount++;
+                    signal();
+                }
+            } catch (RuntimeException e) {
+                if (!cancelled) {
+                    log.error("Query logic " + name + " failed, continuing with the remaining query logics", e);
+                }
+                done = true;
+            } finally {
+                scheduled.set(false);
+                signal();
+            }
+            // the queue may have been drained after we found it full
+            if (queue.remainingCapacity() > 0) {
+                schedule();
+            }
+        }
+        
+        Object peek() {
+            return queue.peek();
+        }
+        
+        Object poll() {
+            Object next = queue.poll();
+            if (null != next) {
+                schedule();
+            }
+            return next;
+        }
+        
+        boolean isExhausted() {
+            // the results are queued before done is set
+            return done && queue.isEmpty();
+        }
+        
+        void cancel() {
+            Future<?> future = this.future;
+            if (null != future) {
+                future.cancel(true);
+            }
+        }
+    }
 }
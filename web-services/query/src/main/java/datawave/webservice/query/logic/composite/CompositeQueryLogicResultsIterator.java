@@ -1,24 +1,25 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import datawave.webservice.query.logic.composite.CompositeQueryLogicResults.DelegateResults;
+
 import org.apache.log4j.Logger;
 
 public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogicResultsIterator.class);
     
-    private ArrayBlockingQueue<Object> results = null;
+    private CompositeQueryLogicResults results = null;
     private Object nextEntry = null;
     private Object lock = new Object();
-    private CountDownLatch completionLatch = null;
+    private int position = 0;
     
-    public CompositeQueryLogicResultsIterator(ArrayBlockingQueue<Object> results, CountDownLatch completionLatch) {
+    public CompositeQueryLogicResultsIterator(CompositeQueryLogicResults results) {
         this.results = results;
-        this.completionLatch = completionLatch;
     }
     
     @Override
@@ -27,16 +28,63 @@ public class CompositeQueryLogicResultsIterator implements Iterator<Object> {
             if (nextEntry != null)
                 return true;
             try {
-                while (nextEntry == null && (!results.isEmpty() || completionLatch.getCount() > 0)) {
-                    nextEntry = results.poll(1, TimeUnit.SECONDS);
+                while (!results.isCancelled()) {
+                    long version = results.getVersion();
+                    nextEntry = (results.getComparator() == null ? takeNext() : takeLeast(results.getComparator()));
+                    if (nextEntry != null) {
+                        return true;
+                    }
+                    if (results.isExhausted()) {
+                        return false;
+                    }
+                    results.awaitChange(version, 1, TimeUnit.SECONDS);
                 }
-                return true;
+                return false;
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
     }
     
+    /**
+     * Take the next result from the delegates in round robin order, so that a fast delegate cannot starve the others.
+     */
+    private Object takeNext() {
+        List<DelegateResults> delegates = results.getDelegates();
+        for (int i = 0; i < delegates.size(); i++) {
+            int index = (position + i) % delegates.size();
+            Object next = delegates.get(index).poll();
+            if (next != null) {
+                position = (index + 1) % delegates.size();
+                return next;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Take the least result across the delegates. This requires a result from every delegate that is not exhausted.
+     */
+    private Object takeLeast(Comparator<Object> comparator) {
+        DelegateResults least = null;
+        Object leastResult = null;
+        for (DelegateResults delegate : results.getDelegates()) {
+            if (delegate.isExhausted()) {
+                continue;
+            }
+            Object head = delegate.peek();
+            if (head == null) {
+                // wait for this delegate to catch up
+                return null;
+            }
+            if (least == null || comparator.compare(head, leastResult) < 0) {
+                least = delegate;
+                leastResult = head;
+            }
+        }
+        return (least == null ? null : least.poll());
+    }
+    
     @Override
     public Object next() {
         Object current = null;
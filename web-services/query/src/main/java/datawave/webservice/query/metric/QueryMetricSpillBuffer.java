@@ -0,0 +1,144 @@
+package datawave.webservice.query.metric;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A local, durable buffer of query metric updates that could not be written. Each spilled batch is serialized to a file of its own so that the batches can be
+ * written back, oldest first, and removed one at a time once writing succeeds again. A batch that keeps failing is moved to the quarantine directory so that
+ * it does not hold back the batches behind it. The quarantine directory is capped at the same number of files as the buffer, dropping the oldest.
+ */
+public class QueryMetricSpillBuffer {
+    
+    private static final Logger log = Logger.getLogger(QueryMetricSpillBuffer.class);
+    
+    private static final String FILE_PREFIX = "metrics-";
+    private static final String FILE_SUFFIX = ".spill";
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+    
+    private final File directory;
+    private final int maxFiles;
+    private final AtomicLong sequence = new AtomicLong();
+    // the number of failed writes of each spilled batch since this buffer was created
+    private final Map<String,Integer> failures = new ConcurrentHashMap<>();
+    
+    public QueryMetricSpillBuffer(File directory, int maxFiles) {
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+    }
+    
+    /**
+     * Spill a batch of updates. If the buffer is full, the oldest batches are dropped to make room.
+     */
+    public void spill(List<QueryMetricHolder> updates) throws IOException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create query metric spill directory " + directory);
+        }
+        List<File> files = getFiles();
+        for (int i = 0; i <= files.size() - maxFiles; i++) {
+            log.error("Query metric spill buffer is full, dropping " + files.get(i));
+            delete(files.get(i));
+        }
+        // the time orders the files across restarts, and the sequence orders the files spilled within the same millisecond
+        String name = String.format("%s%013d-%06d", FILE_PREFIX, System.currentTimeMillis(), sequence.incrementAndGet() % 1000000);
+        File tmp = new File(directory, name + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeObject(new ArrayList<>(updates));
+        }
+        File file = new File(directory, name + FILE_SUFFIX);
+        if (!tmp.renameTo(file)) {
+            delete(tmp);
+            throw new IOException("Unable to rename " + tmp + " to " + file);
+        }
+    }
+    
+    /**
+     * @return the spilled batches, oldest first
+     */
+    public List<File> getFiles() {
+        return getFiles(directory);
+    }
+    
+    /**
+     * @return the quarantined batches, oldest first
+     */
+    public List<File> getQuarantinedFiles() {
+        return getFiles(getQuarantineDirectory());
+    }
+    
+    private static List<File> getFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public List<QueryMetricHolder> read(File file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (List<QueryMetricHolder>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read query metric spill file " + file, e);
+        }
+    }
+    
+    public void delete(File file) {
+        failures.remove(file.getName());
+        if (file.exists() && !file.delete()) {
+            log.error("Unable to delete query metric spill file " + file);
+        }
+    }
+    
+    /**
+     * Record a failed write of a spilled batch.
+     *
+     * @return the number of times the batch has failed to be written
+     */
+    public int recordFailure(File file) {
+        return failures.merge(file.getName(), 1, Integer::sum);
+    }
+    
+    /**
+     * Move a spilled batch out of the buffer into the quarantine directory, where it is kept but no longer written.
+     */
+    public void quarantine(File file) throws IOException {
+        failures.remove(file.getName());
+        File quarantineDirectory = getQuarantineDirectory();
+        if (!quarantineDirectory.isDirectory() && !quarantineDirectory.mkdirs()) {
+            throw new IOException("Unable to create query metric quarantine directory " + quarantineDirectory);
+        }
+        List<File> quarantinedFiles = getQuarantinedFiles();
+        for (int i = 0; i <= quarantinedFiles.size() - maxFiles; i++) {
+            log.error("Query metric quarantine is full, dropping " + quarantinedFiles.get(i));
+            delete(quarantinedFiles.get(i));
+        }
+        File quarantined = new File(quarantineDirectory, file.getName());
+        if (!file.renameTo(quarantined)) {
+            throw new IOException("Unable to move " + file + " to " + quarantined);
+        }
+    }
+    
+    public File getQuarantineDirectory() {
+        return new File(directory, QUARANTINE_DIRECTORY);
+    }
+}
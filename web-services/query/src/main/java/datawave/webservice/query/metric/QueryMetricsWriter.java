@@ -1,15 +1,23 @@
 package datawave.webservice.query.metric;
 
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -22,11 +30,13 @@ import javax.ejb.LockType;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.ObjectMessage;
 import javax.jms.Queue;
@@ -83,6 +93,14 @@ public class QueryMetricsWriter {
     
     private static volatile AtomicBoolean receivingMetrics = new AtomicBoolean(false);
     
+    @Resource
+    private ManagedExecutorService executor;
+    
+    private QueryMetricSpillBuffer spillBuffer;
+    private final LongAccumulator maxLag = new LongAccumulator(Long::max, 0);
+    private volatile long lastWriteLag = 0;
+    private String hostName = "unknown";
+    
     private UdpClient createUdpClient() {
         if (config != null && StringUtils.isNotBlank(config.getTimelyHost())) {
             return new UdpClient(config.getTimelyHost(), config.getTimelyPort());
@@ -105,6 +123,17 @@ public class QueryMetricsWriter {
         lastPageMetricMap = new LRUMap(1000);
         metricQueue = new ArrayList<>();
         timelyClient = createUdpClient();
+        String spillDirectory = config.getSpillDirectory();
+        if (StringUtils.isBlank(spillDirectory)) {
+            spillBuffer = new QueryMetricSpillBuffer(new File(System.getProperty("jboss.server.data.dir"), "QueryMetrics"), config.getMaxSpillFiles());
+        } else {
+            spillBuffer = new QueryMetricSpillBuffer(new File(spillDirectory), config.getMaxSpillFiles());
+        }
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Unable to determine the host name: " + e.getMessage());
+        }
     }
     
     @Schedule(hour = "*", minute = "*", second = "*/10", persistent = false)
@@ -115,7 +144,13 @@ public class QueryMetricsWriter {
             long start = System.currentTimeMillis();
             List<QueryMetricHolder> failedMetrics = new ArrayList<>();
             try {
-                if (!metricQueue.isEmpty()) {
+                // the spilled metrics are older than any of the other updates, so they are written first and no other updates are written until they are.
+                // Until then, the updates received are spilled behind them so that the queue is still drained.
+                boolean spilling = !writeSpilledMetrics();
+                if (spilling) {
+                    spill(metricQueue);
+                    metricQueue.clear();
+                } else if (!metricQueue.isEmpty()) {
                     try {
                         // write previously failed metrics
                         failedMetrics = writeMetrics(queryMetricHandler, metricQueue);
@@ -128,54 +163,37 @@ public class QueryMetricsWriter {
                             throw new IllegalStateException(failedMetrics.size() + " metrics failed write");
                         }
                     } catch (Throwable t) {
-                        log.error(failedMetrics.size() + " metric updates failed a second time, removing");
-                        for (QueryMetricHolder h : failedMetrics) {
-                            log.error("Failed write : " + h.getQueryMetric());
-                        }
+                        List<QueryMetricHolder> toSpill = failedMetrics.isEmpty() ? metricQueue : failedMetrics;
+                        log.error(toSpill.size() + " metric updates failed a second time, spilling");
+                        spill(toSpill);
+                        queryMetricHandler.reload();
+                        spilling = true;
                     } finally {
                         metricQueue.clear();
                     }
                 }
                 
                 try (JMSConsumer consumer = jmsContext.createConsumer(dest)) {
-                    Message message;
-                    do {
-                        message = consumer.receive(500);
-                        if (message != null) {
-                            try {
-                                if (message instanceof ObjectMessage) {
-                                    ObjectMessage objectMessage = (ObjectMessage) message;
-                                    Object o = objectMessage.getObject();
-                                    QueryMetricHolder queryMetricHolder = null;
-                                    if (o instanceof QueryMetricHolder) {
-                                        queryMetricHolder = (QueryMetricHolder) o;
-                                    } else if (o instanceof QueryMetricMessage) {
-                                        queryMetricHolder = ((QueryMetricMessage) o).getMetricHolder();
-                                    }
-                                    if (queryMetricHolder != null) {
-                                        metricQueue.add(queryMetricHolder);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                log.error(e.getMessage() + " messageID:" + message.getJMSMessageID());
-                                continue;
-                            }
+                    boolean more = true;
+                    // keep receiving and writing batches while the queue is busy, and break out periodically to flush the handler
+                    while (more && (System.currentTimeMillis() - start) < config.getMaxReceiveMillis()) {
+                        more = receiveBatch(consumer, start);
+                        if (spilling) {
+                            spill(metricQueue);
+                            metricQueue.clear();
+                            continue;
                         }
-                        // break out of loop every minute to ensure flush and acknowledge messages
-                        if (metricQueue.size() >= 1000 || (System.currentTimeMillis() - start) > 60000) {
-                            break;
+                        
+                        failedMetrics = writeMetrics(queryMetricHandler, metricQueue);
+                        if (log.isTraceEnabled() && (metricQueue.size() - failedMetrics.size()) > 0) {
+                            log.trace("Wrote " + (metricQueue.size() - failedMetrics.size()) + " query metric updates");
                         }
-                    } while (message != null);
-                }
-                
-                failedMetrics = writeMetrics(queryMetricHandler, metricQueue);
-                if (log.isTraceEnabled() && (metricQueue.size() - failedMetrics.size()) > 0) {
-                    log.trace("Wrote " + (metricQueue.size() - failedMetrics.size()) + " query metric updates");
-                }
-                metricQueue.clear();
-                if (!failedMetrics.isEmpty()) {
-                    metricQueue.addAll(failedMetrics);
-                    throw new IllegalStateException(metricQueue.size() + " metrics failed write");
+                        metricQueue.clear();
+                        if (!failedMetrics.isEmpty()) {
+                            metricQueue.addAll(failedMetrics);
+                            throw new IllegalStateException(metricQueue.size() + " metrics failed write");
+                        }
+                    }
                 }
             } catch (Throwable t) {
                 log.error(t.getMessage(), t);
@@ -194,6 +212,112 @@ public class QueryMetricsWriter {
         }
     }
     
+    /**
+     * Receive a batch of metric updates into the metric queue.
+     *
+     * @return true if the batch filled up, in which case there are likely more updates waiting
+     */
+    private boolean receiveBatch(JMSConsumer consumer, long start) throws JMSException {
+        Message message;
+        do {
+            message = consumer.receive(500);
+            if (message != null) {
+                try {
+                    if (message instanceof ObjectMessage) {
+                        ObjectMessage objectMessage = (ObjectMessage) message;
+                        Object o = objectMessage.getObject();
+                        QueryMetricHolder queryMetricHolder = null;
+                        if (o instanceof QueryMetricHolder) {
+                            queryMetricHolder = (QueryMetricHolder) o;
+                        } else if (o instanceof QueryMetricMessage) {
+                            queryMetricHolder = ((QueryMetricMessage) o).getMetricHolder();
+                        }
+                        if (queryMetricHolder != null) {
+                            metricQueue.add(queryMetricHolder);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error(e.getMessage() + " messageID:" + message.getJMSMessageID());
+                    continue;
+                }
+            }
+            if (metricQueue.size() >= config.getBatchSize()) {
+                return true;
+            }
+        } while (message != null && (System.currentTimeMillis() - start) < config.getMaxReceiveMillis());
+        return false;
+    }
+    
+    private void spill(List<QueryMetricHolder> updates) {
+        if (!updates.isEmpty()) {
+            try {
+                spillBuffer.spill(updates);
+                log.error("Spilled " + updates.size() + " query metric updates to " + spillBuffer.getFiles().size() + " spilled batches");
+            } catch (Throwable t) {
+                log.error("Unable to spill query metric updates: " + t.getMessage(), t);
+                for (QueryMetricHolder h : updates) {
+                    log.error("Failed write : " + h.getQueryMetric());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Write the spilled metric updates, oldest first. A spilled batch that fails to be written maxSpillRetries times is quarantined, so that a single update
+     * which can never be written does not stop the updates behind it from being written.
+     *
+     * @return true if all of the spilled updates were written or quarantined
+     */
+    private boolean writeSpilledMetrics() {
+        for (File file : spillBuffer.getFiles()) {
+            List<QueryMetricHolder> updates;
+            try {
+                updates = spillBuffer.read(file);
+            } catch (Throwable t) {
+                log.error("Quarantining unreadable query metric spill file " + file + ": " + t.getMessage(), t);
+                quarantine(file);
+                continue;
+            }
+            try {
+                List<QueryMetricHolder> failed = writeMetrics(queryMetricHandler, updates);
+                if (!failed.isEmpty()) {
+                    throw new IllegalStateException(failed.size() + " spilled metrics failed write");
+                }
+            } catch (Throwable t) {
+                log.error("Error writing spilled query metric updates from " + file + ": " + t.getMessage());
+                queryMetricHandler.reload();
+                int failures = spillBuffer.recordFailure(file);
+                if (failures < config.getMaxSpillRetries()) {
+                    return false;
+                }
+                log.error("Quarantining query metric spill file " + file + " after " + failures + " failed writes");
+                if (!quarantine(file)) {
+                    return false;
+                }
+                continue;
+            }
+            // logged at ERROR to record successful write of previously failed writes
+            log.error("Wrote " + updates.size() + " spilled query metric updates from " + file);
+            spillBuffer.delete(file);
+        }
+        return true;
+    }
+    
+    /**
+     * Move a spilled batch to the quarantine directory of the spill buffer.
+     *
+     * @return true if the batch was moved
+     */
+    private boolean quarantine(File file) {
+        try {
+            spillBuffer.quarantine(file);
+            return true;
+        } catch (Throwable t) {
+            log.error("Unable to quarantine query metric spill file " + file + ": " + t.getMessage(), t);
+            return false;
+        }
+    }
+    
     private synchronized void sendMetricsToTimely(BaseQueryMetric queryMetric) {
         
         if (timelyClient != null && queryMetric.getQueryType().equalsIgnoreCase("RunningQuery")) {
@@ -281,28 +405,144 @@ public class QueryMetricsWriter {
         
         if (!metricQueue.isEmpty()) {
             log.debug("writing " + metricQueue.size() + " query metric updates");
+            // write each query once, no matter how many updates it had since the last write
+            Map<String,List<QueryMetricHolder>> updatesByQuery = new LinkedHashMap<>();
             for (QueryMetricHolder queryMetricHolder : metricQueue) {
-                try {
-                    BaseQueryMetric queryMetric = queryMetricHolder.getQueryMetric();
-                    handleLegacyEvents(queryMetric);
-                    DatawavePrincipal datawavePrincipal = queryMetricHolder.getPrincipal();
-                    queryMetricHandler.updateMetric(queryMetric, datawavePrincipal);
-                    sendMetricsToTimely(queryMetric);
-                } catch (Throwable t) {
-                    log.error("query metric updates failed: " + t.getMessage(), t);
-                    failedMetrics.add(queryMetricHolder);
+                updatesByQuery.computeIfAbsent(queryMetricHolder.getQueryMetric().getQueryId(), k -> new ArrayList<>()).add(queryMetricHolder);
+            }
+            // the legacy events are handled before writing in parallel since the last page map is not thread safe
+            for (List<QueryMetricHolder> updates : updatesByQuery.values()) {
+                for (QueryMetricHolder queryMetricHolder : updates) {
+                    handleLegacyEvents(queryMetricHolder.getQueryMetric());
+                }
+            }
+            
+            // the updates of a query are always written by the same thread, in order
+            int numThreads = Math.max(1, Math.min(config.getWriteThreads(), updatesByQuery.size()));
+            List<List<List<QueryMetricHolder>>> partitions = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            int next = 0;
+            for (List<QueryMetricHolder> updates : updatesByQuery.values()) {
+                partitions.get(next++ % numThreads).add(updates);
+            }
+            
+            if (numThreads == 1 || executor == null) {
+                for (List<List<QueryMetricHolder>> partition : partitions) {
+                    failedMetrics.addAll(writeUpdates(queryMetricHandler, partition));
+                }
+            } else {
+                List<Future<List<QueryMetricHolder>>> futures = new ArrayList<>();
+                for (List<List<QueryMetricHolder>> partition : partitions) {
+                    futures.add(executor.submit(() -> writeUpdates(queryMetricHandler, partition)));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        failedMetrics.addAll(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        log.error("query metric updates failed: " + e.getMessage(), e);
+                        for (List<QueryMetricHolder> updates : partitions.get(i)) {
+                            failedMetrics.addAll(updates);
+                        }
+                    }
                 }
             }
+            
             try {
                 queryMetricHandler.flush();
             } catch (Throwable t) {
-                failedMetrics.addAll(metricQueue);
+                failedMetrics = new ArrayList<>(metricQueue);
             }
             log.debug("wrote " + (metricQueue.size() - failedMetrics.size()) + " query metric updates");
+            if (failedMetrics.size() < metricQueue.size()) {
+                reportLag(maxLag.getThenReset());
+            }
         }
         return failedMetrics;
     }
     
+    private List<QueryMetricHolder> writeUpdates(QueryMetricHandler queryMetricHandler, List<List<QueryMetricHolder>> updatesByQuery) {
+        List<QueryMetricHolder> failedMetrics = new ArrayList<>();
+        for (List<QueryMetricHolder> updates : updatesByQuery) {
+            try {
+                QueryMetricHolder combined = combineUpdates(updates);
+                DatawavePrincipal datawavePrincipal = combined.getPrincipal();
+                queryMetricHandler.updateMetric(combined.getQueryMetric(), datawavePrincipal);
+                Date lastUpdated = combined.getQueryMetric().getLastUpdated();
+                if (lastUpdated != null) {
+                    maxLag.accumulate(System.currentTimeMillis() - lastUpdated.getTime());
+                }
+                for (QueryMetricHolder queryMetricHolder : updates) {
+                    sendMetricsToTimely(queryMetricHolder.getQueryMetric());
+                }
+            } catch (Throwable t) {
+                log.error("query metric updates failed: " + t.getMessage(), t);
+                failedMetrics.addAll(updates);
+            }
+        }
+        return failedMetrics;
+    }
+    
+    /**
+     * Report the lag between the update of a query metric and its write, the largest of the batch just written.
+     */
+    private synchronized void reportLag(long lag) {
+        lastWriteLag = lag;
+        if (log.isDebugEnabled()) {
+            log.debug("query metric write lag: " + lag + "ms");
+        }
+        if (timelyClient != null) {
+            try {
+                timelyClient.open();
+                timelyClient.write("put dw.query.metrics.WRITE_LAG " + System.currentTimeMillis() + " " + lag + " HOST=" + hostName + "\n");
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * @return the lag, in milliseconds, between the update of a query metric and its write, the largest of the last batch written
+     */
+    public long getLastWriteLag() {
+        return lastWriteLag;
+    }
+    
+    /**
+     * Combine the updates of a single query into one update. Each update only carries the page metrics that changed since the previous update, so the page
+     * metrics of all of the updates are kept, and otherwise the most recent update wins.
+     */
+    private QueryMetricHolder combineUpdates(List<QueryMetricHolder> updates) {
+        if (updates.size() == 1) {
+            return updates.get(0);
+        }
+        QueryMetricHolder latest = null;
+        Map<Long,PageMetric> pageMetrics = new TreeMap<>();
+        for (QueryMetricHolder queryMetricHolder : updates) {
+            BaseQueryMetric queryMetric = queryMetricHolder.getQueryMetric();
+            if (latest == null || !isBefore(queryMetric.getLastUpdated(), latest.getQueryMetric().getLastUpdated())) {
+                latest = queryMetricHolder;
+            }
+            if (queryMetric.getPageTimes() != null) {
+                for (PageMetric pageMetric : queryMetric.getPageTimes()) {
+                    pageMetrics.put(pageMetric.getPageNumber(), pageMetric);
+                }
+            }
+        }
+        BaseQueryMetric combined = latest.getQueryMetric().duplicate();
+        if (combined == null) {
+            // not every metric type can be copied, in which case the most recent update takes the combined page metrics
+            combined = latest.getQueryMetric();
+        }
+        combined.setPageTimes(new ArrayList<>(pageMetrics.values()));
+        return new QueryMetricHolder(latest.getPrincipal(), combined);
+    }
+    
+    private boolean isBefore(Date date, Date other) {
+        return date == null ? other != null : (other != null && date.before(other));
+    }
+    
     private void handleLegacyEvents(BaseQueryMetric queryMetric) {
         long lastUpdated;
         List<PageMetric> pages = queryMetric.getPageTimes();
@@ -8,6 +8,12 @@ public class QueryMetricsWriterConfiguration {
     private String timelyHost = null;
     private int timelyPort = 0;
     private Set<String> timelyMetricTags = new HashSet<>();
+    private int batchSize = 1000;
+    private long maxReceiveMillis = 60000;
+    private int writeThreads = 4;
+    private String spillDirectory = null;
+    private int maxSpillFiles = 1000;
+    private int maxSpillRetries = 3;
     
     public String getTimelyHost() {
         return timelyHost;
@@ -32,4 +38,77 @@ public class QueryMetricsWriterConfiguration {
     public void setTimelyMetricTags(Set<String> timelyMetricTags) {
         this.timelyMetricTags = timelyMetricTags;
     }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * @param batchSize
+     *            the number of metric updates received from the queue before they are written
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public long getMaxReceiveMillis() {
+        return maxReceiveMillis;
+    }
+    
+    /**
+     * @param maxReceiveMillis
+     *            how long each run of the writer keeps receiving and writing batches while the queue is busy
+     */
+    public void setMaxReceiveMillis(long maxReceiveMillis) {
+        this.maxReceiveMillis = maxReceiveMillis;
+    }
+    
+    public int getWriteThreads() {
+        return writeThreads;
+    }
+    
+    /**
+     * @param writeThreads
+     *            the number of threads that write the updates of a batch in parallel
+     */
+    public void setWriteThreads(int writeThreads) {
+        this.writeThreads = writeThreads;
+    }
+    
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+    
+    /**
+     * @param spillDirectory
+     *            the directory in which metric updates that could not be written are kept until they can be, or blank for the QueryMetrics directory of the
+     *            server data directory
+     */
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+    
+    public int getMaxSpillFiles() {
+        return maxSpillFiles;
+    }
+    
+    /**
+     * @param maxSpillFiles
+     *            the maximum number of spilled batches to keep, beyond which the oldest are dropped
+     */
+    public void setMaxSpillFiles(int maxSpillFiles) {
+        this.maxSpillFiles = maxSpillFiles;
+    }
+    
+    public int getMaxSpillRetries() {
+        return maxSpillRetries;
+    }
+    
+    /**
+     * @param maxSpillRetries
+     *            the number of times a spilled batch is written before it is moved to the quarantine directory
+     */
+    public void setMaxSpillRetries(int maxSpillRetries) {
+        this.maxSpillRetries = maxSpillRetries;
+    }
 }
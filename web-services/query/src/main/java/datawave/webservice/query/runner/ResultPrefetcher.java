@@ -0,0 +1,205 @@
+package datawave.webservice.query.runner;
+
+import org.apache.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pulls results from a query iterator on a background thread into a bounded buffer, so that the next page of results is being produced while the client is
+ * consuming the current one. The producer only runs while there is room in the buffer and is scheduled again as the client consumes results, so a full buffer
+ * waiting on an idle client does not hold a thread of the executor.
+ */
+public class ResultPrefetcher implements Runnable {
+    
+    private static final Logger log = Logger.getLogger(ResultPrefetcher.class);
+    
+    /**
+     * Returned by {@link #poll(long, TimeUnit)} when no result was produced within the timeout
+     */
+    public static final Object PENDING = new Object();
+    
+    private static final Object END = new Object();
+    
+    private final Iterator<?> iter;
+    private final BlockingQueue<Object> buffer;
+    private final int bufferSize;
+    private final long maxResults;
+    // true while the producer is scheduled or running, which also hands the iterator from one producer run to the next
+    private final AtomicBoolean producing = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
+    private volatile boolean done = false;
+    private volatile Throwable failure = null;
+    private volatile Future<?> future = null;
+    private ExecutorService executor = null;
+    private long produced = 0;
+    private boolean ended = false;
+    
+    /**
+     * @param iter
+     *            the iterator to pull results from
+     * @param bufferSize
+     *            the number of results to produce ahead of the client, normally the page size
+     * @param maxResults
+     *            the number of results after which to stop producing
+     */
+    public ResultPrefetcher(Iterator<?> iter, int bufferSize, long maxResults) {
+        this.iter = iter;
+        this.bufferSize = Math.max(1, bufferSize);
+        // one more slot for the end of the results
+        this.buffer = new ArrayBlockingQueue<>(this.bufferSize + 1);
+        this.maxResults = (maxResults < 0 ? Long.MAX_VALUE : maxResults);
+    }
+    
+    /**
+     * Start producing results.
+     *
+     * @param executor
+     *            the executor to produce the results on
+     * @throws RejectedExecutionException
+     *             if the executor did not accept the producer
+     */
+    public void start(ExecutorService executor) {
+        this.executor = executor;
+        schedule();
+    }
+    
+    /**
+     * Schedule the producer, unless it is already scheduled, the buffer is full or there is nothing left to produce.
+     */
+    private void schedule() {
+        if (!stopped && !done && buffer.size() < bufferSize && producing.compareAndSet(false, true)) {
+            try {
+                future = executor.submit(this);
+            } catch (RejectedExecutionException e) {
+                producing.set(false);
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Schedule the producer as results are consumed. If the executor has no room for it, the results are produced on the calling thread instead.
+     */
+    private void resume() {
+        try {
+            schedule();
+        } catch (RejectedExecutionException e) {
+            if (producing.compareAndSet(false, true)) {
+                try {
+                    produce();
+                } finally {
+                    producing.set(false);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void run() {
+        try {
+            produce();
+        } finally {
+            producing.set(false);
+        }
+        try {
+            // the client may have consumed results after the buffer was found to be full
+            schedule();
+        } catch (RejectedExecutionException e) {
+            // the client schedules the producer again as it consumes results
+        }
+    }
+    
+    /**
+     * Produce results until the buffer is full or there are no more results.
+     */
+    private void produce() {
+        try {
+            while (!stopped && buffer.size() < bufferSize) {
+                if (produced >= maxResults || !iter.hasNext()) {
+                    finish();
+                    return;
+                }
+                Object o = iter.next();
+                // a null result signifies the end of the results
+                if (o == null) {
+                    finish();
+                    return;
+                }
+                produced++;
+                buffer.add(o);
+            }
+        } catch (Throwable t) {
+            if (!stopped) {
+                log.debug("Failure while prefetching results", t);
+                failure = t;
+            }
+            finish();
+        }
+    }
+    
+    private void finish() {
+        done = true;
+        buffer.offer(END);
+    }
+    
+    /**
+     * Get the next result.
+     *
+     * @param timeout
+     *            how long to wait for a result
+     * @param unit
+     *            the unit of the timeout
+     * @return the next result, {@link #PENDING} if no result was produced within the timeout, or null if there are no more results
+     * @throws Exception
+     *             if the producer failed
+     */
+    public Object poll(long timeout, TimeUnit unit) throws Exception {
+        if (ended) {
+            return null;
+        }
+        resume();
+        Object o = buffer.poll(timeout, unit);
+        if (o == null) {
+            return PENDING;
+        }
+        if (o == END) {
+            ended = true;
+            Throwable t = failure;
+            if (t instanceof Exception) {
+                throw (Exception) t;
+            } else if (t != null) {
+                throw new ExecutionException(t);
+            }
+            return null;
+        }
+        resume();
+        return o;
+    }
+    
+    /**
+     * @return the number of results currently buffered
+     */
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+    
+    /**
+     * Stop producing results and discard anything buffered.
+     */
+    public void stop() {
+        stopped = true;
+        Future<?> future = this.future;
+        if (future != null) {
+            future.cancel(true);
+        }
+        buffer.clear();
+    }
+}
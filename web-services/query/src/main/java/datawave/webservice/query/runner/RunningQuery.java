@@ -10,6 +10,7 @@ import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.data.ObjectSizeOf;
 import datawave.webservice.query.exception.QueryException;
+import datawave.webservice.query.logic.EstimatesResultSize;
 import datawave.webservice.query.logic.QueryLogic;
 import datawave.webservice.query.logic.WritesQueryMetrics;
 import datawave.webservice.query.logic.WritesResultCardinalities;
@@ -35,6 +36,7 @@ import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -63,6 +65,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     private RunningQueryTiming timing = null;
     private ExecutorService executor = null;
     private volatile Future<Object> future = null;
+    private transient volatile ResultPrefetcher prefetcher = null;
     private QueryPredictor predictor = null;
     private long maxResults = 0;
     
@@ -165,6 +168,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             this.lastPageNumber = 0;
             this.logic.setupQuery(configuration);
             this.iter = this.logic.getTransformIterator(this.settings);
+            if (this.executor != null && this.logic.isPrefetchEnabled()) {
+                startPrefetch();
+            }
             // the configuration query string should now hold the planned query
             this.getMetric().setPlan(configuration.getQueryString());
             this.getMetric().setSetupTime((System.currentTimeMillis() - start));
@@ -204,7 +210,7 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
             // test for any exceptions prior to loop as hasNext() would likely be false;
             testForUncaughtException(resultList.size());
             
-            while (!this.finished && ((future != null) || this.iter.hasNext())) {
+            while (!this.finished && ((future != null) || (prefetcher != null) || this.iter.hasNext())) {
                 // if we are canceled, then break out
                 if (this.canceled) {
                     log.info("Query has been cancelled, aborting query.next call");
@@ -259,7 +265,15 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                 }
                 
                 Object o = null;
-                if (executor != null) {
+                boolean waiting = false;
+                if (prefetcher != null) {
+                    o = prefetcher.poll(1, TimeUnit.SECONDS);
+                    if (o == ResultPrefetcher.PENDING) {
+                        // nothing produced yet, loop around to check the cutoffs again
+                        o = null;
+                        waiting = true;
+                    }
+                } else if (executor != null) {
                     if (future == null) {
                         future = executor.submit(() -> iter.next());
                     }
@@ -276,25 +290,28 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
                     } catch (TimeoutException te) {
                         // in this case we are still waiting on our future....simply continue
                     }
+                    waiting = (future != null);
                 } else {
                     o = iter.next();
                 }
                 
                 // regardless whether the transform iterator returned a result, it may have updated the metrics (next/seek calls etc.)
-                if (iter.getTransformer() instanceof WritesQueryMetrics) {
-                    ((WritesQueryMetrics) iter.getTransformer()).writeQueryMetrics(this.getMetric());
+                Object transformer = iter.getTransformer();
+                if (transformer instanceof WritesQueryMetrics) {
+                    ((WritesQueryMetrics) transformer).writeQueryMetrics(this.getMetric());
                 }
                 
-                // if not still waiting on a future, then process the result (or lack thereof)
-                if (future == null) {
+                // if not still waiting on a result, then process the result (or lack thereof)
+                if (!waiting) {
                     if (null == o) {
                         log.debug("Null result encountered, no more results");
                         this.finished = true;
+                        stopPrefetch();
                         break;
                     }
                     resultList.add(o);
                     if (this.logic.getPageByteTrigger() > 0) {
-                        currentPageBytes += ObjectSizeOf.Sizer.getObjectSize(o);
+                        currentPageBytes += getResultSize(transformer, o);
                     }
                     currentPageCount++;
                     numResults++;
@@ -337,8 +354,49 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
         }
     }
     
+    /**
+     * Start producing results on the executor ahead of the client. The buffer holds one page, and production stops at the max results; the remaining cutoffs
+     * are checked as the results are consumed in {@link #next()}. A thread of the executor is only used while the buffer is being filled, so an idle client
+     * does not hold one.
+     */
+    private void startPrefetch() {
+        int pageSize = this.settings.getPagesize();
+        if (this.logic.getMaxPageSize() > 0) {
+            pageSize = Math.min(pageSize, this.logic.getMaxPageSize());
+        }
+        long limit = (this.settings.isMaxResultsOverridden() ? this.settings.getMaxResultsOverride() : this.maxResults);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(this.iter, pageSize, limit);
+        try {
+            prefetcher.start(this.executor);
+            this.prefetcher = prefetcher;
+        } catch (RejectedExecutionException e) {
+            log.warn("Unable to prefetch results, producing pages on request", e);
+        }
+    }
+    
+    private void stopPrefetch() {
+        ResultPrefetcher prefetcher = this.prefetcher;
+        if (prefetcher != null) {
+            prefetcher.stop();
+        }
+    }
+    
+    /**
+     * Get the size of a result for the page byte trigger, preferring the estimate of the transformer over the reflective object size.
+     */
+    private long getResultSize(Object transformer, Object result) {
+        if (transformer instanceof EstimatesResultSize) {
+            long size = ((EstimatesResultSize) transformer).estimateResultSize(result);
+            if (size >= 0) {
+                return size;
+            }
+        }
+        return ObjectSizeOf.Sizer.getObjectSize(result);
+    }
+    
     public void cancel() {
         this.canceled = true;
+        stopPrefetch();
         // save off the future as it could be removed at any time
         Future<Object> future = this.future;
         // cancel the future if we have one
@@ -412,6 +470,9 @@ public class RunningQuery extends AbstractRunningQuery implements Runnable {
     public void closeConnection(AccumuloConnectionFactory factory) throws Exception {
         this.getMetric().setLifecycle(BaseQueryMetric.Lifecycle.CLOSED);
         
+        // stop producing results before the logic is closed underneath the producer
+        stopPrefetch();
+        
         if (iter != null && iter.getTransformer() instanceof WritesResultCardinalities) {
             ((WritesResultCardinalities) iter.getTransformer()).writeResultCardinalities();
         }
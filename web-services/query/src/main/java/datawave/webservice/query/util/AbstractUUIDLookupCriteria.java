@@ -12,6 +12,7 @@ import javax.ws.rs.core.MultivaluedMap;
 public abstract class AbstractUUIDLookupCriteria {
     private boolean allEventLookup;
     private boolean contentLookup;
+    private boolean indexedContentLookup;
     private HttpHeaders headersForStreamedResponse;
     private MultivaluedMap<String,String> queryParameters;
     
@@ -49,6 +50,15 @@ public abstract class AbstractUUIDLookupCriteria {
         return contentLookup;
     }
     
+    /**
+     * Returns true if the UUIDs can be resolved directly through the shard index by the ContentQuery, skipping the UUID lookup query.
+     * 
+     * @return true if the content lookup is resolved through the shard index
+     */
+    public boolean isIndexedContentLookup() {
+        return this.indexedContentLookup;
+    }
+    
     public void setAllEventLookup(boolean allEventLookup) {
         this.allEventLookup = allEventLookup;
     }
@@ -57,6 +67,10 @@ public abstract class AbstractUUIDLookupCriteria {
         this.contentLookup = contentLookup;
     }
     
+    public void setIndexedContentLookup(boolean indexedContentLookup) {
+        this.indexedContentLookup = indexedContentLookup;
+    }
+    
     /**
      * If a streamed response is required, sets the HTTP headers used to invoke the QueryExecutor.execute(..) endpoint.
      * 
@@ -61,6 +61,11 @@ public class LookupUUIDUtil {
      */
     public static final String PARAM_CONTENT_LOOKUP = "content.lookup";
     
+    /**
+     * Parameter of the ContentQuery to resolve the UUID type/value terms through the shard index
+     */
+    public static final String PARAM_CONTENT_INDEX_LOOKUP = "content.index.lookup";
+    
     private static final String PARAM_LUCENE_QUERY_SYNTAX = ";query.syntax:LUCENE-UUID";
     protected static final String QUOTE = "\"";
     private static final String REGEX_GROUPING_CHARS = "[()]";
@@ -166,15 +171,20 @@ public class LookupUUIDUtil {
         // Initialize the returned list of query strings
         final List<StringBuilder> batchedContentQueryStrings = new LinkedList<>();
         
-        // Get the raw query string from the validated criteria
-        final String rawQueryString = validatedCriteria.getRawQueryString();
+        // Get the raw query string from the validated criteria, reduced to its UUID terms if they are resolved through the shard index
+        String rawQueryString = validatedCriteria.getRawQueryString();
+        if (validatedCriteria.isIndexedContentLookup()) {
+            rawQueryString = rawQueryString.replaceAll(REGEX_GROUPING_CHARS, SPACE);
+            rawQueryString = rawQueryString.replaceAll(REGEX_NONWORD_CHARS, EMPTY_STRING);
+            rawQueryString = rawQueryString.replaceAll(REGEX_OR_OPERATOR, SPACE);
+        }
         
         // Initialize the string builder
         StringBuilder contentQuery = null;
         int eventCounter = 0;
         
         // Break apart into separate terms
-        final String[] uuidTypeValuePairs = rawQueryString.split(REGEX_WHITESPACE_CHARS);
+        final String[] uuidTypeValuePairs = rawQueryString.trim().split(REGEX_WHITESPACE_CHARS);
         for (final String potentialUUIDTerm : uuidTypeValuePairs) {
             // Double-check for the expected type/value delimiter (i.e., event:shardID/datatype/uid)
             if (potentialUUIDTerm.contains(UUID_TERM_DELIMITER)) {
@@ -188,7 +198,9 @@ public class LookupUUIDUtil {
                     uuid = null;
                 }
                 
-                if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) && (null != uuid)) {
+                // Include the UUID type/value terms resolved through the shard index by the ContentQuery
+                final boolean indexedTerm = validatedCriteria.isIndexedContentLookup() && (null != uuid) && !uuid.isEmpty();
+                if ((EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) && (null != uuid)) || indexedTerm) {
                     // Conditionally initialize a new query string and the event counter
                     if ((null == contentQuery) || (!multiTermExpressionsSupported)
                                     || ((this.maxAllowedBatchLookupUUIDs > 0) && (eventCounter > this.maxAllowedBatchLookupUUIDs))) {
@@ -202,7 +214,11 @@ public class LookupUUIDUtil {
                     }
                     
                     // Append the content query criteria
-                    contentQuery.append(DOCUMENT_FIELD_NAME);
+                    if (indexedTerm) {
+                        contentQuery.append(uuidType).append(UUID_TERM_DELIMITER);
+                    } else {
+                        contentQuery.append(DOCUMENT_FIELD_NAME);
+                    }
                     contentQuery.append(uuid);
                 }
             }
@@ -300,9 +316,10 @@ public class LookupUUIDUtil {
         final AbstractUUIDLookupCriteria validatedCriteria = this.validateLookupCriteria(unvalidatedCriteria, true);
         final HttpHeaders headers = validatedCriteria.getStreamingOutputHeaders();
         
-        // If the criteria is intended for content lookup and contains only UIDQuery "event" types, allow
-        // for optimized content lookup by skipping the UUID lookup query and assigning a "dummy" EventQueryResponseBase.
-        if (validatedCriteria.isContentLookup() && validatedCriteria.isAllEventLookup()) {
+        // If the criteria is intended for content lookup and contains only UIDQuery "event" types, or UUIDs the ContentQuery
+        // can resolve through the shard index, allow for optimized content lookup by skipping the UUID lookup query and
+        // assigning a "dummy" EventQueryResponseBase.
+        if (validatedCriteria.isContentLookup() && (validatedCriteria.isAllEventLookup() || validatedCriteria.isIndexedContentLookup())) {
             response = (T) new AllEventMockResponse(validatedCriteria);
         }
         // Otherwise, just execute the query as normally expected
@@ -775,6 +792,8 @@ public class LookupUUIDUtil {
             // Initialize the counter for validating against the maximum number of allowed UUIDs
             int uuidPairCount = 0;
             int eventTypeCountForContentLookup = 0;
+            int indexedTypeCountForContentLookup = 0;
+            int termCount = 0;
             
             // Reformat the query into a tokenizable series of UUID type/value pairs
             String tokenizablePairs;
@@ -790,6 +809,10 @@ public class LookupUUIDUtil {
             // Validate each UUID type and value
             final String[] uuidTypeValuePairs = tokenizablePairs.split(REGEX_WHITESPACE_CHARS);
             for (final String potentialUUIDTerm : uuidTypeValuePairs) {
+                if (!potentialUUIDTerm.trim().isEmpty()) {
+                    termCount++;
+                }
+                
                 // Validate the "potential" UUID term. It's potential because it could be an OR operator
                 // or some other query syntax that would be validated with more scrutiny once the query
                 // executor is invoked.
@@ -807,6 +830,11 @@ public class LookupUUIDUtil {
                     if (criteria.isContentLookup() && EVENT_TYPE_NAME.equals(uuidType.getFieldName())) {
                         eventTypeCountForContentLookup++;
                     }
+                    // Increment the counter for UUID types that can be looked up in the shard index
+                    else if (criteria.isContentLookup() && !UID_QUERY.equals(uuidType.getDefinedView())
+                                    && !LOOKUP_UID_QUERY.equals(uuidType.getDefinedView())) {
+                        indexedTypeCountForContentLookup++;
+                    }
                 }
             }
             
@@ -832,6 +860,12 @@ public class LookupUUIDUtil {
                             && (uuidPairCount <= Integer.parseInt(criteria.getQueryParameters().getFirst(QueryParameters.QUERY_PAGESIZE)))) {
                 criteria.setAllEventLookup(true);
             }
+            
+            // Set the flag if a streamed content lookup consists only of OR'd UUIDs that the ContentQuery can resolve through the shard index
+            if (this.lookupUUIDConfiguration.isIndexedContentLookup() && (null != criteria.getStreamingOutputHeaders())
+                            && (indexedTypeCountForContentLookup > 0) && (uuidPairCount == indexedTypeCountForContentLookup) && (termCount == uuidPairCount)) {
+                criteria.setIndexedContentLookup(true);
+            }
         }
         
         // Set the query logic
@@ -848,9 +882,14 @@ public class LookupUUIDUtil {
         }
         
         // Conditionally add content.lookup syntax to parameters to indicate content lookup during "next" calls
-        if (criteria.isContentLookup() && !criteria.isAllEventLookup()) {
+        if (criteria.isContentLookup() && !criteria.isAllEventLookup() && !criteria.isIndexedContentLookup()) {
             params = params + ';' + PARAM_CONTENT_LOOKUP + ':' + true;
         }
+        
+        // Conditionally add content.index.lookup syntax to parameters to let the ContentQuery resolve the UUIDs through the shard index
+        if (criteria.isIndexedContentLookup()) {
+            params = params + ';' + PARAM_CONTENT_INDEX_LOOKUP + ':' + true;
+        }
         criteria.getQueryParameters().putSingle(QueryParameters.QUERY_PARAMS, params);
         
         // All is well, so return the validated criteria
@@ -51,6 +51,7 @@ public class TestBaseQueryLogic {
         expect(this.copy.getMaxPageSize()).andReturn(25);
         expect(this.copy.getPageByteTrigger()).andReturn(1024L);
         expect(this.copy.getCollectQueryMetrics()).andReturn(false);
+        expect(this.copy.isPrefetchEnabled()).andReturn(false);
         expect(this.copy.getConnPoolName()).andReturn("connPool1");
         expect(this.copy.getBaseIteratorPriority()).andReturn(100);
         expect(this.copy.getPrincipal()).andReturn(null);
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -306,6 +307,20 @@ public class CompositeQueryLogicTest {
         }
     }
     
+    public static class SortedTestQueryLogic extends TestQueryLogic {
+        @Override
+        public Iterator<Entry<Key,Value>> iterator() {
+            return new TreeMap<>(getData()).entrySet().iterator();
+        }
+    }
+    
+    public static class SortedTestQueryLogic2 extends TestQueryLogic2 {
+        @Override
+        public Iterator<Entry<Key,Value>> iterator() {
+            return new TreeMap<>(getData()).entrySet().iterator();
+        }
+    }
+    
     public static class DifferentTestQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         
         @Override
@@ -732,6 +747,55 @@ public class CompositeQueryLogicTest {
         
     }
     
+    @Test
+    public void testQueryLogicWithResultComparator() throws Exception {
+        List<BaseQueryLogic<?>> logics = new ArrayList<>();
+        SortedTestQueryLogic logic1 = new SortedTestQueryLogic();
+        SortedTestQueryLogic2 logic2 = new SortedTestQueryLogic2();
+        logics.add(logic1);
+        logics.add(logic2);
+        
+        logic1.getData().put(key1, value1);
+        logic1.getData().put(key2, value2);
+        logic2.getData().put(key3, value3);
+        logic2.getData().put(key4, value4);
+        logic1.getData().put(key5, value5);
+        logic1.getData().put(key6, value6);
+        logic2.getData().put(key7, value7);
+        logic2.getData().put(key8, value8);
+        
+        // a small page size so that the delegates have to be rescheduled as their queues are drained
+        QueryImpl settings = new QueryImpl();
+        settings.setPagesize(1);
+        settings.setQueryAuthorizations(auths.serialize());
+        settings.setQuery("FOO == 'BAR'");
+        settings.setParameters(new HashSet<>());
+        settings.setId(UUID.randomUUID());
+        
+        CompositeQueryLogic c = new CompositeQueryLogic();
+        c.setResultComparator((o1, o2) -> ((TestQueryResponse) o1).getKey().compareTo(((TestQueryResponse) o2).getKey()));
+        logic1.setMaxResults(-1);
+        logic2.setMaxResults(-1);
+        c.setQueryLogics(logics);
+        c.initialize((Connector) null, (Query) settings, Collections.singleton(auths));
+        c.setupQuery(null);
+        TransformIterator iter = c.getTransformIterator((Query) settings);
+        
+        List<String> keys = new ArrayList<>();
+        while (iter.hasNext()) {
+            Object o = iter.next();
+            if (null == o)
+                break;
+            keys.add(((TestQueryResponse) o).getKey());
+        }
+        Assert.assertEquals(8, keys.size());
+        List<String> sorted = new ArrayList<>(keys);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, keys);
+        
+        c.close();
+    }
+    
     @Test
     public void testQueryLogicNoData() throws Exception {
         List<BaseQueryLogic<?>> logics = new ArrayList<>();
@@ -0,0 +1,80 @@
+package datawave.webservice.query.metric;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueryMetricSpillBufferTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private File directory;
+    
+    @Before
+    public void setup() {
+        directory = new File(temporaryFolder.getRoot(), "spill");
+    }
+    
+    private QueryMetricHolder createHolder(String queryId) {
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryId(queryId);
+        return new QueryMetricHolder(null, metric);
+    }
+    
+    @Test
+    public void testSpillAndRead() throws Exception {
+        QueryMetricSpillBuffer buffer = new QueryMetricSpillBuffer(directory, 10);
+        Assert.assertTrue(buffer.getFiles().isEmpty());
+        
+        buffer.spill(Arrays.asList(createHolder("a"), createHolder("b")));
+        buffer.spill(Collections.singletonList(createHolder("c")));
+        buffer.spill(Collections.emptyList());
+        
+        List<File> files = buffer.getFiles();
+        Assert.assertEquals(2, files.size());
+        List<QueryMetricHolder> first = buffer.read(files.get(0));
+        Assert.assertEquals(2, first.size());
+        Assert.assertEquals("a", first.get(0).getQueryMetric().getQueryId());
+        Assert.assertEquals("b", first.get(1).getQueryMetric().getQueryId());
+        Assert.assertEquals("c", buffer.read(files.get(1)).get(0).getQueryMetric().getQueryId());
+        
+        buffer.delete(files.get(0));
+        Assert.assertEquals(Collections.singletonList(files.get(1)), buffer.getFiles());
+    }
+    
+    @Test
+    public void testOldestDroppedWhenFull() throws Exception {
+        QueryMetricSpillBuffer buffer = new QueryMetricSpillBuffer(directory, 2);
+        buffer.spill(Collections.singletonList(createHolder("a")));
+        buffer.spill(Collections.singletonList(createHolder("b")));
+        buffer.spill(Collections.singletonList(createHolder("c")));
+        
+        List<File> files = buffer.getFiles();
+        Assert.assertEquals(2, files.size());
+        Assert.assertEquals("b", buffer.read(files.get(0)).get(0).getQueryMetric().getQueryId());
+        Assert.assertEquals("c", buffer.read(files.get(1)).get(0).getQueryMetric().getQueryId());
+    }
+    
+    @Test
+    public void testOldestQuarantinedDroppedWhenFull() throws Exception {
+        QueryMetricSpillBuffer buffer = new QueryMetricSpillBuffer(directory, 2);
+        for (String queryId : new String[] {"a", "b", "c"}) {
+            buffer.spill(Collections.singletonList(createHolder(queryId)));
+            buffer.quarantine(buffer.getFiles().get(0));
+        }
+        
+        Assert.assertTrue(buffer.getFiles().isEmpty());
+        List<File> files = buffer.getQuarantinedFiles();
+        Assert.assertEquals(2, files.size());
+        Assert.assertEquals("b", buffer.read(files.get(0)).get(0).getQueryMetric().getQueryId());
+        Assert.assertEquals("c", buffer.read(files.get(1)).get(0).getQueryMetric().getQueryId());
+    }
+}
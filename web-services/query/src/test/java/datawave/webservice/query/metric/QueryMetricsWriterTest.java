@@ -0,0 +1,193 @@
+package datawave.webservice.query.metric;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+import datawave.security.authorization.DatawavePrincipal;
+
+public class QueryMetricsWriterTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private LinkedList<Message> messages;
+    private TestQueryMetricHandler handler;
+    private QueryMetricsWriterConfiguration config;
+    private QueryMetricsWriter writer;
+    
+    @Before
+    public void setup() throws Exception {
+        messages = new LinkedList<>();
+        handler = new TestQueryMetricHandler();
+        
+        JMSConsumer consumer = EasyMock.createMock(JMSConsumer.class);
+        EasyMock.expect(consumer.receive(EasyMock.anyLong())).andAnswer(() -> messages.poll()).anyTimes();
+        consumer.close();
+        EasyMock.expectLastCall().anyTimes();
+        Queue dest = EasyMock.createMock(Queue.class);
+        JMSContext jmsContext = EasyMock.createMock(JMSContext.class);
+        EasyMock.expect(jmsContext.createConsumer(dest)).andReturn(consumer).anyTimes();
+        EasyMock.replay(consumer, dest, jmsContext);
+        
+        config = new QueryMetricsWriterConfiguration();
+        config.setSpillDirectory(new File(temporaryFolder.getRoot(), "spill").getAbsolutePath());
+        config.setMaxSpillRetries(2);
+        config.setWriteThreads(1);
+        
+        writer = new QueryMetricsWriter();
+        Whitebox.setInternalState(writer, "jmsContext", jmsContext);
+        Whitebox.setInternalState(writer, "dest", dest);
+        Whitebox.setInternalState(writer, "queryMetricHandler", handler);
+        Whitebox.setInternalState(writer, "config", config);
+        Whitebox.invokeMethod(writer, "init");
+    }
+    
+    private void send(String... queryIds) throws Exception {
+        for (String queryId : queryIds) {
+            QueryMetric metric = new QueryMetric();
+            metric.setQueryId(queryId);
+            metric.setLastUpdated(new Date());
+            ObjectMessage message = EasyMock.createMock(ObjectMessage.class);
+            EasyMock.expect(message.getObject()).andReturn(new QueryMetricHolder(null, metric)).anyTimes();
+            EasyMock.replay(message);
+            messages.add(message);
+        }
+    }
+    
+    private QueryMetricSpillBuffer getSpillBuffer() {
+        return Whitebox.getInternalState(writer, "spillBuffer");
+    }
+    
+    private int getQuarantined() {
+        File[] files = getSpillBuffer().getQuarantineDirectory().listFiles();
+        return files == null ? 0 : files.length;
+    }
+    
+    @Test
+    public void testWrite() throws Exception {
+        send("a", "b");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(Arrays.asList("a", "b"), handler.written);
+        Assert.assertTrue(getSpillBuffer().getFiles().isEmpty());
+    }
+    
+    @Test
+    public void testSpillAndReplay() throws Exception {
+        handler.available = false;
+        send("a", "b");
+        // the first failure is kept in memory and retried on the next run
+        writer.receiveQueryMetrics();
+        Assert.assertTrue(getSpillBuffer().getFiles().isEmpty());
+        
+        // the second failure is spilled, and the updates received behind it are spilled as well
+        send("c");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(2, getSpillBuffer().getFiles().size());
+        Assert.assertTrue(messages.isEmpty());
+        Assert.assertTrue(handler.written.isEmpty());
+        
+        handler.available = true;
+        send("d");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), handler.written);
+        Assert.assertTrue(getSpillBuffer().getFiles().isEmpty());
+        Assert.assertEquals(0, getQuarantined());
+    }
+    
+    @Test
+    public void testFailingSpillFileQuarantined() throws Exception {
+        handler.failing.add("poison");
+        send("poison", "a");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(Arrays.asList("a"), handler.written);
+        
+        send("b");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(2, getSpillBuffer().getFiles().size());
+        
+        // the spilled poison update fails once more, the metrics are still received and spilled behind it
+        send("c");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(3, getSpillBuffer().getFiles().size());
+        Assert.assertTrue(messages.isEmpty());
+        Assert.assertEquals(Arrays.asList("a"), handler.written);
+        
+        // the last allowed failure quarantines the poison update and the updates behind it are written
+        send("d");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), handler.written);
+        Assert.assertTrue(getSpillBuffer().getFiles().isEmpty());
+        Assert.assertEquals(1, getQuarantined());
+        
+        send("e");
+        writer.receiveQueryMetrics();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e"), handler.written);
+    }
+    
+    private static class TestQueryMetricHandler implements QueryMetricHandler<QueryMetric> {
+        
+        private boolean available = true;
+        private Set<String> failing = new HashSet<>();
+        private List<String> written = new ArrayList<>();
+        
+        @Override
+        public void updateMetric(QueryMetric metric, DatawavePrincipal datawavePrincipal) throws Exception {
+            if (!available || failing.contains(metric.getQueryId())) {
+                throw new IllegalStateException("Unable to write " + metric.getQueryId());
+            }
+            written.add(metric.getQueryId());
+        }
+        
+        @Override
+        public Map<String,String> getEventFields(BaseQueryMetric queryMetric) {
+            return null;
+        }
+        
+        @Override
+        public BaseQueryMetricListResponse<QueryMetric> query(String user, String queryId, DatawavePrincipal datawavePrincipal) {
+            return null;
+        }
+        
+        @Override
+        public QueryMetricsSummaryResponse getTotalQueriesSummaryCounts(Date begin, Date end, DatawavePrincipal datawavePrincipal) {
+            return null;
+        }
+        
+        @Override
+        public QueryMetricsSummaryHtmlResponse getTotalQueriesSummary(Date begin, Date end, DatawavePrincipal datawavePrincipal) {
+            return null;
+        }
+        
+        @Override
+        public QueryMetricsSummaryHtmlResponse getUserQueriesSummary(Date begin, Date end, DatawavePrincipal datawavePrincipal) {
+            return null;
+        }
+        
+        @Override
+        public void flush() throws Exception {}
+        
+        @Override
+        public void reload() {}
+    }
+}
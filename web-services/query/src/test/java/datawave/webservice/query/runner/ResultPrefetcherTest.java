@@ -0,0 +1,161 @@
+package datawave.webservice.query.runner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResultPrefetcherTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+    
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+    
+    private List<Object> drain(ResultPrefetcher prefetcher) throws Exception {
+        List<Object> results = new ArrayList<>();
+        Object o;
+        while ((o = prefetcher.poll(1, TimeUnit.SECONDS)) != null) {
+            if (o != ResultPrefetcher.PENDING) {
+                results.add(o);
+            }
+        }
+        return results;
+    }
+    
+    @Test
+    public void testAllResults() throws Exception {
+        ResultPrefetcher prefetcher = new ResultPrefetcher(Arrays.asList("a", "b", "c", "d", "e").iterator(), 2, -1);
+        prefetcher.start(executor);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), drain(prefetcher));
+        // the end of the results is sticky
+        assertNull(prefetcher.poll(1, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testNullResultEndsResults() throws Exception {
+        ResultPrefetcher prefetcher = new ResultPrefetcher(Arrays.asList("a", null, "c").iterator(), 2, -1);
+        prefetcher.start(executor);
+        assertEquals(Arrays.asList("a"), drain(prefetcher));
+    }
+    
+    @Test
+    public void testMaxResults() throws Exception {
+        ResultPrefetcher prefetcher = new ResultPrefetcher(Arrays.asList("a", "b", "c", "d", "e").iterator(), 10, 3);
+        prefetcher.start(executor);
+        assertEquals(Arrays.asList("a", "b", "c"), drain(prefetcher));
+    }
+    
+    @Test
+    public void testBufferIsBounded() throws Exception {
+        CountingIterator iter = new CountingIterator(100);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, 5, -1);
+        prefetcher.start(executor);
+        Thread.sleep(500);
+        // the producer stops once the buffer is full
+        assertEquals(5, iter.produced);
+        assertEquals(100, drain(prefetcher).size());
+    }
+    
+    @Test
+    public void testThreadReleasedWhenBufferFull() throws Exception {
+        CountingIterator iter = new CountingIterator(100);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, 5, -1);
+        prefetcher.start(executor);
+        // the single thread of the executor is free again once the buffer is full
+        assertEquals("free", executor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+        assertEquals(5, prefetcher.getBufferedCount());
+        // and consuming results schedules the producer again
+        assertEquals(100, drain(prefetcher).size());
+    }
+    
+    @Test
+    public void testProducedOnCallerWhenRejected() throws Exception {
+        CountingIterator iter = new CountingIterator(12);
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, 5, -1);
+        prefetcher.start(executor);
+        executor.submit(() -> "free").get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(12, drain(prefetcher).size());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testFailureIsRethrown() throws Exception {
+        Iterator<Object> iter = new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Object next() {
+                throw new IllegalStateException("scan failed");
+            }
+        };
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, 5, -1);
+        prefetcher.start(executor);
+        drain(prefetcher);
+    }
+    
+    @Test
+    public void testPendingAndStop() throws Exception {
+        Iterator<Object> iter = new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Object next() {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "late";
+            }
+        };
+        ResultPrefetcher prefetcher = new ResultPrefetcher(iter, 5, -1);
+        prefetcher.start(executor);
+        assertSame(ResultPrefetcher.PENDING, prefetcher.poll(10, TimeUnit.MILLISECONDS));
+        prefetcher.stop();
+        assertEquals(0, prefetcher.getBufferedCount());
+    }
+    
+    private static class CountingIterator implements Iterator<Object> {
+        private final int max;
+        private volatile int produced = 0;
+        
+        CountingIterator(int max) {
+            this.max = max;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return produced < max;
+        }
+        
+        @Override
+        public Object next() {
+            return produced++;
+        }
+    }
+}
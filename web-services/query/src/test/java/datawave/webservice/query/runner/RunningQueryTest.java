@@ -7,8 +7,10 @@ import datawave.security.authorization.DatawaveUser.UserType;
 import datawave.security.authorization.SubjectIssuerDNPair;
 import datawave.security.util.DnUtils.NpeUtils;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
 import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.DatawaveRoleManager;
@@ -19,10 +21,12 @@ import datawave.webservice.query.logic.composite.CompositeQueryLogicTest;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.collections4.TransformerUtils;
 import org.apache.commons.collections4.iterators.TransformIterator;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -33,16 +37,23 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class RunningQueryTest {
     
@@ -191,4 +202,132 @@ public class RunningQueryTest {
             Assert.fail("NullPointer encountered. This could be caused by configuration being null. Check logic.initialize() ");
         }
     }
+    
+    @Test
+    public void testPrefetchPages() throws Exception {
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add("result" + i);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RunningQuery query = createPrefetchQuery(new PrefetchQueryLogic(results.iterator()), executor);
+            ResultsPage page = query.next();
+            assertEquals(results.subList(0, 10), page.getResults());
+            
+            // the next page is produced ahead of the client, without holding the thread of the executor
+            waitForFullBuffer(query, 10);
+            assertEquals("free", executor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+            
+            assertEquals(results.subList(10, 20), query.next().getResults());
+            assertEquals(results.subList(20, 25), query.next().getResults());
+            assertTrue(query.isFinished());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testCancelWithFullBuffer() throws Exception {
+        CountingIterator results = new CountingIterator();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RunningQuery query = createPrefetchQuery(new PrefetchQueryLogic(results), executor);
+            assertEquals(10, query.next().getResults().size());
+            ResultPrefetcher prefetcher = waitForFullBuffer(query, 10);
+            
+            query.cancel();
+            assertTrue(query.isCanceled());
+            assertEquals(0, prefetcher.getBufferedCount());
+            assertProducerStopped(results, executor);
+            assertTrue(query.next().getResults().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testCloseWithFullBuffer() throws Exception {
+        CountingIterator results = new CountingIterator();
+        PrefetchQueryLogic prefetchLogic = new PrefetchQueryLogic(results);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RunningQuery query = createPrefetchQuery(prefetchLogic, executor);
+            assertEquals(10, query.next().getResults().size());
+            ResultPrefetcher prefetcher = waitForFullBuffer(query, 10);
+            
+            AccumuloConnectionFactory factory = createNiceMock(AccumuloConnectionFactory.class);
+            replay(factory);
+            query.closeConnection(factory);
+            assertTrue(prefetchLogic.closed);
+            assertEquals(0, prefetcher.getBufferedCount());
+            assertProducerStopped(results, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private RunningQuery createPrefetchQuery(QueryLogic<?> prefetchLogic, ExecutorService executor) throws Exception {
+        DatawaveUser user = new DatawaveUser(userDN, UserType.USER, null, null, null, 0L);
+        DatawavePrincipal principal = new DatawavePrincipal(Collections.singletonList(user));
+        Connector connector = new InMemoryInstance("test instance").getConnector("root", new PasswordToken(""));
+        return new RunningQuery(connector, connectionPriority, prefetchLogic, settings, methodAuths, principal, null, executor, new QueryMetricFactoryImpl());
+    }
+    
+    private ResultPrefetcher waitForFullBuffer(RunningQuery query, int size) throws InterruptedException {
+        ResultPrefetcher prefetcher = Whitebox.getInternalState(query, "prefetcher");
+        long end = System.currentTimeMillis() + 5000;
+        while (prefetcher.getBufferedCount() < size && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, prefetcher.getBufferedCount());
+        return prefetcher;
+    }
+    
+    private void assertProducerStopped(CountingIterator results, ExecutorService executor) throws Exception {
+        int produced = results.produced;
+        assertEquals("free", executor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(produced, results.produced);
+    }
+    
+    private static class PrefetchQueryLogic extends TestQueryLogic<Object> {
+        private final Iterator<Object> results;
+        private volatile boolean closed = false;
+        
+        PrefetchQueryLogic(Iterator<Object> results) {
+            this.results = results;
+            setPrefetchEnabled(true);
+        }
+        
+        @Override
+        public GenericQueryConfiguration initialize(Connector connection, Query settings, Set<Authorizations> runtimeQueryAuthorizations) {
+            return new GenericQueryConfiguration() {};
+        }
+        
+        @Override
+        public TransformIterator getTransformIterator(Query settings) {
+            return new TransformIterator(results, TransformerUtils.nopTransformer());
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            super.close();
+        }
+    }
+    
+    private static class CountingIterator implements Iterator<Object> {
+        private volatile int produced = 0;
+        
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+        
+        @Override
+        public Object next() {
+            return produced++;
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package datawave.webservice.query.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.ejb.EJBContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+
+import datawave.query.data.UUIDType;
+import datawave.security.authorization.DatawavePrincipal;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.webservice.query.QueryParameters;
+import datawave.webservice.query.configuration.LookupUUIDConfiguration;
+import datawave.webservice.query.runner.QueryExecutor;
+import datawave.webservice.result.BaseQueryResponse;
+import datawave.webservice.result.DefaultEventQueryResponse;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LookupUUIDUtilTest {
+    
+    private static final String UUID_QUERY = "LuceneUUIDEventQuery";
+    
+    private LookupUUIDConfiguration configuration;
+    private QueryExecutor queryExecutor;
+    private EJBContext context;
+    private HttpHeaders headers;
+    
+    @Before
+    public void setup() {
+        configuration = new LookupUUIDConfiguration();
+        configuration.setBeginDate("20100101");
+        configuration.setUuidTypes(Arrays.asList(new UUIDType("UUID", UUID_QUERY, null), new UUIDType("EVENT", LookupUUIDUtil.UID_QUERY, null)));
+        
+        DatawaveUser user = new DatawaveUser(SubjectIssuerDNPair.of("userDn", "issuerDn"), UserType.USER, Collections.singletonList("A"), null, null, 0L);
+        context = EasyMock.createMock(EJBContext.class);
+        EasyMock.expect(context.getCallerPrincipal()).andReturn(new DatawavePrincipal(Collections.singletonList(user))).anyTimes();
+        queryExecutor = EasyMock.createMock(QueryExecutor.class);
+        headers = EasyMock.createMock(HttpHeaders.class);
+    }
+    
+    private AbstractUUIDLookupCriteria createCriteria(String uuidPairs) {
+        MultivaluedMap<String,String> queryParameters = new MultivaluedMapImpl<>();
+        queryParameters.putSingle(QueryParameters.QUERY_PAGESIZE, "10");
+        AbstractUUIDLookupCriteria criteria = new PostUUIDCriteria(uuidPairs, queryParameters);
+        criteria.setStreamingOutputHeaders(headers);
+        return criteria;
+    }
+    
+    @Test
+    public void testIndexedContentLookup() {
+        configuration.setIndexedContentLookup(true);
+        
+        // the UUID query is skipped, and the ContentQuery resolves the UUIDs through the shard index
+        StreamingOutput output = EasyMock.createMock(StreamingOutput.class);
+        Capture<MultivaluedMap<String,String>> parameters = Capture.newInstance();
+        EasyMock.expect(queryExecutor.execute(EasyMock.eq("ContentQuery"), EasyMock.capture(parameters), EasyMock.eq(headers))).andReturn(output);
+        EasyMock.replay(context, queryExecutor, headers);
+        
+        LookupUUIDUtil util = new LookupUUIDUtil(configuration, queryExecutor, context, null);
+        Assert.assertSame(output, util.lookupContentByUUIDs(createCriteria("(UUID:abc OR uuid:DEF)")));
+        EasyMock.verify(queryExecutor);
+        
+        Assert.assertEquals("UUID:abc UUID:DEF", parameters.getValue().getFirst(QueryParameters.QUERY_STRING));
+        String params = parameters.getValue().getFirst(QueryParameters.QUERY_PARAMS);
+        Assert.assertTrue(params, params.contains(LookupUUIDUtil.PARAM_CONTENT_INDEX_LOOKUP + ":true"));
+        Assert.assertFalse(params, params.contains(LookupUUIDUtil.PARAM_CONTENT_LOOKUP + ":"));
+    }
+    
+    @Test
+    public void testIndexedContentLookupDisabled() {
+        assertUUIDQuery(createCriteria("UUID:abc OR UUID:def"));
+    }
+    
+    @Test
+    public void testIndexedContentLookupRequiresOnlyUUIDTerms() {
+        configuration.setIndexedContentLookup(true);
+        assertUUIDQuery(createCriteria("UUID:abc AND NOT UUID:def"));
+    }
+    
+    @Test
+    public void testIndexedContentLookupRequiresStreaming() {
+        configuration.setIndexedContentLookup(true);
+        AbstractUUIDLookupCriteria criteria = createCriteria("UUID:abc");
+        criteria.setStreamingOutputHeaders(null);
+        assertUUIDQuery(criteria);
+    }
+    
+    /*
+     * Verify that the content lookup criteria runs the UUID query first, as it can not be resolved through the shard index by the ContentQuery
+     */
+    private void assertUUIDQuery(AbstractUUIDLookupCriteria criteria) {
+        BaseQueryResponse response = new DefaultEventQueryResponse();
+        Capture<MultivaluedMap<String,String>> parameters = Capture.newInstance();
+        EasyMock.expect(queryExecutor.createQueryAndNext(EasyMock.eq(UUID_QUERY), EasyMock.capture(parameters))).andReturn(response);
+        EasyMock.replay(context, queryExecutor, headers);
+        
+        criteria.setContentLookup(true);
+        LookupUUIDUtil util = new LookupUUIDUtil(configuration, queryExecutor, context, null);
+        Assert.assertSame(response, util.createUUIDQueryAndNext(criteria));
+        EasyMock.verify(queryExecutor);
+        
+        Assert.assertFalse(criteria.isIndexedContentLookup());
+        String params = parameters.getValue().getFirst(QueryParameters.QUERY_PARAMS);
+        Assert.assertTrue(params, params.contains(LookupUUIDUtil.PARAM_CONTENT_LOOKUP + ":true"));
+        Assert.assertFalse(params, params.contains(LookupUUIDUtil.PARAM_CONTENT_INDEX_LOOKUP));
+    }
+}